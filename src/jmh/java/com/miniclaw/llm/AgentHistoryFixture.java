@@ -0,0 +1,63 @@
+package com.miniclaw.llm;
+
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.ToolCall;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试共用的 Agent 对话历史
+ *
+ * <p>模拟 Agent 循环：前 N 条消息（系统提示、用户问题、工具调用、工具结果交替）不变，只有最后一条在变。
+ * 最后一条在预先构建的 {@value #TURNS} 条消息中轮换，由基准方法调用 {@link #nextTurn()} 切换
+ * （不用 {@code Level.Invocation}，避免把 setup 的计时开销算进去）；
+ * 轮换的消息和历史都放得进默认的编码缓存，不会测到缓存淘汰
+ *
+ * <p>非线程安全：配合 {@code Scope.Thread} 的 State 使用
+ */
+public class AgentHistoryFixture {
+
+    private static final int TURNS = 1024;
+
+    private final List<LlmRequest.Message> history;
+    private final LlmRequest.Message[] turns = new LlmRequest.Message[TURNS];
+    private int turn;
+
+    /**
+     * @param messages 历史消息条数（含最后一条）
+     */
+    public AgentHistoryFixture(int messages) {
+        history = new ArrayList<>(messages + 1);
+        history.add(LlmRequest.Message.system("你是一个能调用工具的助手。".repeat(20)));
+        for (int i = 1; i < messages; i++) {
+            history.add(switch (i % 3) {
+                case 0 -> LlmRequest.Message.user("第 " + i + " 个问题：" + "请帮我查一下最近的订单状态。".repeat(5));
+                case 1 -> LlmRequest.Message.assistantWithToolCalls(List.of(ToolCall.builder()
+                    .id("call_" + i)
+                    .type("function")
+                    .function(ToolCall.FunctionCall.builder()
+                        .name("query_orders")
+                        .arguments("{\"userId\":\"u-" + i + "\",\"limit\":10}")
+                        .build())
+                    .build()));
+                default -> LlmRequest.Message.toolResult("call_" + (i - 1),
+                    "{\"orders\":[" + "{\"id\":\"o-1\",\"status\":\"shipped\"},".repeat(10) + "{}]}");
+            });
+        }
+        for (int i = 0; i < TURNS; i++) {
+            turns[i] = LlmRequest.Message.user("新问题 " + i);
+        }
+        history.add(turns[0]);
+    }
+
+    /**
+     * 换上下一轮的最后一条消息
+     *
+     * @return 历史（同一个列表，调用方不能修改）
+     */
+    public List<LlmRequest.Message> nextTurn() {
+        history.set(history.size() - 1, turns[turn++ & (TURNS - 1)]);
+        return history;
+    }
+}
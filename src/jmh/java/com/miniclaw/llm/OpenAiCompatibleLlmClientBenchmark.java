@@ -0,0 +1,142 @@
+package com.miniclaw.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.codec.ChatCompletionRequest;
+import com.miniclaw.llm.codec.ChatRequestEncoder;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端热路径基准测试
+ *
+ * <ul>
+ *   <li>{@code parseResponse} - 解析 src/jmh/resources/payloads 下录制的非流式响应（短回复、长回答、多工具调用）</li>
+ *   <li>{@code buildAndEncode} - Agent 循环的一轮（见 {@link AgentHistoryFixture}）：构建 API 请求并编码请求体，
+ *       历史消息 20 / 200 条</li>
+ * </ul>
+ *
+ * <p>流式解码见 {@code SseChunkDecoderBenchmark}
+ *
+ * <p>运行：{@code mvn -Pbenchmark compile exec:exec -Djmh.args="OpenAiCompatibleLlmClientBenchmark -prof gc"}，
+ * 调整前后对比 ops/s 和 {@code gc.alloc.rate.norm}（每次操作分配的字节数）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenAiCompatibleLlmClientBenchmark {
+
+    private static final String PROVIDER = "bench";
+
+    /**
+     * 客户端（不会发出请求，只使用解析和请求构建）
+     */
+    @State(Scope.Benchmark)
+    public static class ClientState {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        OpenAiCompatibleLlmClient client;
+        ChatRequestEncoder encoder;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            LlmProperties.ProviderConfig provider = new LlmProperties.ProviderConfig();
+            provider.setEndpoint("http://localhost:9");
+            provider.setApiKey("bench");
+            provider.setDefaultModel("gpt-4o");
+
+            LlmProperties properties = new LlmProperties();
+            properties.setDefaultProvider(PROVIDER);
+            properties.getProviders().put(PROVIDER, provider);
+
+            client = new OpenAiCompatibleLlmClient(properties, objectMapper, new SimpleMeterRegistry());
+            client.getToolRegistry().register("query_orders", "查询用户订单", Map.of(
+                "type", "object",
+                "properties", Map.of("userId", Map.of("type", "string"), "limit", Map.of("type", "integer")),
+                "required", List.of("userId")));
+            encoder = new ChatRequestEncoder(objectMapper, properties.getEncoding(), null);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            client.dispose();
+        }
+    }
+
+    /**
+     * 录制的非流式响应
+     */
+    @State(Scope.Thread)
+    public static class ResponseState {
+        @Param({"short-chat", "long-answer", "multi-tool"})
+        String payload;
+
+        byte[] body;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            body = load("payloads/" + payload + ".json");
+        }
+    }
+
+    /**
+     * Agent 对话历史
+     */
+    @State(Scope.Thread)
+    public static class HistoryState {
+        @Param({"20", "200"})
+        int messages;
+
+        AgentHistoryFixture history;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            history = new AgentHistoryFixture(messages);
+        }
+    }
+
+    @Benchmark
+    public LlmResponse parseResponse(ClientState state, ResponseState response) {
+        return state.client.parseResponse(response.body);
+    }
+
+    @Benchmark
+    public byte[] buildAndEncode(ClientState state, HistoryState history) {
+        LlmRequest request = LlmRequest.builder()
+            .messages(history.history.nextTurn())
+            .toolNames(List.of("query_orders"))
+            .build();
+        ChatCompletionRequest apiRequest = state.client.buildApiRequest(request, PROVIDER, true);
+        return state.encoder.encode(apiRequest);
+    }
+
+    private static byte[] load(String resource) throws IOException {
+        try (InputStream in = OpenAiCompatibleLlmClientBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Benchmark payload not found: " + resource);
+            }
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.miniclaw.llm.codec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.AgentHistoryFixture;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmRequest;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体编码基准测试
+ *
+ * <p>模拟 Agent 循环中的一轮（历史见 {@link AgentHistoryFixture}），
+ * 对比每轮重新构建 Map 再用 Jackson 序列化（原实现）与按条缓存编码结果后拼接
+ *
+ * <p>运行：{@code mvn -Pbenchmark compile exec:exec -Djmh.args="ChatRequestEncoderBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatRequestEncoderBenchmark {
+
+    @Param({"100", "200"})
+    private int messages;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChatRequestEncoder encoder;
+    private AgentHistoryFixture history;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        encoder = new ChatRequestEncoder(objectMapper, new LlmProperties.EncodingConfig(), null);
+        history = new AgentHistoryFixture(messages);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws Exception {
+        LegacyRequest request = new LegacyRequest();
+        request.setModel("gpt-4");
+        List<Map<String, Object>> encoded = new ArrayList<>();
+        for (LlmRequest.Message message : history.nextTurn()) {
+            Map<String, Object> msg = new HashMap<>();
+            msg.put("role", message.getRole());
+            if (message.getContent() != null) {
+                msg.put("content", message.getContent());
+            }
+            if (message.getToolCalls() != null && !message.getToolCalls().isEmpty()) {
+                msg.put("tool_calls", message.getToolCalls());
+            }
+            if (message.getToolCallId() != null) {
+                msg.put("tool_call_id", message.getToolCallId());
+            }
+            encoded.add(msg);
+        }
+        request.setMessages(encoded);
+        request.setTemperature(0.7);
+        request.setMaxTokens(4096);
+        request.setStream(true);
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public byte[] cachedEncoder() {
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("gpt-4");
+        request.setMessages(history.nextTurn());
+        request.setTemperature(0.7);
+        request.setMaxTokens(4096);
+        request.setStream(true);
+        return encoder.encode(request);
+    }
+
+    /**
+     * 原实现的请求模型
+     */
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LegacyRequest {
+        private String model;
+        private List<Map<String, Object>> messages;
+        private Double temperature;
+        @JsonProperty("max_tokens")
+        private Integer maxTokens;
+        private Boolean stream;
+    }
+}
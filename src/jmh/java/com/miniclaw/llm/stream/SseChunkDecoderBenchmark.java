@@ -0,0 +1,94 @@
+package com.miniclaw.llm.stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.miniclaw.llm.model.LlmChunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 流解码基准测试（含工具调用增量的累积）
+ *
+ * <p>使用 src/jmh/resources/payloads 下录制的 OpenAI 兼容流式响应，按 read-size 切成网络读取大小的片段后逐段解码：
+ * <ul>
+ *   <li>{@code short-chat} - 一句话回复（十几个事件）</li>
+ *   <li>{@code long-answer} - 约 800 token 的中英文混合长回答，带代码块</li>
+ *   <li>{@code multi-tool} - 3 个并行工具调用，参数按 1~7 个字符分片</li>
+ * </ul>
+ *
+ * <p>运行：{@code mvn -Pbenchmark compile exec:exec -Djmh.args="SseChunkDecoderBenchmark -prof gc"}，
+ * 调整解码器前后对比 ops/s 和 {@code gc.alloc.rate.norm}（每次解码一个完整响应分配的字节数）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseChunkDecoderBenchmark {
+
+    @Param({"short-chat", "long-answer", "multi-tool"})
+    private String payload;
+
+    /**
+     * 每次网络读取的字节数（TCP 包大小 / Netty 默认读缓冲）
+     */
+    @Param({"1460", "16384"})
+    private int readSize;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private List<ByteBuffer> reads;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] bytes = load("payloads/" + payload + ".sse");
+        reads = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += readSize) {
+            reads.add(ByteBuffer.wrap(bytes, offset, Math.min(readSize, bytes.length - offset)).slice());
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        try (SseChunkDecoder decoder = new SseChunkDecoder(jsonFactory, true)) {
+            for (ByteBuffer read : reads) {
+                consume(blackhole, decoder.decode(bufferFactory.wrap(read.duplicate())));
+            }
+            consume(blackhole, decoder.finish());
+        }
+    }
+
+    private static void consume(Blackhole blackhole, List<LlmChunk> chunks) {
+        for (LlmChunk chunk : chunks) {
+            blackhole.consume(chunk);
+        }
+    }
+
+    private static byte[] load(String resource) throws IOException {
+        try (InputStream in = SseChunkDecoderBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Benchmark payload not found: " + resource);
+            }
+            return in.readAllBytes();
+        }
+    }
+}
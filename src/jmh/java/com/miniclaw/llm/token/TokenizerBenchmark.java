@@ -0,0 +1,123 @@
+package com.miniclaw.llm.token;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分词器吞吐基准测试（tokens/s）
+ *
+ * <p>默认使用从样本文本生成的词表（256 个单字节 + 样本中的 2~4 字节片段）；
+ * 用 {@code -Dtokenizer.vocabulary=/path/to/cl100k_base.tiktoken} 指定真实词表
+ *
+ * <p>运行：{@code mvn -Pbenchmark compile exec:exec -Djmh.args="TokenizerBenchmark -prof gc"}，
+ * 结果中的 {@code tokens} 一行即每秒 token 数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final String ENGLISH = "The quick brown fox jumps over the lazy dog. "
+        + "Agents call tools, read the results and decide what to do next; each turn resends the history.\n";
+
+    private static final String CHINESE = "智能体会调用工具，读取结果，再决定下一步做什么。每一轮都会重新发送完整的历史消息。\n";
+
+    private static final String CODE = "public int sum(int[] values) {\n    int total = 0;\n"
+        + "    for (int v : values) {\n        total += v;\n    }\n    return total;\n}\n";
+
+    @Param({"english", "chinese", "code"})
+    private String corpus;
+
+    private BpeTokenizer tokenizer;
+    private String text;
+
+    /**
+     * 计数器：JMH 按每秒次数报告
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Tokens {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String sample = switch (corpus) {
+            case "chinese" -> CHINESE;
+            case "code" -> CODE;
+            default -> ENGLISH;
+        };
+        text = sample.repeat(50);
+
+        String path = System.getProperty("tokenizer.vocabulary");
+        try (InputStream in = path != null
+                ? Files.newInputStream(Path.of(path))
+                : new ByteArrayInputStream(syntheticVocabulary(ENGLISH + CHINESE + CODE))) {
+            tokenizer = BpeTokenizer.load("cl100k_base", in, BpeTokenizer.CL100K_PATTERN);
+        }
+    }
+
+    @Benchmark
+    public int countTokens(Tokens counter) {
+        int count = tokenizer.countTokens(text);
+        counter.tokens += count;
+        return count;
+    }
+
+    @Benchmark
+    public int[] encode(Tokens counter) {
+        int[] tokens = tokenizer.encode(text);
+        counter.tokens += tokens.length;
+        return tokens;
+    }
+
+    private static byte[] syntheticVocabulary(String sample) {
+        Set<String> tokens = new LinkedHashSet<>();
+        byte[] bytes = sample.getBytes(StandardCharsets.UTF_8);
+        for (int length = 2; length <= 4; length++) {
+            for (int i = 0; i + length <= bytes.length; i++) {
+                tokens.add(Base64.getEncoder().encodeToString(Arrays.copyOfRange(bytes, i, i + length)));
+            }
+        }
+
+        StringBuilder vocabulary = new StringBuilder();
+        for (int b = 0; b < 256; b++) {
+            vocabulary.append(Base64.getEncoder().encodeToString(new byte[]{(byte) b})).append(' ').append(b).append('\n');
+        }
+        int rank = 256;
+        for (String token : tokens) {
+            vocabulary.append(token).append(' ').append(rank++).append('\n');
+        }
+        return vocabulary.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -22,6 +22,7 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "messages")
+@EntityListeners(MessageTokenListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -55,7 +56,7 @@ public class Message {
     private String content;
 
     /**
-     * 消息的 Token 数量
+     * 消息的 Token 数量（未设置时保存前由 {@link MessageTokenListener} 计算）
      */
     private Integer tokens;
 
@@ -0,0 +1,29 @@
+package com.miniclaw.entity;
+
+import com.miniclaw.llm.token.TokenCounter;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Message 实体监听器：保存前用本地分词器填充 token 数
+ *
+ * <p>已经有 token 数的消息（如来自 API 返回的 usage）不会被覆盖
+ */
+@Component
+public class MessageTokenListener {
+
+    private final TokenCounter tokenCounter;
+
+    public MessageTokenListener(TokenCounter tokenCounter) {
+        this.tokenCounter = tokenCounter;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void fillTokens(Message message) {
+        if (message.getTokens() == null && message.getContent() != null) {
+            message.setTokens(tokenCounter.count(message.getContent()));
+        }
+    }
+}
@@ -5,8 +5,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -65,6 +69,17 @@ public class Run {
     @Builder.Default
     private Integer costCents = 0;
 
+    /**
+     * 扩展元数据（JSON 格式，如上下文压缩统计）
+     *
+     * <p>只读：由 {@code ContextStatsStore} 在数据库中原子合并更新，JPA 不写入该列，
+     * 避免保存实体时用内存中的旧值覆盖统计；需要最新值时重新加载实体
+     */
+    @Column(columnDefinition = "jsonb", nullable = false, insertable = false, updatable = false)
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Builder.Default
+    private Map<String, Object> metadata = new HashMap<>();
+
     /**
      * 开始执行时间
      */
@@ -0,0 +1,25 @@
+package com.miniclaw.llm;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 向量（Embedding）客户端接口
+ *
+ * <p>实现类：
+ * <ul>
+ *   <li>{@link OpenAiCompatibleLlmClient} - 调用 OpenAI 兼容的 /embeddings 接口</li>
+ * </ul>
+ */
+public interface EmbeddingClient {
+
+    /**
+     * 计算文本向量
+     *
+     * @param input 输入文本
+     * @param model 向量模型
+     * @param providerId Provider ID（null 使用默认）
+     * @return 向量（Mono）
+     * @throws LlmException 调用失败时以错误信号结束
+     */
+    Mono<float[]> embed(String input, String model, String providerId);
+}
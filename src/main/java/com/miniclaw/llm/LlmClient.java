@@ -1,9 +1,11 @@
 package com.miniclaw.llm;
 
+import com.miniclaw.llm.exception.LlmException;
 import com.miniclaw.llm.model.LlmChunk;
 import com.miniclaw.llm.model.LlmRequest;
 import com.miniclaw.llm.model.LlmResponse;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * LLM 客户端接口
@@ -28,6 +30,28 @@ public interface LlmClient {
      */
     LlmResponse chat(LlmRequest request);
 
+    /**
+     * 异步调用 LLM（使用默认 Provider）
+     *
+     * @param request LLM 请求
+     * @return LLM 响应（Mono）
+     */
+    default Mono<LlmResponse> chatAsync(LlmRequest request) {
+        return chatAsync(request, null);
+    }
+
+    /**
+     * 异步调用 LLM
+     *
+     * <p>全链路非阻塞，不占用调用线程；订阅后才真正发起请求，
+     * 失败时以 {@link LlmException} 结束
+     *
+     * @param request LLM 请求
+     * @param providerId Provider ID（null 使用默认）
+     * @return LLM 响应（Mono）
+     */
+    Mono<LlmResponse> chatAsync(LlmRequest request, String providerId);
+
     /**
      * 流式调用 LLM
      *
@@ -1,24 +1,54 @@
 package com.miniclaw.llm;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.cache.LlmResponseCache;
+import com.miniclaw.llm.cache.PromptCacheMetrics;
+import com.miniclaw.llm.cache.RequestCoalescer;
+import com.miniclaw.llm.cache.RequestKeyGenerator;
+import com.miniclaw.llm.codec.ChatCompletionRequest;
+import com.miniclaw.llm.codec.ChatRequestEncoder;
 import com.miniclaw.llm.config.LlmProperties;
 import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.http.ProviderHttpClientFactory;
+import com.miniclaw.llm.metrics.LlmClientMetrics;
+import com.miniclaw.llm.metrics.LlmJfrEvents;
+import com.miniclaw.llm.model.BatchOptions;
+import com.miniclaw.llm.model.BatchResult;
 import com.miniclaw.llm.model.LlmChunk;
 import com.miniclaw.llm.model.LlmRequest;
 import com.miniclaw.llm.model.LlmResponse;
 import com.miniclaw.llm.model.ToolCall;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.Data;
+import com.miniclaw.llm.resilience.CircuitBreakerRegistry;
+import com.miniclaw.llm.resilience.ConcurrencyLimiter;
+import com.miniclaw.llm.resilience.RateLimitExchangeFilter;
+import com.miniclaw.llm.resilience.RateLimiterRegistry;
+import com.miniclaw.llm.resilience.RequestHedger;
+import com.miniclaw.llm.resilience.RetryPolicyRegistry;
+import com.miniclaw.llm.routing.ProviderRouter;
+import com.miniclaw.llm.stream.ChunkCoalescer;
+import com.miniclaw.llm.stream.SseChunkDecoder;
+import com.miniclaw.llm.stream.StreamResume;
+import com.miniclaw.llm.token.TokenCounter;
+import com.miniclaw.llm.tool.ToolRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * OpenAI 兼容的 LLM 客户端（支持多 Provider）
@@ -33,12 +63,15 @@ import java.util.concurrent.ConcurrentHashMap;
  * // 指定 Provider
  * LlmResponse response = client.chat(request, "openai");
  *
+ * // 非阻塞调用
+ * Mono<LlmResponse> response = client.chatAsync(request, "openai");
+ *
  * // 流式输出
  * Flux<LlmChunk> stream = client.stream(request, "deepseek");
  * </pre>
  */
 @Slf4j
-public class OpenAiCompatibleLlmClient implements LlmClient {
+public class OpenAiCompatibleLlmClient implements LlmClient, EmbeddingClient {
 
     private final LlmProperties properties;
     private final ObjectMapper objectMapper;
@@ -49,16 +82,135 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
     private final Map<String, WebClient> clientCache = new ConcurrentHashMap<>();
 
     /**
-     * 构造函数（自动初始化所有 Provider）
+     * Provider 专属连接池工厂
+     */
+    private final ProviderHttpClientFactory httpClientFactory = new ProviderHttpClientFactory();
+
+    /**
+     * 请求规范化 Key 生成器（缓存使用）
+     */
+    private final RequestKeyGenerator requestKeyGenerator;
+
+    /**
+     * 请求体编码器（缓存已编码的消息）
+     */
+    private final ChatRequestEncoder requestEncoder;
+
+    /**
+     * 工具定义注册表
+     */
+    private final ToolRegistry toolRegistry;
+
+    /**
+     * Prompt token 计数（本地分词器）
+     */
+    private final TokenCounter tokenCounter;
+
+    /**
+     * 响应缓存（未启用时为 null）
+     */
+    private final LlmResponseCache responseCache;
+
+    /**
+     * 在途请求合并器（未启用时为 null）
+     */
+    private final RequestCoalescer requestCoalescer;
+
+    /**
+     * Provider 端 prompt 缓存命中统计
+     */
+    private final PromptCacheMetrics promptCacheMetrics;
+
+    /**
+     * 调用指标（延迟、首 token、吞吐、用量、重试、请求 / 响应大小）
+     */
+    private final LlmClientMetrics clientMetrics;
+
+    /**
+     * 流式输出合并（未启用时为 null）
+     */
+    private final ChunkCoalescer chunkCoalescer;
+
+    /**
+     * Provider 路由器（负载统计 + 组内负载均衡）
+     */
+    private final ProviderRouter router;
+
+    /**
+     * Provider 熔断器
+     */
+    private final CircuitBreakerRegistry circuitBreakers;
+
+    /**
+     * 请求对冲（未启用时为 null）
+     */
+    private final RequestHedger requestHedger;
+
+    /**
+     * 客户端限流（按 Provider + 模型）
+     */
+    private final RateLimiterRegistry rateLimiters;
+
+    /**
+     * 重试策略与重试预算（按 Provider）
+     */
+    private final RetryPolicyRegistry retryPolicies;
+
+    /**
+     * 每个 Provider 的并发上限（max-concurrency，所有批量调用共享）
+     */
+    private final Map<String, ConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * 解析失败时日志中最多输出的响应体字节数
+     */
+    private static final int MAX_LOGGED_BODY_BYTES = 512;
+
+    /**
+     * Context 标记：批量请求已持有并发许可
+     */
+    private static final String BATCH_PERMIT = OpenAiCompatibleLlmClient.class.getName() + ".batchPermit";
+
+    /**
+     * 构造函数（自动初始化所有 Provider，指标注册到全局注册表）
      */
     public OpenAiCompatibleLlmClient(LlmProperties properties, ObjectMapper objectMapper) {
+        this(properties, objectMapper, Metrics.globalRegistry);
+    }
+
+    /**
+     * 构造函数（自动初始化所有 Provider）
+     */
+    public OpenAiCompatibleLlmClient(LlmProperties properties, ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry) {
         this.properties = properties;
         this.objectMapper = objectMapper;
+        this.requestKeyGenerator = new RequestKeyGenerator(objectMapper);
+        this.requestEncoder = new ChatRequestEncoder(objectMapper, properties.getEncoding(), meterRegistry);
+        this.toolRegistry = new ToolRegistry(objectMapper);
+        this.tokenCounter = new TokenCounter(properties.getTokenizer(), meterRegistry);
+
+        LlmProperties.CacheConfig cacheConfig = properties.getCache();
+        this.responseCache = cacheConfig != null && Boolean.TRUE.equals(cacheConfig.getEnabled())
+            ? new LlmResponseCache(cacheConfig, meterRegistry) : null;
+        this.requestCoalescer = Boolean.TRUE.equals(properties.getCoalesceRequests())
+            ? new RequestCoalescer(meterRegistry) : null;
+        this.promptCacheMetrics = new PromptCacheMetrics(meterRegistry);
+        this.clientMetrics = new LlmClientMetrics(meterRegistry);
+        LlmProperties.StreamCoalescingConfig coalescingConfig = properties.getStreamCoalescing();
+        this.chunkCoalescer = coalescingConfig != null && Boolean.TRUE.equals(coalescingConfig.getEnabled())
+            ? new ChunkCoalescer(coalescingConfig, meterRegistry) : null;
+        this.router = new ProviderRouter(properties, clientCache::containsKey, meterRegistry);
+        this.circuitBreakers = new CircuitBreakerRegistry(properties, this::isRetryableError, meterRegistry);
+        this.requestHedger = properties.getHedging() != null && Boolean.TRUE.equals(properties.getHedging().getEnabled())
+            ? new RequestHedger(properties.getHedging(), router, meterRegistry) : null;
+        this.rateLimiters = new RateLimiterRegistry(properties, meterRegistry);
+        this.retryPolicies = new RetryPolicyRegistry(properties, meterRegistry);
 
         // 初始化所有配置的 Provider
         properties.getProviders().forEach((providerId, config) -> {
             if (config.getEndpoint() != null && config.getApiKey() != null) {
-                WebClient client = buildWebClient(config.getEndpoint(), config.getApiKey());
+                WebClient client = buildWebClient(providerId, config);
                 clientCache.put(providerId, client);
                 log.info("LLM Client initialized: provider={}, endpoint={}",
                     providerId, config.getEndpoint());
@@ -74,51 +226,283 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
     /**
      * 同步调用（指定 Provider）
      *
+     * <p>{@link #chatAsync(LlmRequest, String)} 的阻塞适配，会占用调用线程直到响应返回，
+     * 不要在事件循环线程上调用
+     *
      * @param request 请求
      * @param providerId Provider ID（null 使用默认）
      * @return 响应
      */
     public LlmResponse chat(LlmRequest request, String providerId) {
-        WebClient webClient = resolveClient(providerId);
-        if (webClient == null) {
-            throw new LlmException("LLM client not configured");
-        }
+        return chatAsync(request, providerId).block();
+    }
 
-        String actualProviderId = providerId;
-        if (actualProviderId == null) {
-            actualProviderId = properties.getDefaultProviderId();
-        }
-        if (actualProviderId == null && !clientCache.isEmpty()) {
-            actualProviderId = clientCache.keySet().iterator().next();
-        }
+    /**
+     * 异步调用（指定 Provider）
+     *
+     * <p>全链路非阻塞：请求构建、发送、重试、解析都在订阅时执行，不占用调用线程
+     *
+     * @param request 请求
+     * @param providerId Provider ID（null 使用默认）
+     * @return 响应（Mono）
+     */
+    @Override
+    public Mono<LlmResponse> chatAsync(LlmRequest request, String providerId) {
+        return Mono.defer(() -> {
+                String actualProviderId = resolveProviderId(providerId);
+                if (actualProviderId == null) {
+                    return Mono.error(new LlmException("LLM client not configured"));
+                }
 
-        try {
-            // 构建 API 请求
-            ChatCompletionRequest apiRequest = buildApiRequest(request, actualProviderId, false);
-
-            // 发送请求（带重试）
-            String responseBody = webClient.post()
-                .uri("/chat/completions")
-                .bodyValue(apiRequest)
-                .retrieve()
-                .bodyToMono(String.class)
-                .timeout(Duration.ofSeconds(properties.getTimeout()))
-                .retryWhen(reactor.util.retry.Retry.backoff(3, Duration.ofSeconds(1))
-                    .maxBackoff(Duration.ofSeconds(10))
-                    .filter(throwable -> isRetryableError(throwable))
-                    .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) ->
-                        new LlmException("Max retries exceeded")))
-                .block();
-
-            // 解析响应
-            return parseResponse(responseBody);
-
-        } catch (LlmException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("LLM chat failed", e);
-            throw new LlmException("LLM chat failed: " + e.getMessage(), e);
+                // 构建 API 请求
+                ChatCompletionRequest apiRequest = buildApiRequest(request, actualProviderId, false);
+
+                // 确定性请求先查缓存
+                String requestKey = requestKey(request, actualProviderId, apiRequest);
+                boolean cacheable = isCacheable(request, apiRequest);
+                if (cacheable) {
+                    LlmResponse cached = responseCache.getResponse(requestKey);
+                    if (cached != null) {
+                        return Mono.just(cached);
+                    }
+                }
+
+                // 发送请求（带重试），每次尝试都重新在组内选择 Provider，熔断打开时直接失败
+                Supplier<Mono<LlmResponse>> call = () -> {
+                    Mono<LlmResponse> response = Mono.defer(() -> {
+                        LlmClientMetrics.Recording recording =
+                            clientMetrics.start(actualProviderId, apiRequest.getModel(), false);
+                        Mono<LlmResponse> sent = requestHedger != null
+                            ? hedgedChat(actualProviderId, apiRequest, recording)
+                            : sendChat(actualProviderId, apiRequest,
+                                () -> acquireProvider(actualProviderId, apiRequest.getModel()), recording);
+                        return trackConcurrency(actualProviderId, sent.doFinally(recording::finish));
+                    });
+
+                    return cacheable
+                        ? response.doOnNext(result -> responseCache.putResponse(requestKey, result))
+                        : response;
+                };
+
+                // 相同请求在途时共享同一次上游调用
+                return requestCoalescer != null
+                    ? requestCoalescer.coalesce(requestKey, call)
+                    : call.get();
+            })
+            .onErrorMap(error -> !(error instanceof LlmException), error -> {
+                log.error("LLM chat failed", error);
+                return new LlmException("LLM chat failed: " + error.getMessage(), error);
+            });
+    }
+
+    /**
+     * 发送同步请求（带重试）并解析响应
+     *
+     * @param providerId 按该 Provider 的重试策略和重试预算重试
+     * @param apiRequest API 请求
+     * @param providerSelector 每次尝试前选择 Provider 并获取熔断许可
+     * @param recording 调用指标记录
+     */
+    private Mono<LlmResponse> sendChat(String providerId, ChatCompletionRequest apiRequest,
+                                       Supplier<String> providerSelector, LlmClientMetrics.Recording recording) {
+        return retryPolicies.withRetry(providerId, Mono.defer(() -> {
+                String routedProviderId = providerSelector.get();
+                String model = apiRequest.getModel();
+                long estimatedTokens = estimateTokens(apiRequest);
+                byte[] body = requestEncoder.encode(apiRequest);
+                recording.attempt(routedProviderId, body.length);
+
+                // 先获取本地限流额度，再发送；响应后按实际用量修正
+                return acquireRateLimit(routedProviderId, model, estimatedTokens)
+                    .then(router.track(routedProviderId, circuitBreakers.decorate(routedProviderId,
+                        clientCache.get(routedProviderId).post()
+                            .uri("/chat/completions")
+                            .attribute(RateLimitExchangeFilter.MODEL_ATTRIBUTE, model)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(body)
+                            .retrieve()
+                            .bodyToMono(byte[].class)
+                            .timeout(Duration.ofSeconds(properties.getTimeout()))
+                            // 解析响应
+                            .map(responseBody -> {
+                                long started = System.nanoTime();
+                                try {
+                                    return parseResponse(responseBody);
+                                } catch (LlmException e) {
+                                    recording.parseFailed(responseBody.length, e.getMessage());
+                                    throw e;
+                                } finally {
+                                    recording.decoded(responseBody.length, System.nanoTime() - started);
+                                }
+                            }))))
+                    .doOnError(recording::attemptFailed)
+                    .doOnNext(response -> {
+                        rateLimiters.reconcile(routedProviderId, model, estimatedTokens,
+                            response.getUsage() != null ? response.getUsage().getTotalTokens() : null);
+                        promptCacheMetrics.record(routedProviderId, response.getUsage());
+                        recording.usage(response.getUsage());
+                    });
+            }), "Max retries exceeded");
+    }
+
+    /**
+     * 对冲发送：主请求超过主 Provider 的延迟分位数仍未返回时，
+     * 向同组另一个 Provider（没有时向同一 Provider）发送备份请求
+     */
+    private Mono<LlmResponse> hedgedChat(String providerId, ChatCompletionRequest apiRequest,
+                                         LlmClientMetrics.Recording recording) {
+        return Mono.defer(() -> {
+            String model = apiRequest.getModel();
+            AtomicReference<String> primaryProviderId = new AtomicReference<>();
+
+            Mono<LlmResponse> primary = sendChat(providerId, apiRequest, () -> {
+                String selected = acquireProvider(providerId, model);
+                primaryProviderId.compareAndSet(null, selected);
+                return selected;
+            }, recording);
+
+            return requestHedger.hedge(primary, primaryProviderId::get, primaryId -> {
+                String backupProviderId = router.candidates(providerId, model).stream()
+                    .filter(candidate -> !candidate.equals(primaryId))
+                    .findFirst()
+                    .orElse(primaryId);
+                return sendChat(backupProviderId, apiRequest, () -> acquirePinnedProvider(backupProviderId), recording);
+            });
+        });
+    }
+
+    /**
+     * 计算文本向量（调用 /embeddings）
+     *
+     * @param input 输入文本
+     * @param model 向量模型
+     * @param providerId Provider ID（null 使用默认）
+     * @return 向量（Mono）
+     */
+    @Override
+    public Mono<float[]> embed(String input, String model, String providerId) {
+        return Mono.defer(() -> {
+                WebClient webClient = resolveClient(providerId);
+                if (webClient == null) {
+                    return Mono.error(new LlmException("LLM client not configured"));
+                }
+
+                Map<String, Object> body = new HashMap<>();
+                body.put("model", model);
+                body.put("input", input);
+
+                return webClient.post()
+                    .uri("/embeddings")
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(byte[].class)
+                    .timeout(Duration.ofSeconds(properties.getTimeout()))
+                    .map(this::parseEmbedding);
+            })
+            .onErrorMap(error -> !(error instanceof LlmException), error -> {
+                log.error("LLM embedding failed", error);
+                return new LlmException("LLM embedding failed: " + error.getMessage(), error);
+            });
+    }
+
+    /**
+     * 批量调用
+     *
+     * <p>并发发送多个相互独立的请求，结果按请求顺序返回。
+     * 并发数取 {@link BatchOptions#getConcurrency()} 与 Provider 配置的 {@code max-concurrency} 中较小者；
+     * 此外每个请求发送前从该 Provider 共享的 {@link ConcurrencyLimiter} 获取许可，
+     * 同时进行的多个批量调用和交互式 chat 调用合计不超过 {@code max-concurrency}（批量请求排队等待）；
+     * 单个请求失败只影响对应的 {@link BatchResult}
+     *
+     * @param requests 请求列表
+     * @param options 批量选项（null 使用默认）
+     * @return 按顺序返回的结果流，每个结果携带累计 Token 使用
+     */
+    public Flux<BatchResult> chatBatch(List<LlmRequest> requests, BatchOptions options) {
+        BatchOptions batchOptions = options != null ? options : BatchOptions.defaults();
+        String providerId = batchOptions.getProviderId();
+        int concurrency = resolveBatchConcurrency(providerId, batchOptions.getConcurrency());
+
+        return Flux.defer(() -> {
+            // 每次订阅独立累计
+            int[] totals = new int[4];
+            String actualProviderId = resolveProviderId(providerId);
+            ConcurrencyLimiter limiter = actualProviderId != null ? concurrencyLimiter(actualProviderId) : null;
+
+            return Flux.range(0, requests.size())
+                .flatMapSequential(index -> withBatchPermit(limiter, chatAsync(requests.get(index), providerId))
+                    .map(response -> BatchResult.builder()
+                        .index(index)
+                        .response(response)
+                        .build())
+                    .onErrorResume(error -> Mono.just(BatchResult.builder()
+                        .index(index)
+                        .error(error)
+                        .build())), concurrency)
+                .map(result -> {
+                    LlmResponse.Usage usage = result.getResponse() != null
+                        ? result.getResponse().getUsage() : null;
+                    if (usage != null) {
+                        totals[0] += usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+                        totals[1] += usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+                        totals[2] += usage.getTotalTokens() != null ? usage.getTotalTokens() : 0;
+                        totals[3] += usage.getCachedTokens() != null ? usage.getCachedTokens() : 0;
+                    }
+                    result.setAggregateUsage(LlmResponse.Usage.builder()
+                        .promptTokens(totals[0])
+                        .completionTokens(totals[1])
+                        .totalTokens(totals[2])
+                        .cachedTokens(totals[3])
+                        .build());
+                    return result;
+                });
+        });
+    }
+
+    /**
+     * 计算批量调用并发数
+     */
+    private int resolveBatchConcurrency(String providerId, Integer requested) {
+        int limit = maxConcurrency(resolveProviderId(providerId));
+        int concurrency = requested != null ? Math.min(requested, limit) : limit;
+        return Math.max(concurrency, 1);
+    }
+
+    private int maxConcurrency(String providerId) {
+        LlmProperties.ProviderConfig config = properties.getProvider(providerId);
+        return config != null && config.getMaxConcurrency() != null ? config.getMaxConcurrency() : 1;
+    }
+
+    /**
+     * 获取 Provider 共享的并发限制器
+     */
+    public ConcurrencyLimiter concurrencyLimiter(String providerId) {
+        return concurrencyLimiters.computeIfAbsent(providerId, id -> new ConcurrencyLimiter(maxConcurrency(id)));
+    }
+
+    /**
+     * 批量请求：获取许可后执行，并在 Context 中标记已持有许可（避免 chatAsync 再次计入）
+     */
+    private <T> Mono<T> withBatchPermit(ConcurrencyLimiter limiter, Mono<T> call) {
+        if (limiter == null) {
+            return call;
         }
+        return limiter.withPermit(call.contextWrite(context -> context.put(BATCH_PERMIT, Boolean.TRUE)));
+    }
+
+    /**
+     * 交互式请求：直接计入 Provider 的在途数（不等待），使批量请求只使用剩余的并发额度
+     */
+    private <T> Mono<T> trackConcurrency(String providerId, Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            String actualProviderId = resolveProviderId(providerId);
+            if (actualProviderId == null || context.hasKey(BATCH_PERMIT)) {
+                return call;
+            }
+            ConcurrencyLimiter limiter = concurrencyLimiter(actualProviderId);
+            limiter.enter();
+            return call.doFinally(signal -> limiter.release());
+        });
     }
 
     @Override
@@ -134,53 +518,39 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
      * @return 流式响应
      */
     public Flux<LlmChunk> stream(LlmRequest request, String providerId) {
-        WebClient webClient = resolveClient(providerId);
-        if (webClient == null) {
-            return Flux.error(new LlmException("LLM client not configured"));
-        }
-
-        String actualProviderId = providerId;
+        String actualProviderId = resolveProviderId(providerId);
         if (actualProviderId == null) {
-            actualProviderId = properties.getDefaultProviderId();
-        }
-        if (actualProviderId == null && !clientCache.isEmpty()) {
-            actualProviderId = clientCache.keySet().iterator().next();
+            return Flux.error(new LlmException("LLM client not configured"));
         }
 
         try {
             // 构建 API 请求（stream = true）
             ChatCompletionRequest apiRequest = buildApiRequest(request, actualProviderId, true);
 
-            // 用于累积 tool_calls（流式模式下 arguments 是分片到达的）
-            Map<Integer, ToolCallAccumulator> toolCallAccumulators = new HashMap<>();
-
-            // 发送流式请求（带重试和降级）
-            return webClient.post()
-                .uri("/chat/completions")
-                .bodyValue(apiRequest)
-                .accept(MediaType.TEXT_EVENT_STREAM)
-                .retrieve()
-                .bodyToFlux(String.class)
-                .timeout(Duration.ofSeconds(properties.getTimeout()))
-                .filter(line -> !line.isBlank())  // 过滤空行
-                .filter(line -> !line.equals("data: [DONE]"))  // 过滤结束标记
-                .map(line -> {
-                    try {
-                        // 移除 "data: " 前缀
-                        String json = line.startsWith("data: ") ? line.substring(6) : line;
-                        return parseChunk(json, toolCallAccumulators);
-                    } catch (Exception e) {
-                        log.error("Failed to parse chunk: {}", line, e);
-                        return LlmChunk.builder()
-                            .done(true)
-                            .build();
-                    }
+            // 确定性请求命中缓存时直接回放 chunk 序列
+            String requestKey = requestKey(request, actualProviderId, apiRequest);
+            boolean cacheable = isCacheable(request, apiRequest);
+            if (cacheable) {
+                List<LlmChunk> cached = responseCache.getChunks(requestKey);
+                if (cached != null) {
+                    return coalesce(Flux.fromIterable(cached));
+                }
+            }
+
+            // 发送流式请求（带重试、续传和降级）
+            // 每次订阅都使用新的续传状态，重试时不重复输出已输出的内容
+            LlmProperties.RetryConfig.StreamResumeMode resumeMode =
+                retryPolicies.config(actualProviderId).getStreamResumeMode();
+            Flux<LlmChunk> chunks = Flux.defer(() -> {
+                    StreamResume resume = resumeMode != LlmProperties.RetryConfig.StreamResumeMode.RESTART
+                        ? new StreamResume(resumeMode) : null;
+                    LlmClientMetrics.Recording recording =
+                        clientMetrics.start(actualProviderId, apiRequest.getModel(), true);
+                    return retryPolicies.withRetry(actualProviderId,
+                            streamAttempt(actualProviderId, apiRequest, resume, recording), "Stream max retries exceeded")
+                        .doOnNext(recording::chunk)
+                        .doFinally(recording::finish);
                 })
-                .retryWhen(reactor.util.retry.Retry.backoff(2, Duration.ofSeconds(1))
-                    .maxBackoff(Duration.ofSeconds(5))
-                    .filter(throwable -> isRetryableError(throwable))
-                    .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) ->
-                        new LlmException("Stream max retries exceeded")))
                 .onErrorResume(error -> {
                     log.error("Stream failed, returning error chunk", error);
                     return Flux.just(LlmChunk.builder()
@@ -191,6 +561,13 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
                 .doOnError(error -> log.error("Stream error", error))
                 .doOnComplete(() -> log.debug("Stream completed"));
 
+            Flux<LlmChunk> result = cacheable ? cacheOnComplete(chunks, requestKey) : chunks;
+
+            // 相同请求在途时共享同一个可回放的流
+            return coalesce(requestCoalescer != null
+                ? requestCoalescer.coalesceStream(requestKey, () -> result)
+                : result);
+
         } catch (Exception e) {
             log.error("LLM stream failed", e);
             return Flux.error(new LlmException("LLM stream failed: " + e.getMessage(), e));
@@ -198,49 +575,317 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
     }
 
     /**
-     * 解析 WebClient（支持指定 Provider）
+     * 合并连续的小内容增量（未启用时原样返回）
      */
-    private WebClient resolveClient(String providerId) {
+    private Flux<LlmChunk> coalesce(Flux<LlmChunk> chunks) {
+        return chunkCoalescer != null ? chunks.transform(chunkCoalescer) : chunks;
+    }
+
+    /**
+     * 单次流式请求（每次订阅包括重试都重新选择 Provider 并使用新的解码器，避免工具调用累积状态跨请求串联）
+     *
+     * @param resume 续传状态（null 表示重试时从头输出）
+     * @param recording 调用指标记录
+     */
+    private Flux<LlmChunk> streamAttempt(String providerId, ChatCompletionRequest apiRequest, StreamResume resume,
+                                         LlmClientMetrics.Recording recording) {
+        return Flux.defer(() -> {
+                String routedProviderId = acquireProvider(providerId, apiRequest.getModel());
+                String model = apiRequest.getModel();
+                StreamResume.Attempt attempt = resume != null ? resume.newAttempt() : null;
+                ChatCompletionRequest attemptRequest = attempt != null && attempt.isContinuation()
+                    ? continuationRequest(apiRequest, attempt.getPartialContent())
+                    : apiRequest;
+
+                long estimatedTokens = estimateTokens(attemptRequest);
+                StreamTokenUsage tokenUsage = rateLimiters.isEnabled(routedProviderId)
+                    ? new StreamTokenUsage(estimatedTokens - maxTokens(attemptRequest))
+                    : null;
+
+                Flux<LlmChunk> upstream = Flux.defer(() -> {
+                    SseChunkDecoder decoder = new SseChunkDecoder(objectMapper.getFactory(),
+                        Boolean.TRUE.equals(attemptRequest.getIncludeUsage()));
+                    byte[] body = requestEncoder.encode(attemptRequest);
+                    recording.attempt(routedProviderId, body.length);
+                    return clientCache.get(routedProviderId).post()
+                        .uri("/chat/completions")
+                        .attribute(RateLimitExchangeFilter.MODEL_ATTRIBUTE, model)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)
+                        .timeout(Duration.ofSeconds(properties.getTimeout()))
+                        .concatMapIterable(buffer -> {
+                            long started = System.nanoTime();
+                            int bytes = buffer.readableByteCount();
+                            int failures = decoder.getParseFailures();
+                            List<LlmChunk> decoded = decoder.decode(buffer);
+                            recording.decoded(bytes, System.nanoTime() - started);
+                            if (decoder.getParseFailures() != failures) {
+                                recording.parseFailed(bytes, "Malformed SSE chunk");
+                            }
+                            return decoded;
+                        })
+                        .concatWith(Flux.defer(() -> Flux.fromIterable(decoder.finish())))
+                        .doOnNext(chunk -> {
+                            promptCacheMetrics.record(routedProviderId, chunk.getUsage());
+                            if (tokenUsage != null) {
+                                tokenUsage.record(chunk);
+                            }
+                        })
+                        .doOnError(recording::attemptFailed)
+                        .doFinally(signal -> decoder.close());
+                });
+
+                // 先获取本地限流额度，再发送；结束或取消时按实际用量修正（未收到内容时全部退还）
+                Flux<LlmChunk> chunks = acquireRateLimit(routedProviderId, model, estimatedTokens)
+                    .doOnSuccess(ignored -> {
+                        if (tokenUsage != null) {
+                            tokenUsage.reserved = true;
+                        }
+                    })
+                    .thenMany(router.trackStream(routedProviderId,
+                        circuitBreakers.decorateStream(routedProviderId, upstream)));
+                if (tokenUsage != null) {
+                    Runnable reconcile = () -> tokenUsage.reconcile(routedProviderId, model, estimatedTokens);
+                    chunks = chunks.doOnTerminate(reconcile).doOnCancel(reconcile);
+                }
+                return attempt != null
+                    ? chunks.handle((chunk, sink) -> {
+                        LlmChunk resumed = attempt.apply(chunk);
+                        if (resumed != null) {
+                            sink.next(resumed);
+                        }
+                    })
+                    : chunks;
+            })
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    /**
+     * 续写请求：把已输出的内容作为 assistant 消息追加到末尾，并相应减少 max_tokens
+     */
+    private ChatCompletionRequest continuationRequest(ChatCompletionRequest apiRequest, String partialContent) {
+        List<LlmRequest.Message> messages = new ArrayList<>(apiRequest.getMessages());
+        messages.add(LlmRequest.Message.assistant(partialContent));
+
+        ChatCompletionRequest continuation = new ChatCompletionRequest();
+        continuation.setModel(apiRequest.getModel());
+        continuation.setMessages(messages);
+        continuation.setTemperature(apiRequest.getTemperature());
+        continuation.setMaxTokens(apiRequest.getMaxTokens() != null
+            ? Math.max(1, apiRequest.getMaxTokens() - tokenCounter.count(apiRequest.getModel(), partialContent)) : null);
+        continuation.setStream(apiRequest.getStream());
+        continuation.setIncludeUsage(apiRequest.getIncludeUsage());
+        continuation.setTools(apiRequest.getTools());
+        continuation.setEncodedTools(apiRequest.getEncodedTools());
+        continuation.setToolChoice(apiRequest.getToolChoice());
+        return continuation;
+    }
+
+    /**
+     * 是否可使用响应缓存
+     */
+    private boolean isCacheable(LlmRequest request, ChatCompletionRequest apiRequest) {
+        return responseCache != null && LlmResponseCache.isCacheable(request, apiRequest.getTemperature());
+    }
+
+    /**
+     * 计算规范化请求 Key（缓存和请求合并都不需要时返回 null）
+     */
+    private String requestKey(LlmRequest request, String providerId, ChatCompletionRequest apiRequest) {
+        if (requestCoalescer == null && !isCacheable(request, apiRequest)) {
+            return null;
+        }
+        return requestKeyGenerator.generate(request, providerId, apiRequest.getModel(),
+            apiRequest.getTemperature(), apiRequest.getMaxTokens(), Boolean.TRUE.equals(apiRequest.getStream()));
+    }
+
+    /**
+     * 流正常结束后缓存完整的 chunk 序列（出错降级的流不缓存）
+     */
+    private Flux<LlmChunk> cacheOnComplete(Flux<LlmChunk> chunks, String cacheKey) {
+        return Flux.defer(() -> {
+            List<LlmChunk> collected = new ArrayList<>();
+            return chunks
+                .doOnNext(collected::add)
+                .doOnComplete(() -> {
+                    LlmChunk last = collected.isEmpty() ? null : collected.get(collected.size() - 1);
+                    if (last != null && last.getFinishReason() != null && !"error".equals(last.getFinishReason())) {
+                        responseCache.putChunks(cacheKey, collected);
+                    }
+                });
+        });
+    }
+
+    /**
+     * 解析请求的 Provider ID（指定的不可用时使用默认，再兜底第一个可用的；都没有返回 null）
+     *
+     * <p>实际发送请求的 Provider 由 {@link ProviderRouter} 在同组内选择
+     */
+    private String resolveProviderId(String providerId) {
         if (providerId != null) {
-            WebClient client = clientCache.get(providerId);
-            if (client != null) {
-                return client;
+            if (clientCache.containsKey(providerId)) {
+                return providerId;
             }
             log.warn("Provider not found: {}, falling back to default", providerId);
         }
 
         // 使用默认 Provider
         String defaultProviderId = properties.getDefaultProviderId();
-        if (defaultProviderId != null) {
-            WebClient client = clientCache.get(defaultProviderId);
-            if (client != null) {
-                return client;
-            }
+        if (defaultProviderId != null && clientCache.containsKey(defaultProviderId)) {
+            return defaultProviderId;
         }
 
         // 兜底：使用第一个可用的
-        if (!clientCache.isEmpty()) {
-            return clientCache.values().iterator().next();
+        return clientCache.isEmpty() ? null : clientCache.keySet().iterator().next();
+    }
+
+    /**
+     * 选择实际发送请求的 Provider 并获取熔断许可
+     *
+     * <p>路由选中的 Provider 熔断打开时，依次尝试同一路由分组内的其他 Provider；
+     * 全部不可用时直接失败，不再发送请求
+     *
+     * @param providerId 请求的 Provider ID
+     * @param model 实际使用的模型
+     * @return 已获取许可的 Provider ID
+     * @throws LlmException 所有候选 Provider 的熔断器都处于打开状态
+     */
+    private String acquireProvider(String providerId, String model) {
+        String routedProviderId = router.route(providerId, model);
+        if (circuitBreakers.tryAcquirePermission(routedProviderId)) {
+            return routedProviderId;
+        }
+
+        for (String candidate : router.candidates(providerId, model)) {
+            if (!candidate.equals(routedProviderId) && circuitBreakers.tryAcquirePermission(candidate)) {
+                log.warn("Circuit breaker open: provider={}, failing over to {}", routedProviderId, candidate);
+                LlmJfrEvents.providerFallback(model, routedProviderId, candidate, "circuit_open");
+                return candidate;
+            }
+        }
+        throw new LlmException("Circuit breaker open for provider: " + routedProviderId, "CIRCUIT_OPEN");
+    }
+
+    /**
+     * 获取本地限流额度；被拒绝或取消时归还已获取的熔断许可
+     */
+    private Mono<Void> acquireRateLimit(String providerId, String model, long estimatedTokens) {
+        return rateLimiters.acquire(providerId, model, estimatedTokens)
+            .doOnError(error -> circuitBreakers.releasePermission(providerId))
+            .doOnCancel(() -> circuitBreakers.releasePermission(providerId));
+    }
+
+    /**
+     * 预估请求 token 数（本地分词器计算 prompt，已注册工具按 4 个字节 1 个 token 估算，加上预留的 max_tokens）
+     */
+    private long estimateTokens(ChatCompletionRequest apiRequest) {
+        long tokens = tokenCounter.count(apiRequest.getModel(), apiRequest.getMessages());
+        if (apiRequest.getEncodedTools() != null) {
+            for (byte[] tool : apiRequest.getEncodedTools()) {
+                tokens += tool.length / 4;
+            }
+        }
+        return tokens + maxTokens(apiRequest);
+    }
+
+    private static int maxTokens(ChatCompletionRequest apiRequest) {
+        return apiRequest.getMaxTokens() != null ? apiRequest.getMaxTokens() : 0;
+    }
+
+    /**
+     * 获取指定 Provider 的熔断许可（不切换 Provider）
+     *
+     * @throws LlmException 熔断器处于打开状态
+     */
+    private String acquirePinnedProvider(String providerId) {
+        if (!circuitBreakers.tryAcquirePermission(providerId)) {
+            throw new LlmException("Circuit breaker open for provider: " + providerId, "CIRCUIT_OPEN");
         }
+        return providerId;
+    }
+
+    /**
+     * 解析 WebClient（支持指定 Provider）
+     */
+    private WebClient resolveClient(String providerId) {
+        String actualProviderId = resolveProviderId(providerId);
+        return actualProviderId != null ? clientCache.get(actualProviderId) : null;
+    }
+
+    /**
+     * 获取 Prompt token 计数服务
+     */
+    public TokenCounter getTokenCounter() {
+        return tokenCounter;
+    }
+
+    /**
+     * 获取工具定义注册表
+     */
+    public ToolRegistry getToolRegistry() {
+        return toolRegistry;
+    }
+
+    /**
+     * 获取 Provider 端 prompt 缓存命中统计
+     */
+    public PromptCacheMetrics getPromptCacheMetrics() {
+        return promptCacheMetrics;
+    }
+
+    /**
+     * 获取 Provider 路由器（负载统计）
+     */
+    public ProviderRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * 获取 Provider 熔断器
+     */
+    public CircuitBreakerRegistry getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * 获取本地限流器
+     */
+    public RateLimiterRegistry getRateLimiters() {
+        return rateLimiters;
+    }
 
-        return null;
+    /**
+     * 释放所有 Provider 的连接池
+     */
+    public void dispose() {
+        httpClientFactory.dispose();
+        clientCache.clear();
     }
 
     /**
-     * 构建 WebClient
+     * 构建 WebClient（每个 Provider 使用独立连接池）
      */
-    private WebClient buildWebClient(String endpoint, String apiKey) {
-        return WebClient.builder()
-            .baseUrl(endpoint)
-            .defaultHeader("Authorization", "Bearer " + apiKey)
-            .defaultHeader("Content-Type", "application/json")
-            .build();
+    private WebClient buildWebClient(String providerId, LlmProperties.ProviderConfig config) {
+        WebClient.Builder builder = WebClient.builder()
+            .clientConnector(httpClientFactory.createConnector(providerId, config, properties.getTimeout()))
+            .baseUrl(config.getEndpoint())
+            .defaultHeader("Authorization", "Bearer " + config.getApiKey())
+            .defaultHeader("Content-Type", "application/json");
+
+        // 根据响应头调整限流额度
+        if (rateLimiters.isEnabled(providerId)) {
+            builder.filter(new RateLimitExchangeFilter(providerId, rateLimiters));
+        }
+        return builder.build();
     }
 
     /**
-     * 构建 API 请求（使用指定 Provider 的默认模型）
+     * 构建 API 请求（使用指定 Provider 的默认模型；包内可见供基准测试使用）
      */
-    private ChatCompletionRequest buildApiRequest(LlmRequest request, String providerId, boolean stream) {
+    ChatCompletionRequest buildApiRequest(LlmRequest request, String providerId, boolean stream) {
         ChatCompletionRequest apiRequest = new ChatCompletionRequest();
 
         // 模型（优先使用请求中的模型，否则使用 Provider 默认模型）
@@ -250,27 +895,10 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
         }
         apiRequest.setModel(model);
 
-        // 消息
-        List<Map<String, Object>> messages = new ArrayList<>();
-        for (LlmRequest.Message message : request.getMessages()) {
-            Map<String, Object> msg = new HashMap<>();
-            msg.put("role", message.getRole());
-
-            if (message.getContent() != null) {
-                msg.put("content", message.getContent());
-            }
-
-            if (message.getToolCalls() != null && !message.getToolCalls().isEmpty()) {
-                msg.put("tool_calls", message.getToolCalls());
-            }
-
-            if (message.getToolCallId() != null) {
-                msg.put("tool_call_id", message.getToolCallId());
-            }
-
-            messages.add(msg);
-        }
-        apiRequest.setMessages(messages);
+        // 消息（编码时按条缓存；稳定前缀布局下系统消息放在最前面）
+        LlmProperties.PromptCacheConfig promptCache = properties.getPromptCache();
+        boolean stableLayout = promptCache != null && Boolean.TRUE.equals(promptCache.getStableLayout());
+        apiRequest.setMessages(stableLayout ? systemFirst(request.getMessages()) : request.getMessages());
 
         // 参数
         apiRequest.setTemperature(request.getTemperature() != null ?
@@ -278,14 +906,67 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
         apiRequest.setMaxTokens(request.getMaxTokens() != null ?
             request.getMaxTokens() : properties.getMaxTokens());
         apiRequest.setStream(stream);
+        if (stream && promptCache != null && Boolean.TRUE.equals(promptCache.getStreamUsage())) {
+            apiRequest.setIncludeUsage(true);
+        }
+
+        // 工具（内联定义 + 引用已注册的工具；稳定前缀布局下合并后按名称排序）
+        if (stableLayout && request.hasTools()) {
+            apiRequest.setEncodedTools(toolRegistry.resolveSorted(request.getTools(), request.getToolNames()));
+        } else {
+            if (request.getTools() != null && !request.getTools().isEmpty()) {
+                apiRequest.setTools(request.getTools());
+            }
+            if (request.getToolNames() != null && !request.getToolNames().isEmpty()) {
+                apiRequest.setEncodedTools(toolRegistry.resolve(request.getToolNames()));
+            }
+        }
+        if (request.hasTools() && request.getToolChoice() != null) {
+            apiRequest.setToolChoice(request.getToolChoice());
+        }
 
         return apiRequest;
     }
 
     /**
-     * 解析 API 响应
+     * 把系统消息移到最前面（保持相对顺序；已经在最前面时返回原列表）
+     */
+    static List<LlmRequest.Message> systemFirst(List<LlmRequest.Message> messages) {
+        if (messages == null) {
+            return null;
+        }
+        boolean conversationStarted = false;
+        boolean misplaced = false;
+        for (LlmRequest.Message message : messages) {
+            boolean system = "system".equals(message.getRole());
+            if (system && conversationStarted) {
+                misplaced = true;
+                break;
+            }
+            conversationStarted |= !system;
+        }
+        if (!misplaced) {
+            return messages;
+        }
+
+        List<LlmRequest.Message> ordered = new ArrayList<>(messages.size());
+        for (LlmRequest.Message message : messages) {
+            if ("system".equals(message.getRole())) {
+                ordered.add(message);
+            }
+        }
+        for (LlmRequest.Message message : messages) {
+            if (!"system".equals(message.getRole())) {
+                ordered.add(message);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 解析 API 响应（包内可见供基准测试使用）
      */
-    private LlmResponse parseResponse(String responseBody) {
+    LlmResponse parseResponse(byte[] responseBody) {
         try {
             JsonNode root = objectMapper.readTree(responseBody);
             JsonNode choice = root.path("choices").get(0);
@@ -317,10 +998,17 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
             // 解析 token 使用
             LlmResponse.Usage usage = null;
             if (root.has("usage")) {
+                JsonNode usageNode = root.path("usage");
+                // 命中 prompt 缓存的 token：OpenAI 为 prompt_tokens_details.cached_tokens，DeepSeek 为 prompt_cache_hit_tokens
+                JsonNode cachedNode = usageNode.path("prompt_tokens_details").path("cached_tokens");
+                if (!cachedNode.isNumber()) {
+                    cachedNode = usageNode.path("prompt_cache_hit_tokens");
+                }
                 usage = LlmResponse.Usage.builder()
-                    .promptTokens(root.path("usage").path("prompt_tokens").asInt())
-                    .completionTokens(root.path("usage").path("completion_tokens").asInt())
-                    .totalTokens(root.path("usage").path("total_tokens").asInt())
+                    .promptTokens(usageNode.path("prompt_tokens").asInt())
+                    .completionTokens(usageNode.path("completion_tokens").asInt())
+                    .totalTokens(usageNode.path("total_tokens").asInt())
+                    .cachedTokens(cachedNode.isNumber() ? cachedNode.asInt() : null)
                     .build();
             }
 
@@ -332,141 +1020,115 @@ public class OpenAiCompatibleLlmClient implements LlmClient {
                 .build();
 
         } catch (Exception e) {
-            log.error("Failed to parse LLM response: {}", responseBody, e);
+            log.error("Failed to parse LLM response ({} bytes): {}", responseBody.length, preview(responseBody), e);
             throw new LlmException("Failed to parse LLM response", e);
         }
     }
 
     /**
-     * 解析流式响应块
+     * 响应体预览（日志用，最多前 512 字节）
      */
-    private LlmChunk parseChunk(String json, Map<Integer, ToolCallAccumulator> accumulators) {
-        try {
-            JsonNode root = objectMapper.readTree(json);
-            JsonNode choice = root.path("choices").get(0);
-            JsonNode delta = choice.path("delta");
-
-            // 解析内容增量
-            String contentDelta = delta.path("content").asText(null);
-
-            // 解析完成原因
-            String finishReason = choice.path("finish_reason").asText(null);
-
-            // 是否是最后一个 chunk
-            boolean done = finishReason != null && !"null".equals(finishReason);
-
-            // 解析工具调用增量
-            List<ToolCall> toolCalls = null;
-            if (delta.has("tool_calls")) {
-                toolCalls = new ArrayList<>();
-                for (JsonNode tc : delta.path("tool_calls")) {
-                    int index = tc.path("index").asInt();
-
-                    // 获取或创建累积器
-                    ToolCallAccumulator accumulator = accumulators.computeIfAbsent(
-                        index, k -> new ToolCallAccumulator()
-                    );
+    private static String preview(byte[] responseBody) {
+        int length = Math.min(responseBody.length, MAX_LOGGED_BODY_BYTES);
+        String text = new String(responseBody, 0, length, StandardCharsets.UTF_8);
+        return length < responseBody.length ? text + "...[truncated]" : text;
+    }
 
-                    // 累积工具调用信息
-                    if (tc.has("id")) {
-                        accumulator.id = tc.path("id").asText();
-                    }
-                    if (tc.has("type")) {
-                        accumulator.type = tc.path("type").asText();
-                    }
-                    if (tc.has("function")) {
-                        JsonNode function = tc.path("function");
-                        if (function.has("name")) {
-                            accumulator.functionName = function.path("name").asText();
-                        }
-                        if (function.has("arguments")) {
-                            accumulator.argumentsBuilder.append(function.path("arguments").asText());
+    /**
+     * 解析向量响应（流式读取 data[0].embedding，不构建 JsonNode 树）
+     */
+    private float[] parseEmbedding(byte[] responseBody) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(responseBody)) {
+            while (parser.nextToken() != null) {
+                if (parser.currentToken() == JsonToken.FIELD_NAME
+                    && "embedding".equals(parser.currentName())) {
+                    parser.nextToken();
+                    float[] values = new float[256];
+                    int size = 0;
+                    while (parser.nextToken() == JsonToken.VALUE_NUMBER_FLOAT
+                        || parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                        if (size == values.length) {
+                            values = Arrays.copyOf(values, size * 2);
                         }
+                        values[size++] = parser.getFloatValue();
                     }
-
-                    // 如果已完成，构建完整的 ToolCall
-                    if (done && accumulator.id != null) {
-                        ToolCall toolCall = ToolCall.builder()
-                            .id(accumulator.id)
-                            .type(accumulator.type)
-                            .function(ToolCall.FunctionCall.builder()
-                                .name(accumulator.functionName)
-                                .arguments(accumulator.argumentsBuilder.toString())
-                                .build())
-                            .build();
-                        toolCalls.add(toolCall);
-                    }
+                    return Arrays.copyOf(values, size);
                 }
             }
-
-            return LlmChunk.builder()
-                .delta(contentDelta)
-                .toolCalls(toolCalls)
-                .finishReason(finishReason)
-                .done(done)
-                .build();
-
         } catch (Exception e) {
-            log.error("Failed to parse chunk: {}", json, e);
-            return LlmChunk.builder().done(true).build();
+            throw new LlmException("Failed to parse embedding response", e);
         }
+        throw new LlmException("Embedding not found in response");
     }
 
     /**
-     * OpenAI API 请求模型
+     * 判断是否为可重试的错误（按默认 Provider 的重试策略；package-private for testing）
      */
-    @Data
-    @JsonInclude(JsonInclude.Include.NON_NULL)
-    private static class ChatCompletionRequest {
-        private String model;
-        private List<Map<String, Object>> messages;
-        private Double temperature;
-        @JsonProperty("max_tokens")
-        private Integer maxTokens;
-        private Boolean stream;
-        private List<Map<String, Object>> tools;
-        @JsonProperty("tool_choice")
-        private Object toolChoice;
+    boolean isRetryableError(Throwable throwable) {
+        return isRetryableError(resolveProviderId(null), throwable);
     }
 
     /**
-     * 工具调用累积器（用于流式模式）
+     * 按 Provider 的重试策略判断是否为可重试的错误（同时作为该 Provider 熔断器的失败判定）
      */
-    private static class ToolCallAccumulator {
-        String id;
-        String type;
-        String functionName;
-        StringBuilder argumentsBuilder = new StringBuilder();
+    boolean isRetryableError(String providerId, Throwable throwable) {
+        return retryPolicies.get(providerId).isRetryable(throwable);
     }
 
     /**
-     * 判断是否为可重试的错误（package-private for testing）
+     * 单次流式请求的实际 token 用量，用于修正发送前预留的限流额度
+     *
+     * <p>最后一个 chunk 带有 usage（开启 {@code prompt-cache.stream-usage}）时以其为准；
+     * 否则按预估的 prompt 加上本地分词器计算的已输出内容（文本和工具调用参数）；一个 chunk 都没收到时为 0。
+     * 同一次请求的 chunk 按顺序到达，不需要同步
      */
-    boolean isRetryableError(Throwable throwable) {
-        // 网络超时
-        if (throwable instanceof java.util.concurrent.TimeoutException) {
-            return true;
+    private final class StreamTokenUsage {
+
+        private final long promptTokens;
+        private final StringBuilder delivered = new StringBuilder();
+        private volatile boolean reserved;
+        private boolean received;
+        private Integer totalTokens;
+
+        StreamTokenUsage(long promptTokens) {
+            this.promptTokens = promptTokens;
         }
 
-        // WebClient 网络错误
-        if (throwable instanceof org.springframework.web.reactive.function.client.WebClientException) {
-            String message = throwable.getMessage();
-            // 5xx 服务器错误可重试
-            if (message != null && (message.contains("500") || message.contains("502") ||
-                message.contains("503") || message.contains("504"))) {
-                return true;
+        void record(LlmChunk chunk) {
+            received = true;
+            if (chunk.getUsage() != null && chunk.getUsage().getTotalTokens() != null) {
+                totalTokens = chunk.getUsage().getTotalTokens();
+            }
+            if (chunk.getDelta() != null) {
+                delivered.append(chunk.getDelta());
+            }
+            if (chunk.getToolCallFunctionName() != null) {
+                delivered.append(chunk.getToolCallFunctionName());
             }
-            // 连接错误可重试
-            if (message != null && (message.contains("Connection") || message.contains("timeout"))) {
-                return true;
+            if (chunk.getToolCallArgumentsDelta() != null) {
+                delivered.append(chunk.getToolCallArgumentsDelta());
             }
         }
 
-        // 429 限流错误可重试
-        if (throwable.getMessage() != null && throwable.getMessage().contains("429")) {
-            return true;
+        /**
+         * 按实际用量修正预留额度（只执行一次；额度未预留成功时跳过）
+         */
+        synchronized void reconcile(String providerId, String model, long estimatedTokens) {
+            if (!reserved) {
+                return;
+            }
+            reserved = false;
+            rateLimiters.reconcile(providerId, model, estimatedTokens, actualTokens(model));
         }
 
-        return false;
+        private int actualTokens(String model) {
+            if (totalTokens != null) {
+                return totalTokens;
+            }
+            if (!received) {
+                return 0;
+            }
+            return (int) Math.min(Integer.MAX_VALUE, promptTokens + tokenCounter.count(model, delivered.toString()));
+        }
     }
 }
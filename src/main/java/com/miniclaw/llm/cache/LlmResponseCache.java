@@ -0,0 +1,252 @@
+package com.miniclaw.llm.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import com.miniclaw.llm.model.ToolCall;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 确定性请求的本地响应缓存
+ *
+ * <p>基于 Caffeine（W-TinyLFU 淘汰），同时限制条数和字节数：
+ * 每个条目的权重取 {@code max(估算字节数, maxBytes / maxEntries)}，
+ * 最大权重为 {@code maxBytes}，因此条数不会超过 maxEntries，字节数不会超过 maxBytes
+ *
+ * <p>同步响应缓存 {@link LlmResponse}，流式响应缓存完整的 {@link LlmChunk} 序列用于回放。
+ * 模型对象是可变的：写入时保存副本，读取时返回副本，调用方修改返回值不影响之后的命中
+ *
+ * <p>指标前缀：{@code cache.*{cache=llm.response}}（命中、未命中、淘汰、大小）
+ */
+public class LlmResponseCache {
+
+    private static final String CACHE_NAME = "llm.response";
+
+    /**
+     * 单个对象的估算开销（对象头、引用等）
+     */
+    private static final int OBJECT_OVERHEAD = 64;
+
+    private final Cache<String, Entry> cache;
+    private final Duration defaultTtl;
+
+    public LlmResponseCache(LlmProperties.CacheConfig config, MeterRegistry meterRegistry) {
+        long maxBytes = Math.max(config.getMaxBytes(), 1);
+        long maxEntries = Math.max(config.getMaxEntries(), 1);
+        long minWeight = Math.max(maxBytes / maxEntries, 1);
+
+        this.defaultTtl = Duration.ofSeconds(config.getTtl());
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, Entry entry) -> (int) Math.min(Integer.MAX_VALUE,
+                Math.max(entry.bytes, minWeight)))
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                    return entry.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                    return entry.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        }
+    }
+
+    /**
+     * 判断请求是否可缓存（temperature 为 0 且没有工具）
+     *
+     * @param request 请求
+     * @param temperature 实际使用的温度
+     * @return true 如果可缓存
+     */
+    public static boolean isCacheable(LlmRequest request, Double temperature) {
+        return temperature != null && temperature == 0.0 && !request.hasTools();
+    }
+
+    /**
+     * 获取缓存的同步响应
+     */
+    public LlmResponse getResponse(String key) {
+        Entry entry = cache.getIfPresent(key);
+        return entry != null && entry.response != null ? copy(entry.response) : null;
+    }
+
+    /**
+     * 缓存同步响应（使用默认 TTL）
+     */
+    public void putResponse(String key, LlmResponse response) {
+        putResponse(key, response, defaultTtl);
+    }
+
+    /**
+     * 缓存同步响应
+     */
+    public void putResponse(String key, LlmResponse response, Duration ttl) {
+        cache.put(key, new Entry(copy(response), null, estimate(response), ttl));
+    }
+
+    /**
+     * 获取缓存的流式 chunk 序列
+     */
+    public List<LlmChunk> getChunks(String key) {
+        Entry entry = cache.getIfPresent(key);
+        return entry != null && entry.chunks != null ? copy(entry.chunks) : null;
+    }
+
+    /**
+     * 缓存流式 chunk 序列（使用默认 TTL）
+     */
+    public void putChunks(String key, List<LlmChunk> chunks) {
+        putChunks(key, chunks, defaultTtl);
+    }
+
+    /**
+     * 缓存流式 chunk 序列
+     */
+    public void putChunks(String key, List<LlmChunk> chunks, Duration ttl) {
+        long bytes = OBJECT_OVERHEAD;
+        for (LlmChunk chunk : chunks) {
+            bytes += estimate(chunk);
+        }
+        cache.put(key, new Entry(null, copy(chunks), bytes, ttl));
+    }
+
+    /**
+     * 当前缓存条数（估算值）
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 执行挂起的维护任务（淘汰、过期），主要用于测试
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    private static LlmResponse copy(LlmResponse response) {
+        return LlmResponse.builder()
+            .content(response.getContent())
+            .toolCalls(copyToolCalls(response.getToolCalls()))
+            .finishReason(response.getFinishReason())
+            .usage(copy(response.getUsage()))
+            .build();
+    }
+
+    private static List<LlmChunk> copy(List<LlmChunk> chunks) {
+        List<LlmChunk> copies = new ArrayList<>(chunks.size());
+        for (LlmChunk chunk : chunks) {
+            copies.add(LlmChunk.builder()
+                .delta(chunk.getDelta())
+                .toolCalls(copyToolCalls(chunk.getToolCalls()))
+                .finishReason(chunk.getFinishReason())
+                .done(chunk.isDone())
+                .usage(copy(chunk.getUsage()))
+                .toolCallIndex(chunk.getToolCallIndex())
+                .toolCallId(chunk.getToolCallId())
+                .toolCallFunctionName(chunk.getToolCallFunctionName())
+                .toolCallArgumentsDelta(chunk.getToolCallArgumentsDelta())
+                .build());
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    private static List<ToolCall> copyToolCalls(List<ToolCall> toolCalls) {
+        if (toolCalls == null) {
+            return null;
+        }
+        List<ToolCall> copies = new ArrayList<>(toolCalls.size());
+        for (ToolCall toolCall : toolCalls) {
+            ToolCall.FunctionCall function = toolCall.getFunction();
+            copies.add(ToolCall.builder()
+                .id(toolCall.getId())
+                .type(toolCall.getType())
+                .function(function != null
+                    ? ToolCall.FunctionCall.builder().name(function.getName()).arguments(function.getArguments()).build()
+                    : null)
+                .build());
+        }
+        return copies;
+    }
+
+    private static LlmResponse.Usage copy(LlmResponse.Usage usage) {
+        if (usage == null) {
+            return null;
+        }
+        return LlmResponse.Usage.builder()
+            .promptTokens(usage.getPromptTokens())
+            .completionTokens(usage.getCompletionTokens())
+            .totalTokens(usage.getTotalTokens())
+            .cachedTokens(usage.getCachedTokens())
+            .build();
+    }
+
+    private static long estimate(LlmResponse response) {
+        return OBJECT_OVERHEAD + length(response.getContent()) * 2L
+            + length(response.getFinishReason()) * 2L + estimate(response.getToolCalls());
+    }
+
+    private static long estimate(LlmChunk chunk) {
+        return OBJECT_OVERHEAD + length(chunk.getDelta()) * 2L
+            + length(chunk.getFinishReason()) * 2L + estimate(chunk.getToolCalls());
+    }
+
+    private static long estimate(List<ToolCall> toolCalls) {
+        if (toolCalls == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (ToolCall toolCall : toolCalls) {
+            bytes += OBJECT_OVERHEAD + length(toolCall.getId()) * 2L;
+            if (toolCall.getFunction() != null) {
+                bytes += length(toolCall.getFunction().getName()) * 2L
+                    + length(toolCall.getFunction().getArguments()) * 2L;
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+        final LlmResponse response;
+        final List<LlmChunk> chunks;
+        final long bytes;
+        final long ttlNanos;
+
+        Entry(LlmResponse response, List<LlmChunk> chunks, long bytes, Duration ttl) {
+            this.response = response;
+            this.chunks = chunks;
+            this.bytes = bytes;
+            this.ttlNanos = ttl.toNanos();
+        }
+    }
+}
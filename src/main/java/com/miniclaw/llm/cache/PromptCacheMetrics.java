@@ -0,0 +1,95 @@
+package com.miniclaw.llm.cache;
+
+import com.miniclaw.llm.model.LlmResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provider 端 prompt 缓存命中统计
+ *
+ * <p>按 Provider 累计响应用量中的输入 token 数和命中缓存的 token 数；
+ * 没有返回 {@code cachedTokens} 的响应不参与统计（Provider 不支持或未返回用量）
+ *
+ * <p>指标：
+ * <ul>
+ *   <li>{@code llm.prompt.tokens{provider}} - 输入 token 数</li>
+ *   <li>{@code llm.prompt.tokens.cached{provider}} - 命中缓存的输入 token 数</li>
+ *   <li>{@code llm.prompt.cache.hit.ratio{provider}} - 累计命中率（按 token）</li>
+ * </ul>
+ */
+public class PromptCacheMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderTotals> totals = new ConcurrentHashMap<>();
+
+    public PromptCacheMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录一次响应的用量
+     *
+     * @param providerId 实际发送请求的 Provider
+     * @param usage 用量（可为 null）
+     */
+    public void record(String providerId, LlmResponse.Usage usage) {
+        if (usage == null || usage.getCachedTokens() == null || usage.getPromptTokens() == null) {
+            return;
+        }
+        totals.computeIfAbsent(String.valueOf(providerId), this::register)
+            .add(usage.getPromptTokens(), usage.getCachedTokens());
+    }
+
+    /**
+     * 累计命中率（按 token，没有数据时为 0）
+     */
+    public double hitRatio(String providerId) {
+        ProviderTotals provider = totals.get(providerId);
+        return provider != null ? provider.hitRatio() : 0.0;
+    }
+
+    private ProviderTotals register(String providerId) {
+        ProviderTotals provider = new ProviderTotals();
+        if (meterRegistry != null) {
+            provider.promptCounter = Counter.builder("llm.prompt.tokens")
+                .tag("provider", providerId)
+                .register(meterRegistry);
+            provider.cachedCounter = Counter.builder("llm.prompt.tokens.cached")
+                .tag("provider", providerId)
+                .register(meterRegistry);
+            Gauge.builder("llm.prompt.cache.hit.ratio", provider, ProviderTotals::hitRatio)
+                .tag("provider", providerId)
+                .register(meterRegistry);
+        }
+        return provider;
+    }
+
+    /**
+     * 单个 Provider 的累计值
+     */
+    private static final class ProviderTotals {
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder cachedTokens = new LongAdder();
+        private Counter promptCounter;
+        private Counter cachedCounter;
+
+        void add(int prompt, int cached) {
+            promptTokens.add(prompt);
+            cachedTokens.add(cached);
+            if (promptCounter != null) {
+                promptCounter.increment(prompt);
+                cachedCounter.increment(cached);
+            }
+        }
+
+        double hitRatio() {
+            long prompt = promptTokens.sum();
+            return prompt > 0 ? (double) cachedTokens.sum() / prompt : 0.0;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.miniclaw.llm.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并（Single-flight）
+ *
+ * <p>同一时刻规范化 Key 相同的请求只发起一次上游调用：
+ * <ul>
+ *   <li>同步请求共享同一个 {@link Mono} 的结果</li>
+ *   <li>流式请求共享同一个可回放的 {@link Flux}，后加入的订阅者会先收到已产生的 chunk</li>
+ * </ul>
+ *
+ * <p>订阅者引用计数：只有最后一个订阅者取消时才取消上游调用；
+ * 上游结束（完成、出错或取消）后立即移除，之后的请求会重新发起调用
+ *
+ * <p>指标：{@code llm.requests.coalesced{mode=chat|stream}}，被合并（未发起上游调用）的请求数
+ */
+@Slf4j
+public class RequestCoalescer {
+
+    private final Map<String, Mono<?>> inFlightCalls = new ConcurrentHashMap<>();
+    private final Map<String, Flux<?>> inFlightStreams = new ConcurrentHashMap<>();
+
+    private final Counter coalescedCalls;
+    private final Counter coalescedStreams;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.coalescedCalls = Counter.builder("llm.requests.coalesced")
+            .tag("mode", "chat")
+            .register(meterRegistry);
+        this.coalescedStreams = Counter.builder("llm.requests.coalesced")
+            .tag("mode", "stream")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 合并同步请求
+     *
+     * @param key 规范化请求 Key
+     * @param call 实际调用（只有没有相同请求在途时才会被调用）
+     * @return 共享的结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String key, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            boolean[] created = new boolean[1];
+            Mono<T> shared = (Mono<T>) inFlightCalls.computeIfAbsent(key, k -> {
+                created[0] = true;
+                AtomicReference<Mono<T>> self = new AtomicReference<>();
+                Mono<T> mono = call.get()
+                    .doFinally(signal -> inFlightCalls.remove(k, self.get()))
+                    .flux()
+                    .replay(1)
+                    .refCount(1)
+                    .singleOrEmpty();
+                self.set(mono);
+                return mono;
+            });
+            if (!created[0]) {
+                coalescedCalls.increment();
+                log.debug("Coalesced in-flight chat request: key={}", key);
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * 合并流式请求
+     *
+     * @param key 规范化请求 Key
+     * @param call 实际调用（只有没有相同请求在途时才会被调用）
+     * @return 共享且可回放的流
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> coalesceStream(String key, Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            boolean[] created = new boolean[1];
+            Flux<T> shared = (Flux<T>) inFlightStreams.computeIfAbsent(key, k -> {
+                created[0] = true;
+                AtomicReference<Flux<T>> self = new AtomicReference<>();
+                Flux<T> flux = call.get()
+                    .doFinally(signal -> inFlightStreams.remove(k, self.get()))
+                    .replay()
+                    .refCount(1);
+                self.set(flux);
+                return flux;
+            });
+            if (!created[0]) {
+                coalescedStreams.increment();
+                log.debug("Coalesced in-flight stream request: key={}", key);
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * 当前在途的上游调用数
+     */
+    public int inFlightCount() {
+        return inFlightCalls.size() + inFlightStreams.size();
+    }
+}
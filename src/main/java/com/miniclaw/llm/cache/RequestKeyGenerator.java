@@ -0,0 +1,132 @@
+package com.miniclaw.llm.cache;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.ToolCall;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 请求规范化 Key 生成器
+ *
+ * <p>按固定字段顺序把 Provider、模型、消息和参数写成 JSON，
+ * 边写边计算 SHA-256，不在内存中保留完整的序列化结果
+ *
+ * <p>相同语义的请求（字段相同、工具定义的 Map 顺序不同）生成相同的 Key
+ */
+public class RequestKeyGenerator {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter sortedWriter;
+
+    public RequestKeyGenerator(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.sortedWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    /**
+     * 生成请求 Key
+     *
+     * @param request 原始请求
+     * @param providerId 实际使用的 Provider ID
+     * @param model 实际使用的模型
+     * @param temperature 实际使用的温度
+     * @param maxTokens 实际使用的最大 token 数
+     * @param stream 是否流式
+     * @return 十六进制 SHA-256
+     */
+    public String generate(LlmRequest request, String providerId, String model,
+                           Double temperature, Integer maxTokens, boolean stream) {
+        MessageDigest digest = newDigest();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest), JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("provider", providerId);
+            gen.writeStringField("model", model);
+            if (temperature != null) {
+                gen.writeNumberField("temperature", temperature);
+            }
+            if (maxTokens != null) {
+                gen.writeNumberField("max_tokens", maxTokens);
+            }
+            gen.writeBooleanField("stream", stream);
+
+            gen.writeArrayFieldStart("messages");
+            if (request.getMessages() != null) {
+                for (LlmRequest.Message message : request.getMessages()) {
+                    writeMessage(gen, message);
+                }
+            }
+            gen.writeEndArray();
+
+            if (request.getTools() != null && !request.getTools().isEmpty()) {
+                gen.writeFieldName("tools");
+                writeSorted(gen, request.getTools());
+            }
+            if (request.getToolNames() != null && !request.getToolNames().isEmpty()) {
+                gen.writeArrayFieldStart("tool_names");
+                for (String name : request.getToolNames()) {
+                    gen.writeString(name);
+                }
+                gen.writeEndArray();
+            }
+            if (request.getToolChoice() != null) {
+                gen.writeStringField("tool_choice", request.getToolChoice());
+            }
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new LlmException("Failed to generate request key", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void writeMessage(JsonGenerator gen, LlmRequest.Message message) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("role", message.getRole());
+        if (message.getContent() != null) {
+            gen.writeStringField("content", message.getContent());
+        }
+        if (message.getToolCallId() != null) {
+            gen.writeStringField("tool_call_id", message.getToolCallId());
+        }
+        if (message.getToolCalls() != null && !message.getToolCalls().isEmpty()) {
+            gen.writeArrayFieldStart("tool_calls");
+            for (ToolCall toolCall : message.getToolCalls()) {
+                gen.writeStartObject();
+                gen.writeStringField("id", toolCall.getId());
+                gen.writeStringField("type", toolCall.getType());
+                if (toolCall.getFunction() != null) {
+                    gen.writeStringField("name", toolCall.getFunction().getName());
+                    gen.writeStringField("arguments", toolCall.getFunction().getArguments());
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    private void writeSorted(JsonGenerator gen, List<Map<String, Object>> value) throws IOException {
+        sortedWriter.writeValue(gen, value);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.miniclaw.llm.cache;
+
+import com.miniclaw.llm.EmbeddingClient;
+import com.miniclaw.llm.LlmClient;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * 语义缓存客户端（装饰器）
+ *
+ * <p>在任意 {@link LlmClient} 前增加一层基于 pgvector 的语义缓存：
+ * 对"系统提示 + 单条用户消息"形式的问答，先计算用户问题的向量，
+ * 在同一作用域（模型 + 系统提示）内查找最相近的历史问题，
+ * 余弦距离不超过阈值时直接返回缓存的回答
+ *
+ * <p>缓存持久化在数据库中，重启后仍然有效，并在多个节点间共享。
+ * 向量计算或数据库查询失败、或向量维度与配置不一致时直接调用下游客户端，不影响正常请求
+ *
+ * <p>{@code semantic-cache.enabled=true} 时由 {@code LlmClientConfiguration} 装配到主 {@link LlmClient} 上，
+ * 并定期清理过期条目。手动使用示例：
+ * <pre>
+ * LlmClient client = new SemanticCacheLlmClient(
+ *     llmClient, llmClient, new SemanticCacheStore(jdbcTemplate, objectMapper), properties);
+ * </pre>
+ */
+@Slf4j
+public class SemanticCacheLlmClient implements LlmClient {
+
+    private final LlmClient delegate;
+    private final EmbeddingClient embeddingClient;
+    private final SemanticCacheStore store;
+    private final LlmProperties properties;
+    private final LlmProperties.SemanticCacheConfig config;
+
+    public SemanticCacheLlmClient(LlmClient delegate, EmbeddingClient embeddingClient,
+                                  SemanticCacheStore store, LlmProperties properties) {
+        this.delegate = delegate;
+        this.embeddingClient = embeddingClient;
+        this.store = store;
+        this.properties = properties;
+        this.config = properties.getSemanticCache();
+    }
+
+    @Override
+    public LlmResponse chat(LlmRequest request) {
+        return chatAsync(request).block();
+    }
+
+    @Override
+    public Mono<LlmResponse> chatAsync(LlmRequest request, String providerId) {
+        Question question = toQuestion(request, providerId);
+        if (question == null) {
+            return delegate.chatAsync(request, providerId);
+        }
+
+        return lookup(question)
+            .flatMap(lookup -> lookup.response() != null
+                ? Mono.just(lookup.response())
+                : delegate.chatAsync(request, providerId)
+                    .doOnNext(response -> saveAsync(question, lookup.embedding(), response)));
+    }
+
+    @Override
+    public Flux<LlmChunk> stream(LlmRequest request) {
+        Question question = toQuestion(request, null);
+        if (question == null) {
+            return delegate.stream(request);
+        }
+
+        return lookup(question).flatMapMany(lookup -> {
+            if (lookup.response() != null) {
+                // 命中：一次性回放完整回答
+                return Flux.just(
+                    LlmChunk.builder().delta(lookup.response().getContent()).build(),
+                    LlmChunk.builder().finishReason(lookup.response().getFinishReason()).done(true).build());
+            }
+
+            StringBuilder content = new StringBuilder();
+            String[] finishReason = new String[1];
+            return delegate.stream(request)
+                .doOnNext(chunk -> {
+                    if (chunk.getDelta() != null) {
+                        content.append(chunk.getDelta());
+                    }
+                    if (chunk.getFinishReason() != null) {
+                        finishReason[0] = chunk.getFinishReason();
+                    }
+                })
+                .doOnComplete(() -> saveAsync(question, lookup.embedding(), LlmResponse.builder()
+                    .content(content.toString())
+                    .finishReason(finishReason[0])
+                    .build()));
+        });
+    }
+
+    /**
+     * 计算向量并查询最近邻；任何失败都视为未命中
+     */
+    private Mono<Lookup> lookup(Question question) {
+        return embeddingClient.embed(question.prompt(), config.getEmbeddingModel(), config.getEmbeddingProvider())
+            .flatMap(embedding -> {
+                if (embedding.length != config.getDimensions()) {
+                    return Mono.error(new LlmException("Embedding has " + embedding.length
+                        + " dimensions, expected " + config.getDimensions(), "SEMANTIC_CACHE_DIMENSIONS"));
+                }
+                return Mono.fromCallable(() -> store.findNearest(question.scopeHash(), embedding))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(match -> {
+                        if (match.distance() <= config.getMaxDistance()) {
+                            log.debug("Semantic cache hit: distance={}", match.distance());
+                            recordHitAsync(match);
+                            return new Lookup(embedding, match.response());
+                        }
+                        return new Lookup(embedding, null);
+                    })
+                    .defaultIfEmpty(new Lookup(embedding, null));
+            })
+            .onErrorResume(error -> {
+                log.warn("Semantic cache lookup failed, bypassing cache: {}", error.getMessage());
+                return Mono.just(new Lookup(null, null));
+            });
+    }
+
+    private void recordHitAsync(SemanticCacheStore.Match match) {
+        Mono.fromRunnable(() -> store.recordHit(match.id()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(null, error -> log.warn("Failed to record semantic cache hit", error));
+    }
+
+    /**
+     * 异步保存（只保存正常结束的回答）
+     */
+    private void saveAsync(Question question, float[] embedding, LlmResponse response) {
+        if (embedding == null || response.getContent() == null || !"stop".equals(response.getFinishReason())) {
+            return;
+        }
+        Mono.fromRunnable(() -> store.save(question.model(), question.scopeHash(), question.prompt(), embedding,
+                response, Duration.ofSeconds(config.getTtl())))
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(null, error -> log.warn("Failed to save semantic cache entry", error));
+    }
+
+    /**
+     * 提取可缓存的问题（不可缓存返回 null）
+     *
+     * <p>要求：未启用工具、除系统消息外只有最后一条用户消息
+     *
+     * @param providerId 调用的 Provider（请求未指定模型时按它的默认模型划分作用域，null 使用默认 Provider）
+     */
+    Question toQuestion(LlmRequest request, String providerId) {
+        if (!Boolean.TRUE.equals(config.getEnabled()) || request.hasTools()) {
+            return null;
+        }
+        List<LlmRequest.Message> messages = request.getMessages();
+        if (messages == null || messages.isEmpty()) {
+            return null;
+        }
+
+        LlmRequest.Message last = messages.get(messages.size() - 1);
+        if (!"user".equals(last.getRole()) || last.getContent() == null || last.getContent().isBlank()) {
+            return null;
+        }
+
+        String model = request.getModel() != null
+            ? request.getModel()
+            : properties.getDefaultModel(providerId != null ? providerId : properties.getDefaultProviderId());
+
+        MessageDigest digest = newDigest();
+        digest.update(String.valueOf(model).getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < messages.size() - 1; i++) {
+            LlmRequest.Message message = messages.get(i);
+            if (!"system".equals(message.getRole())) {
+                return null;
+            }
+            digest.update((byte) 0);
+            digest.update(String.valueOf(message.getContent()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new Question(model, HexFormat.of().formatHex(digest.digest()), last.getContent());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 可缓存的问题
+     */
+    record Question(String model, String scopeHash, String prompt) {
+    }
+
+    /**
+     * 查询结果（embedding 为 null 表示向量计算失败，不保存）
+     */
+    private record Lookup(float[] embedding, LlmResponse response) {
+    }
+}
@@ -0,0 +1,278 @@
+package com.miniclaw.llm.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 语义缓存存储（pgvector）
+ *
+ * <p>表结构见 {@code V2__semantic_cache.sql}。最近邻查询按
+ * {@code embedding <=> ?} 排序并 {@code LIMIT 1}，由 HNSW 索引加速；
+ * 距离阈值在调用方判断
+ *
+ * <p>HNSW 索引覆盖所有作用域，{@code scope_hash} / {@code expires_at} 过滤发生在索引返回
+ * {@code ef_search} 个候选之后；多个系统提示共用一张表、或过期条目较多时，作用域内的近邻可能被挤掉。
+ * 因此查询在事务内开启 {@code hnsw.iterative_scan = strict_order}，候选被过滤光时索引继续扫描。
+ * 依赖 pgvector 0.8.0 及以上（启动时由 {@link #verifySchema} 校验）
+ *
+ * <p>所有方法都是阻塞 JDBC 调用，调用方需要切换到 boundedElastic 线程
+ * （{@link #scheduleCleanup} 自行在 boundedElastic 上执行）
+ */
+@Slf4j
+public class SemanticCacheStore {
+
+    /**
+     * 只对当前事务生效
+     */
+    private static final String ITERATIVE_SCAN_SQL = "SET LOCAL hnsw.iterative_scan = strict_order";
+
+    private static final String FIND_NEAREST_SQL = """
+        SELECT id, response::text AS response, embedding <=> CAST(? AS vector) AS distance
+        FROM llm_semantic_cache
+        WHERE scope_hash = ? AND (expires_at IS NULL OR expires_at > ?)
+        ORDER BY embedding <=> CAST(? AS vector)
+        LIMIT 1
+        """;
+
+    private static final String INSERT_SQL = """
+        INSERT INTO llm_semantic_cache (model, scope_hash, prompt, embedding, response, expires_at)
+        VALUES (?, ?, ?, CAST(? AS vector), CAST(? AS jsonb), ?)
+        """;
+
+    private static final String RECORD_HIT_SQL = """
+        UPDATE llm_semantic_cache SET hit_count = hit_count + 1, last_hit_at = ? WHERE id = ?
+        """;
+
+    private static final String DELETE_EXPIRED_SQL = """
+        DELETE FROM llm_semantic_cache WHERE expires_at IS NOT NULL AND expires_at <= ?
+        """;
+
+    /**
+     * pgvector 把维度保存在列的 typmod 中
+     */
+    private static final String COLUMN_DIMENSIONS_SQL = """
+        SELECT atttypmod FROM pg_attribute
+        WHERE attrelid = 'llm_semantic_cache'::regclass AND attname = 'embedding'
+        """;
+
+    private static final String PGVECTOR_VERSION_SQL = "SELECT extversion FROM pg_extension WHERE extname = 'vector'";
+
+    /**
+     * 支持 hnsw.iterative_scan 的最低 pgvector 版本
+     */
+    private static final int[] MIN_PGVECTOR_VERSION = {0, 8, 0};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public SemanticCacheStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 查询作用域内最相近的缓存条目
+     *
+     * @param scopeHash 作用域哈希
+     * @param embedding 问题向量
+     * @return 最近的条目，没有时返回 null
+     */
+    public Match findNearest(String scopeHash, float[] embedding) {
+        String vector = toVectorLiteral(embedding);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // SET LOCAL 需要事务：在同一连接上关闭自动提交，查询后提交并恢复
+        return jdbcTemplate.execute((ConnectionCallback<Match>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(ITERATIVE_SCAN_SQL);
+                }
+                Match match = null;
+                try (PreparedStatement statement = connection.prepareStatement(FIND_NEAREST_SQL)) {
+                    statement.setString(1, vector);
+                    statement.setString(2, scopeHash);
+                    statement.setTimestamp(3, now);
+                    statement.setString(4, vector);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        if (rs.next()) {
+                            match = new Match(
+                                rs.getObject("id", UUID.class),
+                                readResponse(rs.getString("response")),
+                                rs.getDouble("distance"));
+                        }
+                    }
+                }
+                connection.commit();
+                return match;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * 保存缓存条目
+     */
+    public void save(String model, String scopeHash, String prompt, float[] embedding,
+                     LlmResponse response, Duration ttl) {
+        Timestamp expiresAt = ttl != null ? Timestamp.valueOf(LocalDateTime.now().plus(ttl)) : null;
+        jdbcTemplate.update(INSERT_SQL, model, scopeHash, prompt, toVectorLiteral(embedding),
+            writeResponse(response), expiresAt);
+    }
+
+    /**
+     * 记录一次命中
+     */
+    public void recordHit(UUID id) {
+        jdbcTemplate.update(RECORD_HIT_SQL, Timestamp.valueOf(LocalDateTime.now()), id);
+    }
+
+    /**
+     * 删除已过期的条目
+     *
+     * @return 删除的条数
+     */
+    public int deleteExpired() {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 启动时校验数据库：pgvector 版本支持 iterative scan，embedding 列的维度与配置一致
+     *
+     * @param dimensions 配置的向量维度
+     * @throws LlmException 版本过低（SEMANTIC_CACHE_PGVECTOR）或维度不一致（SEMANTIC_CACHE_DIMENSIONS）时
+     */
+    public void verifySchema(int dimensions) {
+        verifyPgvectorVersion();
+        verifyDimensions(dimensions);
+    }
+
+    /**
+     * 校验 pgvector 版本不低于 0.8.0（hnsw.iterative_scan）
+     *
+     * @throws LlmException 版本过低或未安装时
+     */
+    public void verifyPgvectorVersion() {
+        List<String> versions = jdbcTemplate.queryForList(PGVECTOR_VERSION_SQL, String.class);
+        String version = versions.isEmpty() ? null : versions.get(0);
+        if (version == null || !atLeast(version, MIN_PGVECTOR_VERSION)) {
+            throw new LlmException("Semantic cache requires pgvector 0.8.0 or later (hnsw.iterative_scan), found "
+                + version, "SEMANTIC_CACHE_PGVECTOR");
+        }
+    }
+
+    /**
+     * 比较版本号（只取数字部分，如 0.8.0、0.7.4）
+     */
+    static boolean atLeast(String version, int[] minimum) {
+        String[] parts = version.split("\\.");
+        for (int i = 0; i < minimum.length; i++) {
+            int part = 0;
+            if (i < parts.length) {
+                String digits = parts[i].replaceAll("\\D.*", "");
+                part = digits.isEmpty() ? 0 : Integer.parseInt(digits);
+            }
+            if (part != minimum[i]) {
+                return part > minimum[i];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 校验 embedding 列的维度与配置一致
+     *
+     * @param dimensions 配置的向量维度
+     * @throws LlmException 维度不一致时
+     */
+    public void verifyDimensions(int dimensions) {
+        Integer columnDimensions = jdbcTemplate.queryForObject(COLUMN_DIMENSIONS_SQL, Integer.class);
+        if (columnDimensions == null || columnDimensions != dimensions) {
+            throw new LlmException("Semantic cache dimensions (" + dimensions
+                + ") do not match llm_semantic_cache.embedding column (" + columnDimensions + ")",
+                "SEMANTIC_CACHE_DIMENSIONS");
+        }
+    }
+
+    /**
+     * 定期删除过期条目（在 boundedElastic 线程上执行，单次失败只记录日志）
+     *
+     * @param interval 清理间隔
+     * @return 用于停止清理的 Disposable
+     */
+    public Disposable scheduleCleanup(Duration interval) {
+        return Flux.interval(interval, interval, Schedulers.boundedElastic())
+            .onBackpressureDrop()
+            .concatMap(tick -> Mono.fromCallable(this::deleteExpired)
+                .doOnNext(deleted -> log.debug("Deleted {} expired semantic cache entries", deleted))
+                .onErrorResume(error -> {
+                    log.warn("Failed to delete expired semantic cache entries: {}", error.getMessage());
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    /**
+     * 转换为 pgvector 文本格式：[0.1,0.2,...]
+     */
+    static String toVectorLiteral(float[] embedding) {
+        StringBuilder sb = new StringBuilder(embedding.length * 10 + 2);
+        sb.append('[');
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(embedding[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private String writeResponse(LlmResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new LlmException("Failed to serialize cached response", e);
+        }
+    }
+
+    private LlmResponse readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, LlmResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new LlmException("Failed to deserialize cached response", e);
+        }
+    }
+
+    /**
+     * 最近邻查询结果
+     *
+     * @param id 条目 ID
+     * @param response 缓存的回答
+     * @param distance 余弦距离
+     */
+    public record Match(UUID id, LlmResponse response, double distance) {
+    }
+}
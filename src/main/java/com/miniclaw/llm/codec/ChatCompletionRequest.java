@@ -0,0 +1,34 @@
+package com.miniclaw.llm.codec;
+
+import com.miniclaw.llm.model.LlmRequest;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI API 请求模型
+ *
+ * <p>由 {@link ChatRequestEncoder} 编码为请求体，为 null 的字段不输出
+ */
+@Data
+public class ChatCompletionRequest {
+    private String model;
+    private List<LlmRequest.Message> messages;
+    private Double temperature;
+    private Integer maxTokens;
+    private Boolean stream;
+
+    /**
+     * 流式请求是否要求返回用量（{@code stream_options.include_usage}）
+     */
+    private Boolean includeUsage;
+
+    private List<Map<String, Object>> tools;
+    private Object toolChoice;
+
+    /**
+     * 已编码的工具定义（拼接在 tools 之后）
+     */
+    private List<byte[]> encodedTools;
+}
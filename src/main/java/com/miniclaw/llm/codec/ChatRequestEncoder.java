@@ -0,0 +1,198 @@
+package com.miniclaw.llm.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.ToolCall;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chat Completions 请求体编码器
+ *
+ * <p>用流式 {@link JsonGenerator} 直接写出请求体，不经过中间的 Map 和反射序列化。
+ * 每条消息编码后的 JSON 字节按内容缓存，Agent 循环中第 N 轮重发的前 N-1 条消息
+ * 直接拼接缓存的字节；已注册的工具（{@code encodedTools}）同样直接拼接
+ *
+ * <p>指标前缀：{@code cache.*{cache=llm.message.encoding}}
+ */
+public class ChatRequestEncoder {
+
+    private static final String CACHE_NAME = "llm.message.encoding";
+
+    /**
+     * 单条消息之外的请求体预估字节数
+     */
+    private static final int BODY_OVERHEAD = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<MessageKey, byte[]> messageCache;
+
+    public ChatRequestEncoder(ObjectMapper objectMapper, LlmProperties.EncodingConfig config,
+                              MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        if (config != null && Boolean.TRUE.equals(config.getCacheMessages())) {
+            // 与 LlmResponseCache 相同：每条的权重不低于 maxBytes / maxEntries，同时限制条数和字节数
+            long maxBytes = Math.max(config.getMaxBytes(), 1);
+            long minWeight = Math.max(maxBytes / Math.max(config.getMaxEntries(), 1), 1);
+            this.messageCache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((MessageKey key, byte[] bytes) -> (int) Math.max(bytes.length, minWeight))
+                .recordStats()
+                .build();
+            if (meterRegistry != null) {
+                CaffeineCacheMetrics.monitor(meterRegistry, messageCache, CACHE_NAME);
+            }
+        } else {
+            this.messageCache = null;
+        }
+    }
+
+    /**
+     * 编码请求体
+     *
+     * @throws LlmException 编码失败
+     */
+    public byte[] encode(ChatCompletionRequest request) {
+        List<LlmRequest.Message> messages = request.getMessages();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BODY_OVERHEAD + estimateSize(messages));
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            if (request.getModel() != null) {
+                generator.writeStringField("model", request.getModel());
+            }
+            if (messages != null) {
+                generator.writeArrayFieldStart("messages");
+                for (LlmRequest.Message message : messages) {
+                    writeRawValue(generator, out, encode(message));
+                }
+                generator.writeEndArray();
+            }
+            if (request.getTemperature() != null) {
+                generator.writeNumberField("temperature", request.getTemperature());
+            }
+            if (request.getMaxTokens() != null) {
+                generator.writeNumberField("max_tokens", request.getMaxTokens());
+            }
+            if (request.getStream() != null) {
+                generator.writeBooleanField("stream", request.getStream());
+                if (request.getStream() && Boolean.TRUE.equals(request.getIncludeUsage())) {
+                    generator.writeObjectFieldStart("stream_options");
+                    generator.writeBooleanField("include_usage", true);
+                    generator.writeEndObject();
+                }
+            }
+            if (hasItems(request.getTools()) || hasItems(request.getEncodedTools())) {
+                generator.writeArrayFieldStart("tools");
+                if (request.getTools() != null) {
+                    for (Map<String, Object> tool : request.getTools()) {
+                        objectMapper.writeValue(generator, tool);
+                    }
+                }
+                if (request.getEncodedTools() != null) {
+                    for (byte[] tool : request.getEncodedTools()) {
+                        writeRawValue(generator, out, tool);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            if (request.getToolChoice() != null) {
+                generator.writeFieldName("tool_choice");
+                objectMapper.writeValue(generator, request.getToolChoice());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new LlmException("Failed to encode request", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 编码单条消息（命中缓存时直接返回缓存的字节，调用方不能修改返回值）
+     */
+    public byte[] encode(LlmRequest.Message message) throws IOException {
+        if (messageCache == null) {
+            return encodeMessage(message);
+        }
+        MessageKey key = new MessageKey(message.getRole(), message.getContent(),
+            message.getToolCallId(), message.getToolCalls());
+        byte[] cached = messageCache.getIfPresent(key);
+        if (cached == null) {
+            cached = encodeMessage(message);
+            messageCache.put(key, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * 当前缓存的消息条数（估算值）
+     */
+    public long cachedMessages() {
+        return messageCache != null ? messageCache.estimatedSize() : 0;
+    }
+
+    private byte[] encodeMessage(LlmRequest.Message message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + length(message.getContent()) * 3);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("role", message.getRole());
+            if (message.getContent() != null) {
+                generator.writeStringField("content", message.getContent());
+            }
+            if (message.getToolCalls() != null && !message.getToolCalls().isEmpty()) {
+                generator.writeFieldName("tool_calls");
+                objectMapper.writeValue(generator, message.getToolCalls());
+            }
+            if (message.getToolCallId() != null) {
+                generator.writeStringField("tool_call_id", message.getToolCallId());
+            }
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 写入已编码的 JSON 值
+     *
+     * <p>先写一个空的 raw value 让生成器输出分隔符并更新上下文，再把字节直接写入底层输出流
+     */
+    static void writeRawValue(JsonGenerator generator, ByteArrayOutputStream out, byte[] json) throws IOException {
+        generator.writeRawValue("");
+        generator.flush();
+        out.write(json);
+    }
+
+    private int estimateSize(List<LlmRequest.Message> messages) {
+        if (messages == null) {
+            return 0;
+        }
+        int size = 0;
+        for (LlmRequest.Message message : messages) {
+            size += 32 + length(message.getContent());
+        }
+        return size;
+    }
+
+    private static boolean hasItems(List<?> list) {
+        return list != null && !list.isEmpty();
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * 消息缓存 Key（按内容比较；String 的哈希值会缓存在实例上，重复发送的消息计算开销很小）
+     */
+    private record MessageKey(String role, String content, String toolCallId, List<ToolCall> toolCalls) {
+    }
+}
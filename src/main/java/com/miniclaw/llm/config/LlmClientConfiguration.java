@@ -0,0 +1,97 @@
+package com.miniclaw.llm.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.LlmClient;
+import com.miniclaw.llm.OpenAiCompatibleLlmClient;
+import com.miniclaw.llm.cache.SemanticCacheLlmClient;
+import com.miniclaw.llm.cache.SemanticCacheStore;
+import com.miniclaw.llm.context.ContextStatsStore;
+import com.miniclaw.llm.context.ContextWindowManager;
+import com.miniclaw.llm.resilience.CircuitBreakerEndpoint;
+import com.miniclaw.llm.stream.LlmStreamHub;
+import com.miniclaw.llm.token.TokenCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+
+/**
+ * LLM 客户端装配
+ *
+ * <p>注册共享的 {@link OpenAiCompatibleLlmClient}（容器关闭时释放连接池）、
+ * 它的 {@link TokenCounter}、按 run 共享流式响应的 {@link LlmStreamHub} 和相关的 Actuator 端点
+ *
+ * <p>业务代码注入的 {@link LlmClient}（{@code @Primary}）在原始客户端外按配置叠加装饰器，由内到外：
+ * <ul>
+ *   <li>{@code context.enabled=true} - {@link ContextWindowManager}，把历史压缩到上下文预算内，
+ *       有数据源时节省的 token 数经 {@link ContextStatsStore} 累加到 {@code runs.metadata}</li>
+ *   <li>{@code semantic-cache.enabled=true} - {@link SemanticCacheLlmClient}（同时校验向量维度并定期清理过期条目）</li>
+ * </ul>
+ */
+@Configuration
+public class LlmClientConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    public OpenAiCompatibleLlmClient llmClient(LlmProperties properties, ObjectMapper objectMapper,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OpenAiCompatibleLlmClient(properties, objectMapper,
+            meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @Primary
+    public LlmClient primaryLlmClient(OpenAiCompatibleLlmClient llmClient, LlmProperties properties,
+                                      ObjectProvider<JdbcTemplate> jdbcTemplate,
+                                      ObjectProvider<SemanticCacheStore> semanticCacheStore) {
+        LlmClient client = llmClient;
+        if (Boolean.TRUE.equals(properties.getContext().getEnabled())) {
+            // 没有数据源时只压缩，不记录统计
+            JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+            client = new ContextWindowManager(client, llmClient.getTokenCounter(), properties,
+                jdbc != null ? new ContextStatsStore(jdbc) : null);
+        }
+        SemanticCacheStore store = semanticCacheStore.getIfAvailable();
+        if (store != null) {
+            client = new SemanticCacheLlmClient(client, llmClient, store, properties);
+        }
+        return client;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "miniclaw.llm.semantic-cache", name = "enabled", havingValue = "true")
+    public SemanticCacheStore semanticCacheStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                                 LlmProperties properties) {
+        SemanticCacheStore store = new SemanticCacheStore(jdbcTemplate, objectMapper);
+        store.verifySchema(properties.getSemanticCache().getDimensions());
+        return store;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(prefix = "miniclaw.llm.semantic-cache", name = "enabled", havingValue = "true")
+    public Disposable semanticCacheCleanup(SemanticCacheStore semanticCacheStore, LlmProperties properties) {
+        return semanticCacheStore.scheduleCleanup(
+            Duration.ofSeconds(properties.getSemanticCache().getCleanupInterval()));
+    }
+
+    @Bean
+    public TokenCounter tokenCounter(OpenAiCompatibleLlmClient llmClient) {
+        return llmClient.getTokenCounter();
+    }
+
+    @Bean
+    public LlmStreamHub llmStreamHub(LlmProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new LlmStreamHub(properties.getStreamHub(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public CircuitBreakerEndpoint llmCircuitBreakerEndpoint(OpenAiCompatibleLlmClient llmClient) {
+        return new CircuitBreakerEndpoint(llmClient.getCircuitBreakers());
+    }
+}
@@ -64,6 +64,61 @@ public class LlmProperties {
      */
     private Integer timeout = 60;
 
+    /**
+     * 响应缓存配置（仅缓存确定性请求）
+     */
+    private CacheConfig cache = new CacheConfig();
+
+    /**
+     * 语义缓存配置（基于 pgvector，跨节点共享）
+     */
+    private SemanticCacheConfig semanticCache = new SemanticCacheConfig();
+
+    /**
+     * 是否合并同时在途的相同请求（Single-flight）
+     */
+    private Boolean coalesceRequests = false;
+
+    /**
+     * Provider 路由配置（在可互换的 Provider 之间负载均衡）
+     */
+    private RoutingConfig routing = new RoutingConfig();
+
+    /**
+     * 请求对冲配置（仅同步调用）
+     */
+    private HedgingConfig hedging = new HedgingConfig();
+
+    /**
+     * 请求编码配置（缓存已编码的消息）
+     */
+    private EncodingConfig encoding = new EncodingConfig();
+
+    /**
+     * 本地分词器配置（发送前精确计算 prompt token 数）
+     */
+    private TokenizerConfig tokenizer = new TokenizerConfig();
+
+    /**
+     * 上下文窗口管理配置（发送前把历史消息压缩到 token 预算内）
+     */
+    private ContextConfig context = new ContextConfig();
+
+    /**
+     * Provider 端 prompt 缓存配置（请求布局和流式用量）
+     */
+    private PromptCacheConfig promptCache = new PromptCacheConfig();
+
+    /**
+     * 流式响应共享配置（按 runId 把一次生成分发给多个订阅者）
+     */
+    private StreamHubConfig streamHub = new StreamHubConfig();
+
+    /**
+     * 流式输出合并配置（把连续的小内容增量合并为一帧）
+     */
+    private StreamCoalescingConfig streamCoalescing = new StreamCoalescingConfig();
+
     /**
      * 单个 Provider 配置
      */
@@ -88,6 +143,824 @@ public class LlmProperties {
          * 默认模型（如果不指定，使用列表第一个）
          */
         private String defaultModel;
+
+        /**
+         * 最大并发数（所有批量调用共享；交互式调用计入在途数但不排队）
+         */
+        private Integer maxConcurrency = 8;
+
+        /**
+         * 路由权重（仅 weighted 策略使用，0 表示不参与路由）
+         */
+        private Integer weight = 1;
+
+        /**
+         * HTTP 连接池与协议配置（每个 Provider 独立连接池）
+         */
+        private HttpClientConfig http = new HttpClientConfig();
+
+        /**
+         * 熔断器配置
+         */
+        private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+
+        /**
+         * 客户端限流配置
+         */
+        private RateLimitConfig rateLimit = new RateLimitConfig();
+
+        /**
+         * 重试策略配置
+         */
+        private RetryConfig retry = new RetryConfig();
+    }
+
+    /**
+     * 请求编码配置
+     *
+     * <p>Agent 循环中每轮都会重发之前的全部消息，缓存每条消息编码后的 JSON 字节，
+     * 发送时直接拼接，不再重复构建和序列化
+     */
+    @Data
+    public static class EncodingConfig {
+        /**
+         * 是否缓存已编码的消息
+         */
+        private Boolean cacheMessages = true;
+
+        /**
+         * 最大缓存条数
+         */
+        private Integer maxEntries = 20000;
+
+        /**
+         * 最大缓存字节数
+         */
+        private Long maxBytes = 32L * 1024 * 1024;
+    }
+
+    /**
+     * 本地分词器配置
+     *
+     * <p>词表使用 tiktoken 格式（每行 {@code base64(token) rank}），从 classpath 或文件系统加载；
+     * 项目不附带词表，默认不配置任何位置，按字符估算。需要精确计数时下载
+     * {@code cl100k_base.tiktoken} / {@code o200k_base.tiktoken} 并在 {@code encodings} 中配置
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     tokenizer:
+     *       encodings:
+     *         cl100k_base: file:/opt/miniclaw/cl100k_base.tiktoken
+     *       model-encodings:
+     *         deepseek: cl100k_base
+     * </pre>
+     */
+    @Data
+    public static class TokenizerConfig {
+        /**
+         * 未匹配到模型时使用的编码
+         */
+        private String defaultEncoding = "cl100k_base";
+
+        /**
+         * 编码名称 → 词表位置（支持 classpath: 和 file: 前缀，未配置的编码按字符估算）
+         */
+        private Map<String, String> encodings = new HashMap<>();
+
+        /**
+         * 模型名前缀 → 编码名称（取最长匹配的前缀）
+         */
+        private Map<String, String> modelEncodings = new HashMap<>(Map.of(
+            "gpt-4o", "o200k_base",
+            "gpt-4.1", "o200k_base",
+            "o1", "o200k_base",
+            "o3", "o200k_base",
+            "o4", "o200k_base"));
+
+        /**
+         * token 数缓存的最大条数（按文本缓存）
+         */
+        private Integer cacheMaxEntries = 50000;
+    }
+
+    /**
+     * 流式输出合并配置
+     *
+     * <p>Provider 的内容增量通常只有一两个字符，逐个转发时每个 chunk 都是一帧 SSE / WebSocket 加一次 flush。
+     * 启用后 {@code stream()} 的输出会合并连续的纯内容 chunk：第一个内容 chunk 和距上一帧已超过 window-millis 的内容
+     * 立即输出（不影响首 token 延迟），其余内容累积到 max-chars 个字符、到达窗口，或遇到工具调用 / 结束等非内容 chunk 时输出
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     stream-coalescing:
+     *       enabled: true
+     *       window-millis: 30
+     * </pre>
+     */
+    @Data
+    public static class StreamCoalescingConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 累积的字符数达到该值时立即输出
+         */
+        private Integer maxChars = 256;
+
+        /**
+         * 合并窗口（两帧之间的最小间隔，毫秒）
+         */
+        private Integer windowMillis = 30;
+    }
+
+    /**
+     * 流式响应共享配置
+     *
+     * <p>同一个 run 的多个消费者（SSE 推送、持久化、审计等）共享一次上游生成；
+     * 后加入的订阅者先收到最近 replay-limit 个 chunk，每个订阅者按自己的溢出策略处理背压
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     stream-hub:
+     *       replay-limit: 2048
+     *       overflow: LATEST
+     * </pre>
+     */
+    @Data
+    public static class StreamHubConfig {
+        /**
+         * 回放缓冲的 chunk 数（后加入的订阅者最多补发这么多）
+         */
+        private Integer replayLimit = 1024;
+
+        /**
+         * 订阅者默认的溢出策略
+         */
+        private Overflow overflow = Overflow.BUFFER;
+
+        /**
+         * BUFFER 策略下每个订阅者最多缓冲的 chunk 数
+         */
+        private Integer bufferSize = 256;
+
+        /**
+         * 订阅者跟不上时的溢出策略
+         */
+        public enum Overflow {
+            /**
+             * 丢弃订阅者来不及处理的 chunk（适合只看进度的监控视图）
+             */
+            DROP,
+
+            /**
+             * 只保留最新的一个 chunk
+             */
+            LATEST,
+
+            /**
+             * 最多缓冲 buffer-size 个 chunk，超出后以错误结束该订阅者（不影响其他订阅者）
+             */
+            BUFFER
+        }
+    }
+
+    /**
+     * Provider 端 prompt 缓存配置
+     *
+     * <p>OpenAI 兼容的 Provider 会缓存最近请求的 prompt 前缀，前缀逐字节相同的请求按折扣计费、首 token 更快。
+     * 命中的 token 数见 {@code LlmResponse.Usage.cachedTokens}，按 Provider 的命中率见指标
+     * {@code llm.prompt.cache.hit.ratio}
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     prompt-cache:
+     *       stable-layout: true
+     *       stream-usage: true
+     * </pre>
+     */
+    @Data
+    public static class PromptCacheConfig {
+        /**
+         * 稳定前缀布局：系统消息放在最前面（保持相对顺序），
+         * 内联工具和已注册工具按名称排序、按键排序编码，使工具定义与调用方的 Map / 列表顺序无关
+         *
+         * <p>每轮变化的指令应放在 user 消息中，否则会破坏之后所有请求的前缀
+         */
+        private Boolean stableLayout = false;
+
+        /**
+         * 流式请求是否要求返回用量（{@code stream_options.include_usage}，用量随最后一个 chunk 输出）
+         */
+        private Boolean streamUsage = false;
+    }
+
+    /**
+     * 上下文窗口管理配置
+     *
+     * <p>每次请求的预算为 {@code 上下文窗口 × target-ratio - 预留的输出 token}，
+     * 超出预算时按 strategies 的顺序依次压缩，直到不超过预算
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     context:
+     *       enabled: true
+     *       context-windows:
+     *         deepseek-chat: 64000
+     *       strategies: [DROP_TOOL_OUTPUTS, SUMMARIZE, PIN_SYSTEM_AND_RECENT]
+     * </pre>
+     */
+    @Data
+    public static class ContextConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 模型名前缀 → 上下文窗口大小（token，取最长匹配的前缀）
+         */
+        private Map<String, Integer> contextWindows = new HashMap<>(Map.of(
+            "gpt-3.5-turbo", 16385,
+            "gpt-4", 8192,
+            "gpt-4-turbo", 128000,
+            "gpt-4o", 128000,
+            "gpt-4.1", 1047576,
+            "deepseek", 65536));
+
+        /**
+         * 未匹配到模型时的上下文窗口大小
+         */
+        private Integer defaultContextWindow = 32768;
+
+        /**
+         * 预算占上下文窗口的比例（0~1）
+         */
+        private Double targetRatio = 0.8;
+
+        /**
+         * 压缩策略（按顺序执行，直到不超过预算）
+         */
+        private List<Strategy> strategies = new ArrayList<>(List.of(
+            Strategy.DROP_TOOL_OUTPUTS, Strategy.PIN_SYSTEM_AND_RECENT));
+
+        /**
+         * 始终保留的最近消息条数
+         */
+        private Integer keepRecentMessages = 6;
+
+        /**
+         * 生成摘要使用的模型（为空使用请求的模型）
+         */
+        private String summaryModel;
+
+        /**
+         * 摘要的最大 token 数
+         */
+        private Integer summaryMaxTokens = 512;
+
+        /**
+         * 缓存的摘要条数
+         */
+        private Integer summaryCacheSize = 1000;
+
+        /**
+         * 压缩策略类型
+         */
+        public enum Strategy {
+            /**
+             * 保留系统消息，从最早的消息开始丢弃
+             */
+            SLIDING_WINDOW,
+
+            /**
+             * 保留系统消息、第一条用户消息和最近的消息，从中间开始丢弃
+             */
+            PIN_SYSTEM_AND_RECENT,
+
+            /**
+             * 把较早的工具输出替换为占位文本（保留调用记录）
+             */
+            DROP_TOOL_OUTPUTS,
+
+            /**
+             * 用摘要替换较早的消息（摘要在后台生成，生成前不生效）
+             */
+            SUMMARIZE
+        }
+    }
+
+    /**
+     * 响应缓存配置
+     *
+     * <p>只有 temperature 为 0 且不带工具的请求才会被缓存
+     */
+    @Data
+    public static class CacheConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 最大缓存条数
+         */
+        private Integer maxEntries = 10000;
+
+        /**
+         * 最大缓存字节数（估算值）
+         */
+        private Long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * 缓存过期时间（秒）
+         */
+        private Integer ttl = 3600;
+    }
+
+    /**
+     * 语义缓存配置
+     *
+     * <p>只缓存"系统提示 + 单条用户消息"形式的单轮问答；
+     * 新问题与已缓存问题的向量余弦距离不超过 maxDistance 时直接返回缓存的回答
+     *
+     * <p>需要 PostgreSQL 安装 pgvector 0.8.0 及以上（按作用域过滤的近邻查询依赖 hnsw.iterative_scan）
+     */
+    @Data
+    public static class SemanticCacheConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 用于计算向量的 Provider ID（null 使用默认）
+         */
+        private String embeddingProvider;
+
+        /**
+         * 向量模型
+         */
+        private String embeddingModel = "text-embedding-3-small";
+
+        /**
+         * 向量维度（必须与 llm_semantic_cache.embedding 列一致，启动时校验；
+         * 向量模型返回的维度不一致时跳过缓存）
+         */
+        private Integer dimensions = 1536;
+
+        /**
+         * 命中阈值：最大余弦距离（0 表示完全相同，越大越宽松）
+         */
+        private Double maxDistance = 0.05;
+
+        /**
+         * 缓存过期时间（秒）
+         */
+        private Integer ttl = 86400;
+
+        /**
+         * 过期条目清理间隔（秒）
+         */
+        private Integer cleanupInterval = 3600;
+    }
+
+    /**
+     * Provider 路由配置
+     *
+     * <p>同一分组内的 Provider 可以互相替换：请求其中任意一个 Provider 时，
+     * 会在组内支持该模型的 Provider 之间按策略选择
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     routing:
+     *       enabled: true
+     *       strategy: power-of-two-choices
+     *       groups:
+     *         gpt4:
+     *           - openai
+     *           - azure-openai
+     * </pre>
+     */
+    @Data
+    public static class RoutingConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 路由策略
+         */
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+
+        /**
+         * EWMA 延迟平滑系数（0~1，越大越偏重最近的请求）
+         */
+        private Double ewmaAlpha = 0.3;
+
+        /**
+         * 没有延迟样本时使用的初始延迟（毫秒），避免新 Provider 评分为 0 而被过度优先
+         */
+        private Long coldStartLatencyMillis = 1000L;
+
+        /**
+         * 失败惩罚倍数：请求失败时按 max(耗时, 当前 EWMA) × 该倍数记入 EWMA，
+         * 使快速失败（5xx、连接被拒绝）的 Provider 评分升高而不是保持最低
+         */
+        private Double failurePenalty = 5.0;
+
+        /**
+         * 分组名 -> 可互换的 Provider ID 列表
+         */
+        private Map<String, List<String>> groups = new HashMap<>();
+
+        /**
+         * 路由策略类型
+         */
+        public enum Strategy {
+            /**
+             * 随机取两个，选负载评分（EWMA 延迟 × 在途请求数）低的
+             */
+            POWER_OF_TWO_CHOICES,
+
+            /**
+             * 在途请求最少
+             */
+            LEAST_OUTSTANDING,
+
+            /**
+             * 按 Provider 权重随机
+             */
+            WEIGHTED
+        }
+    }
+
+    /**
+     * 请求对冲配置
+     *
+     * <p>主请求在 Provider 最近延迟的指定分位数内没有返回时，
+     * 向同一路由分组内的另一个 Provider（没有时向同一 Provider）发送备份请求，
+     * 先返回的结果生效，另一个被取消
+     *
+     * <p>每个 Provider 的备份请求数不超过其主请求数的 budget-percent%
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     hedging:
+     *       enabled: true
+     *       percentile: 95
+     *       budget-percent: 5
+     * </pre>
+     */
+    @Data
+    public static class HedgingConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 对冲延迟取主 Provider 最近延迟的分位数（0~100）
+         */
+        private Double percentile = 95.0;
+
+        /**
+         * 计算分位数至少需要的延迟样本数（不足时不对冲）
+         */
+        private Integer minSamples = 20;
+
+        /**
+         * 最小对冲延迟（毫秒）
+         */
+        private Integer minDelayMillis = 100;
+
+        /**
+         * 备份请求占主请求的最大百分比
+         */
+        private Integer budgetPercent = 10;
+
+        /**
+         * 最多累积的备份请求数（空闲后的突发上限）
+         */
+        private Integer budgetBurst = 10;
+    }
+
+    /**
+     * 熔断器配置
+     *
+     * <p>基于最近 N 次调用的滑动窗口：失败率或慢调用率超过阈值时打开熔断，
+     * 打开期间直接失败（或切换到同一路由分组内的其他 Provider），
+     * 等待一段时间后进入半开状态，放行少量探测请求决定关闭还是重新打开
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     providers:
+     *       openai:
+     *         circuit-breaker:
+     *           enabled: true
+     *           failure-rate-threshold: 50
+     *           slow-call-duration: 20
+     * </pre>
+     */
+    @Data
+    public static class CircuitBreakerConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 滑动窗口大小（最近的调用次数）
+         */
+        private Integer slidingWindowSize = 50;
+
+        /**
+         * 计算失败率前窗口内至少需要的调用次数
+         */
+        private Integer minimumNumberOfCalls = 10;
+
+        /**
+         * 失败率阈值（百分比）
+         */
+        private Integer failureRateThreshold = 50;
+
+        /**
+         * 慢调用率阈值（百分比）
+         */
+        private Integer slowCallRateThreshold = 80;
+
+        /**
+         * 慢调用判定时间（秒，流式请求按首个 chunk 到达时间计算）
+         */
+        private Integer slowCallDuration = 30;
+
+        /**
+         * 打开状态持续时间（秒），之后进入半开状态
+         */
+        private Integer waitDurationInOpenState = 30;
+
+        /**
+         * 半开状态放行的探测请求数
+         */
+        private Integer permittedCallsInHalfOpenState = 3;
+    }
+
+    /**
+     * 重试策略配置
+     *
+     * <p>按 HTTP 状态码和异常类型判断是否可重试，指数退避加随机抖动；
+     * 重试预算限制重试请求不超过正常请求的 budget-percent%，避免故障时重试放大流量
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     providers:
+     *       openai:
+     *         retry:
+     *           max-retries: 2
+     *           retryable-status-codes: [429, 502, 503]
+     *           budget-percent: 10
+     * </pre>
+     */
+    @Data
+    public static class RetryConfig {
+        /**
+         * 自定义 {@code RetryPolicy} 实现类（全限定名，需要无参或以 RetryConfig 为参数的公共构造函数）
+         */
+        private String policyClass;
+
+        /**
+         * 同步调用最大重试次数
+         */
+        private Integer maxRetries = 3;
+
+        /**
+         * 流式调用最大重试次数
+         */
+        private Integer streamMaxRetries = 2;
+
+        /**
+         * 首次重试退避时间（毫秒），之后每次翻倍
+         */
+        private Integer initialBackoffMillis = 1000;
+
+        /**
+         * 最大退避时间（毫秒）
+         */
+        private Integer maxBackoffMillis = 10000;
+
+        /**
+         * 抖动系数（0~1，实际退避在 [backoff × (1 - jitter), backoff] 之间随机）
+         */
+        private Double jitter = 0.5;
+
+        /**
+         * 可重试的 HTTP 状态码
+         */
+        private List<Integer> retryableStatusCodes = new ArrayList<>(List.of(408, 429, 500, 502, 503, 504));
+
+        /**
+         * 重试请求占正常请求的最大百分比
+         */
+        private Integer budgetPercent = 20;
+
+        /**
+         * 最多累积的重试次数（空闲后的突发上限）
+         */
+        private Integer budgetBurst = 10;
+
+        /**
+         * 流式调用中途失败后的续传方式（默认 SUPPRESS_PREFIX：生成结果不一致时以 STREAM_DIVERGED 明确失败）
+         */
+        private StreamResumeMode streamResumeMode = StreamResumeMode.SUPPRESS_PREFIX;
+
+        /**
+         * 流式续传方式
+         */
+        public enum StreamResumeMode {
+            /**
+             * 重新发送原请求，已输出的 chunk 会重复输出
+             */
+            RESTART,
+
+            /**
+             * 重新发送原请求，跳过与已输出内容相同的前缀（前缀不一致时以错误结束，只适合 temperature 为 0 的请求）
+             */
+            SUPPRESS_PREFIX,
+
+            /**
+             * 把已输出的内容作为 assistant 消息追加到请求末尾，让模型接着生成；
+             * 已输出过工具调用增量时退化为 SUPPRESS_PREFIX。
+             * 只对支持 assistant 前缀续写（prefix / prefill）的 Provider 按需开启：
+             * 普通 OpenAI 兼容接口会把它当作新一轮回复，输出变成半截内容加上重新开始的回答
+             */
+            CONTINUE
+        }
+    }
+
+    /**
+     * 客户端限流配置
+     *
+     * <p>按 Provider + 模型分别限制每分钟请求数（RPM）和每分钟 token 数（TPM），
+     * 请求发出前在本地排队，预计等待超过 maxWait 时直接拒绝；
+     * 同时根据响应头 {@code Retry-After}、{@code x-ratelimit-remaining-*}、
+     * {@code x-ratelimit-reset-*} 动态收紧额度
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     providers:
+     *       openai:
+     *         rate-limit:
+     *           enabled: true
+     *           requests-per-minute: 500
+     *           tokens-per-minute: 30000
+     *           models:
+     *             gpt-4o-mini:
+     *               tokens-per-minute: 200000
+     * </pre>
+     */
+    @Data
+    public static class RateLimitConfig {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 每分钟请求数（不配置表示不限制）
+         */
+        private Integer requestsPerMinute;
+
+        /**
+         * 每分钟 token 数（按 prompt 估算 + max_tokens 预留，响应后按实际用量退还）
+         */
+        private Integer tokensPerMinute;
+
+        /**
+         * 最大排队等待时间（秒），超过时直接拒绝
+         */
+        private Integer maxWait = 10;
+
+        /**
+         * 模型 -> 单独的限额（未配置的项使用 Provider 级别的值）
+         */
+        private Map<String, ModelRateLimit> models = new HashMap<>();
+    }
+
+    /**
+     * 单个模型的限额
+     */
+    @Data
+    public static class ModelRateLimit {
+        /**
+         * 每分钟请求数
+         */
+        private Integer requestsPerMinute;
+
+        /**
+         * 每分钟 token 数
+         */
+        private Integer tokensPerMinute;
+    }
+
+    /**
+     * HTTP 连接池与协议配置
+     *
+     * <p>示例配置：
+     * <pre>
+     * miniclaw:
+     *   llm:
+     *     providers:
+     *       openai:
+     *         http:
+     *           max-connections: 200
+     *           pending-acquire-max-count: 500
+     *           pending-acquire-timeout: 10
+     *           http2: true
+     * </pre>
+     */
+    @Data
+    public static class HttpClientConfig {
+        /**
+         * 最大连接数（HTTP/2 模式下为最大物理连接数）
+         */
+        private Integer maxConnections = 100;
+
+        /**
+         * 等待获取连接的最大排队数（-1 表示不限制）
+         */
+        private Integer pendingAcquireMaxCount = 500;
+
+        /**
+         * 等待获取连接的超时时间（秒）
+         */
+        private Integer pendingAcquireTimeout = 10;
+
+        /**
+         * 连接最大空闲时间（秒），超过后被回收
+         */
+        private Integer maxIdleTime = 30;
+
+        /**
+         * 连接最大存活时间（秒）
+         */
+        private Integer maxLifeTime = 300;
+
+        /**
+         * 后台空闲连接回收间隔（秒，0 表示不在后台回收）
+         */
+        private Integer evictInBackground = 30;
+
+        /**
+         * 是否开启 keep-alive（HTTP 连接复用 + TCP SO_KEEPALIVE）
+         */
+        private Boolean keepAlive = true;
+
+        /**
+         * 建立连接超时时间（毫秒）
+         */
+        private Integer connectTimeoutMillis = 5000;
+
+        /**
+         * 响应超时时间（秒，两次读之间的最大间隔；不配置时使用全局 timeout）
+         */
+        private Integer responseTimeout;
+
+        /**
+         * 是否启用 HTTP/2（https 通过 ALPN 协商，http 使用 h2c），失败时回退 HTTP/1.1
+         */
+        private Boolean http2 = false;
+
+        /**
+         * HTTP/2 单连接最大并发流数
+         */
+        private Integer http2MaxConcurrentStreams = 100;
+
+        /**
+         * 是否发布连接池指标（active / idle / pending 连接数）
+         */
+        private Boolean metricsEnabled = true;
     }
 
     /**
@@ -0,0 +1,37 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.token.TokenCounter;
+
+import java.util.List;
+
+/**
+ * 单次请求的上下文预算
+ *
+ * @param model 实际使用的模型（决定分词器）
+ * @param maxTokens 消息可以使用的最大 token 数
+ * @param tokenCounter token 计数
+ */
+public record ContextBudget(String model, int maxTokens, TokenCounter tokenCounter) {
+
+    /**
+     * 消息列表的 token 数
+     */
+    public int count(List<LlmRequest.Message> messages) {
+        return tokenCounter.count(model, messages);
+    }
+
+    /**
+     * 单条消息的 token 数
+     */
+    public int count(LlmRequest.Message message) {
+        return tokenCounter.count(model, message);
+    }
+
+    /**
+     * 是否在预算内
+     */
+    public boolean fits(int tokens) {
+        return tokens <= maxTokens;
+    }
+}
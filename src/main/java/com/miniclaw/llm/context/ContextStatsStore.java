@@ -0,0 +1,43 @@
+package com.miniclaw.llm.context;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 上下文压缩统计存储
+ *
+ * <p>累加到 {@code runs.metadata}（见 {@code V3__run_metadata.sql}）：
+ * {@code context_tokens_saved} 为节省的 token 总数，{@code context_compactions} 为压缩次数。
+ * 该列只通过这里写入（{@code Run.metadata} 对 JPA 只读），保存实体不会覆盖统计
+ *
+ * <p>所有方法都是阻塞 JDBC 调用，调用方需要切换到 boundedElastic 线程
+ */
+public class ContextStatsStore {
+
+    private static final String RECORD_SAVINGS_SQL = """
+        UPDATE runs SET metadata = metadata || jsonb_build_object(
+            'context_tokens_saved', COALESCE((metadata ->> 'context_tokens_saved')::bigint, 0) + ?,
+            'context_compactions', COALESCE((metadata ->> 'context_compactions')::bigint, 0) + 1),
+            updated_at = ?
+        WHERE id = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ContextStatsStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 记录一次压缩
+     *
+     * @param runId 执行记录 ID
+     * @param tokensSaved 节省的 token 数
+     */
+    public void recordSavings(UUID runId, int tokensSaved) {
+        jdbcTemplate.update(RECORD_SAVINGS_SQL, (long) tokensSaved, Timestamp.valueOf(LocalDateTime.now()), runId);
+    }
+}
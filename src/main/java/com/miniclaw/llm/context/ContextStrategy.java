@@ -0,0 +1,31 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.model.LlmRequest;
+
+import java.util.List;
+
+/**
+ * 上下文压缩策略
+ *
+ * <p>实现类：
+ * <ul>
+ *   <li>{@link ToolOutputPruningStrategy} - 省略较早的工具输出</li>
+ *   <li>{@link SummarizingStrategy} - 用摘要替换较早的消息</li>
+ *   <li>{@link PinnedRecentStrategy} - 保留系统消息、第一条用户消息和最近的消息</li>
+ *   <li>{@link SlidingWindowStrategy} - 保留系统消息，丢弃最早的消息</li>
+ * </ul>
+ */
+public interface ContextStrategy {
+
+    /**
+     * 压缩消息列表
+     *
+     * <p>不能修改传入的列表和消息；达到预算后应尽早停止，不需要的压缩不要做。
+     * 无法压缩到预算内时返回尽力压缩的结果，由下一个策略继续处理
+     *
+     * @param messages 消息列表
+     * @param budget 预算
+     * @return 压缩后的消息列表（没有变化时可以返回原列表）
+     */
+    List<LlmRequest.Message> apply(List<LlmRequest.Message> messages, ContextBudget budget);
+}
@@ -0,0 +1,185 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.LlmClient;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import com.miniclaw.llm.token.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 上下文窗口管理客户端（装饰器）
+ *
+ * <p>发送前计算历史消息的 token 数，超出预算时按配置的策略依次压缩，直到不超过预算；
+ * 预算为 {@code 上下文窗口 × target-ratio - 预留的输出 token}
+ *
+ * <p>请求带有 runId 且配置了 {@link ContextStatsStore} 时，节省的 token 数异步累加到执行记录
+ *
+ * <p>使用示例：
+ * <pre>
+ * LlmClient client = new ContextWindowManager(
+ *     llmClient, llmClient.getTokenCounter(), properties, new ContextStatsStore(jdbcTemplate));
+ * </pre>
+ */
+@Slf4j
+public class ContextWindowManager implements LlmClient {
+
+    private final LlmClient delegate;
+    private final TokenCounter tokenCounter;
+    private final LlmProperties properties;
+    private final LlmProperties.ContextConfig config;
+    private final List<ContextStrategy> strategies;
+    private final ContextStatsStore statsStore;
+
+    /**
+     * 按配置创建压缩策略
+     *
+     * @param statsStore 统计存储（可选）
+     */
+    public ContextWindowManager(LlmClient delegate, TokenCounter tokenCounter, LlmProperties properties,
+                                ContextStatsStore statsStore) {
+        this(delegate, tokenCounter, properties, statsStore,
+            createStrategies(delegate, properties.getContext()));
+    }
+
+    /**
+     * 使用指定的压缩策略
+     */
+    public ContextWindowManager(LlmClient delegate, TokenCounter tokenCounter, LlmProperties properties,
+                                ContextStatsStore statsStore, List<ContextStrategy> strategies) {
+        this.delegate = delegate;
+        this.tokenCounter = tokenCounter;
+        this.properties = properties;
+        this.config = properties.getContext();
+        this.statsStore = statsStore;
+        this.strategies = List.copyOf(strategies);
+    }
+
+    private static List<ContextStrategy> createStrategies(LlmClient delegate, LlmProperties.ContextConfig config) {
+        int keepRecent = config.getKeepRecentMessages();
+        List<ContextStrategy> strategies = new ArrayList<>();
+        for (LlmProperties.ContextConfig.Strategy strategy : config.getStrategies()) {
+            strategies.add(switch (strategy) {
+                case SLIDING_WINDOW -> new SlidingWindowStrategy(keepRecent);
+                case PIN_SYSTEM_AND_RECENT -> new PinnedRecentStrategy(keepRecent);
+                case DROP_TOOL_OUTPUTS -> new ToolOutputPruningStrategy(keepRecent);
+                case SUMMARIZE -> new SummarizingStrategy(delegate, config);
+            });
+        }
+        return strategies;
+    }
+
+    @Override
+    public LlmResponse chat(LlmRequest request) {
+        return chatAsync(request).block();
+    }
+
+    @Override
+    public Mono<LlmResponse> chatAsync(LlmRequest request, String providerId) {
+        return Mono.defer(() -> delegate.chatAsync(fit(request, providerId), providerId));
+    }
+
+    @Override
+    public Flux<LlmChunk> stream(LlmRequest request) {
+        return Flux.defer(() -> delegate.stream(fit(request, null)));
+    }
+
+    /**
+     * 把请求的消息压缩到预算内（未启用或已在预算内时返回原请求）
+     *
+     * @param request 请求
+     * @param providerId Provider ID（null 使用默认，用于确定默认模型）
+     * @return 压缩后的请求
+     */
+    public LlmRequest fit(LlmRequest request, String providerId) {
+        List<LlmRequest.Message> messages = request.getMessages();
+        if (!Boolean.TRUE.equals(config.getEnabled()) || messages == null || messages.isEmpty()) {
+            return request;
+        }
+
+        String model = request.getModel() != null ? request.getModel()
+            : properties.getDefaultModel(providerId != null ? providerId : properties.getDefaultProviderId());
+        ContextBudget budget = budget(model, request.getMaxTokens());
+
+        int before = budget.count(messages);
+        if (budget.fits(before)) {
+            return request;
+        }
+
+        List<LlmRequest.Message> fitted = messages;
+        for (ContextStrategy strategy : strategies) {
+            fitted = strategy.apply(fitted, budget);
+            if (budget.fits(budget.count(fitted))) {
+                break;
+            }
+        }
+
+        int after = budget.count(fitted);
+        if (!budget.fits(after)) {
+            log.warn("Context still over budget after compaction: model={}, tokens={}, budget={}",
+                model, after, budget.maxTokens());
+        }
+        if (fitted == messages) {
+            return request;
+        }
+
+        log.debug("Context compacted: model={}, messages={}->{}, tokens={}->{}",
+            model, messages.size(), fitted.size(), before, after);
+        recordSavingsAsync(request, before - after);
+
+        return LlmRequest.builder()
+            .messages(fitted)
+            .model(request.getModel())
+            .temperature(request.getTemperature())
+            .maxTokens(request.getMaxTokens())
+            .stream(request.getStream())
+            .tools(request.getTools())
+            .toolNames(request.getToolNames())
+            .toolChoice(request.getToolChoice())
+            .runId(request.getRunId())
+            .build();
+    }
+
+    /**
+     * 计算模型的预算：窗口 × 比例 - 预留的输出 token（至少保留窗口 × 比例的一半给消息）
+     */
+    ContextBudget budget(String model, Integer maxTokens) {
+        int target = (int) (contextWindow(model) * config.getTargetRatio());
+        int reserve = maxTokens != null ? maxTokens : properties.getMaxTokens();
+        return new ContextBudget(model, Math.max(target - reserve, target / 2), tokenCounter);
+    }
+
+    /**
+     * 模型的上下文窗口大小（最长前缀匹配）
+     */
+    int contextWindow(String model) {
+        Integer window = null;
+        int matchLength = -1;
+        if (model != null) {
+            for (Map.Entry<String, Integer> entry : config.getContextWindows().entrySet()) {
+                if (model.startsWith(entry.getKey()) && entry.getKey().length() > matchLength) {
+                    window = entry.getValue();
+                    matchLength = entry.getKey().length();
+                }
+            }
+        }
+        return window != null ? window : config.getDefaultContextWindow();
+    }
+
+    private void recordSavingsAsync(LlmRequest request, int tokensSaved) {
+        if (statsStore == null || request.getRunId() == null || tokensSaved <= 0) {
+            return;
+        }
+        Mono.fromRunnable(() -> statsStore.recordSavings(request.getRunId(), tokensSaved))
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(null, error -> log.warn("Failed to record context savings", error));
+    }
+}
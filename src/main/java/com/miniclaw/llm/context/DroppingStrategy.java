@@ -0,0 +1,72 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.model.LlmRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按单元丢弃消息的策略基类
+ *
+ * <p>从最早的单元开始丢弃，跳过系统消息、最近的消息和子类固定的单元，直到不超过预算
+ */
+abstract class DroppingStrategy implements ContextStrategy {
+
+    private final int keepRecentMessages;
+
+    DroppingStrategy(int keepRecentMessages) {
+        this.keepRecentMessages = Math.max(keepRecentMessages, 1);
+    }
+
+    /**
+     * 是否固定保留该单元（系统消息和最近的消息之外）
+     *
+     * @param messages 消息列表
+     * @param start 单元起始下标
+     * @param firstUser 第一条用户消息的下标（没有时为 -1）
+     */
+    protected abstract boolean isPinned(List<LlmRequest.Message> messages, int start, int firstUser);
+
+    @Override
+    public List<LlmRequest.Message> apply(List<LlmRequest.Message> messages, ContextBudget budget) {
+        int total = budget.count(messages);
+        if (budget.fits(total)) {
+            return messages;
+        }
+
+        int[] units = MessageUnits.boundaries(messages);
+        int recentStart = messages.size() - keepRecentMessages;
+        int firstUser = -1;
+        for (int i = 0; i < messages.size(); i++) {
+            if ("user".equals(messages.get(i).getRole())) {
+                firstUser = i;
+                break;
+            }
+        }
+
+        boolean[] dropped = new boolean[units.length - 1];
+        for (int u = 0; u < units.length - 1 && !budget.fits(total); u++) {
+            int start = units[u];
+            int end = units[u + 1];
+            // 与最近消息重叠的单元（及之后的单元）全部保留
+            if (end > recentStart) {
+                break;
+            }
+            if (MessageUnits.isSystem(messages.get(start)) || isPinned(messages, start, firstUser)) {
+                continue;
+            }
+            for (int i = start; i < end; i++) {
+                total -= budget.count(messages.get(i));
+            }
+            dropped[u] = true;
+        }
+
+        List<LlmRequest.Message> result = new ArrayList<>(messages.size());
+        for (int u = 0; u < units.length - 1; u++) {
+            if (!dropped[u]) {
+                result.addAll(messages.subList(units[u], units[u + 1]));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.model.LlmRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把消息列表切分为不可拆分的单元
+ *
+ * <p>带工具调用的 assistant 消息和紧随其后的 tool 消息属于同一个单元，
+ * 丢弃时必须一起丢弃，否则 Provider 会拒绝孤立的工具结果
+ */
+final class MessageUnits {
+
+    private MessageUnits() {
+    }
+
+    /**
+     * 各单元的起始下标（最后附加 messages.size() 作为结束位置）
+     */
+    static int[] boundaries(List<LlmRequest.Message> messages) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (i == 0 || !"tool".equals(messages.get(i).getRole())) {
+                starts.add(i);
+            }
+        }
+        int[] boundaries = new int[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            boundaries[i] = starts.get(i);
+        }
+        boundaries[starts.size()] = messages.size();
+        return boundaries;
+    }
+
+    static boolean isSystem(LlmRequest.Message message) {
+        return "system".equals(message.getRole());
+    }
+}
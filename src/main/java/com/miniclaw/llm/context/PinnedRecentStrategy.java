@@ -0,0 +1,20 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.model.LlmRequest;
+
+import java.util.List;
+
+/**
+ * 保留系统消息、第一条用户消息（通常是任务描述）和最近的消息，从中间开始丢弃
+ */
+public class PinnedRecentStrategy extends DroppingStrategy {
+
+    public PinnedRecentStrategy(int keepRecentMessages) {
+        super(keepRecentMessages);
+    }
+
+    @Override
+    protected boolean isPinned(List<LlmRequest.Message> messages, int start, int firstUser) {
+        return start == firstUser;
+    }
+}
@@ -0,0 +1,20 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.model.LlmRequest;
+
+import java.util.List;
+
+/**
+ * 滑动窗口：保留系统消息和最近的消息，从最早的消息开始丢弃
+ */
+public class SlidingWindowStrategy extends DroppingStrategy {
+
+    public SlidingWindowStrategy(int keepRecentMessages) {
+        super(keepRecentMessages);
+    }
+
+    @Override
+    protected boolean isPinned(List<LlmRequest.Message> messages, int start, int firstUser) {
+        return false;
+    }
+}
@@ -0,0 +1,252 @@
+package com.miniclaw.llm.context;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.miniclaw.llm.LlmClient;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.ToolCall;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用摘要替换较早的消息
+ *
+ * <p>摘要在后台生成，不阻塞当前请求：超出预算时发起一次摘要请求，当前请求交给后续策略处理；
+ * 之后的请求只要以已摘要的历史开头，就用摘要替换它
+ *
+ * <p>摘要是增量的：每次只把"已有摘要 + 之后的下一段消息"交给模型，下一段消息按 token 截到
+ * 预算减去摘要输出长度以内，因此摘要请求本身不会超出上下文窗口；历史较长时经过几轮逐步追上
+ *
+ * <p>摘要按历史前缀的 SHA-256 缓存，同一前缀同时只会有一个摘要请求
+ */
+@Slf4j
+public class SummarizingStrategy implements ContextStrategy {
+
+    private static final String SUMMARY_PROMPT = """
+        Summarize the conversation below for an assistant that will continue it. \
+        Keep the user's goal, facts and decisions established so far, tool results that are still relevant, \
+        and any open tasks. Be concise; do not add commentary.""";
+
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation:\n";
+
+    private static final String PREVIOUS_SUMMARY = "Summary so far:\n";
+
+    private static final String NEXT_MESSAGES = "\n\nConversation continues:\n";
+
+    private static final String TRUNCATED = "\n[truncated]";
+
+    private final LlmClient client;
+    private final LlmProperties.ContextConfig config;
+    private final Cache<String, String> summaries;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param client 生成摘要使用的客户端（不要传入上下文管理器本身）
+     * @param config 上下文配置
+     */
+    public SummarizingStrategy(LlmClient client, LlmProperties.ContextConfig config) {
+        this.client = client;
+        this.config = config;
+        this.summaries = Caffeine.newBuilder()
+            .maximumSize(Math.max(config.getSummaryCacheSize(), 1))
+            .build();
+    }
+
+    @Override
+    public List<LlmRequest.Message> apply(List<LlmRequest.Message> messages, ContextBudget budget) {
+        if (budget.fits(budget.count(messages))) {
+            return messages;
+        }
+
+        int[] units = MessageUnits.boundaries(messages);
+        int recentStart = messages.size() - Math.max(config.getKeepRecentMessages(), 1);
+
+        // 逐个单元累加前缀哈希，找到已有摘要的最长前缀，并记录每个可摘要前缀的结束位置和哈希
+        MessageDigest digest = newDigest();
+        int summarizedEnd = -1;
+        String summary = null;
+        List<Integer> candidateEnds = new ArrayList<>();
+        List<String> candidateKeys = new ArrayList<>();
+        boolean hasConversation = false;
+        for (int u = 0; u < units.length - 1 && units[u + 1] <= recentStart; u++) {
+            for (int i = units[u]; i < units[u + 1]; i++) {
+                LlmRequest.Message message = messages.get(i);
+                hasConversation |= !MessageUnits.isSystem(message);
+                update(digest, message);
+            }
+            if (!hasConversation) {
+                continue;
+            }
+            String key = HexFormat.of().formatHex(cloneDigest(digest));
+            String cached = summaries.getIfPresent(key);
+            if (cached != null) {
+                summarizedEnd = units[u + 1];
+                summary = cached;
+            }
+            candidateEnds.add(units[u + 1]);
+            candidateKeys.add(key);
+        }
+
+        List<LlmRequest.Message> result = summary != null ? replace(messages, summarizedEnd, summary) : messages;
+
+        // 摘要后仍超出预算：在已有摘要的基础上摘要下一段消息（下一轮生效）
+        if (!candidateEnds.isEmpty() && candidateEnds.get(candidateEnds.size() - 1) > summarizedEnd
+            && !budget.fits(budget.count(result))) {
+            summarizeNext(messages, Math.max(summarizedEnd, 0), summary, candidateEnds, candidateKeys, budget);
+        }
+        return result;
+    }
+
+    /**
+     * 从 start 开始取尽量多的完整单元，使"已有摘要 + 这段消息"不超过摘要输入上限，发起后台摘要
+     *
+     * <p>输入上限为预算减去摘要的最大输出长度（至少为预算的一半）；
+     * 第一个单元本身就超出上限时只取这一个单元，并把它的文本截断到上限内
+     */
+    private void summarizeNext(List<LlmRequest.Message> messages, int start, String previousSummary,
+                               List<Integer> candidateEnds, List<String> candidateKeys, ContextBudget budget) {
+        int limit = Math.max(budget.maxTokens() - config.getSummaryMaxTokens(), budget.maxTokens() / 2);
+        int tokens = previousSummary != null ? budget.count(LlmRequest.Message.user(previousSummary)) : 0;
+
+        int chosen = -1;
+        int position = start;
+        for (int c = 0; c < candidateEnds.size(); c++) {
+            int end = candidateEnds.get(c);
+            if (end <= start) {
+                continue;
+            }
+            int unitTokens = 0;
+            for (int i = position; i < end; i++) {
+                if (!MessageUnits.isSystem(messages.get(i))) {
+                    unitTokens += budget.count(messages.get(i));
+                }
+            }
+            if (chosen >= 0 && tokens + unitTokens > limit) {
+                break;
+            }
+            tokens += unitTokens;
+            chosen = c;
+            position = end;
+        }
+        if (chosen < 0) {
+            return;
+        }
+
+        String prefix = previousSummary != null ? PREVIOUS_SUMMARY + previousSummary + NEXT_MESSAGES : "";
+        String transcript = transcript(messages.subList(start, candidateEnds.get(chosen)));
+        String input = prefix + transcript;
+        int inputTokens = budget.count(LlmRequest.Message.user(input));
+        // 按比例截断，直到计数不超过上限（每轮多截 10%，最多几轮即可收敛）
+        while (inputTokens > limit && !transcript.isEmpty()) {
+            int chars = (int) ((long) transcript.length() * limit / inputTokens * 9 / 10);
+            transcript = transcript.substring(0, Math.min(chars, transcript.length() - 1));
+            input = prefix + transcript + TRUNCATED;
+            inputTokens = budget.count(LlmRequest.Message.user(input));
+        }
+        summarizeAsync(candidateKeys.get(chosen), input, candidateEnds.get(chosen), budget.model());
+    }
+
+    /**
+     * 用摘要替换 [0, end) 中的非系统消息（摘要放在系统消息之后）
+     */
+    private List<LlmRequest.Message> replace(List<LlmRequest.Message> messages, int end, String summary) {
+        List<LlmRequest.Message> result = new ArrayList<>(messages.size() - end + 2);
+        for (int i = 0; i < end; i++) {
+            if (MessageUnits.isSystem(messages.get(i))) {
+                result.add(messages.get(i));
+            }
+        }
+        result.add(LlmRequest.Message.system(SUMMARY_PREFIX + summary));
+        result.addAll(messages.subList(end, messages.size()));
+        return result;
+    }
+
+    private void summarizeAsync(String key, String input, int prefixSize, String model) {
+        if (!pending.add(key)) {
+            return;
+        }
+        LlmRequest request = LlmRequest.builder()
+            .model(config.getSummaryModel() != null ? config.getSummaryModel() : model)
+            .messages(List.of(LlmRequest.Message.system(SUMMARY_PROMPT), LlmRequest.Message.user(input)))
+            .maxTokens(config.getSummaryMaxTokens())
+            .temperature(0.0)
+            .build();
+
+        client.chatAsync(request)
+            .doFinally(signal -> pending.remove(key))
+            .subscribe(response -> {
+                if (response.getContent() != null && !response.getContent().isBlank()) {
+                    summaries.put(key, response.getContent());
+                    log.debug("Context summary ready: messages={}", prefixSize);
+                }
+            }, error -> log.warn("Failed to summarize context: {}", error.getMessage()));
+    }
+
+    /**
+     * 把消息渲染为纯文本记录（摘要请求的输入）
+     */
+    private static String transcript(List<LlmRequest.Message> messages) {
+        StringBuilder builder = new StringBuilder();
+        for (LlmRequest.Message message : messages) {
+            if (MessageUnits.isSystem(message)) {
+                continue;
+            }
+            builder.append(message.getRole()).append(": ");
+            if (message.getContent() != null) {
+                builder.append(message.getContent());
+            }
+            if (message.getToolCalls() != null) {
+                for (ToolCall toolCall : message.getToolCalls()) {
+                    if (toolCall.getFunction() != null) {
+                        builder.append("[call ").append(toolCall.getFunction().getName())
+                            .append(' ').append(toolCall.getFunction().getArguments()).append(']');
+                    }
+                }
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void update(MessageDigest digest, LlmRequest.Message message) {
+        digest.update(String.valueOf(message.getRole()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(message.getContent()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(message.getToolCallId()).getBytes(StandardCharsets.UTF_8));
+        if (message.getToolCalls() != null) {
+            for (ToolCall toolCall : message.getToolCalls()) {
+                digest.update(String.valueOf(toolCall.getId()).getBytes(StandardCharsets.UTF_8));
+                if (toolCall.getFunction() != null) {
+                    digest.update(String.valueOf(toolCall.getFunction().getArguments()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        digest.update((byte) 1);
+    }
+
+    private static byte[] cloneDigest(MessageDigest digest) {
+        try {
+            return ((MessageDigest) digest.clone()).digest();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 digest not cloneable", e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.model.LlmRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 省略较早的工具输出
+ *
+ * <p>工具输出（如文件内容、查询结果）往往是历史中最大的部分，且很快就过时；
+ * 把最近消息之外的工具输出替换为占位文本，保留调用记录，模型仍然知道调用过哪些工具
+ */
+public class ToolOutputPruningStrategy implements ContextStrategy {
+
+    /**
+     * 占位文本（发送给模型）
+     */
+    static final String PLACEHOLDER = "[tool output omitted to save context]";
+
+    private final int keepRecentMessages;
+
+    public ToolOutputPruningStrategy(int keepRecentMessages) {
+        this.keepRecentMessages = Math.max(keepRecentMessages, 0);
+    }
+
+    @Override
+    public List<LlmRequest.Message> apply(List<LlmRequest.Message> messages, ContextBudget budget) {
+        int total = budget.count(messages);
+        List<LlmRequest.Message> result = null;
+        int recentStart = messages.size() - keepRecentMessages;
+
+        for (int i = 0; i < recentStart && !budget.fits(total); i++) {
+            LlmRequest.Message message = messages.get(i);
+            if (!"tool".equals(message.getRole()) || message.getContent() == null
+                || PLACEHOLDER.equals(message.getContent())) {
+                continue;
+            }
+            LlmRequest.Message pruned = LlmRequest.Message.toolResult(message.getToolCallId(), PLACEHOLDER);
+            int saved = budget.count(message) - budget.count(pruned);
+            if (saved <= 0) {
+                continue;
+            }
+            if (result == null) {
+                result = new ArrayList<>(messages);
+            }
+            result.set(i, pruned);
+            total -= saved;
+        }
+        return result != null ? result : messages;
+    }
+}
@@ -0,0 +1,130 @@
+package com.miniclaw.llm.http;
+
+import com.miniclaw.llm.config.LlmProperties;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Provider 专属 HTTP 客户端工厂
+ *
+ * <p>为每个 Provider 创建独立的 {@link ConnectionProvider}，
+ * 连接池大小、排队上限、空闲回收、HTTP/2 等参数来自 {@link LlmProperties.HttpClientConfig}
+ *
+ * <p>开启指标后，Reactor Netty 会向 Micrometer 全局注册表发布连接池指标：
+ * <ul>
+ *   <li>{@code reactor.netty.connection.provider.active.connections}</li>
+ *   <li>{@code reactor.netty.connection.provider.idle.connections}</li>
+ *   <li>{@code reactor.netty.connection.provider.pending.connections}</li>
+ *   <li>{@code reactor.netty.connection.provider.total.connections}</li>
+ * </ul>
+ * 连接池名称为 {@code llm-<providerId>}
+ */
+@Slf4j
+public class ProviderHttpClientFactory {
+
+    private static final String POOL_NAME_PREFIX = "llm-";
+
+    /**
+     * Provider ID -> 连接池（用于关闭时释放）
+     */
+    private final Map<String, ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+
+    /**
+     * 创建 Provider 专属的连接器
+     *
+     * @param providerId Provider ID
+     * @param config Provider 配置
+     * @param defaultTimeout 全局请求超时（秒），未配置 responseTimeout 时使用
+     * @return 连接器
+     */
+    public ReactorClientHttpConnector createConnector(String providerId,
+                                                      LlmProperties.ProviderConfig config,
+                                                      int defaultTimeout) {
+        LlmProperties.HttpClientConfig http = config.getHttp() != null
+            ? config.getHttp() : new LlmProperties.HttpClientConfig();
+
+        ConnectionProvider connectionProvider = buildConnectionProvider(providerId, http);
+        ConnectionProvider previous = connectionProviders.put(providerId, connectionProvider);
+        if (previous != null) {
+            previous.disposeLater().subscribe();
+        }
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, http.getConnectTimeoutMillis())
+            .option(ChannelOption.SO_KEEPALIVE, Boolean.TRUE.equals(http.getKeepAlive()))
+            .keepAlive(Boolean.TRUE.equals(http.getKeepAlive()))
+            .responseTimeout(Duration.ofSeconds(http.getResponseTimeout() != null
+                ? http.getResponseTimeout() : defaultTimeout));
+
+        if (Boolean.TRUE.equals(http.getHttp2())) {
+            boolean secure = config.getEndpoint() != null && config.getEndpoint().startsWith("https");
+            httpClient = httpClient
+                .protocol(secure ? HttpProtocol.H2 : HttpProtocol.H2C, HttpProtocol.HTTP11)
+                .http2Settings(settings -> settings.maxConcurrentStreams(http.getHttp2MaxConcurrentStreams()));
+        }
+
+        if (Boolean.TRUE.equals(http.getMetricsEnabled())) {
+            httpClient = httpClient.metrics(true, Function.identity());
+        }
+
+        log.info("LLM connection pool initialized: provider={}, maxConnections={}, pendingAcquireMaxCount={}, http2={}",
+            providerId, http.getMaxConnections(), http.getPendingAcquireMaxCount(), http.getHttp2());
+
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    /**
+     * 获取 Provider 的连接池
+     *
+     * @param providerId Provider ID
+     * @return 连接池，不存在返回 null
+     */
+    public ConnectionProvider getConnectionProvider(String providerId) {
+        return connectionProviders.get(providerId);
+    }
+
+    /**
+     * 释放所有连接池
+     */
+    public void dispose() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+        connectionProviders.clear();
+    }
+
+    /**
+     * 构建连接池
+     */
+    ConnectionProvider buildConnectionProvider(String providerId, LlmProperties.HttpClientConfig http) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(POOL_NAME_PREFIX + providerId)
+            .maxConnections(http.getMaxConnections())
+            .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(Duration.ofSeconds(http.getPendingAcquireTimeout()))
+            .maxIdleTime(Duration.ofSeconds(http.getMaxIdleTime()))
+            .maxLifeTime(Duration.ofSeconds(http.getMaxLifeTime()))
+            .metrics(Boolean.TRUE.equals(http.getMetricsEnabled()));
+
+        if (http.getEvictInBackground() != null && http.getEvictInBackground() > 0) {
+            builder.evictInBackground(Duration.ofSeconds(http.getEvictInBackground()));
+        }
+
+        if (Boolean.TRUE.equals(http.getHttp2())) {
+            // HTTP/2 多路复用：按并发流数分配连接，而不是一个请求占一个连接
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                .maxConnections(http.getMaxConnections())
+                .maxConcurrentStreams(http.getHttp2MaxConcurrentStreams())
+                .build());
+        }
+
+        return builder.build();
+    }
+}
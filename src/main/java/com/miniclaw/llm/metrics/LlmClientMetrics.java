@@ -0,0 +1,312 @@
+package com.miniclaw.llm.metrics;
+
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.SignalType;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LLM 调用指标
+ *
+ * <p>每次实际发往 Provider 的逻辑请求（命中缓存和被合并的请求除外）对应一个 {@link Recording}，
+ * 重试、续传的各次尝试都计入同一个 Recording，请求结束时一次性记录：
+ * <ul>
+ *   <li>{@code llm.request.duration{provider,model,stream,outcome}} - 总耗时（含重试和退避）</li>
+ *   <li>{@code llm.request.ttft{provider,model}} - 流式首个 chunk 的耗时</li>
+ *   <li>{@code llm.stream.chunk.gap{provider,model}} - 流式相邻 chunk 的间隔</li>
+ *   <li>{@code llm.output.tokens.per.second{provider,model}} - 输出速度（流式按首 chunk 之后的时间计算）</li>
+ *   <li>{@code llm.tokens{provider,model,type=prompt|completion}} - Provider 返回的用量</li>
+ *   <li>{@code llm.request.retries{provider,model,outcome}} - 每个请求的重试次数</li>
+ *   <li>{@code llm.request.payload} / {@code llm.response.payload}（bytes）- 请求体和响应体大小（所有尝试合计）</li>
+ *   <li>{@code llm.response.decode{provider,model}} - 客户端解析响应的耗时，和总耗时对比可区分 Provider 慢还是解析慢</li>
+ * </ul>
+ *
+ * <p>provider 取最后一次尝试实际路由到的 Provider；outcome 为 success / error / cancelled
+ *
+ * <p>同时发出 JFR 事件（见 {@link LlmJfrEvents}）：请求（开始到结束）、首个 chunk、重试、解析失败
+ */
+public class LlmClientMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_ERROR = "error";
+    public static final String OUTCOME_CANCELLED = "cancelled";
+
+    private final MeterRegistry meterRegistry;
+
+    public LlmClientMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 开始记录一个逻辑请求
+     *
+     * @param providerId 请求指定的 Provider（尝试时按实际路由结果更新）
+     * @param model 模型
+     * @param stream 是否流式
+     */
+    public Recording start(String providerId, String model, boolean stream) {
+        return new Recording(providerId, model, stream);
+    }
+
+    private Timer timer(String name, Tags tags) {
+        return Timer.builder(name)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private DistributionSummary summary(String name, String baseUnit, Tags tags) {
+        return DistributionSummary.builder(name)
+            .baseUnit(baseUnit)
+            .tags(tags)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 单个逻辑请求的记录（各次尝试可能在不同线程，字段都是线程安全的）
+     */
+    public final class Recording {
+        private final String model;
+        private final boolean stream;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicInteger contentChunks = new AtomicInteger();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder decodeNanos = new LongAdder();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile String providerId;
+        private volatile long firstChunkNanos;
+        private volatile long lastChunkNanos;
+        private volatile LlmResponse.Usage usage;
+        private volatile Throwable lastFailure;
+        private volatile String lastAttemptProviderId;
+
+        /**
+         * chunk 间隔计时器（按 Provider 解析一次，重试切换 Provider 时重新解析）
+         */
+        private volatile Timer chunkGapTimer;
+        private volatile String chunkGapProviderId;
+        private final LlmJfrEvents.CallEvent callEvent = new LlmJfrEvents.CallEvent();
+
+        private Recording(String providerId, String model, boolean stream) {
+            this.providerId = providerId;
+            this.model = model;
+            this.stream = stream;
+            callEvent.begin();
+        }
+
+        /**
+         * 开始一次尝试
+         *
+         * @param routedProviderId 实际路由到的 Provider
+         * @param bodyBytes 请求体字节数
+         */
+        public void attempt(String routedProviderId, int bodyBytes) {
+            int attempt = attempts.incrementAndGet();
+            if (routedProviderId != null) {
+                providerId = routedProviderId;
+            }
+            requestBytes.add(bodyBytes);
+            if (attempt > 1) {
+                LlmJfrEvents.RetryEvent event = new LlmJfrEvents.RetryEvent();
+                if (event.shouldCommit()) {
+                    Throwable failure = lastFailure;
+                    event.provider = providerId;
+                    event.model = model;
+                    event.attempt = attempt;
+                    event.previousProvider = lastAttemptProviderId;
+                    event.errorType = failure != null ? failure.getClass().getName() : null;
+                    event.errorMessage = failure != null ? failure.getMessage() : null;
+                    event.commit();
+                }
+            }
+            lastAttemptProviderId = routedProviderId;
+        }
+
+        /**
+         * 一次尝试失败（可能会重试）
+         */
+        public void attemptFailed(Throwable failure) {
+            lastFailure = failure;
+        }
+
+        /**
+         * 响应解析失败
+         *
+         * @param bytes 解析失败的响应字节数
+         * @param message 错误信息
+         */
+        public void parseFailed(long bytes, String message) {
+            LlmJfrEvents.ParseFailureEvent event = new LlmJfrEvents.ParseFailureEvent();
+            if (event.shouldCommit()) {
+                event.provider = providerId;
+                event.model = model;
+                event.stream = stream;
+                event.payloadBytes = bytes;
+                event.message = message;
+                event.commit();
+            }
+        }
+
+        /**
+         * 收到并解析了一段响应
+         *
+         * @param bytes 响应字节数
+         * @param nanos 解析耗时
+         */
+        public void decoded(long bytes, long nanos) {
+            responseBytes.add(bytes);
+            decodeNanos.add(nanos);
+        }
+
+        /**
+         * 流式输出了一个 chunk（记录首 chunk 耗时和 chunk 间隔）
+         */
+        public void chunk(LlmChunk chunk) {
+            long now = System.nanoTime();
+            long last = lastChunkNanos;
+            if (last == 0) {
+                firstChunkNanos = now;
+                LlmJfrEvents.FirstChunkEvent event = new LlmJfrEvents.FirstChunkEvent();
+                if (event.shouldCommit()) {
+                    event.provider = providerId;
+                    event.model = model;
+                    event.timeToFirstChunk = now - startNanos;
+                    event.requestBytes = requestBytes.sum();
+                    event.commit();
+                }
+            } else if (meterRegistry != null) {
+                chunkGapTimer().record(now - last, TimeUnit.NANOSECONDS);
+            }
+            lastChunkNanos = now;
+            if (chunk.getDelta() != null && !chunk.getDelta().isEmpty()) {
+                contentChunks.incrementAndGet();
+            }
+            if (chunk.getUsage() != null) {
+                usage = chunk.getUsage();
+            }
+        }
+
+        /**
+         * 记录响应用量
+         */
+        public void usage(LlmResponse.Usage usage) {
+            if (usage != null) {
+                this.usage = usage;
+            }
+        }
+
+        /**
+         * 按终止信号结束记录（完成 = success，错误 = error，取消 = cancelled）
+         */
+        public void finish(SignalType signal) {
+            finish(switch (signal) {
+                case ON_ERROR -> OUTCOME_ERROR;
+                case CANCEL -> OUTCOME_CANCELLED;
+                default -> OUTCOME_SUCCESS;
+            });
+        }
+
+        /**
+         * 结束记录（只有第一次调用生效）
+         */
+        public void finish(String outcome) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            commitCallEvent(outcome);
+            if (meterRegistry == null) {
+                return;
+            }
+            long endNanos = System.nanoTime();
+            Tags tags = baseTags();
+
+            timer("llm.request.duration", tags.and("stream", String.valueOf(stream), "outcome", outcome))
+                .record(endNanos - startNanos, TimeUnit.NANOSECONDS);
+            summary("llm.request.retries", null, tags.and("outcome", outcome))
+                .record(Math.max(attempts.get() - 1, 0));
+            summary("llm.request.payload", "bytes", tags).record(requestBytes.sum());
+            if (responseBytes.sum() > 0) {
+                summary("llm.response.payload", "bytes", tags).record(responseBytes.sum());
+                timer("llm.response.decode", tags).record(decodeNanos.sum(), TimeUnit.NANOSECONDS);
+            }
+            if (stream && firstChunkNanos != 0) {
+                timer("llm.request.ttft", tags).record(firstChunkNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+
+            LlmResponse.Usage current = usage;
+            if (current != null && current.getPromptTokens() != null) {
+                summary("llm.tokens", "tokens", tags.and("type", "prompt")).record(current.getPromptTokens());
+            }
+            if (current != null && current.getCompletionTokens() != null) {
+                summary("llm.tokens", "tokens", tags.and("type", "completion")).record(current.getCompletionTokens());
+            }
+            if (OUTCOME_SUCCESS.equals(outcome)) {
+                recordThroughput(tags, current, endNanos);
+            }
+        }
+
+        private void commitCallEvent(String outcome) {
+            callEvent.end();
+            if (!callEvent.shouldCommit()) {
+                return;
+            }
+            LlmResponse.Usage current = usage;
+            callEvent.provider = providerId;
+            callEvent.model = model;
+            callEvent.stream = stream;
+            callEvent.outcome = outcome;
+            callEvent.attempts = attempts.get();
+            if (current != null) {
+                callEvent.promptTokens = current.getPromptTokens() != null ? current.getPromptTokens() : 0;
+                callEvent.completionTokens = current.getCompletionTokens() != null ? current.getCompletionTokens() : 0;
+                callEvent.cachedTokens = current.getCachedTokens() != null ? current.getCachedTokens() : 0;
+            }
+            callEvent.requestBytes = requestBytes.sum();
+            callEvent.responseBytes = responseBytes.sum();
+            callEvent.decodeTime = decodeNanos.sum();
+            callEvent.commit();
+        }
+
+        /**
+         * 输出速度：流式没有用量时按内容 chunk 数估算（OpenAI 兼容的 Provider 基本每个 token 一个 chunk）
+         */
+        private void recordThroughput(Tags tags, LlmResponse.Usage current, long endNanos) {
+            long outputTokens = current != null && current.getCompletionTokens() != null
+                ? current.getCompletionTokens()
+                : stream ? contentChunks.get() : 0;
+            long generationNanos = stream && firstChunkNanos != 0
+                ? lastChunkNanos - firstChunkNanos
+                : endNanos - startNanos;
+            if (outputTokens > 0 && generationNanos > 0) {
+                summary("llm.output.tokens.per.second", "tokens", tags)
+                    .record(outputTokens * 1_000_000_000.0 / generationNanos);
+            }
+        }
+
+        private Timer chunkGapTimer() {
+            String current = providerId;
+            Timer gapTimer = chunkGapTimer;
+            if (gapTimer == null || !Objects.equals(current, chunkGapProviderId)) {
+                gapTimer = timer("llm.stream.chunk.gap", baseTags());
+                chunkGapProviderId = current;
+                chunkGapTimer = gapTimer;
+            }
+            return gapTimer;
+        }
+
+        private Tags baseTags() {
+            return Tags.of("provider", String.valueOf(providerId), "model", model != null ? model : "unknown");
+        }
+    }
+}
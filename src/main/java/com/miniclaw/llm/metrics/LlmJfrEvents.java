@@ -0,0 +1,187 @@
+package com.miniclaw.llm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * LLM 调用的 JFR 事件
+ *
+ * <p>在 JDK Mission Control 的 "MiniClaw / LLM" 分类下查看，可以和同一录制中的 GC 停顿、分配热点、
+ * 事件循环阻塞按时间对齐。未开启录制时 {@code begin/end/commit} 都是空操作，
+ * 字段只在 {@link Event#shouldCommit()} 为 true 时填充
+ *
+ * <p>开启方式：{@code -XX:StartFlightRecording} 或 {@code jcmd <pid> JFR.start}，
+ * 事件默认启用，可在 .jfc 中按名称（如 {@code com.miniclaw.llm.Call}）调整阈值
+ */
+public final class LlmJfrEvents {
+
+    private LlmJfrEvents() {
+    }
+
+    /**
+     * 一次逻辑请求（开始到结束，含重试和退避）
+     */
+    @Name("com.miniclaw.llm.Call")
+    @Label("LLM Call")
+    @Category({"MiniClaw", "LLM"})
+    @Description("One logical LLM request from start to completion, including retries")
+    @StackTrace(false)
+    static class CallEvent extends Event {
+        @Label("Provider")
+        String provider;
+
+        @Label("Model")
+        String model;
+
+        @Label("Stream")
+        boolean stream;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Attempts")
+        int attempts;
+
+        @Label("Prompt Tokens")
+        int promptTokens;
+
+        @Label("Completion Tokens")
+        int completionTokens;
+
+        @Label("Cached Tokens")
+        int cachedTokens;
+
+        @Label("Request Bytes")
+        @DataAmount
+        long requestBytes;
+
+        @Label("Response Bytes")
+        @DataAmount
+        long responseBytes;
+
+        @Label("Decode Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long decodeTime;
+    }
+
+    /**
+     * 流式请求收到第一个 chunk
+     */
+    @Name("com.miniclaw.llm.FirstChunk")
+    @Label("LLM First Chunk")
+    @Category({"MiniClaw", "LLM"})
+    @StackTrace(false)
+    static class FirstChunkEvent extends Event {
+        @Label("Provider")
+        String provider;
+
+        @Label("Model")
+        String model;
+
+        @Label("Time To First Chunk")
+        @Timespan(Timespan.NANOSECONDS)
+        long timeToFirstChunk;
+
+        @Label("Request Bytes")
+        @DataAmount
+        long requestBytes;
+    }
+
+    /**
+     * 重试（第 2 次及之后的尝试开始）
+     */
+    @Name("com.miniclaw.llm.Retry")
+    @Label("LLM Retry")
+    @Category({"MiniClaw", "LLM"})
+    @StackTrace(false)
+    static class RetryEvent extends Event {
+        @Label("Provider")
+        String provider;
+
+        @Label("Model")
+        String model;
+
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Previous Provider")
+        String previousProvider;
+
+        @Label("Error Type")
+        String errorType;
+
+        @Label("Error Message")
+        String errorMessage;
+    }
+
+    /**
+     * 响应解析失败
+     */
+    @Name("com.miniclaw.llm.ParseFailure")
+    @Label("LLM Parse Failure")
+    @Category({"MiniClaw", "LLM"})
+    @StackTrace(false)
+    static class ParseFailureEvent extends Event {
+        @Label("Provider")
+        String provider;
+
+        @Label("Model")
+        String model;
+
+        @Label("Stream")
+        boolean stream;
+
+        @Label("Payload Bytes")
+        @DataAmount
+        long payloadBytes;
+
+        @Label("Message")
+        String message;
+    }
+
+    /**
+     * 熔断打开，切换到同组的其他 Provider
+     */
+    @Name("com.miniclaw.llm.ProviderFallback")
+    @Label("LLM Provider Fallback")
+    @Category({"MiniClaw", "LLM"})
+    @StackTrace(false)
+    static class ProviderFallbackEvent extends Event {
+        @Label("Model")
+        String model;
+
+        @Label("From Provider")
+        String fromProvider;
+
+        @Label("To Provider")
+        String toProvider;
+
+        @Label("Reason")
+        String reason;
+    }
+
+    /**
+     * 记录 Provider 切换
+     *
+     * @param model 模型
+     * @param fromProvider 原本路由到的 Provider
+     * @param toProvider 切换到的 Provider
+     * @param reason 原因（如 circuit_open）
+     */
+    public static void providerFallback(String model, String fromProvider, String toProvider, String reason) {
+        ProviderFallbackEvent event = new ProviderFallbackEvent();
+        if (event.shouldCommit()) {
+            event.model = model;
+            event.fromProvider = fromProvider;
+            event.toProvider = toProvider;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.miniclaw.llm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量调用选项
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchOptions {
+
+    /**
+     * Provider ID（null 使用默认）
+     */
+    private String providerId;
+
+    /**
+     * 单次批量调用的并发数（不能超过 Provider 配置的 maxConcurrency，null 直接使用 Provider 配置；
+     * 多个批量调用同时进行时合计仍受 maxConcurrency 限制）
+     */
+    private Integer concurrency;
+
+    /**
+     * 默认选项
+     */
+    public static BatchOptions defaults() {
+        return new BatchOptions();
+    }
+}
@@ -0,0 +1,47 @@
+package com.miniclaw.llm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量调用中单个请求的结果
+ *
+ * <p>结果按请求顺序返回；单个请求失败不会影响其他请求，失败原因记录在 {@link #error}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchResult {
+
+    /**
+     * 请求在批次中的下标
+     */
+    private int index;
+
+    /**
+     * 响应（失败时为 null）
+     */
+    private LlmResponse response;
+
+    /**
+     * 失败原因（成功时为 null）
+     */
+    private Throwable error;
+
+    /**
+     * 截至当前结果（含）的累计 Token 使用，最后一个结果即为整批汇总
+     */
+    private LlmResponse.Usage aggregateUsage;
+
+    /**
+     * 是否成功
+     *
+     * @return true 如果请求成功
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -24,7 +24,9 @@ public class LlmChunk {
     private String delta;
 
     /**
-     * 工具调用增量（流式模式下逐步累积）
+     * 本 chunk 中完成的工具调用（参数已构成完整 JSON，或流结束时剩余的调用）
+     *
+     * <p>每个工具调用只会在一个 chunk 中出现一次
      */
     private List<ToolCall> toolCalls;
 
@@ -38,6 +40,21 @@ public class LlmChunk {
      */
     private boolean done;
 
+    /**
+     * Token 使用统计（只在最后一个 chunk 上，且需要 Provider 返回，见 {@code prompt-cache.stream-usage}）
+     */
+    private LlmResponse.Usage usage;
+
+    /**
+     * 工具调用序号（本 chunk 携带工具调用增量时有值）
+     */
+    private Integer toolCallIndex;
+
+    /**
+     * 工具调用 ID（本 chunk 携带工具调用增量时有值）
+     */
+    private String toolCallId;
+
     /**
      * 工具调用函数名（首次 delta 时有值）
      */
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * LLM 请求模型
@@ -49,11 +50,30 @@ public class LlmRequest {
      */
     private List<Map<String, Object>> tools;
 
+    /**
+     * 引用的已注册工具名称（见 {@code ToolRegistry}，与 tools 合并发送）
+     */
+    private List<String> toolNames;
+
     /**
      * 工具选择策略：auto / none / required
      */
     private String toolChoice;
 
+    /**
+     * 所属的执行记录 ID（可选，用于记录上下文压缩等统计，不会发送给 Provider）
+     */
+    private UUID runId;
+
+    /**
+     * 是否带有工具（内联定义或引用已注册的工具）
+     *
+     * @return true 如果带有工具
+     */
+    public boolean hasTools() {
+        return (tools != null && !tools.isEmpty()) || (toolNames != null && !toolNames.isEmpty());
+    }
+
     /**
      * 消息模型
      */
@@ -70,5 +70,10 @@ public class LlmResponse {
          * 总 token 数
          */
         private Integer totalTokens;
+
+        /**
+         * 命中 Provider 端 prompt 缓存的输入 token 数（包含在 promptTokens 中，Provider 未返回时为 null）
+         */
+        private Integer cachedTokens;
     }
 }
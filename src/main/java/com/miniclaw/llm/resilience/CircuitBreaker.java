@@ -0,0 +1,266 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * 单个 Provider 的熔断器
+ *
+ * <p>状态流转：
+ * <pre>
+ * CLOSED --失败率/慢调用率超过阈值--> OPEN --等待时间到--> HALF_OPEN
+ * HALF_OPEN --探测请求达标--> CLOSED
+ * HALF_OPEN --探测请求不达标--> OPEN
+ * </pre>
+ *
+ * <p>调用方先通过 {@link #tryAcquirePermission()} 获取许可，
+ * 再用 {@link #decorate(Mono, Predicate)} / {@link #decorateStream(Flux, Predicate)} 记录调用结果
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final LongSupplier clock;
+
+    private final int minimumNumberOfCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long waitNanos;
+    private final int permittedCallsInHalfOpenState;
+
+    /**
+     * 关闭状态的滑动窗口（环形缓冲，每个元素是 FAILURE | SLOW 位组合）
+     */
+    private final byte[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private int windowSlowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+
+    /**
+     * 半开状态剩余许可和探测结果
+     */
+    private int halfOpenPermits;
+    private int halfOpenCalls;
+    private int halfOpenFailures;
+    private int halfOpenSlowCalls;
+
+    private long notPermittedCalls;
+
+    public CircuitBreaker(String name, LlmProperties.CircuitBreakerConfig config) {
+        this(name, config, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, LlmProperties.CircuitBreakerConfig config, LongSupplier clock) {
+        this.name = name;
+        this.clock = clock;
+        this.window = new byte[Math.max(config.getSlidingWindowSize(), 1)];
+        this.minimumNumberOfCalls = Math.max(Math.min(config.getMinimumNumberOfCalls(), window.length), 1);
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+        this.slowCallNanos = Duration.ofSeconds(config.getSlowCallDuration()).toNanos();
+        this.waitNanos = Duration.ofSeconds(config.getWaitDurationInOpenState()).toNanos();
+        this.permittedCallsInHalfOpenState = Math.max(config.getPermittedCallsInHalfOpenState(), 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取调用许可
+     *
+     * <p>打开状态超过等待时间后转为半开状态；半开状态只放行有限个探测请求
+     *
+     * @return true 如果允许调用
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < waitNanos) {
+                notPermittedCalls++;
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits <= 0) {
+                notPermittedCalls++;
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * 归还许可（调用被取消或结果不计入统计时）
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits < permittedCallsInHalfOpenState - halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    /**
+     * 记录调用结果
+     *
+     * @param durationNanos 调用耗时（纳秒）
+     * @param failure 是否失败
+     */
+    public synchronized void onResult(long durationNanos, boolean failure) {
+        byte outcome = (byte) ((failure ? FAILURE : 0) | (durationNanos >= slowCallNanos ? SLOW : 0));
+
+        if (state == State.CLOSED) {
+            record(outcome);
+            if (windowCount >= minimumNumberOfCalls
+                && exceedsThreshold(windowFailures, windowSlowCalls, windowCount)) {
+                transitionTo(State.OPEN);
+            }
+        } else if (state == State.HALF_OPEN) {
+            halfOpenCalls++;
+            halfOpenFailures += outcome & FAILURE;
+            halfOpenSlowCalls += (outcome & SLOW) >> 1;
+            if (halfOpenCalls >= permittedCallsInHalfOpenState) {
+                transitionTo(exceedsThreshold(halfOpenFailures, halfOpenSlowCalls, halfOpenCalls)
+                    ? State.OPEN : State.CLOSED);
+            }
+        }
+        // 打开状态下到达的结果来自打开前发出的请求，忽略
+    }
+
+    /**
+     * 记录同步调用结果（调用前必须已获取许可）
+     *
+     * @param call 实际调用
+     * @param isFailure 判断错误是否计为失败（不计为失败的错误不影响统计）
+     */
+    public <T> Mono<T> decorate(Mono<T> call, Predicate<Throwable> isFailure) {
+        return Mono.defer(() -> {
+            long start = clock.getAsLong();
+            return call
+                .doOnSuccess(value -> onResult(clock.getAsLong() - start, false))
+                .doOnError(error -> onError(clock.getAsLong() - start, error, isFailure))
+                .doOnCancel(this::releasePermission);
+        });
+    }
+
+    /**
+     * 记录流式调用结果（调用前必须已获取许可），慢调用按首个元素到达时间判定
+     */
+    public <T> Flux<T> decorateStream(Flux<T> call, Predicate<Throwable> isFailure) {
+        return Flux.defer(() -> {
+            long start = clock.getAsLong();
+            long[] firstElementNanos = {-1};
+            return call
+                .doOnNext(item -> {
+                    if (firstElementNanos[0] < 0) {
+                        firstElementNanos[0] = clock.getAsLong() - start;
+                    }
+                })
+                .doOnComplete(() -> onResult(firstElementNanos[0] >= 0
+                    ? firstElementNanos[0] : clock.getAsLong() - start, false))
+                .doOnError(error -> onError(clock.getAsLong() - start, error, isFailure))
+                .doOnCancel(this::releasePermission);
+        });
+    }
+
+    private void onError(long durationNanos, Throwable error, Predicate<Throwable> isFailure) {
+        if (isFailure.test(error)) {
+            onResult(durationNanos, true);
+        } else {
+            releasePermission();
+        }
+    }
+
+    /**
+     * 当前状态（打开状态超时后，在下一次获取许可时才转为半开）
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 当前状态快照
+     */
+    public synchronized Snapshot snapshot() {
+        int calls = state == State.HALF_OPEN ? halfOpenCalls : windowCount;
+        int failures = state == State.HALF_OPEN ? halfOpenFailures : windowFailures;
+        int slowCalls = state == State.HALF_OPEN ? halfOpenSlowCalls : windowSlowCalls;
+        return new Snapshot(state, rate(failures, calls), rate(slowCalls, calls), calls, notPermittedCalls);
+    }
+
+    private void record(byte outcome) {
+        if (windowCount == window.length) {
+            byte evicted = window[windowIndex];
+            windowFailures -= evicted & FAILURE;
+            windowSlowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = outcome;
+        windowFailures += outcome & FAILURE;
+        windowSlowCalls += (outcome & SLOW) >> 1;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private boolean exceedsThreshold(int failures, int slowCalls, int calls) {
+        return rate(failures, calls) >= failureRateThreshold || rate(slowCalls, calls) >= slowCallRateThreshold;
+    }
+
+    private static double rate(int count, int calls) {
+        return calls == 0 ? 0.0 : count * 100.0 / calls;
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Circuit breaker state changed: provider={}, {} -> {}", name, state, newState);
+        state = newState;
+        switch (newState) {
+            case OPEN -> openedAt = clock.getAsLong();
+            case HALF_OPEN -> {
+                halfOpenPermits = permittedCallsInHalfOpenState;
+                halfOpenCalls = 0;
+                halfOpenFailures = 0;
+                halfOpenSlowCalls = 0;
+            }
+            case CLOSED -> {
+                windowIndex = 0;
+                windowCount = 0;
+                windowFailures = 0;
+                windowSlowCalls = 0;
+            }
+        }
+    }
+
+    /**
+     * 熔断器状态快照
+     *
+     * @param state 当前状态
+     * @param failureRate 失败率（百分比）
+     * @param slowCallRate 慢调用率（百分比）
+     * @param bufferedCalls 参与统计的调用次数
+     * @param notPermittedCalls 被拒绝的调用总数
+     */
+    public record Snapshot(State state, double failureRate, double slowCallRate,
+                           int bufferedCalls, long notPermittedCalls) {
+    }
+}
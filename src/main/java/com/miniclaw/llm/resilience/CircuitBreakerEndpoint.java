@@ -0,0 +1,36 @@
+package com.miniclaw.llm.resilience;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.Map;
+
+/**
+ * 熔断器状态 Actuator 端点
+ *
+ * <ul>
+ *   <li>{@code GET /actuator/llmcircuitbreakers} - 所有 Provider 的熔断器状态</li>
+ *   <li>{@code GET /actuator/llmcircuitbreakers/{provider}} - 单个 Provider 的熔断器状态</li>
+ * </ul>
+ */
+@Endpoint(id = "llmcircuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    private final CircuitBreakerRegistry registry;
+
+    public CircuitBreakerEndpoint(CircuitBreakerRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, CircuitBreaker.Snapshot> circuitBreakers() {
+        return registry.snapshots();
+    }
+
+    @ReadOperation
+    public CircuitBreaker.Snapshot circuitBreaker(@Selector String provider) {
+        CircuitBreaker breaker = registry.get(provider);
+        return breaker != null ? breaker.snapshot() : null;
+    }
+}
@@ -0,0 +1,104 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Provider 熔断器注册表
+ *
+ * <p>为每个启用熔断的 Provider 创建一个 {@link CircuitBreaker}；未启用的 Provider 不受影响
+ *
+ * <p>指标：{@code llm.circuit.breaker.state{provider}}（0 关闭，1 打开，2 半开）
+ */
+public class CircuitBreakerRegistry {
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 每个 Provider 的故障判定（按 Provider 绑定一次，避免每次调用创建闭包）
+     */
+    private final Map<String, Predicate<Throwable>> failurePredicates = new ConcurrentHashMap<>();
+
+    /**
+     * @param properties LLM 配置
+     * @param isFailure 判断 Provider 的错误是否计为故障（参数为 Provider ID 和错误）
+     * @param meterRegistry 指标注册表（可为 null）
+     */
+    public CircuitBreakerRegistry(LlmProperties properties, BiPredicate<String, Throwable> isFailure,
+                                  MeterRegistry meterRegistry) {
+        properties.getProviders().forEach((providerId, config) -> {
+            LlmProperties.CircuitBreakerConfig breakerConfig = config.getCircuitBreaker();
+            if (breakerConfig == null || !Boolean.TRUE.equals(breakerConfig.getEnabled())) {
+                return;
+            }
+            CircuitBreaker breaker = new CircuitBreaker(providerId, breakerConfig);
+            breakers.put(providerId, breaker);
+            failurePredicates.put(providerId, error -> isFailure.test(providerId, error));
+            if (meterRegistry != null) {
+                Gauge.builder("llm.circuit.breaker.state", breaker, b -> b.getState().ordinal())
+                    .tag("provider", providerId)
+                    .register(meterRegistry);
+            }
+        });
+    }
+
+    /**
+     * 获取熔断器（未启用返回 null）
+     */
+    public CircuitBreaker get(String providerId) {
+        return breakers.get(providerId);
+    }
+
+    /**
+     * 获取调用许可（未启用熔断的 Provider 总是允许）
+     */
+    public boolean tryAcquirePermission(String providerId) {
+        CircuitBreaker breaker = breakers.get(providerId);
+        return breaker == null || breaker.tryAcquirePermission();
+    }
+
+    /**
+     * 归还许可（获取许可后没有发出请求时）
+     */
+    public void releasePermission(String providerId) {
+        CircuitBreaker breaker = breakers.get(providerId);
+        if (breaker != null) {
+            breaker.releasePermission();
+        }
+    }
+
+    /**
+     * 记录同步调用结果
+     */
+    public <T> Mono<T> decorate(String providerId, Mono<T> call) {
+        CircuitBreaker breaker = breakers.get(providerId);
+        return breaker != null ? breaker.decorate(call, failurePredicates.get(providerId)) : call;
+    }
+
+    /**
+     * 记录流式调用结果
+     */
+    public <T> Flux<T> decorateStream(String providerId, Flux<T> call) {
+        CircuitBreaker breaker = breakers.get(providerId);
+        return breaker != null ? breaker.decorateStream(call, failurePredicates.get(providerId)) : call;
+    }
+
+    /**
+     * 所有熔断器的状态快照（按 Provider ID 排序）
+     */
+    public Map<String, CircuitBreaker.Snapshot> snapshots() {
+        Map<String, CircuitBreaker.Snapshot> snapshots = new TreeMap<>();
+        breakers.forEach((providerId, breaker) -> snapshots.put(providerId, breaker.snapshot()));
+        return Collections.unmodifiableMap(snapshots);
+    }
+}
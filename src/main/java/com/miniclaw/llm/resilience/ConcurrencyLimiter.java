@@ -0,0 +1,127 @@
+package com.miniclaw.llm.resilience;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * 单个 Provider 的并发上限（非阻塞）
+ *
+ * <p>所有批量调用共享同一个限制器：{@link #withPermit} 在许可不足时排队等待，不占用线程；
+ * 交互式调用用 {@link #enter()} 直接计入在途（不等待，可以暂时超出上限），
+ * 这样批量请求只使用交互式流量剩下的并发额度，两者合计不会长期超过 max-concurrency
+ */
+public class ConcurrencyLimiter {
+
+    private final int limit;
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+    private int inFlight;
+
+    public ConcurrencyLimiter(int limit) {
+        this.limit = Math.max(limit, 1);
+    }
+
+    /**
+     * 获取许可后执行调用，调用结束（完成、失败或取消）时归还
+     */
+    public <T> Mono<T> withPermit(Mono<T> call) {
+        return Mono.usingWhen(acquire().thenReturn(this), limiter -> call,
+            limiter -> Mono.fromRunnable(this::release),
+            (limiter, error) -> Mono.fromRunnable(this::release),
+            limiter -> Mono.fromRunnable(this::release));
+    }
+
+    /**
+     * 直接计入一个在途调用（不等待许可），结束时必须调用 {@link #release()}
+     */
+    public synchronized void enter() {
+        inFlight++;
+    }
+
+    /**
+     * 归还许可：有排队的调用时直接转交给最早的一个
+     */
+    public void release() {
+        Waiter next;
+        synchronized (this) {
+            while ((next = waiters.poll()) != null && next.cancelled) {
+                // 跳过已取消的等待者
+            }
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+            // 许可直接转交，在途数不变
+            next.granted = true;
+        }
+        next.sink.success();
+    }
+
+    /**
+     * 当前在途数
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 排队等待的调用数
+     */
+    public synchronized int getWaiting() {
+        return waiters.size();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private Mono<Void> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter;
+            synchronized (this) {
+                if (inFlight < limit) {
+                    inFlight++;
+                    waiter = null;
+                } else {
+                    waiter = new Waiter(sink);
+                    waiters.add(waiter);
+                }
+            }
+            if (waiter == null) {
+                sink.success();
+                return;
+            }
+            sink.onCancel(() -> cancel(waiter));
+        });
+    }
+
+    private void cancel(Waiter waiter) {
+        boolean granted;
+        synchronized (this) {
+            granted = waiter.granted;
+            if (!granted) {
+                waiter.cancelled = true;
+                waiters.remove(waiter);
+            }
+        }
+        if (granted) {
+            // 许可已转交但调用方已取消：继续转交给下一个
+            release();
+        }
+    }
+
+    /**
+     * 排队等待许可的调用
+     */
+    private static final class Waiter {
+        private final MonoSink<Void> sink;
+        private boolean granted;
+        private boolean cancelled;
+
+        Waiter(MonoSink<Void> sink) {
+            this.sink = sink;
+        }
+    }
+}
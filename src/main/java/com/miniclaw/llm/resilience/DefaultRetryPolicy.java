@@ -0,0 +1,93 @@
+package com.miniclaw.llm.resilience;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 默认重试策略
+ *
+ * <p>可重试的错误：
+ * <ul>
+ *   <li>{@link WebClientResponseException}：状态码在 retryable-status-codes 中</li>
+ *   <li>{@link WebClientRequestException}：请求未能发出或连接异常</li>
+ *   <li>{@link TimeoutException}、{@link IOException}（含连接提前关闭）：可以出现在异常链的任意位置</li>
+ * </ul>
+ *
+ * <p>{@link LlmException}（熔断、限流、解析失败等本地错误）和 JSON 解析异常不重试
+ *
+ * <p>退避：{@code min(initial × 2^(attempt-1), max)}，再按 jitter 随机缩短；
+ * 响应带 {@code Retry-After} 时至少等待该时间，但不超过 max-backoff-millis（避免一次重试挂起过久）
+ */
+public class DefaultRetryPolicy implements RetryPolicy {
+
+    private final LlmProperties.RetryConfig config;
+    private final Set<Integer> retryableStatusCodes;
+
+    public DefaultRetryPolicy(LlmProperties.RetryConfig config) {
+        this.config = config;
+        this.retryableStatusCodes = Set.copyOf(config.getRetryableStatusCodes());
+    }
+
+    @Override
+    public boolean isRetryable(Throwable error) {
+        if (error instanceof LlmException) {
+            return false;
+        }
+        if (error instanceof WebClientResponseException responseError) {
+            return retryableStatusCodes.contains(responseError.getStatusCode().value());
+        }
+        if (error instanceof WebClientRequestException) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JacksonException) {
+                return false;
+            }
+            if (cause instanceof TimeoutException || cause instanceof IOException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int maxRetries(boolean stream) {
+        return stream ? config.getStreamMaxRetries() : config.getMaxRetries();
+    }
+
+    @Override
+    public Duration backoff(int attempt, Throwable error) {
+        long initial = config.getInitialBackoffMillis();
+        long max = config.getMaxBackoffMillis();
+        long exponential = attempt >= 31 ? max : Math.min(initial << Math.max(attempt - 1, 0), max);
+
+        double jitter = Math.max(0.0, Math.min(config.getJitter(), 1.0));
+        long millis = (long) (exponential * (1.0 - jitter * ThreadLocalRandom.current().nextDouble()));
+
+        Duration retryAfter = retryAfter(error);
+        if (retryAfter != null && retryAfter.toMillis() > millis) {
+            return Duration.ofMillis(Math.min(retryAfter.toMillis(), max));
+        }
+        return Duration.ofMillis(millis);
+    }
+
+    private static Duration retryAfter(Throwable error) {
+        if (error instanceof WebClientResponseException responseError && responseError.getHeaders() != null) {
+            return RateLimitExchangeFilter.parseRetryAfter(responseError.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+package com.miniclaw.llm.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 单个 Provider + 模型的限流器
+ *
+ * <p>同时维护请求数（RPM）和 token 数（TPM）两个令牌桶，未配置的维度不限制。
+ * 两个桶一起预约：只有两者的等待时间都不超过最大等待时间时才同时扣减
+ */
+public class ProviderRateLimiter {
+
+    private static final long MINUTE_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final String providerId;
+    private final String model;
+    private final LongSupplier clock;
+    private final long maxWaitNanos;
+
+    /**
+     * 请求数令牌桶（不限制时为 null）
+     */
+    private final TokenBucket requests;
+
+    /**
+     * token 数令牌桶（不限制时为 null）
+     */
+    private final TokenBucket tokens;
+
+    /**
+     * 服务端要求暂停到的时间点（Retry-After，不依赖令牌桶是否配置）
+     */
+    private long blockedUntilNanos = Long.MIN_VALUE;
+
+    public ProviderRateLimiter(String providerId, String model, Integer requestsPerMinute,
+                               Integer tokensPerMinute, Duration maxWait) {
+        this(providerId, model, requestsPerMinute, tokensPerMinute, maxWait, System::nanoTime);
+    }
+
+    ProviderRateLimiter(String providerId, String model, Integer requestsPerMinute,
+                        Integer tokensPerMinute, Duration maxWait, LongSupplier clock) {
+        this.providerId = providerId;
+        this.model = model;
+        this.clock = clock;
+        this.maxWaitNanos = maxWait.toNanos();
+        long now = clock.getAsLong();
+        this.requests = requestsPerMinute != null ? new TokenBucket(requestsPerMinute, MINUTE_NANOS, now) : null;
+        this.tokens = tokensPerMinute != null ? new TokenBucket(tokensPerMinute, MINUTE_NANOS, now) : null;
+    }
+
+    public String getProviderId() {
+        return providerId;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * 预约一次请求
+     *
+     * @param estimatedTokens 预估 token 数（prompt + 预留的输出）
+     * @return 需要等待的时间（纳秒），超过最大等待时间时返回 -1 且不扣减
+     */
+    public synchronized long reserve(long estimatedTokens) {
+        long now = clock.getAsLong();
+        long wait = blockedUntilNanos > now ? blockedUntilNanos - now : 0;
+        if (requests != null) {
+            wait = Math.max(wait, requests.waitNanos(1, now));
+        }
+        if (tokens != null) {
+            wait = Math.max(wait, tokens.waitNanos(estimatedTokens, now));
+        }
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+
+        if (requests != null) {
+            requests.consume(1, now);
+        }
+        if (tokens != null) {
+            tokens.consume(estimatedTokens, now);
+        }
+        return wait;
+    }
+
+    /**
+     * 按实际用量修正 token 桶（预估多了退还，少了补扣）
+     */
+    public synchronized void reconcile(long estimatedTokens, long actualTokens) {
+        if (tokens == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (estimatedTokens > actualTokens) {
+            tokens.refund(estimatedTokens - actualTokens, now);
+        } else if (actualTokens > estimatedTokens) {
+            tokens.consume(actualTokens - estimatedTokens, now);
+        }
+    }
+
+    /**
+     * 服务端返回的剩余请求数
+     */
+    public synchronized void limitRemainingRequests(long remaining, Duration reset) {
+        if (requests != null) {
+            long now = clock.getAsLong();
+            requests.limitRemaining(remaining, now);
+            if (remaining <= 0 && reset != null) {
+                requests.blockUntil(now + reset.toNanos());
+            }
+        }
+    }
+
+    /**
+     * 服务端返回的剩余 token 数
+     */
+    public synchronized void limitRemainingTokens(long remaining, Duration reset) {
+        if (tokens != null) {
+            long now = clock.getAsLong();
+            tokens.limitRemaining(remaining, now);
+            if (remaining <= 0 && reset != null) {
+                tokens.blockUntil(now + reset.toNanos());
+            }
+        }
+    }
+
+    /**
+     * 暂停发放（Retry-After），对未配置 RPM / TPM 的限流器同样生效
+     */
+    public synchronized void blockFor(Duration duration) {
+        blockedUntilNanos = Math.max(blockedUntilNanos, clock.getAsLong() + duration.toNanos());
+    }
+
+    /**
+     * 当前可用请求数（不限制时为 -1）
+     */
+    public synchronized double availableRequests() {
+        return requests != null ? requests.available(clock.getAsLong()) : -1;
+    }
+
+    /**
+     * 当前可用 token 数（不限制时为 -1）
+     */
+    public synchronized double availableTokens() {
+        return tokens != null ? tokens.available(clock.getAsLong()) : -1;
+    }
+}
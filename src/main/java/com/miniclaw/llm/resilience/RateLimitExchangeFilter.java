@@ -0,0 +1,138 @@
+package com.miniclaw.llm.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 根据响应头动态调整限流额度
+ *
+ * <ul>
+ *   <li>{@code x-ratelimit-remaining-requests} / {@code x-ratelimit-remaining-tokens}：收紧本地余额</li>
+ *   <li>{@code x-ratelimit-reset-requests} / {@code x-ratelimit-reset-tokens}：余额为 0 时暂停到重置时间</li>
+ *   <li>{@code Retry-After}（429 / 503）：暂停到指定时间</li>
+ * </ul>
+ *
+ * <p>请求需要通过 {@link #MODEL_ATTRIBUTE} 属性携带模型名
+ */
+@Slf4j
+public class RateLimitExchangeFilter implements ExchangeFilterFunction {
+
+    /**
+     * 请求属性：模型名
+     */
+    public static final String MODEL_ATTRIBUTE = RateLimitExchangeFilter.class.getName() + ".model";
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final String providerId;
+    private final RateLimiterRegistry registry;
+
+    public RateLimitExchangeFilter(String providerId, RateLimiterRegistry registry) {
+        this.providerId = providerId;
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String model = (String) request.attribute(MODEL_ATTRIBUTE).orElse(null);
+        return next.exchange(request).doOnNext(response -> {
+            ProviderRateLimiter limiter = registry.get(providerId, model);
+            if (limiter != null) {
+                update(limiter, response.statusCode().value(), response.headers().asHttpHeaders());
+            }
+        });
+    }
+
+    /**
+     * 根据响应状态和响应头调整限流器
+     */
+    static void update(ProviderRateLimiter limiter, int status, HttpHeaders headers) {
+        Long remainingRequests = parseLong(headers.getFirst("x-ratelimit-remaining-requests"));
+        if (remainingRequests != null) {
+            limiter.limitRemainingRequests(remainingRequests,
+                parseDuration(headers.getFirst("x-ratelimit-reset-requests")));
+        }
+
+        Long remainingTokens = parseLong(headers.getFirst("x-ratelimit-remaining-tokens"));
+        if (remainingTokens != null) {
+            limiter.limitRemainingTokens(remainingTokens,
+                parseDuration(headers.getFirst("x-ratelimit-reset-tokens")));
+        }
+
+        if (status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            Duration retryAfter = parseRetryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            if (retryAfter != null) {
+                log.warn("Provider asked to retry after {}ms: provider={}, model={}",
+                    retryAfter.toMillis(), limiter.getProviderId(), limiter.getModel());
+                limiter.blockFor(retryAfter);
+            }
+        }
+    }
+
+    /**
+     * 解析 Retry-After（秒数或 HTTP 日期）
+     */
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime time = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration duration = Duration.between(ZonedDateTime.now(time.getZone()), time);
+                return duration.isNegative() ? Duration.ZERO : duration;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 解析重置时间（如 {@code 1s}、{@code 6m0s}、{@code 20ms}、{@code 1h2m3.5s}）
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            matched = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1000;
+                default -> amount;
+            };
+        }
+        return matched ? Duration.ofMillis((long) millis) : null;
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
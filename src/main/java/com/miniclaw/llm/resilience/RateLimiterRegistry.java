@@ -0,0 +1,124 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客户端限流器注册表
+ *
+ * <p>按 Provider + 模型懒加载 {@link ProviderRateLimiter}；未启用限流的 Provider 不受影响
+ *
+ * <p>指标：
+ * <ul>
+ *   <li>{@code llm.ratelimit.delayed{provider,model}} - 本地排队等待的请求数</li>
+ *   <li>{@code llm.ratelimit.rejected{provider,model}} - 预计等待过长被拒绝的请求数</li>
+ * </ul>
+ */
+@Slf4j
+public class RateLimiterRegistry {
+
+    private final LlmProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ProviderRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public RateLimiterRegistry(LlmProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 是否对该 Provider 启用限流
+     */
+    public boolean isEnabled(String providerId) {
+        LlmProperties.ProviderConfig config = properties.getProvider(providerId);
+        return config != null && config.getRateLimit() != null
+            && Boolean.TRUE.equals(config.getRateLimit().getEnabled());
+    }
+
+    /**
+     * 获取限流器（未启用返回 null）
+     */
+    public ProviderRateLimiter get(String providerId, String model) {
+        if (!isEnabled(providerId)) {
+            return null;
+        }
+        return limiters.computeIfAbsent(providerId + '\u0000' + model, key -> create(providerId, model));
+    }
+
+    /**
+     * 发送前获取额度：额度充足立即完成，不足时延迟到额度恢复，预计等待过长时以 RATE_LIMITED 失败
+     *
+     * <p>额度在订阅时即预留；等待期间被取消会退还，完成后由调用方按实际用量 {@link #reconcile} 修正
+     *
+     * @param providerId Provider ID
+     * @param model 模型
+     * @param estimatedTokens 预估 token 数
+     */
+    public Mono<Void> acquire(String providerId, String model, long estimatedTokens) {
+        return Mono.defer(() -> {
+            ProviderRateLimiter limiter = get(providerId, model);
+            if (limiter == null) {
+                return Mono.empty();
+            }
+
+            long waitNanos = limiter.reserve(estimatedTokens);
+            if (waitNanos < 0) {
+                counter("llm.ratelimit.rejected", providerId, model).increment();
+                return Mono.error(new LlmException(
+                    "Rate limit exceeded: provider=" + providerId + ", model=" + model, "RATE_LIMITED"));
+            }
+            if (waitNanos == 0) {
+                return Mono.empty();
+            }
+
+            log.debug("Rate limited, waiting {}ms: provider={}, model={}", waitNanos / 1_000_000, providerId, model);
+            counter("llm.ratelimit.delayed", providerId, model).increment();
+            return Mono.delay(Duration.ofNanos(waitNanos)).then()
+                .doOnCancel(() -> limiter.reconcile(estimatedTokens, 0));
+        });
+    }
+
+    /**
+     * 按实际用量修正 token 额度
+     */
+    public void reconcile(String providerId, String model, long estimatedTokens, Integer actualTokens) {
+        ProviderRateLimiter limiter = get(providerId, model);
+        if (limiter != null && actualTokens != null) {
+            limiter.reconcile(estimatedTokens, actualTokens);
+        }
+    }
+
+    private ProviderRateLimiter create(String providerId, String model) {
+        LlmProperties.RateLimitConfig config = properties.getProvider(providerId).getRateLimit();
+        Integer requestsPerMinute = config.getRequestsPerMinute();
+        Integer tokensPerMinute = config.getTokensPerMinute();
+
+        LlmProperties.ModelRateLimit modelLimit = model != null ? config.getModels().get(model) : null;
+        if (modelLimit != null) {
+            if (modelLimit.getRequestsPerMinute() != null) {
+                requestsPerMinute = modelLimit.getRequestsPerMinute();
+            }
+            if (modelLimit.getTokensPerMinute() != null) {
+                tokensPerMinute = modelLimit.getTokensPerMinute();
+            }
+        }
+        return new ProviderRateLimiter(providerId, model, requestsPerMinute, tokensPerMinute,
+            Duration.ofSeconds(config.getMaxWait()));
+    }
+
+    private Counter counter(String name, String providerId, String model) {
+        return Counter.builder(name)
+            .tag("provider", providerId)
+            .tag("model", String.valueOf(model))
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,63 @@
+package com.miniclaw.llm.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 额外请求预算（按比例）
+ *
+ * <p>每个正常请求存入 {@code percent / 100} 个令牌，每个额外请求（对冲、重试）取出 1 个令牌，
+ * 余额上限为 {@code maxBurst}（初始余额也是 maxBurst，保证启动后少量请求也能重试）。
+ * 因此长期来看额外请求不超过正常请求的 percent%，且空闲一段时间后也最多只能突发 maxBurst 个额外请求
+ */
+public class RequestBudget {
+
+    /**
+     * 令牌以千分之一为单位存储，避免浮点运算
+     */
+    private static final long UNIT = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance = new AtomicLong();
+
+    /**
+     * @param percent 额外请求占正常请求的最大百分比
+     * @param maxBurst 最多累积的令牌数
+     */
+    public RequestBudget(int percent, int maxBurst) {
+        this.deposit = Math.max(percent, 0) * UNIT / 100;
+        this.maxBalance = Math.max(maxBurst, 0) * UNIT;
+        this.balance.set(maxBalance);
+    }
+
+    /**
+     * 记录一次正常请求（存入令牌）
+     */
+    public void deposit() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(current + amount, maxBalance));
+    }
+
+    /**
+     * 尝试为一次额外请求取出令牌
+     *
+     * @return true 如果预算足够
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前可用的额外请求数
+     */
+    public double available() {
+        return balance.get() / (double) UNIT;
+    }
+}
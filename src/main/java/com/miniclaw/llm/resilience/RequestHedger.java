@@ -0,0 +1,110 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.routing.ProviderRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 请求对冲（Hedged Requests）
+ *
+ * <p>主请求在主 Provider 最近延迟的指定分位数内没有返回时发送备份请求，
+ * 先返回的结果生效，另一个请求被取消。备份请求受每个 Provider 的 {@link RequestBudget} 限制
+ *
+ * <p>失败语义：主请求失败立即返回错误；备份请求失败被忽略，继续等待主请求
+ *
+ * <p>指标：
+ * <ul>
+ *   <li>{@code llm.requests.hedged{provider}} - 发出的备份请求数</li>
+ *   <li>{@code llm.requests.hedge.wins{provider}} - 备份请求先返回的次数</li>
+ * </ul>
+ */
+@Slf4j
+public class RequestHedger {
+
+    private final LlmProperties.HedgingConfig config;
+    private final ProviderRouter router;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, RequestBudget> budgets = new ConcurrentHashMap<>();
+
+    public RequestHedger(LlmProperties.HedgingConfig config, ProviderRouter router, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.router = router;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 对冲调用
+     *
+     * @param primary 主请求（订阅时同步确定主 Provider）
+     * @param primaryProviderId 主请求实际选中的 Provider（主请求订阅后读取）
+     * @param backup 主 Provider ID -> 备份请求
+     * @return 先返回的结果
+     */
+    public <T> Mono<T> hedge(Mono<T> primary, Supplier<String> primaryProviderId, Function<String, Mono<T>> backup) {
+        Mono<T> hedged = Mono.defer(() -> {
+            String providerId = primaryProviderId.get();
+            if (providerId == null) {
+                return Mono.never();
+            }
+            budget(providerId).deposit();
+
+            Duration delay = hedgeDelay(providerId);
+            if (delay == null) {
+                return Mono.never();
+            }
+
+            return Mono.delay(delay).flatMap(tick -> {
+                if (!budget(providerId).tryWithdraw()) {
+                    log.debug("Hedge budget exhausted: provider={}", providerId);
+                    return Mono.<T>never();
+                }
+                log.debug("Hedging request: provider={}, delay={}ms", providerId, delay.toMillis());
+                counter("llm.requests.hedged", providerId).increment();
+                return backup.apply(providerId)
+                    .doOnNext(value -> counter("llm.requests.hedge.wins", providerId).increment())
+                    .onErrorResume(error -> {
+                        log.debug("Hedged request failed, waiting for primary: {}", error.getMessage());
+                        return Mono.never();
+                    });
+            });
+        });
+
+        // 先订阅主请求，备份请求才能读到主 Provider
+        return Mono.firstWithSignal(primary, hedged);
+    }
+
+    /**
+     * 计算对冲延迟（样本不足时返回 null，不对冲）
+     */
+    Duration hedgeDelay(String providerId) {
+        long percentileNanos = router.stats(providerId).latencyPercentile(config.getPercentile(), config.getMinSamples());
+        if (percentileNanos < 0) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(percentileNanos, Duration.ofMillis(config.getMinDelayMillis()).toNanos()));
+    }
+
+    /**
+     * 获取 Provider 的对冲预算
+     */
+    public RequestBudget budget(String providerId) {
+        return budgets.computeIfAbsent(providerId,
+            id -> new RequestBudget(config.getBudgetPercent(), config.getBudgetBurst()));
+    }
+
+    private Counter counter(String name, String providerId) {
+        return Counter.builder(name)
+            .tag("provider", providerId)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.miniclaw.llm.resilience;
+
+import java.time.Duration;
+
+/**
+ * 重试策略
+ *
+ * <p>每个 Provider 一个实例，默认实现为 {@link DefaultRetryPolicy}，
+ * 可通过 {@code retry.policy-class} 配置或 {@link RetryPolicyRegistry#register} 替换
+ */
+public interface RetryPolicy {
+
+    /**
+     * 判断错误是否可重试
+     */
+    boolean isRetryable(Throwable error);
+
+    /**
+     * 最大重试次数
+     *
+     * @param stream 是否流式调用
+     */
+    int maxRetries(boolean stream);
+
+    /**
+     * 第 attempt 次重试前的退避时间
+     *
+     * @param attempt 重试序号（从 1 开始）
+     * @param error 上一次失败的错误
+     */
+    Duration backoff(int attempt, Throwable error);
+}
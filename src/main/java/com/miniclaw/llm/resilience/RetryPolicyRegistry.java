@@ -0,0 +1,153 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provider 重试策略注册表
+ *
+ * <p>按 Provider 创建 {@link RetryPolicy}（配置了 policy-class 时使用自定义实现）和重试预算：
+ * 每个逻辑请求存入 budget-percent/100 次重试额度，每次重试取出 1 次，额度不足时不再重试
+ *
+ * <p>指标：{@code llm.retries{provider,outcome=retried|budget_exhausted}}
+ */
+@Slf4j
+public class RetryPolicyRegistry {
+
+    private final LlmProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, RetryPolicy> policies = new ConcurrentHashMap<>();
+    private final Map<String, RequestBudget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * 未配置的 Provider 使用的默认配置
+     */
+    private final LlmProperties.RetryConfig defaultConfig = new LlmProperties.RetryConfig();
+
+    /**
+     * providerId 为 null 时使用的策略
+     */
+    private final RetryPolicy defaultPolicy = new DefaultRetryPolicy(defaultConfig);
+
+    public RetryPolicyRegistry(LlmProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 获取 Provider 的重试策略
+     */
+    public RetryPolicy get(String providerId) {
+        if (providerId == null) {
+            return defaultPolicy;
+        }
+        return policies.computeIfAbsent(providerId, id -> create(config(id)));
+    }
+
+    /**
+     * 替换 Provider 的重试策略
+     */
+    public void register(String providerId, RetryPolicy policy) {
+        policies.put(providerId, policy);
+    }
+
+    /**
+     * 为同步调用加上重试
+     *
+     * @param providerId 按该 Provider 的策略和预算重试
+     * @param source 单次尝试（每次重试重新订阅）
+     * @param exhaustedMessage 重试次数用尽时的错误信息
+     */
+    public <T> Mono<T> withRetry(String providerId, Mono<T> source, String exhaustedMessage) {
+        return Mono.defer(() -> {
+            budget(providerId).deposit();
+            return source.retryWhen(retry(providerId, false, exhaustedMessage));
+        });
+    }
+
+    /**
+     * 为流式调用加上重试
+     */
+    public <T> Flux<T> withRetry(String providerId, Flux<T> source, String exhaustedMessage) {
+        return Flux.defer(() -> {
+            budget(providerId).deposit();
+            return source.retryWhen(retry(providerId, true, exhaustedMessage));
+        });
+    }
+
+    /**
+     * 获取 Provider 的重试预算
+     */
+    public RequestBudget budget(String providerId) {
+        return budgets.computeIfAbsent(String.valueOf(providerId), id -> {
+            LlmProperties.RetryConfig config = config(providerId);
+            return new RequestBudget(config.getBudgetPercent(), config.getBudgetBurst());
+        });
+    }
+
+    private Retry retry(String providerId, boolean stream, String exhaustedMessage) {
+        RetryPolicy policy = get(providerId);
+        RequestBudget budget = budget(providerId);
+
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            if (!policy.isRetryable(failure)) {
+                return Mono.error(failure);
+            }
+
+            int attempt = (int) signal.totalRetries() + 1;
+            if (attempt > policy.maxRetries(stream)) {
+                return Mono.error(new LlmException(exhaustedMessage, failure));
+            }
+            if (!budget.tryWithdraw()) {
+                log.warn("Retry budget exhausted: provider={}", providerId);
+                counter(providerId, "budget_exhausted").increment();
+                return Mono.error(failure);
+            }
+
+            counter(providerId, "retried").increment();
+            return Mono.delay(policy.backoff(attempt, failure));
+        }));
+    }
+
+    /**
+     * 获取 Provider 的重试配置（未配置时返回默认配置）
+     */
+    public LlmProperties.RetryConfig config(String providerId) {
+        LlmProperties.ProviderConfig providerConfig = providerId != null ? properties.getProvider(providerId) : null;
+        return providerConfig != null && providerConfig.getRetry() != null ? providerConfig.getRetry() : defaultConfig;
+    }
+
+    private RetryPolicy create(LlmProperties.RetryConfig config) {
+        if (config.getPolicyClass() == null || config.getPolicyClass().isBlank()) {
+            return new DefaultRetryPolicy(config);
+        }
+        try {
+            Class<? extends RetryPolicy> type = Class.forName(config.getPolicyClass()).asSubclass(RetryPolicy.class);
+            try {
+                return type.getConstructor(LlmProperties.RetryConfig.class).newInstance(config);
+            } catch (NoSuchMethodException e) {
+                return type.getConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new LlmException("Invalid retry policy class: " + config.getPolicyClass(), e);
+        }
+    }
+
+    private Counter counter(String providerId, String outcome) {
+        return Counter.builder("llm.retries")
+            .tag("provider", String.valueOf(providerId))
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,95 @@
+package com.miniclaw.llm.resilience;
+
+/**
+ * 令牌桶（预约模式）
+ *
+ * <p>令牌按固定速率补充，容量为一个周期的额度。
+ * 消费允许余额为负：后续请求需要等待余额恢复，从而形成先到先得的排队效果
+ *
+ * <p>非线程安全，由调用方加锁
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * 在此时间点之前不发放令牌（Retry-After 等）
+     */
+    private long blockedUntilNanos;
+
+    /**
+     * @param capacity 容量（每个周期的额度）
+     * @param periodNanos 周期（纳秒）
+     * @param nowNanos 当前时间
+     */
+    TokenBucket(long capacity, long periodNanos, long nowNanos) {
+        this.capacity = Math.max(capacity, 1);
+        this.refillPerNano = this.capacity / periodNanos;
+        this.tokens = this.capacity;
+        this.lastRefillNanos = nowNanos;
+        this.blockedUntilNanos = nowNanos;
+    }
+
+    /**
+     * 计算获取指定数量令牌需要等待的时间（不消费）
+     *
+     * <p>超过容量的请求按容量计算，避免永远无法通过
+     */
+    long waitNanos(long amount, long nowNanos) {
+        refill(nowNanos);
+        double needed = Math.min(amount, capacity);
+        long wait = Math.max(blockedUntilNanos - nowNanos, 0);
+        if (tokens < needed) {
+            wait = Math.max(wait, (long) Math.ceil((needed - tokens) / refillPerNano));
+        }
+        return wait;
+    }
+
+    /**
+     * 消费令牌（余额可以为负）
+     */
+    void consume(long amount, long nowNanos) {
+        refill(nowNanos);
+        tokens -= Math.min(amount, capacity);
+    }
+
+    /**
+     * 退还令牌（预估多于实际用量时）
+     */
+    void refund(long amount, long nowNanos) {
+        refill(nowNanos);
+        tokens = Math.min(tokens + amount, capacity);
+    }
+
+    /**
+     * 按服务端返回的剩余额度收紧余额
+     */
+    void limitRemaining(long remaining, long nowNanos) {
+        refill(nowNanos);
+        tokens = Math.min(tokens, remaining);
+    }
+
+    /**
+     * 在指定时间之前暂停发放
+     */
+    void blockUntil(long untilNanos) {
+        blockedUntilNanos = Math.max(blockedUntilNanos, untilNanos);
+    }
+
+    double available(long nowNanos) {
+        refill(nowNanos);
+        return tokens;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
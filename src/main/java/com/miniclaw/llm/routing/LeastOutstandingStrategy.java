@@ -0,0 +1,30 @@
+package com.miniclaw.llm.routing;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 最少在途请求路由策略
+ *
+ * <p>选择在途请求数最少的 Provider，相同时选择有效延迟（EWMA，无样本时为冷启动延迟）较低的
+ */
+public class LeastOutstandingStrategy implements RoutingStrategy {
+
+    @Override
+    public String choose(List<String> candidates, Function<String, ProviderStats> stats) {
+        String best = candidates.get(0);
+        ProviderStats bestStats = stats.apply(best);
+
+        for (int i = 1; i < candidates.size(); i++) {
+            String candidate = candidates.get(i);
+            ProviderStats candidateStats = stats.apply(candidate);
+            int compare = Integer.compare(candidateStats.getInFlight(), bestStats.getInFlight());
+            if (compare < 0 || (compare == 0
+                && candidateStats.getEffectiveLatencyNanos() < bestStats.getEffectiveLatencyNanos())) {
+                best = candidate;
+                bestStats = candidateStats;
+            }
+        }
+        return best;
+    }
+}
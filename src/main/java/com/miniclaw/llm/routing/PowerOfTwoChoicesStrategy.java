@@ -0,0 +1,33 @@
+package com.miniclaw.llm.routing;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Power of Two Choices 路由策略
+ *
+ * <p>随机取两个候选，选择负载评分（EWMA 延迟 × 在途请求数）较低的一个。
+ * 相比全局最优，避免所有请求同时涌向同一个"最快"的 Provider
+ */
+public class PowerOfTwoChoicesStrategy implements RoutingStrategy {
+
+    @Override
+    public String choose(List<String> candidates, Function<String, ProviderStats> stats) {
+        int size = candidates.size();
+        if (size == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        String a = candidates.get(first);
+        String b = candidates.get(second);
+        return stats.apply(a).score() <= stats.apply(b).score() ? a : b;
+    }
+}
@@ -0,0 +1,186 @@
+package com.miniclaw.llm.routing;
+
+import com.miniclaw.llm.config.LlmProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Provider 路由器
+ *
+ * <p>维护每个 Provider 的在途请求数和 EWMA 延迟，
+ * 在同一路由分组内支持所请求模型的 Provider 之间按策略选择
+ *
+ * <p>延迟统计口径：同步请求为完整响应时间，流式请求为首个 chunk 到达时间；
+ * 失败的请求（流式请求为首个 chunk 之前失败）按失败惩罚倍数记入 EWMA，取消的请求只计入在途数
+ *
+ * <p>指标：
+ * <ul>
+ *   <li>{@code llm.provider.in.flight{provider}} - 在途请求数</li>
+ *   <li>{@code llm.provider.latency.ewma{provider}} - EWMA 延迟（毫秒）</li>
+ * </ul>
+ */
+public class ProviderRouter {
+
+    private final LlmProperties properties;
+    private final LlmProperties.RoutingConfig config;
+    private final Predicate<String> available;
+    private final MeterRegistry meterRegistry;
+    private final RoutingStrategy strategy;
+
+    private final Map<String, ProviderStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @param properties LLM 配置
+     * @param available 判断 Provider 是否可用（已初始化客户端）
+     * @param meterRegistry 指标注册表（可为 null）
+     */
+    public ProviderRouter(LlmProperties properties, Predicate<String> available, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.config = properties.getRouting() != null ? properties.getRouting() : new LlmProperties.RoutingConfig();
+        this.available = available;
+        this.meterRegistry = meterRegistry;
+        this.strategy = createStrategy(config.getStrategy());
+    }
+
+    /**
+     * 选择实际发送请求的 Provider
+     *
+     * <p>未启用路由、或请求的 Provider 不属于任何分组时，直接返回请求的 Provider
+     *
+     * @param providerId 请求的 Provider ID
+     * @param model 实际使用的模型
+     * @return 选中的 Provider ID
+     */
+    public String route(String providerId, String model) {
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return providerId;
+        }
+        List<String> candidates = candidates(providerId, model);
+        if (candidates.size() <= 1) {
+            return providerId;
+        }
+        return strategy.choose(candidates, this::stats);
+    }
+
+    /**
+     * 候选 Provider：与请求的 Provider 同组、已初始化且支持该模型
+     *
+     * <p>请求的 Provider 本身总是候选之一
+     */
+    public List<String> candidates(String providerId, String model) {
+        Set<String> candidates = new LinkedHashSet<>();
+        candidates.add(providerId);
+        for (List<String> group : config.getGroups().values()) {
+            if (group == null || !group.contains(providerId)) {
+                continue;
+            }
+            for (String member : group) {
+                if (available.test(member) && supports(member, model)) {
+                    candidates.add(member);
+                }
+            }
+        }
+        return new ArrayList<>(candidates);
+    }
+
+    /**
+     * 获取 Provider 负载统计（不存在时创建）
+     */
+    public ProviderStats stats(String providerId) {
+        return stats.computeIfAbsent(providerId, this::createStats);
+    }
+
+    /**
+     * 统计同步调用：订阅时计入在途，成功时记录完整响应时间，失败时记录惩罚样本
+     */
+    public <T> Mono<T> track(String providerId, Mono<T> call) {
+        return Mono.defer(() -> {
+            ProviderStats providerStats = stats(providerId);
+            long start = System.nanoTime();
+            providerStats.onStart();
+            return call.doFinally(signal -> {
+                if (signal == SignalType.ON_COMPLETE) {
+                    providerStats.recordLatency(System.nanoTime() - start);
+                } else if (signal == SignalType.ON_ERROR) {
+                    providerStats.recordFailure(System.nanoTime() - start);
+                }
+                providerStats.onEnd();
+            });
+        });
+    }
+
+    /**
+     * 统计流式调用：订阅时计入在途，首个元素到达时记录延迟，首个元素之前失败时记录惩罚样本
+     */
+    public <T> Flux<T> trackStream(String providerId, Flux<T> call) {
+        return Flux.defer(() -> {
+            ProviderStats providerStats = stats(providerId);
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            providerStats.onStart();
+            return call
+                .doOnNext(item -> {
+                    if (first.compareAndSet(true, false)) {
+                        providerStats.recordLatency(System.nanoTime() - start);
+                    }
+                })
+                .doOnError(error -> {
+                    if (first.compareAndSet(true, false)) {
+                        providerStats.recordFailure(System.nanoTime() - start);
+                    }
+                })
+                .doFinally(signal -> providerStats.onEnd());
+        });
+    }
+
+    private boolean supports(String providerId, String model) {
+        LlmProperties.ProviderConfig providerConfig = properties.getProvider(providerId);
+        if (providerConfig == null) {
+            return false;
+        }
+        return model == null
+            || providerConfig.getModels().contains(model)
+            || model.equals(providerConfig.getDefaultModel());
+    }
+
+    private ProviderStats createStats(String providerId) {
+        ProviderStats providerStats = new ProviderStats(providerId, config.getEwmaAlpha(),
+            config.getColdStartLatencyMillis() * 1_000_000L, config.getFailurePenalty());
+        if (meterRegistry != null) {
+            Gauge.builder("llm.provider.in.flight", providerStats, ProviderStats::getInFlight)
+                .tag("provider", providerId)
+                .register(meterRegistry);
+            Gauge.builder("llm.provider.latency.ewma", providerStats, s -> s.getEwmaLatencyNanos() / 1_000_000.0)
+                .tag("provider", providerId)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        }
+        return providerStats;
+    }
+
+    private RoutingStrategy createStrategy(LlmProperties.RoutingConfig.Strategy type) {
+        if (type == null) {
+            return new PowerOfTwoChoicesStrategy();
+        }
+        return switch (type) {
+            case POWER_OF_TWO_CHOICES -> new PowerOfTwoChoicesStrategy();
+            case LEAST_OUTSTANDING -> new LeastOutstandingStrategy();
+            case WEIGHTED -> new WeightedStrategy(providerId -> {
+                LlmProperties.ProviderConfig providerConfig = properties.getProvider(providerId);
+                return providerConfig != null && providerConfig.getWeight() != null ? providerConfig.getWeight() : 1;
+            });
+        };
+    }
+}
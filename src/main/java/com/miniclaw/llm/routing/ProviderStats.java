@@ -0,0 +1,156 @@
+package com.miniclaw.llm.routing;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个 Provider 的实时负载统计
+ *
+ * <p>记录在途请求数、延迟的指数加权移动平均（EWMA）和最近的延迟样本，
+ * 供路由策略和请求对冲使用
+ */
+public class ProviderStats {
+
+    /**
+     * 保留的最近延迟样本数（用于计算分位数）
+     */
+    private static final int RESERVOIR_SIZE = 512;
+
+    private final String providerId;
+    private final double alpha;
+    private final double coldStartNanos;
+    private final double failurePenalty;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * EWMA 延迟（纳秒，double 的位表示）
+     */
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    /**
+     * 最近的延迟样本（环形缓冲，纳秒）
+     */
+    private final long[] reservoir = new long[RESERVOIR_SIZE];
+    private int reservoirIndex;
+    private int reservoirCount;
+
+    public ProviderStats(String providerId, double alpha) {
+        this(providerId, alpha, 0, 1.0);
+    }
+
+    /**
+     * @param providerId Provider ID
+     * @param alpha EWMA 平滑系数
+     * @param coldStartNanos 没有样本时评分使用的延迟（纳秒）
+     * @param failurePenalty 失败惩罚倍数
+     */
+    public ProviderStats(String providerId, double alpha, long coldStartNanos, double failurePenalty) {
+        this.providerId = providerId;
+        this.alpha = alpha;
+        this.coldStartNanos = coldStartNanos;
+        this.failurePenalty = failurePenalty;
+    }
+
+    public String getProviderId() {
+        return providerId;
+    }
+
+    /**
+     * 请求开始
+     */
+    public void onStart() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束（完成、失败或取消）
+     */
+    public void onEnd() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 记录延迟样本并更新 EWMA（首个样本直接作为初始值）
+     */
+    public void recordLatency(long latencyNanos) {
+        synchronized (reservoir) {
+            reservoir[reservoirIndex] = latencyNanos;
+            reservoirIndex = (reservoirIndex + 1) % RESERVOIR_SIZE;
+            reservoirCount = Math.min(reservoirCount + 1, RESERVOIR_SIZE);
+        }
+        updateEwma(latencyNanos);
+    }
+
+    /**
+     * 记录失败：按 max(耗时, 当前有效延迟) × 失败惩罚倍数更新 EWMA
+     *
+     * <p>惩罚样本只进入 EWMA，不进入延迟样本（分位数仍反映成功请求的真实延迟）
+     */
+    public void recordFailure(long elapsedNanos) {
+        updateEwma(Math.max(elapsedNanos, getEffectiveLatencyNanos()) * failurePenalty);
+    }
+
+    private void updateEwma(double sample) {
+        while (true) {
+            long currentBits = ewmaBits.get();
+            double current = Double.longBitsToDouble(currentBits);
+            double next = current == 0.0 ? sample : current + alpha * (sample - current);
+            if (ewmaBits.compareAndSet(currentBits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * EWMA 延迟（纳秒，没有样本时为 0）
+     */
+    public double getEwmaLatencyNanos() {
+        return Double.longBitsToDouble(ewmaBits.get());
+    }
+
+    /**
+     * 评分使用的延迟：有样本时为 EWMA，没有样本时为冷启动延迟
+     */
+    public double getEffectiveLatencyNanos() {
+        double ewma = getEwmaLatencyNanos();
+        return ewma == 0.0 ? coldStartNanos : ewma;
+    }
+
+    /**
+     * 最近延迟样本的分位数
+     *
+     * @param percentile 分位（0~100）
+     * @param minSamples 最少样本数
+     * @return 延迟（纳秒），样本不足时返回 -1
+     */
+    public long latencyPercentile(double percentile, int minSamples) {
+        long[] samples;
+        synchronized (reservoir) {
+            if (reservoirCount == 0 || reservoirCount < minSamples) {
+                return -1;
+            }
+            samples = Arrays.copyOf(reservoir, reservoirCount);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile / 100.0 * samples.length) - 1;
+        return samples[Math.max(0, Math.min(index, samples.length - 1))];
+    }
+
+    /**
+     * 负载评分：有效延迟 ×（在途请求数 + 1），越小越好
+     *
+     * <p>没有延迟样本的 Provider 按冷启动延迟评分，既会被尝试，也不会在拿到样本前吸走所有请求
+     */
+    public double score() {
+        return getEffectiveLatencyNanos() * (getInFlight() + 1);
+    }
+}
@@ -0,0 +1,26 @@
+package com.miniclaw.llm.routing;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Provider 路由策略
+ *
+ * <p>实现类：
+ * <ul>
+ *   <li>{@link PowerOfTwoChoicesStrategy} - 随机取两个，选负载评分低的</li>
+ *   <li>{@link LeastOutstandingStrategy} - 在途请求最少</li>
+ *   <li>{@link WeightedStrategy} - 按配置权重随机</li>
+ * </ul>
+ */
+public interface RoutingStrategy {
+
+    /**
+     * 从候选 Provider 中选择一个
+     *
+     * @param candidates 候选 Provider ID（至少一个）
+     * @param stats Provider ID -> 负载统计
+     * @return 选中的 Provider ID
+     */
+    String choose(List<String> candidates, Function<String, ProviderStats> stats);
+}
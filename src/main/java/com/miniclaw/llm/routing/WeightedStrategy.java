@@ -0,0 +1,40 @@
+package com.miniclaw.llm.routing;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * 加权随机路由策略
+ *
+ * <p>按 Provider 配置的 weight 随机选择，权重为 0 的 Provider 不参与（除非全部为 0）
+ */
+public class WeightedStrategy implements RoutingStrategy {
+
+    private final ToIntFunction<String> weights;
+
+    public WeightedStrategy(ToIntFunction<String> weights) {
+        this.weights = weights;
+    }
+
+    @Override
+    public String choose(List<String> candidates, Function<String, ProviderStats> stats) {
+        int total = 0;
+        for (String candidate : candidates) {
+            total += Math.max(weights.applyAsInt(candidate), 0);
+        }
+        if (total == 0) {
+            return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        }
+
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (String candidate : candidates) {
+            point -= Math.max(weights.applyAsInt(candidate), 0);
+            if (point < 0) {
+                return candidate;
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+}
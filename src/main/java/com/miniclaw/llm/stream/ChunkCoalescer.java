@@ -0,0 +1,184 @@
+package com.miniclaw.llm.stream;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 流式输出合并算子
+ *
+ * <p>把连续的纯内容 chunk（只有 delta）合并为一个 chunk，减少下游的帧数和 flush 次数：
+ * <ul>
+ *   <li>第一个内容 chunk、以及距上一帧已超过合并窗口的内容立即输出，不增加首 token 延迟</li>
+ *   <li>其余内容累积，字符数达到 max-chars 或到达窗口时输出</li>
+ *   <li>非内容 chunk（工具调用、结束、用量）先输出累积的内容，再原样输出</li>
+ * </ul>
+ *
+ * <p>用法：{@code client.stream(request).transform(coalescer)}
+ *
+ * <p>保留背压：下游请求 n 个时向上游请求 n 个，只有被并入已有累积内容的 chunk 才向上游多补 1 个，
+ * 因此输出数不会超过下游的请求数；订阅者的 Context 传递给上游
+ *
+ * <p>指标：{@code llm.stream.chunks.coalesced}（被合并掉的 chunk 数）
+ */
+public class ChunkCoalescer implements Function<Flux<LlmChunk>, Flux<LlmChunk>> {
+
+    private final int maxChars;
+    private final long windowMillis;
+    private final Counter coalescedChunks;
+
+    public ChunkCoalescer(LlmProperties.StreamCoalescingConfig config, MeterRegistry meterRegistry) {
+        LlmProperties.StreamCoalescingConfig actual = config != null ? config : new LlmProperties.StreamCoalescingConfig();
+        this.maxChars = Math.max(actual.getMaxChars(), 1);
+        this.windowMillis = Math.max(actual.getWindowMillis(), 0);
+        this.coalescedChunks = meterRegistry != null
+            ? Counter.builder("llm.stream.chunks.coalesced").register(meterRegistry)
+            : null;
+    }
+
+    @Override
+    public Flux<LlmChunk> apply(Flux<LlmChunk> source) {
+        if (windowMillis == 0) {
+            return source;
+        }
+        return Flux.create(sink -> {
+            Coalescing state = new Coalescing(sink, Schedulers.parallel());
+            source.contextWrite(sink.contextView()).subscribe(state);
+            sink.onRequest(state::requestUpstream);
+            sink.onDispose(state::dispose);
+        });
+    }
+
+    /**
+     * 是否为纯内容 chunk（可以和相邻的纯内容 chunk 合并）
+     */
+    static boolean isContentOnly(LlmChunk chunk) {
+        return chunk.getDelta() != null
+            && !chunk.isDone()
+            && chunk.getFinishReason() == null
+            && !chunk.hasToolCalls()
+            && chunk.getUsage() == null
+            && chunk.getToolCallIndex() == null
+            && chunk.getToolCallId() == null
+            && chunk.getToolCallFunctionName() == null
+            && chunk.getToolCallArgumentsDelta() == null;
+    }
+
+    /**
+     * 单次订阅的合并状态（上游信号和窗口定时器在不同线程，方法都加锁）
+     */
+    private final class Coalescing extends BaseSubscriber<LlmChunk> {
+        private final FluxSink<LlmChunk> sink;
+        private final Scheduler scheduler;
+        private final StringBuilder pending = new StringBuilder();
+        private LlmChunk pendingFirst;
+        private int pendingChunks;
+        private long lastEmitMillis = Long.MIN_VALUE;
+        private Disposable timer;
+
+        Coalescing(FluxSink<LlmChunk> sink, Scheduler scheduler) {
+            this.sink = sink;
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // 由下游的请求驱动（见 requestUpstream）
+        }
+
+        void requestUpstream(long n) {
+            request(n);
+        }
+
+        @Override
+        protected synchronized void hookOnNext(LlmChunk chunk) {
+            if (!isContentOnly(chunk)) {
+                flush();
+                emit(chunk);
+                return;
+            }
+
+            long now = scheduler.now(TimeUnit.MILLISECONDS);
+            long elapsed = now - lastEmitMillis;
+            if (pendingChunks == 0 && (lastEmitMillis == Long.MIN_VALUE || elapsed >= windowMillis)) {
+                emit(chunk);
+                return;
+            }
+
+            boolean merged = pendingChunks > 0;
+            if (!merged) {
+                pendingFirst = chunk;
+            }
+            pending.append(chunk.getDelta());
+            pendingChunks++;
+            if (pending.length() >= maxChars) {
+                flush();
+            } else if (timer == null) {
+                timer = scheduler.schedule(this::onWindow, windowMillis - elapsed, TimeUnit.MILLISECONDS);
+            }
+            if (merged) {
+                // 并入已有内容的 chunk 不产生输出，补回它占用的上游请求
+                request(1);
+            }
+        }
+
+        @Override
+        protected synchronized void hookOnError(Throwable error) {
+            flush();
+            sink.error(error);
+        }
+
+        @Override
+        protected synchronized void hookOnComplete() {
+            flush();
+            sink.complete();
+        }
+
+        @Override
+        protected void hookOnCancel() {
+            cancelTimer();
+        }
+
+        synchronized void cancelTimer() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+
+        private synchronized void onWindow() {
+            timer = null;
+            flush();
+        }
+
+        private void flush() {
+            cancelTimer();
+            if (pendingChunks == 0) {
+                return;
+            }
+            emit(pendingChunks == 1 ? pendingFirst : LlmChunk.builder().delta(pending.toString()).build());
+            if (coalescedChunks != null) {
+                coalescedChunks.increment(pendingChunks - 1);
+            }
+            pending.setLength(0);
+            pendingFirst = null;
+            pendingChunks = 0;
+        }
+
+        private void emit(LlmChunk chunk) {
+            lastEmitMillis = scheduler.now(TimeUnit.MILLISECONDS);
+            sink.next(chunk);
+        }
+    }
+}
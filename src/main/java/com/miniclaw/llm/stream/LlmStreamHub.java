@@ -0,0 +1,233 @@
+package com.miniclaw.llm.stream;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 流式响应共享中心（按 runId）
+ *
+ * <p>{@code LlmClient.stream()} 返回的是冷流，每多一个订阅者就多发一次上游请求。
+ * 这里每个 run 只订阅一次上游，chunk 写入有界的回放缓冲后分发给所有订阅者：
+ * <ul>
+ *   <li>后加入的订阅者先收到最近 {@code replay-limit} 个 chunk，再接着收实时数据</li>
+ *   <li>每个订阅者独立处理背压（DROP / LATEST / BUFFER），慢订阅者不会拖慢上游和其他订阅者</li>
+ *   <li>上游结束（完成、出错或取消）后立即移除该 run，缓冲在最后一个订阅者读完后回收</li>
+ * </ul>
+ *
+ * <p>上游在 {@link #open} 时立即订阅，不依赖订阅者；需要提前结束时调用 {@link #cancel}
+ *
+ * <p>使用示例：
+ * <pre>
+ * Flux&lt;LlmChunk&gt; sse = hub.open(runId, () -&gt; llmClient.stream(request));
+ * hub.subscribe(runId).subscribe(persistenceWriter);
+ * hub.subscribe(runId, Overflow.LATEST, 0).subscribe(monitor);
+ * </pre>
+ *
+ * <p>指标：{@code llm.stream.hub.runs}（进行中的 run 数），
+ * {@code llm.stream.hub.dropped{overflow=drop}}（DROP 策略丢弃的 chunk 数）
+ */
+@Slf4j
+public class LlmStreamHub {
+
+    private final LlmProperties.StreamHubConfig config;
+    private final Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+    private final Counter droppedChunks;
+
+    public LlmStreamHub(LlmProperties.StreamHubConfig config, MeterRegistry meterRegistry) {
+        this.config = config != null ? config : new LlmProperties.StreamHubConfig();
+        if (meterRegistry != null) {
+            Gauge.builder("llm.stream.hub.runs", channels, Map::size).register(meterRegistry);
+            this.droppedChunks = Counter.builder("llm.stream.hub.dropped")
+                .tag("overflow", "drop")
+                .register(meterRegistry);
+        } else {
+            this.droppedChunks = null;
+        }
+    }
+
+    /**
+     * 开始（或加入）一个 run 的流
+     *
+     * <p>run 已在进行中时不会调用 source，直接加入已有的流
+     *
+     * @param runId 执行记录 ID
+     * @param source 上游流（只在 run 不存在时调用一次）
+     * @return 使用默认溢出策略的订阅流
+     */
+    public Flux<LlmChunk> open(UUID runId, Supplier<Flux<LlmChunk>> source) {
+        boolean[] created = new boolean[1];
+        Channel channel = channels.computeIfAbsent(runId, id -> {
+            created[0] = true;
+            return new Channel(id);
+        });
+        if (created[0]) {
+            try {
+                channel.connect(source.get());
+            } catch (RuntimeException e) {
+                // 上游创建失败：移除通道（后续调用可以重新 open），已加入的订阅者收到同一个错误
+                channel.terminate(null, e);
+                throw e;
+            }
+        }
+        // 直接订阅通道：上游很快结束时 run 已经移除，但回放缓冲仍然可读
+        return subscribe(runId, channel, config.getOverflow(), config.getBufferSize());
+    }
+
+    /**
+     * 订阅进行中的 run（使用默认溢出策略）
+     *
+     * <p>run 不存在或已结束时以 {@link LlmException}（STREAM_NOT_FOUND）结束
+     */
+    public Flux<LlmChunk> subscribe(UUID runId) {
+        return subscribe(runId, config.getOverflow(), config.getBufferSize());
+    }
+
+    /**
+     * 订阅进行中的 run
+     *
+     * @param runId 执行记录 ID
+     * @param overflow 该订阅者的溢出策略
+     * @param bufferSize BUFFER 策略下最多缓冲的 chunk 数（其他策略忽略）
+     */
+    public Flux<LlmChunk> subscribe(UUID runId, LlmProperties.StreamHubConfig.Overflow overflow, int bufferSize) {
+        return Flux.defer(() -> {
+            Channel channel = channels.get(runId);
+            if (channel == null) {
+                return Flux.error(new LlmException("No active stream for run: " + runId, "STREAM_NOT_FOUND"));
+            }
+            return subscribe(runId, channel, overflow, bufferSize);
+        });
+    }
+
+    private Flux<LlmChunk> subscribe(UUID runId, Channel channel, LlmProperties.StreamHubConfig.Overflow overflow,
+                                     int bufferSize) {
+        Flux<LlmChunk> chunks = channel.sink.asFlux();
+        return switch (overflow) {
+            case DROP -> chunks.onBackpressureDrop(chunk -> increment(droppedChunks));
+            case LATEST -> chunks.onBackpressureLatest();
+            case BUFFER -> chunks.onBackpressureBuffer(Math.max(bufferSize, 1))
+                .onErrorMap(Exceptions::isOverflow, error -> new LlmException(
+                    "Stream subscriber too slow for run: " + runId, "STREAM_OVERFLOW", error));
+        };
+    }
+
+    /**
+     * 取消 run 的上游（订阅者收到 finishReason=cancelled 的最后一个 chunk）
+     *
+     * @return true 如果 run 在进行中
+     */
+    public boolean cancel(UUID runId) {
+        Channel channel = channels.get(runId);
+        if (channel == null) {
+            return false;
+        }
+        channel.cancel();
+        return true;
+    }
+
+    /**
+     * run 是否在进行中
+     */
+    public boolean isActive(UUID runId) {
+        return channels.containsKey(runId);
+    }
+
+    /**
+     * 进行中的 run 数
+     */
+    public int activeRuns() {
+        return channels.size();
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * 单个 run 的分发通道
+     *
+     * <p>上游信号和 {@link #cancel()} 可能来自不同线程，对 sink 的写入都加锁串行化
+     */
+    private final class Channel {
+        private final UUID runId;
+        private final Sinks.Many<LlmChunk> sink;
+        private volatile Disposable upstream;
+        private boolean terminated;
+
+        Channel(UUID runId) {
+            this.runId = runId;
+            this.sink = Sinks.many().replay().limit(Math.max(config.getReplayLimit(), 1));
+        }
+
+        void connect(Flux<LlmChunk> source) {
+            upstream = source.subscribe(
+                this::next,
+                error -> {
+                    log.warn("Shared stream failed: runId={}, error={}", runId, error.getMessage());
+                    terminate(null, error);
+                },
+                () -> terminate(null, null));
+        }
+
+        void cancel() {
+            Disposable current = upstream;
+            if (current != null) {
+                current.dispose();
+            }
+            terminate(LlmChunk.builder().done(true).finishReason("cancelled").build(), null);
+        }
+
+        private synchronized void next(LlmChunk chunk) {
+            if (!terminated) {
+                emit(sink.tryEmitNext(chunk));
+            }
+        }
+
+        /**
+         * 结束通道（只生效一次）
+         *
+         * @param last 结束前追加的最后一个 chunk（可为 null）
+         * @param error 以错误结束时的异常（null 表示正常完成）
+         */
+        private synchronized void terminate(LlmChunk last, Throwable error) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            close();
+            if (last != null) {
+                emit(sink.tryEmitNext(last));
+            }
+            emit(error != null ? sink.tryEmitError(error) : sink.tryEmitComplete());
+        }
+
+        /**
+         * 从注册表移除（之后的订阅者不再能加入；已有订阅者继续读完缓冲）
+         */
+        private void close() {
+            channels.remove(runId, this);
+        }
+
+        private void emit(Sinks.EmitResult result) {
+            if (result.isFailure() && result != Sinks.EmitResult.FAIL_TERMINATED) {
+                log.warn("Failed to emit shared stream chunk: runId={}, result={}", runId, result);
+            }
+        }
+    }
+}
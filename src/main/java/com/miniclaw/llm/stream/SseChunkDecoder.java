@@ -0,0 +1,689 @@
+package com.miniclaw.llm.stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmResponse;
+import com.miniclaw.llm.model.ToolCall;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SSE 流式响应增量解码器
+ *
+ * <p>直接在 {@link DataBuffer} 上做 SSE 分帧：按字节扫描 {@code data:} 行，
+ * 把行内的 JSON 片段以零拷贝切片的方式喂给 Jackson 非阻塞解析器，
+ * 边读 token 边提取所需字段，不构建 JsonNode 树，也不把整行转换成 String
+ *
+ * <p>提取的字段：
+ * <ul>
+ *   <li>{@code choices[0].delta.content} - 内容增量</li>
+ *   <li>{@code choices[0].finish_reason} - 完成原因</li>
+ *   <li>{@code choices[0].delta.tool_calls} - 工具调用增量</li>
+ *   <li>{@code usage} - 用量（含 {@code prompt_tokens_details.cached_tokens} 和 DeepSeek 的
+ *   {@code prompt_cache_hit_tokens}），放在同一事件的最后一个 chunk 上</li>
+ * </ul>
+ *
+ * <p>请求了 {@code stream_options.include_usage} 时，用量在完成原因之后单独的事件中返回：
+ * 此时最后一个 chunk 会暂缓输出，收到用量或 {@code [DONE]}（或调用 {@link #finish()}）时再输出
+ *
+ * <p>工具调用增量逐个输出（每个增量一个 chunk，带 {@code toolCallIndex}）：
+ * 函数名出现时立即输出 {@code toolCallFunctionName}，参数片段输出为 {@code toolCallArgumentsDelta}；
+ * 某个调用的参数一旦构成完整 JSON，就在同一个 chunk 的 {@code toolCalls} 中输出完整的 {@link ToolCall}，
+ * 不等待流结束。流结束时仍未输出的调用（如参数为空）随最后一个 chunk 输出
+ *
+ * <p>一个解码器实例对应一次流式请求（有状态，非线程安全），重试时需要重新创建
+ */
+@Slf4j
+public class SseChunkDecoder implements AutoCloseable {
+
+    private static final byte[] DATA_FIELD = {'d', 'a', 't', 'a', ':'};
+
+    /**
+     * 最大 JSON 嵌套深度（超出部分只计数，不记录路径）
+     */
+    private static final int MAX_DEPTH = 16;
+
+    /**
+     * 行扫描状态
+     */
+    private enum LineState {
+        /** 行首，正在匹配字段名 */
+        FIELD,
+        /** 已匹配 "data:"，等待负载首字节 */
+        PAYLOAD_START,
+        /** 负载（JSON 片段），直接喂给解析器 */
+        PAYLOAD,
+        /** 忽略到行尾（注释、其他字段、[DONE] 等） */
+        SKIP
+    }
+
+    private final JsonFactory jsonFactory;
+
+    /**
+     * 是否等待完成原因之后的用量事件
+     */
+    private final boolean awaitUsage;
+
+    private JsonParser parser;
+    private ByteBufferFeeder feeder;
+
+    private LineState lineState = LineState.FIELD;
+    private int fieldMatched;
+
+    // ==================== JSON 路径跟踪 ====================
+
+    private int depth;
+    private final boolean[] isArray = new boolean[MAX_DEPTH];
+    private final String[] fieldNames = new String[MAX_DEPTH];
+    private final int[] arrayIndexes = new int[MAX_DEPTH];
+
+    // ==================== 当前事件状态 ====================
+
+    private boolean hasChoice;
+    private StringBuilder content;
+    private String finishReason;
+    private List<ToolCallFragment> toolCallFragments;
+    private ToolCallFragment currentFragment;
+    private LlmResponse.Usage usage;
+
+    /**
+     * 等待用量的最后一个 chunk
+     */
+    private LlmChunk pendingFinal;
+
+    /**
+     * 解析失败的次数
+     */
+    private int parseFailures;
+
+    /**
+     * 工具调用累积器（流式模式下 arguments 是分片到达的，按序号排序）
+     */
+    private final Map<Integer, ToolCallAccumulator> accumulators = new TreeMap<>();
+
+    public SseChunkDecoder(JsonFactory jsonFactory) {
+        this(jsonFactory, false);
+    }
+
+    /**
+     * @param jsonFactory JSON 工厂
+     * @param awaitUsage 请求了 {@code stream_options.include_usage} 时为 true
+     */
+    public SseChunkDecoder(JsonFactory jsonFactory, boolean awaitUsage) {
+        this.jsonFactory = jsonFactory;
+        this.awaitUsage = awaitUsage;
+        resetParser();
+    }
+
+    /**
+     * 解码一个数据块
+     *
+     * <p>数据块可以在任意字节处切分（包括多字节 UTF-8 字符中间），
+     * 未完成的事件会保留在解析器内部，等待下一个数据块
+     *
+     * <p>调用后 buffer 会被释放
+     *
+     * @param buffer 网络数据块
+     * @return 本数据块中完成的 chunk（可能为空）
+     */
+    public List<LlmChunk> decode(DataBuffer buffer) {
+        List<LlmChunk> chunks = null;
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                chunks = scan(iterator.next(), chunks);
+            }
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return chunks != null ? chunks : Collections.emptyList();
+    }
+
+    /**
+     * 上游结束：输出仍在等待用量的最后一个 chunk（没有时返回空列表）
+     */
+    public List<LlmChunk> finish() {
+        if (pendingFinal == null) {
+            return Collections.emptyList();
+        }
+        List<LlmChunk> chunks = List.of(pendingFinal);
+        pendingFinal = null;
+        return chunks;
+    }
+
+    /**
+     * 解析失败的次数（失败的行被丢弃并输出一个 done chunk）
+     */
+    public int getParseFailures() {
+        return parseFailures;
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            log.debug("Failed to close SSE parser", e);
+        }
+    }
+
+    /**
+     * 按字节扫描 SSE 行，负载部分切片后交给解析器
+     */
+    private List<LlmChunk> scan(ByteBuffer bytes, List<LlmChunk> chunks) {
+        int pos = bytes.position();
+        int limit = bytes.limit();
+
+        while (pos < limit) {
+            switch (lineState) {
+                case FIELD -> {
+                    byte b = bytes.get(pos);
+                    if (b == '\n' || b == '\r') {
+                        // 空行（事件分隔符）
+                        fieldMatched = 0;
+                        pos++;
+                    } else if (fieldMatched == 0 && b == '{') {
+                        // 兼容不带 "data:" 前缀的裸 JSON 行
+                        lineState = LineState.PAYLOAD;
+                    } else if (b == DATA_FIELD[fieldMatched]) {
+                        fieldMatched++;
+                        pos++;
+                        if (fieldMatched == DATA_FIELD.length) {
+                            lineState = LineState.PAYLOAD_START;
+                        }
+                    } else {
+                        lineState = LineState.SKIP;
+                    }
+                }
+                case PAYLOAD_START -> {
+                    byte b = bytes.get(pos);
+                    if (b == ' ') {
+                        pos++;
+                    } else if (b == '[') {
+                        // [DONE] 结束标记
+                        lineState = LineState.SKIP;
+                        if (pendingFinal != null) {
+                            chunks = add(chunks, pendingFinal);
+                            pendingFinal = null;
+                        }
+                    } else {
+                        lineState = LineState.PAYLOAD;
+                    }
+                }
+                case PAYLOAD -> {
+                    int end = indexOf(bytes, (byte) '\n', pos, limit);
+                    int sliceEnd = end >= 0 ? end : limit;
+                    if (sliceEnd > pos) {
+                        chunks = feed(bytes.slice(pos, sliceEnd - pos), chunks);
+                    }
+                    if (end >= 0) {
+                        endLine();
+                        pos = end + 1;
+                    } else {
+                        pos = limit;
+                    }
+                }
+                case SKIP -> {
+                    int end = indexOf(bytes, (byte) '\n', pos, limit);
+                    if (end >= 0) {
+                        endLine();
+                        pos = end + 1;
+                    } else {
+                        pos = limit;
+                    }
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private void endLine() {
+        lineState = LineState.FIELD;
+        fieldMatched = 0;
+    }
+
+    private static int indexOf(ByteBuffer bytes, byte target, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (bytes.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 喂入 JSON 片段并消费所有可用 token
+     */
+    private List<LlmChunk> feed(ByteBuffer slice, List<LlmChunk> chunks) {
+        try {
+            feeder.feedInput(slice);
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                chunks = onToken(token, chunks);
+            }
+        } catch (IOException e) {
+            log.error("Failed to parse chunk: {}", e.getMessage());
+            parseFailures++;
+            if (chunks == null) {
+                chunks = new ArrayList<>(1);
+            }
+            chunks.add(LlmChunk.builder().done(true).build());
+            // 丢弃当前行剩余内容，从下一行重新开始解析
+            resetParser();
+            lineState = LineState.SKIP;
+        }
+        return chunks;
+    }
+
+    /**
+     * 处理单个 token，根节点结束时把构建好的 chunk 加入列表
+     */
+    private List<LlmChunk> onToken(JsonToken token, List<LlmChunk> chunks) throws IOException {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> {
+                enterValue();
+                if (depth < MAX_DEPTH) {
+                    isArray[depth] = token == JsonToken.START_ARRAY;
+                    fieldNames[depth] = null;
+                    arrayIndexes[depth] = -1;
+                }
+                if (depth == 3) {
+                    // choices[0] 对象本身（inChoice 会记录 hasChoice）
+                    inChoice();
+                } else if (token == JsonToken.START_OBJECT && inToolCallElement(depth)) {
+                    currentFragment = new ToolCallFragment();
+                }
+                return chunks;
+            }
+            case END_OBJECT, END_ARRAY -> {
+                if (token == JsonToken.END_OBJECT && currentFragment != null && inToolCallElement(depth)) {
+                    toolCallFragments().add(currentFragment);
+                    currentFragment = null;
+                }
+                depth--;
+                return depth == 0 ? finishEvent(chunks) : chunks;
+            }
+            case FIELD_NAME -> {
+                if (depth < MAX_DEPTH) {
+                    fieldNames[depth] = parser.currentName();
+                }
+                return chunks;
+            }
+            default -> {
+                enterValue();
+                onScalar(token);
+                depth--;
+                return chunks;
+            }
+        }
+    }
+
+    /**
+     * 进入一个新值：数组元素下标递增，深度加一
+     */
+    private void enterValue() {
+        if (depth > 0 && depth < MAX_DEPTH && isArray[depth]) {
+            arrayIndexes[depth]++;
+        }
+        depth++;
+    }
+
+    /**
+     * 处理标量值（此时 depth 指向值本身，所在容器为 depth - 1）
+     */
+    private void onScalar(JsonToken token) throws IOException {
+        int container = depth - 1;
+        if (container >= 2 && container < MAX_DEPTH && !isArray[1] && "usage".equals(fieldNames[1])) {
+            onUsage(container, token);
+            return;
+        }
+        if (container >= MAX_DEPTH || !inChoice()) {
+            return;
+        }
+        String field = fieldNames[container];
+
+        if (container == 3) {
+            // choices[0].*
+            if ("finish_reason".equals(field)) {
+                finishReason = valueOrNull(token);
+            }
+        } else if (container == 4 && "delta".equals(fieldNames[3])) {
+            // choices[0].delta.*
+            if ("content".equals(field) && token == JsonToken.VALUE_STRING) {
+                if (content == null) {
+                    content = new StringBuilder();
+                }
+                content.append(parser.getText());
+            }
+        } else if (currentFragment != null && container == 6 && inToolCallElement(6)) {
+            // choices[0].delta.tool_calls[i].*
+            switch (field) {
+                case "index" -> currentFragment.index = parser.getValueAsInt();
+                case "id" -> currentFragment.id = valueOrNull(token);
+                case "type" -> currentFragment.type = valueOrNull(token);
+                default -> { }
+            }
+        } else if (currentFragment != null && container == 7 && inToolCallElement(6)
+            && "function".equals(fieldNames[6])) {
+            // choices[0].delta.tool_calls[i].function.*
+            if ("name".equals(field)) {
+                currentFragment.functionName = valueOrNull(token);
+            } else if ("arguments".equals(field) && token == JsonToken.VALUE_STRING) {
+                currentFragment.arguments = parser.getText();
+            }
+        }
+    }
+
+    /**
+     * 处理 usage.* 和 usage.prompt_tokens_details.*
+     */
+    private void onUsage(int container, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_NUMBER_INT || isArray[2]) {
+            return;
+        }
+        if (usage == null) {
+            usage = new LlmResponse.Usage();
+        }
+        int value = parser.getIntValue();
+        if (container == 2) {
+            switch (fieldNames[2]) {
+                case "prompt_tokens" -> usage.setPromptTokens(value);
+                case "completion_tokens" -> usage.setCompletionTokens(value);
+                case "total_tokens" -> usage.setTotalTokens(value);
+                case "prompt_cache_hit_tokens" -> usage.setCachedTokens(value);
+                default -> { }
+            }
+        } else if (container == 3 && "prompt_tokens_details".equals(fieldNames[2])
+            && "cached_tokens".equals(fieldNames[3])) {
+            usage.setCachedTokens(value);
+        }
+    }
+
+    private String valueOrNull(JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    /**
+     * 当前是否位于 choices[0] 内部
+     */
+    private boolean inChoice() {
+        if (depth < 3 || isArray[1] || !"choices".equals(fieldNames[1])
+            || !isArray[2] || arrayIndexes[2] != 0) {
+            return false;
+        }
+        hasChoice = true;
+        return true;
+    }
+
+    /**
+     * 当前是否位于 choices[0].delta 的指定字段下
+     */
+    private boolean inDelta(String field) {
+        return inChoice() && "delta".equals(fieldNames[3]) && field.equals(fieldNames[4]);
+    }
+
+    /**
+     * 指定深度是否为 choices[0].delta.tool_calls 的元素对象
+     */
+    private boolean inToolCallElement(int level) {
+        return level == 6 && inDelta("tool_calls") && isArray[5];
+    }
+
+    private List<ToolCallFragment> toolCallFragments() {
+        if (toolCallFragments == null) {
+            toolCallFragments = new ArrayList<>(1);
+        }
+        return toolCallFragments;
+    }
+
+    /**
+     * 根对象结束：构建 chunk，并把用量放到最后一个 chunk 上
+     */
+    private List<LlmChunk> finishEvent(List<LlmChunk> chunks) {
+        try {
+            if (!hasChoice) {
+                // 没有 choices[0] 的事件（如仅包含 usage 的尾包）不产生新的 chunk，用量放到暂缓的最后一个 chunk 上
+                if (usage != null && pendingFinal != null) {
+                    pendingFinal.setUsage(usage);
+                    chunks = add(chunks, pendingFinal);
+                    pendingFinal = null;
+                }
+                return chunks;
+            }
+
+            int start = chunks != null ? chunks.size() : 0;
+            chunks = buildChunks(chunks);
+
+            // 用量放在本事件的最后一个 chunk 上；最后一个 chunk 还需要等待用量时暂缓输出
+            LlmChunk last = chunks.size() > start ? chunks.get(chunks.size() - 1) : null;
+            if (last != null && usage != null) {
+                last.setUsage(usage);
+            } else if (last != null && last.isDone() && awaitUsage) {
+                pendingFinal = chunks.remove(chunks.size() - 1);
+            }
+            return chunks;
+        } finally {
+            resetEvent();
+        }
+    }
+
+    /**
+     * 合并工具调用增量并构建 chunk
+     *
+     * <p>没有工具调用增量时输出一个 chunk；有增量时每个增量输出一个 chunk，
+     * 内容增量放在第一个，完成原因放在最后一个
+     */
+    private List<LlmChunk> buildChunks(List<LlmChunk> chunks) {
+        boolean done = finishReason != null && !"null".equals(finishReason);
+        String delta = content != null ? content.toString() : null;
+        if (chunks == null) {
+            chunks = new ArrayList<>(2);
+        }
+
+        if (toolCallFragments == null) {
+            chunks.add(LlmChunk.builder()
+                .delta(delta)
+                .toolCalls(done ? remainingToolCalls(null) : null)
+                .finishReason(finishReason)
+                .done(done)
+                .build());
+            return chunks;
+        }
+
+        for (int i = 0; i < toolCallFragments.size(); i++) {
+            ToolCallFragment fragment = toolCallFragments.get(i);
+            ToolCallAccumulator accumulator = accumulators.computeIfAbsent(
+                fragment.index, k -> new ToolCallAccumulator());
+            accumulator.apply(fragment);
+
+            // 参数已构成完整 JSON 时立即输出完整的调用
+            List<ToolCall> completed = null;
+            if (!accumulator.emitted && accumulator.id != null && accumulator.balanced
+                && isValidJson(accumulator.argumentsBuilder)) {
+                accumulator.emitted = true;
+                completed = new ArrayList<>(1);
+                completed.add(accumulator.toToolCall());
+            }
+
+            boolean last = i == toolCallFragments.size() - 1;
+            if (last && done) {
+                completed = remainingToolCalls(completed);
+            }
+
+            chunks.add(LlmChunk.builder()
+                .delta(i == 0 ? delta : null)
+                .toolCallIndex(fragment.index)
+                .toolCallId(accumulator.id)
+                .toolCallFunctionName(fragment.functionName)
+                .toolCallArgumentsDelta(fragment.arguments != null && !fragment.arguments.isEmpty()
+                    ? fragment.arguments : null)
+                .toolCalls(completed)
+                .finishReason(last ? finishReason : null)
+                .done(last && done)
+                .build());
+        }
+        return chunks;
+    }
+
+    private static List<LlmChunk> add(List<LlmChunk> chunks, LlmChunk chunk) {
+        if (chunks == null) {
+            chunks = new ArrayList<>(1);
+        }
+        chunks.add(chunk);
+        return chunks;
+    }
+
+    /**
+     * 流结束时输出尚未输出的工具调用（参数为空或不是合法 JSON 时按原样输出）
+     */
+    private List<ToolCall> remainingToolCalls(List<ToolCall> toolCalls) {
+        for (ToolCallAccumulator accumulator : accumulators.values()) {
+            if (!accumulator.emitted && accumulator.id != null) {
+                accumulator.emitted = true;
+                if (toolCalls == null) {
+                    toolCalls = new ArrayList<>(1);
+                }
+                toolCalls.add(accumulator.toToolCall());
+            }
+        }
+        return toolCalls;
+    }
+
+    /**
+     * 括号已闭合后再做一次完整解析，确认是合法 JSON
+     */
+    private boolean isValidJson(CharSequence json) {
+        try (JsonParser validator = jsonFactory.createParser(json.toString())) {
+            if (validator.nextToken() == null) {
+                return false;
+            }
+            validator.skipChildren();
+            return validator.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void resetEvent() {
+        hasChoice = false;
+        content = null;
+        finishReason = null;
+        toolCallFragments = null;
+        currentFragment = null;
+        usage = null;
+    }
+
+    private void resetParser() {
+        try {
+            if (parser != null) {
+                parser.close();
+            }
+            parser = jsonFactory.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create non-blocking JSON parser", e);
+        }
+        feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        depth = 0;
+        resetEvent();
+    }
+
+    /**
+     * 单个事件中某个工具调用的增量
+     */
+    private static class ToolCallFragment {
+        int index;
+        String id;
+        String type;
+        String functionName;
+        String arguments;
+    }
+
+    /**
+     * 工具调用累积器（跨事件累积）
+     *
+     * <p>参数片段到达时增量扫描括号和字符串，最外层对象闭合时 {@code balanced} 为 true
+     */
+    private static class ToolCallAccumulator {
+        String id;
+        String type;
+        String functionName;
+        StringBuilder argumentsBuilder = new StringBuilder();
+
+        /** 是否已作为完整调用输出 */
+        boolean emitted;
+        /** 最外层 JSON 是否已闭合 */
+        boolean balanced;
+
+        private int nesting;
+        private boolean started;
+        private boolean inString;
+        private boolean escaped;
+
+        void apply(ToolCallFragment fragment) {
+            if (fragment.id != null) {
+                id = fragment.id;
+            }
+            if (fragment.type != null) {
+                type = fragment.type;
+            }
+            if (fragment.functionName != null) {
+                functionName = fragment.functionName;
+            }
+            if (fragment.arguments != null) {
+                argumentsBuilder.append(fragment.arguments);
+                scan(fragment.arguments);
+            }
+        }
+
+        private void scan(String fragment) {
+            for (int i = 0; i < fragment.length(); i++) {
+                char c = fragment.charAt(i);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                    continue;
+                }
+                switch (c) {
+                    case '{', '[' -> {
+                        nesting++;
+                        started = true;
+                        balanced = false;
+                    }
+                    case '}', ']' -> {
+                        nesting--;
+                        balanced = started && nesting == 0;
+                    }
+                    case '"' -> inString = true;
+                    default -> { }
+                }
+            }
+        }
+
+        ToolCall toToolCall() {
+            return ToolCall.builder()
+                .id(id)
+                .type(type)
+                .function(ToolCall.FunctionCall.builder()
+                    .name(functionName)
+                    .arguments(argumentsBuilder.toString())
+                    .build())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.miniclaw.llm.stream;
+
+import com.miniclaw.llm.config.LlmProperties.RetryConfig.StreamResumeMode;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.ToolCall;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 流式重试的续传状态
+ *
+ * <p>记录一次流式调用已经输出给调用方的内容和工具调用增量，
+ * 重试时由 {@link #newAttempt()} 创建的 {@link Attempt} 过滤新一次请求的 chunk：
+ * <ul>
+ *   <li>{@code SUPPRESS_PREFIX} - 新请求会从头生成，跳过与已输出部分相同的前缀；
+ *       前缀不一致（如 temperature 大于 0 时生成结果不同）时抛出 {@code STREAM_DIVERGED}</li>
+ *   <li>{@code CONTINUE} - 新请求带上已输出的 assistant 内容（见 {@link Attempt#getPartialContent()}），
+ *       返回的都是新内容，直接输出；已输出过工具调用增量时退化为 SUPPRESS_PREFIX。
+ *       需要 Provider 支持 assistant 前缀续写，只能按 Provider 开启</li>
+ * </ul>
+ *
+ * <p>工具调用按序号对应，重试后的调用 ID 会改写为首次输出的 ID，已输出过的完整调用不再重复输出
+ *
+ * <p>非线程安全：同一次流式调用的各次尝试是串行订阅的
+ */
+public class StreamResume {
+
+    private final StreamResumeMode mode;
+
+    /**
+     * 已输出的文本内容
+     */
+    private final StringBuilder content = new StringBuilder();
+
+    /**
+     * 已输出的工具调用（按序号）
+     */
+    private final Map<Integer, ToolCallProgress> toolCalls = new TreeMap<>();
+
+    public StreamResume(StreamResumeMode mode) {
+        this.mode = mode != null ? mode : StreamResumeMode.SUPPRESS_PREFIX;
+    }
+
+    /**
+     * 开始一次新的尝试（首次请求和每次重试各调用一次）
+     */
+    public Attempt newAttempt() {
+        boolean continuation = mode == StreamResumeMode.CONTINUE && content.length() > 0 && toolCalls.isEmpty();
+        return new Attempt(continuation ? content.toString() : null);
+    }
+
+    /**
+     * 已输出的文本内容
+     */
+    public String getDeliveredContent() {
+        return content.toString();
+    }
+
+    /**
+     * 单次尝试的过滤游标
+     */
+    public class Attempt {
+
+        private final String partialContent;
+
+        /**
+         * 本次尝试已重放到的内容位置
+         */
+        private int contentOffset;
+
+        /**
+         * 本次尝试各工具调用已重放到的参数位置
+         */
+        private final Map<Integer, Integer> argumentOffsets = new HashMap<>();
+
+        /**
+         * 本次尝试的工具调用 ID → 序号
+         */
+        private final Map<String, Integer> attemptIds = new HashMap<>();
+
+        private Attempt(String partialContent) {
+            this.partialContent = partialContent;
+        }
+
+        /**
+         * 是否为续写请求
+         */
+        public boolean isContinuation() {
+            return partialContent != null;
+        }
+
+        /**
+         * 续写请求需要追加的 assistant 内容（非续写时为 null）
+         */
+        public String getPartialContent() {
+            return partialContent;
+        }
+
+        /**
+         * 过滤 chunk：去掉已输出的部分并记录新输出的部分
+         *
+         * @return 需要输出的 chunk，没有新内容时返回 null
+         * @throws LlmException 重放内容与已输出内容不一致
+         */
+        public LlmChunk apply(LlmChunk chunk) {
+            String delta = isContinuation() ? chunk.getDelta() : replayContent(chunk.getDelta());
+            if (delta != null) {
+                content.append(delta);
+            }
+
+            Integer index = chunk.getToolCallIndex();
+            String toolCallId = chunk.getToolCallId();
+            String functionName = chunk.getToolCallFunctionName();
+            String argumentsDelta = chunk.getToolCallArgumentsDelta();
+            if (index != null) {
+                ToolCallProgress progress = toolCalls.computeIfAbsent(index, k -> new ToolCallProgress());
+                if (toolCallId != null) {
+                    attemptIds.put(toolCallId, index);
+                    if (progress.id == null) {
+                        progress.id = toolCallId;
+                    }
+                    toolCallId = progress.id;
+                }
+                functionName = replayFunctionName(progress, functionName);
+                argumentsDelta = replayArguments(index, progress, argumentsDelta);
+            }
+
+            List<ToolCall> completed = completedToolCalls(chunk.getToolCalls());
+
+            if (delta == null && functionName == null && argumentsDelta == null && completed == null
+                && chunk.getFinishReason() == null && !chunk.isDone() && chunk.getUsage() == null) {
+                return null;
+            }
+            return LlmChunk.builder()
+                .delta(delta)
+                .toolCalls(completed)
+                .finishReason(chunk.getFinishReason())
+                .done(chunk.isDone())
+                .usage(chunk.getUsage())
+                .toolCallIndex(index)
+                .toolCallId(toolCallId)
+                .toolCallFunctionName(functionName)
+                .toolCallArgumentsDelta(argumentsDelta)
+                .build();
+        }
+
+        private String replayContent(String delta) {
+            if (delta == null) {
+                return null;
+            }
+            int skip = skipDelivered(content, contentOffset, delta);
+            contentOffset += delta.length();
+            return skip < delta.length() ? delta.substring(skip) : null;
+        }
+
+        private String replayFunctionName(ToolCallProgress progress, String functionName) {
+            if (functionName == null) {
+                return null;
+            }
+            if (progress.functionName != null) {
+                if (!progress.functionName.equals(functionName)) {
+                    throw diverged();
+                }
+                return null;
+            }
+            progress.functionName = functionName;
+            return functionName;
+        }
+
+        private String replayArguments(Integer index, ToolCallProgress progress, String argumentsDelta) {
+            if (argumentsDelta == null) {
+                return null;
+            }
+            int offset = argumentOffsets.getOrDefault(index, 0);
+            int skip = skipDelivered(progress.arguments, offset, argumentsDelta);
+            argumentOffsets.put(index, offset + argumentsDelta.length());
+            if (skip >= argumentsDelta.length()) {
+                return null;
+            }
+            String rest = argumentsDelta.substring(skip);
+            progress.arguments.append(rest);
+            return rest;
+        }
+
+        /**
+         * 已输出过的完整调用不再输出，其余的改写为首次输出的 ID
+         */
+        private List<ToolCall> completedToolCalls(List<ToolCall> calls) {
+            if (calls == null) {
+                return null;
+            }
+            List<ToolCall> result = null;
+            for (ToolCall call : calls) {
+                Integer index = attemptIds.get(call.getId());
+                ToolCallProgress progress = index != null ? toolCalls.get(index) : null;
+                if (progress != null) {
+                    if (progress.completed) {
+                        continue;
+                    }
+                    progress.completed = true;
+                    call = ToolCall.builder()
+                        .id(progress.id)
+                        .type(call.getType())
+                        .function(call.getFunction())
+                        .build();
+                }
+                if (result == null) {
+                    result = new ArrayList<>(calls.size());
+                }
+                result.add(call);
+            }
+            return result;
+        }
+
+        /**
+         * 计算 fragment 开头有多少字符已经输出过（从 offset 开始与已输出内容比较）
+         */
+        private int skipDelivered(CharSequence delivered, int offset, String fragment) {
+            int overlap = Math.max(0, Math.min(fragment.length(), delivered.length() - offset));
+            for (int i = 0; i < overlap; i++) {
+                if (delivered.charAt(offset + i) != fragment.charAt(i)) {
+                    throw diverged();
+                }
+            }
+            return overlap;
+        }
+    }
+
+    private static LlmException diverged() {
+        return new LlmException("Retried stream diverged from delivered output", "STREAM_DIVERGED");
+    }
+
+    /**
+     * 单个工具调用的已输出状态
+     */
+    private static class ToolCallProgress {
+        String id;
+        String functionName;
+        final StringBuilder arguments = new StringBuilder();
+        boolean completed;
+    }
+}
@@ -0,0 +1,286 @@
+package com.miniclaw.llm.token;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 字节级 BPE 分词器（与 tiktoken 兼容）
+ *
+ * <p>先用预分词正则把文本切成片段，每个片段按 UTF-8 字节做 BPE 合并（每次合并 rank 最小的相邻对），
+ * 整个片段本身就是一个 token 时直接返回
+ *
+ * <p>编码过程只使用线程本地的缓冲区，计数时不产生额外对象（正则匹配除外）
+ *
+ * <p>使用示例：
+ * <pre>
+ * BpeTokenizer tokenizer = BpeTokenizer.load("cl100k_base", inputStream, BpeTokenizer.CL100K_PATTERN);
+ * int count = tokenizer.countTokens("你好，世界");
+ * </pre>
+ */
+public class BpeTokenizer implements Tokenizer {
+
+    /**
+     * cl100k_base 预分词正则
+     */
+    public static final Pattern CL100K_PATTERN = Pattern.compile(
+        "'(?i:[sdmt]|ll|ve|re)|[^\\r\\n\\p{L}\\p{N}]?+\\p{L}++|\\p{N}{1,3}+| ?[^\\s\\p{L}\\p{N}]++[\\r\\n]*+"
+            + "|\\s++\\z|\\s*[\\r\\n]|\\s+(?!\\S)|\\s",
+        Pattern.UNICODE_CHARACTER_CLASS);
+
+    /**
+     * o200k_base 预分词正则
+     */
+    public static final Pattern O200K_PATTERN = Pattern.compile(
+        "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+            + "|[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+            + "|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+        Pattern.UNICODE_CHARACTER_CLASS);
+
+    private static final int MAX_RANK = Integer.MAX_VALUE;
+
+    private final String name;
+    private final Pattern pattern;
+    private final RankTable ranks;
+    private final int vocabularySize;
+    private final ThreadLocal<Scratch> scratch;
+
+    BpeTokenizer(String name, Pattern pattern, RankTable ranks, int vocabularySize) {
+        this.name = name;
+        this.pattern = pattern;
+        this.ranks = ranks;
+        this.vocabularySize = vocabularySize;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(pattern));
+    }
+
+    /**
+     * 从 tiktoken 格式的词表加载（每行 {@code base64(token) rank}）
+     *
+     * @param name 编码名称
+     * @param vocabulary 词表输入流（不会关闭）
+     * @param pattern 预分词正则
+     */
+    public static BpeTokenizer load(String name, InputStream vocabulary, Pattern pattern) throws IOException {
+        RankTable.Builder builder = new RankTable.Builder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(vocabulary, StandardCharsets.US_ASCII));
+        Base64.Decoder decoder = Base64.getDecoder();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                throw new IOException("Malformed vocabulary line " + lineNumber + " in " + name);
+            }
+            try {
+                builder.add(decoder.decode(line.substring(0, space)), Integer.parseInt(line.substring(space + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed vocabulary line " + lineNumber + " in " + name, e);
+            }
+        }
+        return new BpeTokenizer(name, pattern, builder.build(), builder.size());
+    }
+
+    /**
+     * 编码名称对应的预分词正则（未知编码使用 cl100k）
+     */
+    public static Pattern patternFor(String encoding) {
+        return encoding != null && encoding.startsWith("o200k") ? O200K_PATTERN : CL100K_PATTERN;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 词表大小
+     */
+    public int vocabularySize() {
+        return vocabularySize;
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        Scratch s = scratch.get();
+        s.output = null;
+        return process(text, s);
+    }
+
+    /**
+     * 编码为 token rank 序列
+     */
+    public int[] encode(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return new int[0];
+        }
+        Scratch s = scratch.get();
+        s.output = new int[Math.max(16, text.length() / 3)];
+        s.outputSize = 0;
+        process(text, s);
+        int[] result = Arrays.copyOf(s.output, s.outputSize);
+        s.output = null;
+        return result;
+    }
+
+    private int process(CharSequence text, Scratch s) {
+        Matcher matcher = s.matcher.reset(text);
+        int count = 0;
+        try {
+            while (matcher.find()) {
+                int length = s.utf8(text, matcher.start(), matcher.end());
+                count += encodePiece(s, length);
+            }
+        } finally {
+            // 不持有调用方文本的引用
+            matcher.reset("");
+        }
+        return count;
+    }
+
+    /**
+     * 编码单个片段（字节在 scratch.bytes[0, length) 中），返回 token 数
+     */
+    private int encodePiece(Scratch s, int length) {
+        byte[] bytes = s.bytes;
+        int whole = ranks.get(bytes, 0, length);
+        if (whole != RankTable.MISSING) {
+            s.emit(whole);
+            return 1;
+        }
+        if (length == 1) {
+            // 词表缺少单字节 token（不完整的词表），按 1 个 token 计
+            s.emit(MAX_RANK);
+            return 1;
+        }
+
+        // parts[i] 为第 i 段的起始位置，pairRanks[i] 为第 i 段与第 i+1 段合并后的 rank
+        s.ensureParts(length + 1);
+        int[] parts = s.parts;
+        int[] pairRanks = s.pairRanks;
+        int size = length + 1;
+        for (int i = 0; i < size; i++) {
+            parts[i] = i;
+        }
+        for (int i = 0; i < size - 2; i++) {
+            pairRanks[i] = rank(bytes, parts[i], parts[i + 2]);
+        }
+        pairRanks[size - 2] = MAX_RANK;
+        pairRanks[size - 1] = MAX_RANK;
+
+        while (size > 2) {
+            int min = MAX_RANK;
+            int at = -1;
+            for (int i = 0; i < size - 2; i++) {
+                if (pairRanks[i] < min) {
+                    min = pairRanks[i];
+                    at = i;
+                }
+            }
+            if (at < 0) {
+                break;
+            }
+
+            // 合并第 at 段和第 at+1 段：更新 at 和 at-1 的合并 rank，再删除 parts[at+1]
+            pairRanks[at] = at + 3 < size ? rank(bytes, parts[at], parts[at + 3]) : MAX_RANK;
+            if (at > 0) {
+                pairRanks[at - 1] = rank(bytes, parts[at - 1], parts[at + 2]);
+            }
+            System.arraycopy(parts, at + 2, parts, at + 1, size - at - 2);
+            System.arraycopy(pairRanks, at + 2, pairRanks, at + 1, size - at - 2);
+            size--;
+        }
+
+        if (s.output != null) {
+            for (int i = 0; i < size - 1; i++) {
+                int rank = ranks.get(bytes, parts[i], parts[i + 1] - parts[i]);
+                s.emit(rank != RankTable.MISSING ? rank : MAX_RANK);
+            }
+        }
+        return size - 1;
+    }
+
+    private int rank(byte[] bytes, int start, int end) {
+        int rank = ranks.get(bytes, start, end - start);
+        return rank != RankTable.MISSING ? rank : MAX_RANK;
+    }
+
+    /**
+     * 线程本地缓冲区
+     */
+    private static final class Scratch {
+        final Matcher matcher;
+        byte[] bytes = new byte[256];
+        int[] parts = new int[256];
+        int[] pairRanks = new int[256];
+        int[] output;
+        int outputSize;
+
+        Scratch(Pattern pattern) {
+            this.matcher = pattern.matcher("");
+        }
+
+        void ensureParts(int size) {
+            if (parts.length < size) {
+                parts = new int[size];
+                pairRanks = new int[size];
+            }
+        }
+
+        void emit(int rank) {
+            if (output == null) {
+                return;
+            }
+            if (outputSize == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            output[outputSize++] = rank;
+        }
+
+        /**
+         * 把 text[start, end) 按 UTF-8 编码到 bytes，返回字节数（不成对的代理项编码为 '?'，与 String.getBytes 一致）
+         */
+        int utf8(CharSequence text, int start, int end) {
+            int required = (end - start) * 3;
+            if (bytes.length < required) {
+                bytes = new byte[Math.max(required, bytes.length * 2)];
+            }
+            byte[] b = bytes;
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    b[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    b[n++] = (byte) (0xC0 | (c >> 6));
+                    b[n++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    b[n++] = (byte) (0xF0 | (cp >> 18));
+                    b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    b[n++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    b[n++] = '?';
+                } else {
+                    b[n++] = (byte) (0xE0 | (c >> 12));
+                    b[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    b[n++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.miniclaw.llm.token;
+
+/**
+ * 按字符估算的分词器（词表不可用时使用）
+ *
+ * <p>中日韩字符按每个 1 个 token 计，其余字符按每 4 个 1 个 token 计
+ */
+public class EstimatingTokenizer implements Tokenizer {
+
+    private final String name;
+
+    public EstimatingTokenizer(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int wide = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isWide(c)) {
+                wide++;
+            } else {
+                other++;
+            }
+        }
+        return wide + (other + 3) / 4;
+    }
+
+    @Override
+    public boolean isExact() {
+        return false;
+    }
+
+    /**
+     * CJK 统一表意文字、假名、谚文和全角标点
+     */
+    private static boolean isWide(char c) {
+        return (c >= '\u3000' && c <= '\u9fff') || (c >= '\uac00' && c <= '\ud7af') || (c >= '\uff00' && c <= '\uffef');
+    }
+}
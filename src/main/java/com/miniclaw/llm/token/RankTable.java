@@ -0,0 +1,108 @@
+package com.miniclaw.llm.token;
+
+import java.util.Arrays;
+
+/**
+ * 字节序列 → rank 的只读哈希表
+ *
+ * <p>所有 token 的字节连续存放在一个数组中，开放寻址；
+ * 查询直接比较调用方缓冲区中的片段，不创建 Key 对象
+ */
+final class RankTable {
+
+    static final int MISSING = -1;
+
+    private final byte[] pool;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] ranks;
+
+    /**
+     * 槽位中存放条目下标 + 1（0 表示空）
+     */
+    private final int[] slots;
+    private final int mask;
+
+    private RankTable(byte[] pool, int[] offsets, int[] lengths, int[] ranks, int size) {
+        this.pool = pool;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.ranks = ranks;
+
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(pool, offsets[i], lengths[i]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * 查询字节片段的 rank
+     *
+     * @return rank，不存在返回 {@link #MISSING}
+     */
+    int get(byte[] bytes, int offset, int length) {
+        int slot = hash(bytes, offset, length) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int index = entry - 1;
+            if (lengths[index] == length
+                && Arrays.equals(pool, offsets[index], offsets[index] + length, bytes, offset, offset + length)) {
+                return ranks[index];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 构建器
+     */
+    static final class Builder {
+        private byte[] pool = new byte[1 << 16];
+        private int poolSize;
+        private int[] offsets = new int[1024];
+        private int[] lengths = new int[1024];
+        private int[] ranks = new int[1024];
+        private int size;
+
+        Builder add(byte[] token, int rank) {
+            if (poolSize + token.length > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + token.length));
+            }
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                ranks = Arrays.copyOf(ranks, size * 2);
+            }
+            System.arraycopy(token, 0, pool, poolSize, token.length);
+            offsets[size] = poolSize;
+            lengths[size] = token.length;
+            ranks[size] = rank;
+            poolSize += token.length;
+            size++;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        RankTable build() {
+            return new RankTable(Arrays.copyOf(pool, poolSize), offsets, lengths, ranks, size);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.miniclaw.llm.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.ToolCall;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prompt token 计数服务
+ *
+ * <p>按模型选择编码（模型名前缀匹配 {@code model-encodings}），词表在第一次使用时加载；
+ * 每段文本的 token 数按 (编码, 文本) 缓存，Agent 循环中重复发送的消息只计算一次
+ *
+ * <p>消息的 token 数按 OpenAI 的计算方式：每条消息额外 3 个 token，整个请求再加 3 个（回复起始）
+ *
+ * <p>指标前缀：{@code cache.*{cache=llm.token.count}}
+ */
+@Slf4j
+public class TokenCounter {
+
+    /**
+     * 每条消息的格式开销
+     */
+    public static final int TOKENS_PER_MESSAGE = 3;
+
+    /**
+     * 回复起始的开销（{@code <|start|>assistant<|message|>}）
+     */
+    public static final int TOKENS_PER_REPLY = 3;
+
+    private static final String CACHE_NAME = "llm.token.count";
+
+    private final LlmProperties.TokenizerConfig config;
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+    private final Map<String, Tokenizer> tokenizers = new ConcurrentHashMap<>();
+    private final Map<String, String> modelEncodings = new ConcurrentHashMap<>();
+    private final Cache<TextKey, Integer> counts;
+
+    public TokenCounter(LlmProperties.TokenizerConfig config, MeterRegistry meterRegistry) {
+        this.config = config != null ? config : new LlmProperties.TokenizerConfig();
+        this.counts = Caffeine.newBuilder()
+            .maximumSize(Math.max(this.config.getCacheMaxEntries(), 0))
+            .recordStats()
+            .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, counts, CACHE_NAME);
+        }
+    }
+
+    /**
+     * 获取模型使用的分词器（null 使用默认编码）
+     */
+    public Tokenizer tokenizer(String model) {
+        return tokenizers.computeIfAbsent(encoding(model), this::load);
+    }
+
+    /**
+     * 注册分词器（替换按配置加载的词表，主要用于测试）
+     */
+    public void register(Tokenizer tokenizer) {
+        tokenizers.put(tokenizer.name(), tokenizer);
+        counts.invalidateAll();
+    }
+
+    /**
+     * 计算文本的 token 数（默认编码）
+     */
+    public int count(String text) {
+        return count(null, text);
+    }
+
+    /**
+     * 计算文本的 token 数
+     *
+     * @param model 模型（决定编码，null 使用默认编码）
+     * @param text 文本
+     */
+    public int count(String model, String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        Tokenizer tokenizer = tokenizer(model);
+        return counts.get(new TextKey(tokenizer.name(), text), key -> tokenizer.countTokens(key.text()));
+    }
+
+    /**
+     * 计算单条消息的 token 数（含格式开销和工具调用）
+     */
+    public int count(String model, LlmRequest.Message message) {
+        int tokens = TOKENS_PER_MESSAGE + count(model, message.getRole()) + count(model, message.getContent());
+        if (message.getToolCalls() != null) {
+            for (ToolCall toolCall : message.getToolCalls()) {
+                if (toolCall.getFunction() != null) {
+                    tokens += count(model, toolCall.getFunction().getName())
+                        + count(model, toolCall.getFunction().getArguments());
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 计算整个消息列表的 prompt token 数（含回复起始开销）
+     */
+    public int count(String model, List<LlmRequest.Message> messages) {
+        int tokens = TOKENS_PER_REPLY;
+        if (messages != null) {
+            for (LlmRequest.Message message : messages) {
+                tokens += count(model, message);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 模型对应的编码名称（最长前缀匹配）
+     */
+    public String encoding(String model) {
+        if (model == null) {
+            return config.getDefaultEncoding();
+        }
+        return modelEncodings.computeIfAbsent(model, m -> {
+            String match = null;
+            int matchLength = -1;
+            for (Map.Entry<String, String> entry : config.getModelEncodings().entrySet()) {
+                if (m.startsWith(entry.getKey()) && entry.getKey().length() > matchLength) {
+                    match = entry.getValue();
+                    matchLength = entry.getKey().length();
+                }
+            }
+            return match != null ? match : config.getDefaultEncoding();
+        });
+    }
+
+    /**
+     * 加载编码的词表，不可用时退化为估算
+     */
+    private Tokenizer load(String encoding) {
+        String location = config.getEncodings().get(encoding);
+        if (location == null) {
+            log.info("Tokenizer vocabulary not configured, using estimation: encoding={}", encoding);
+            return new EstimatingTokenizer(encoding);
+        }
+        Resource resource = resourceLoader.getResource(location);
+        if (resource.exists()) {
+            try (InputStream in = resource.getInputStream()) {
+                BpeTokenizer tokenizer = BpeTokenizer.load(encoding, in, BpeTokenizer.patternFor(encoding));
+                log.info("Tokenizer loaded: encoding={}, vocabulary={}", encoding, tokenizer.vocabularySize());
+                return tokenizer;
+            } catch (IOException e) {
+                log.warn("Failed to load tokenizer vocabulary: encoding={}, location={}", encoding, location, e);
+            }
+        }
+        log.warn("Tokenizer vocabulary not available, falling back to estimation: encoding={}, location={}",
+            encoding, location);
+        return new EstimatingTokenizer(encoding);
+    }
+
+    /**
+     * 缓存 Key
+     */
+    private record TextKey(String encoding, String text) {
+    }
+}
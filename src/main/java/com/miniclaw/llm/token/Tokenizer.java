@@ -0,0 +1,27 @@
+package com.miniclaw.llm.token;
+
+/**
+ * 分词器
+ */
+public interface Tokenizer {
+
+    /**
+     * 编码名称（如 cl100k_base）
+     */
+    String name();
+
+    /**
+     * 计算文本的 token 数
+     *
+     * @param text 文本（null 视为空）
+     * @return token 数
+     */
+    int countTokens(CharSequence text);
+
+    /**
+     * 是否为精确计数（基于词表），false 表示按字符估算
+     */
+    default boolean isExact() {
+        return true;
+    }
+}
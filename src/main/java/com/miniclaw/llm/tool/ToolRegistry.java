@@ -0,0 +1,264 @@
+package com.miniclaw.llm.tool;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.miniclaw.llm.exception.LlmException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 工具定义注册表
+ *
+ * <p>每个工具的定义（OpenAI Function Calling 格式）只注册一次：注册时校验名称和参数 JSON Schema，
+ * 并按键排序编码为 JSON 字节缓存。请求通过 {@code LlmRequest.toolNames} 按名称引用工具，
+ * 发送时直接拼接缓存的字节，不再每次构建和序列化嵌套的 Map
+ *
+ * <p>使用示例：
+ * <pre>
+ * client.getToolRegistry().register("get_weather", "查询城市天气", Map.of(
+ *     "type", "object",
+ *     "properties", Map.of("city", Map.of("type", "string")),
+ *     "required", List.of("city")));
+ *
+ * LlmRequest request = LlmRequest.builder()
+ *     .messages(messages)
+ *     .toolNames(List.of("get_weather"))
+ *     .build();
+ * </pre>
+ *
+ * <p>同名工具重新注册会替换旧的定义
+ */
+@Slf4j
+public class ToolRegistry {
+
+    /**
+     * OpenAI 对函数名的限制
+     */
+    private static final Pattern NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_-]{1,64}$");
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter sortedWriter;
+    private final Map<String, RegisteredTool> tools = new ConcurrentHashMap<>();
+
+    public ToolRegistry(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.sortedWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    /**
+     * 注册工具
+     *
+     * @param name 函数名
+     * @param description 函数描述（可选）
+     * @param parameters 参数 JSON Schema（可选，须为 object 类型）
+     * @return 注册结果
+     * @throws LlmException 定义不合法
+     */
+    public RegisteredTool register(String name, String description, Map<String, Object> parameters) {
+        Map<String, Object> function = new LinkedHashMap<>();
+        function.put("name", name);
+        if (description != null) {
+            function.put("description", description);
+        }
+        if (parameters != null) {
+            function.put("parameters", parameters);
+        }
+        Map<String, Object> definition = new LinkedHashMap<>();
+        definition.put("type", "function");
+        definition.put("function", function);
+        return register(definition);
+    }
+
+    /**
+     * 注册 JSON 格式的工具定义（{@code {"type":"function","function":{...}}}）
+     *
+     * @throws LlmException JSON 或定义不合法
+     */
+    public RegisteredTool register(String json) {
+        try {
+            return register(objectMapper.readValue(json, new TypeReference<Map<String, Object>>() { }));
+        } catch (JsonProcessingException e) {
+            throw new LlmException("Invalid tool definition JSON: " + e.getOriginalMessage(), "INVALID_TOOL", e);
+        }
+    }
+
+    /**
+     * 注册 Map 格式的工具定义（{@code {"type":"function","function":{...}}}）
+     *
+     * @throws LlmException 定义不合法
+     */
+    public RegisteredTool register(Map<String, Object> definition) {
+        String name = validate(definition);
+        byte[] encoded;
+        try {
+            encoded = sortedWriter.writeValueAsBytes(definition);
+        } catch (JsonProcessingException e) {
+            throw new LlmException("Failed to encode tool: " + name, "INVALID_TOOL", e);
+        }
+
+        RegisteredTool tool = new RegisteredTool(name, definition, encoded);
+        if (tools.put(name, tool) != null) {
+            log.info("Tool definition replaced: name={}", name);
+        }
+        return tool;
+    }
+
+    /**
+     * 注销工具
+     *
+     * @return true 如果工具存在
+     */
+    public boolean unregister(String name) {
+        return tools.remove(name) != null;
+    }
+
+    /**
+     * 获取已注册的工具（不存在返回 null）
+     */
+    public RegisteredTool get(String name) {
+        return tools.get(name);
+    }
+
+    /**
+     * 已注册的工具名称（按名称排序）
+     */
+    public Set<String> names() {
+        return new TreeSet<>(tools.keySet());
+    }
+
+    /**
+     * 按名称获取工具的编码结果（保持给定顺序）
+     *
+     * @throws LlmException 存在未注册的工具
+     */
+    public List<byte[]> resolve(List<String> names) {
+        List<byte[]> encoded = new ArrayList<>(names.size());
+        for (String name : names) {
+            RegisteredTool tool = tools.get(name);
+            if (tool == null) {
+                throw new LlmException("Unknown tool: " + name, "UNKNOWN_TOOL");
+            }
+            encoded.add(tool.encoded());
+        }
+        return encoded;
+    }
+
+    /**
+     * 合并内联工具和已注册工具，按函数名排序后返回编码结果（稳定前缀布局）
+     *
+     * <p>内联工具按键排序编码（不校验），工具块的字节与调用方的 Map 和列表顺序无关；
+     * 同名工具保持给定顺序（内联在前）
+     *
+     * @param inlineTools 内联工具定义（可为 null）
+     * @param names 已注册工具的名称（可为 null）
+     * @throws LlmException 存在未注册的工具或内联工具无法编码
+     */
+    public List<byte[]> resolveSorted(List<Map<String, Object>> inlineTools, List<String> names) {
+        List<RegisteredTool> merged = new ArrayList<>();
+        if (inlineTools != null) {
+            for (Map<String, Object> definition : inlineTools) {
+                String name = functionName(definition);
+                try {
+                    merged.add(new RegisteredTool(name, definition, sortedWriter.writeValueAsBytes(definition)));
+                } catch (JsonProcessingException e) {
+                    throw new LlmException("Failed to encode tool: " + name, "INVALID_TOOL", e);
+                }
+            }
+        }
+        if (names != null) {
+            for (String name : names) {
+                RegisteredTool tool = tools.get(name);
+                if (tool == null) {
+                    throw new LlmException("Unknown tool: " + name, "UNKNOWN_TOOL");
+                }
+                merged.add(tool);
+            }
+        }
+        merged.sort(Comparator.comparing(RegisteredTool::name));
+
+        List<byte[]> encoded = new ArrayList<>(merged.size());
+        for (RegisteredTool tool : merged) {
+            encoded.add(tool.encoded());
+        }
+        return encoded;
+    }
+
+    /**
+     * 内联工具的函数名（缺失时为空字符串）
+     */
+    private static String functionName(Map<String, Object> definition) {
+        return definition.get("function") instanceof Map<?, ?> function && function.get("name") instanceof String name
+            ? name : "";
+    }
+
+    /**
+     * 校验工具定义，返回函数名
+     */
+    private String validate(Map<String, Object> definition) {
+        if (definition == null || !"function".equals(definition.get("type"))) {
+            throw invalid("tool type must be 'function'");
+        }
+        if (!(definition.get("function") instanceof Map<?, ?> function)) {
+            throw invalid("missing 'function' object");
+        }
+        if (!(function.get("name") instanceof String name) || !NAME_PATTERN.matcher(name).matches()) {
+            throw invalid("function name must match " + NAME_PATTERN.pattern());
+        }
+        if (function.get("description") != null && !(function.get("description") instanceof String)) {
+            throw invalid(name + ": description must be a string");
+        }
+
+        Object parameters = function.get("parameters");
+        if (parameters == null) {
+            return name;
+        }
+        if (!(parameters instanceof Map<?, ?> schema)) {
+            throw invalid(name + ": parameters must be a JSON Schema object");
+        }
+        if (schema.get("type") != null && !"object".equals(schema.get("type"))) {
+            throw invalid(name + ": parameters type must be 'object'");
+        }
+        Object properties = schema.get("properties");
+        if (properties != null && !(properties instanceof Map)) {
+            throw invalid(name + ": parameters.properties must be an object");
+        }
+        Object required = schema.get("required");
+        if (required != null) {
+            if (!(required instanceof List<?> fields)) {
+                throw invalid(name + ": parameters.required must be an array");
+            }
+            for (Object field : fields) {
+                if (!(field instanceof String) || properties == null || !((Map<?, ?>) properties).containsKey(field)) {
+                    throw invalid(name + ": required field '" + field + "' is not declared in properties");
+                }
+            }
+        }
+        return name;
+    }
+
+    private static LlmException invalid(String reason) {
+        return new LlmException("Invalid tool definition: " + reason, "INVALID_TOOL");
+    }
+
+    /**
+     * 已注册的工具
+     *
+     * @param name 函数名
+     * @param definition 原始定义
+     * @param encoded 编码后的 JSON 字节（按键排序，调用方不能修改）
+     */
+    public record RegisteredTool(String name, Map<String, Object> definition, byte[] encoded) {
+    }
+}
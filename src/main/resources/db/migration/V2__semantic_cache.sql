@@ -0,0 +1,50 @@
+-- V2__semantic_cache.sql
+-- LLM 语义缓存表
+--
+-- 存储问题向量和对应的回答，新问题与已有问题的余弦距离足够小时直接复用回答
+-- 向量维度与默认向量模型 text-embedding-3-small 一致（1536）
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+-- ============================================
+-- llm_semantic_cache 表：语义缓存
+-- ============================================
+CREATE TABLE llm_semantic_cache (
+    -- 主键
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+
+    -- 使用的模型（不同模型的回答不共享）
+    model VARCHAR(100) NOT NULL,
+
+    -- 作用域哈希（模型 + 系统提示的 SHA-256，不同系统提示的回答不共享）
+    scope_hash VARCHAR(64) NOT NULL,
+
+    -- 原始问题
+    prompt TEXT NOT NULL,
+
+    -- 问题向量
+    embedding vector(1536) NOT NULL,
+
+    -- 缓存的回答（LlmResponse JSON）
+    response JSONB NOT NULL,
+
+    -- 命中次数
+    hit_count INTEGER NOT NULL DEFAULT 0,
+
+    -- 时间戳
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_hit_at TIMESTAMP,
+    expires_at TIMESTAMP
+);
+
+-- 索引：HNSW 近似最近邻（余弦距离）
+CREATE INDEX idx_llm_semantic_cache_embedding ON llm_semantic_cache
+    USING hnsw (embedding vector_cosine_ops);
+CREATE INDEX idx_llm_semantic_cache_scope_hash ON llm_semantic_cache(scope_hash);
+CREATE INDEX idx_llm_semantic_cache_expires_at ON llm_semantic_cache(expires_at);
+
+-- 注释
+COMMENT ON TABLE llm_semantic_cache IS 'LLM 语义缓存表：相似问题复用回答';
+COMMENT ON COLUMN llm_semantic_cache.scope_hash IS '作用域哈希（模型 + 系统提示）';
+COMMENT ON COLUMN llm_semantic_cache.embedding IS '问题向量（pgvector）';
+COMMENT ON COLUMN llm_semantic_cache.response IS '缓存的回答（JSON 格式）';
@@ -0,0 +1,8 @@
+-- V3__run_metadata.sql
+-- 为执行记录增加扩展元数据
+--
+-- 记录执行过程中的统计信息，例如上下文压缩节省的 token 数（context_tokens_saved）和压缩次数（context_compactions）
+
+ALTER TABLE runs ADD COLUMN metadata JSONB NOT NULL DEFAULT '{}'::jsonb;
+
+COMMENT ON COLUMN runs.metadata IS '扩展元数据（JSON 格式），包含上下文压缩统计等';
@@ -0,0 +1,173 @@
+package com.miniclaw.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.BatchOptions;
+import com.miniclaw.llm.model.BatchResult;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import com.miniclaw.llm.resilience.ConcurrencyLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量调用测试
+ */
+class OpenAiCompatibleLlmClientBatchTest {
+
+    private LlmProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProperties();
+
+        LlmProperties.ProviderConfig openai = new LlmProperties.ProviderConfig();
+        openai.setEndpoint("https://api.openai.com/v1");
+        openai.setApiKey("test-key");
+        openai.setModels(List.of("gpt-4"));
+        openai.setMaxConcurrency(4);
+
+        properties.getProviders().put("openai", openai);
+        properties.setDefaultProvider("openai");
+    }
+
+    @Test
+    void testResultsInOrderWithAggregateUsage() {
+        OpenAiCompatibleLlmClient client = new StubClient(properties);
+
+        List<BatchResult> results = client.chatBatch(requests(10), BatchOptions.defaults())
+            .collectList()
+            .block();
+
+        assertNotNull(results);
+        assertEquals(10, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertEquals("answer-" + i, results.get(i).getResponse().getContent());
+        }
+
+        // 最后一个结果携带整批汇总
+        LlmResponse.Usage total = results.get(9).getAggregateUsage();
+        assertEquals(10, total.getPromptTokens());
+        assertEquals(20, total.getCompletionTokens());
+        assertEquals(30, total.getTotalTokens());
+    }
+
+    @Test
+    void testConcurrencyCappedByProvider() {
+        OpenAiCompatibleLlmClient client = new StubClient(properties);
+
+        client.chatBatch(requests(20), BatchOptions.builder().concurrency(100).build())
+            .blockLast();
+
+        assertTrue(maxInFlight.get() <= 4, "max in flight: " + maxInFlight.get());
+    }
+
+    @Test
+    void testConcurrentBatchesShareProviderLimit() {
+        OpenAiCompatibleLlmClient client = new StubClient(properties);
+
+        Flux.merge(
+                client.chatBatch(requests(20), BatchOptions.defaults()),
+                client.chatBatch(requests(20), BatchOptions.defaults()),
+                client.chatBatch(requests(20), BatchOptions.defaults()))
+            .blockLast();
+
+        assertTrue(maxInFlight.get() <= 4, "max in flight: " + maxInFlight.get());
+        assertEquals(0, client.concurrencyLimiter("openai").getInFlight());
+    }
+
+    @Test
+    void testInteractiveCallsReduceBatchCapacity() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+        limiter.enter();
+        limiter.enter();
+
+        AtomicInteger started = new AtomicInteger();
+        Mono<Integer> queued = limiter.withPermit(Mono.fromCallable(started::incrementAndGet));
+        Disposable subscription = queued.subscribe();
+        assertEquals(0, started.get());
+        assertEquals(1, limiter.getWaiting());
+
+        // 交互式调用结束后，排队的批量请求拿到许可
+        limiter.release();
+        assertEquals(1, started.get());
+        assertEquals(1, limiter.getInFlight());
+
+        // 排队中取消不占用许可
+        limiter.enter();
+        limiter.withPermit(Mono.fromCallable(started::incrementAndGet)).subscribe().dispose();
+        assertEquals(0, limiter.getWaiting());
+        limiter.release();
+        assertEquals(1, limiter.getInFlight());
+        subscription.dispose();
+    }
+
+    @Test
+    void testFailureIsolatedPerItem() {
+        OpenAiCompatibleLlmClient client = new StubClient(properties);
+
+        List<LlmRequest> requests = requests(5);
+        requests.get(2).setModel("broken");
+
+        List<BatchResult> results = client.chatBatch(requests, null).collectList().block();
+
+        assertNotNull(results);
+        assertEquals(5, results.size());
+        assertFalse(results.get(2).isSuccess());
+        assertInstanceOf(LlmException.class, results.get(2).getError());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(12, results.get(4).getAggregateUsage().getTotalTokens());
+    }
+
+    private List<LlmRequest> requests(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> LlmRequest.builder()
+                .messages(List.of(LlmRequest.Message.user(String.valueOf(i))))
+                .build())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 替换网络调用的测试客户端
+     */
+    private class StubClient extends OpenAiCompatibleLlmClient {
+
+        StubClient(LlmProperties properties) {
+            super(properties, new ObjectMapper());
+        }
+
+        @Override
+        public Mono<LlmResponse> chatAsync(LlmRequest request, String providerId) {
+            if ("broken".equals(request.getModel())) {
+                return Mono.error(new LlmException("boom"));
+            }
+            String input = request.getMessages().get(0).getContent();
+            return Mono.delay(Duration.ofMillis(5))
+                .doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .doOnNext(tick -> inFlight.decrementAndGet())
+                .map(tick -> LlmResponse.builder()
+                    .content("answer-" + input)
+                    .usage(LlmResponse.Usage.builder()
+                        .promptTokens(1)
+                        .completionTokens(2)
+                        .totalTokens(3)
+                        .build())
+                    .build());
+        }
+    }
+}
@@ -13,6 +13,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.util.List;
 
@@ -84,6 +86,20 @@ class OpenAiCompatibleLlmClientTest {
         });
     }
 
+    @Test
+    void testChatAsyncWithoutProvider() {
+        OpenAiCompatibleLlmClient emptyClient = new OpenAiCompatibleLlmClient(new LlmProperties(), objectMapper);
+
+        // 组装阶段不应抛出异常，订阅后以 LlmException 结束
+        Mono<LlmResponse> response = emptyClient.chatAsync(LlmRequest.builder()
+            .messages(List.of(LlmRequest.Message.user("test")))
+            .build());
+
+        StepVerifier.create(response)
+            .expectError(LlmException.class)
+            .verify();
+    }
+
     @Test
     void testStreamReturnsFlux() {
         LlmRequest request = LlmRequest.builder()
@@ -95,6 +111,18 @@ class OpenAiCompatibleLlmClientTest {
         assertNotNull(stream);
     }
 
+    @Test
+    void testSystemFirstMovesSystemMessagesToFront() {
+        List<LlmRequest.Message> ordered = List.of(
+            LlmRequest.Message.system("a"), LlmRequest.Message.user("q"), LlmRequest.Message.assistant("r"));
+        assertSame(ordered, OpenAiCompatibleLlmClient.systemFirst(ordered));
+
+        List<LlmRequest.Message> moved = OpenAiCompatibleLlmClient.systemFirst(List.of(
+            LlmRequest.Message.system("a"), LlmRequest.Message.user("q"),
+            LlmRequest.Message.system("b"), LlmRequest.Message.assistant("r")));
+        assertEquals(List.of("a", "b", "q", "r"), moved.stream().map(LlmRequest.Message::getContent).toList());
+    }
+
     @Test
     void testPropertiesDefaultValues() {
         LlmProperties props = new LlmProperties();
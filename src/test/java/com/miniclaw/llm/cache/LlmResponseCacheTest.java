@@ -0,0 +1,137 @@
+package com.miniclaw.llm.cache;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import com.miniclaw.llm.model.ToolCall;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LlmResponseCache 测试类
+ */
+class LlmResponseCacheTest {
+
+    @Test
+    void testIsCacheable() {
+        LlmRequest request = LlmRequest.builder()
+            .messages(List.of(LlmRequest.Message.user("hi")))
+            .build();
+
+        assertTrue(LlmResponseCache.isCacheable(request, 0.0));
+        assertFalse(LlmResponseCache.isCacheable(request, 0.7));
+        assertFalse(LlmResponseCache.isCacheable(request, null));
+
+        request.setTools(List.of(Map.of("type", "function")));
+        assertFalse(LlmResponseCache.isCacheable(request, 0.0));
+    }
+
+    @Test
+    void testPutAndGet() {
+        LlmResponseCache cache = new LlmResponseCache(new LlmProperties.CacheConfig(), null);
+
+        cache.putResponse("k1", LlmResponse.builder().content("answer").build());
+        cache.putChunks("k2", List.of(
+            LlmChunk.builder().delta("a").build(),
+            LlmChunk.builder().finishReason("stop").done(true).build()));
+
+        assertEquals("answer", cache.getResponse("k1").getContent());
+        assertNull(cache.getChunks("k1"));
+        assertEquals(2, cache.getChunks("k2").size());
+        assertNull(cache.getResponse("missing"));
+    }
+
+    @Test
+    void testReturnedValuesAreCopies() {
+        LlmResponseCache cache = new LlmResponseCache(new LlmProperties.CacheConfig(), null);
+        LlmResponse stored = LlmResponse.builder()
+            .content("answer")
+            .toolCalls(new ArrayList<>(List.of(ToolCall.builder()
+                .id("call_1")
+                .function(ToolCall.FunctionCall.builder().name("search").arguments("{}").build())
+                .build())))
+            .usage(LlmResponse.Usage.builder().totalTokens(10).build())
+            .build();
+        cache.putResponse("k1", stored);
+        cache.putChunks("k2", List.of(LlmChunk.builder().delta("a").build()));
+
+        // 修改写入的对象和返回的对象都不影响之后的命中
+        stored.setContent("changed by producer");
+        LlmResponse hit = cache.getResponse("k1");
+        hit.setContent("changed");
+        hit.getToolCalls().get(0).getFunction().setArguments("{\"q\":1}");
+        hit.getUsage().setTotalTokens(0);
+        cache.getChunks("k2").get(0).setDelta("b");
+
+        LlmResponse next = cache.getResponse("k1");
+        assertEquals("answer", next.getContent());
+        assertEquals("{}", next.getToolCalls().get(0).getFunction().getArguments());
+        assertEquals(10, next.getUsage().getTotalTokens());
+        assertEquals("a", cache.getChunks("k2").get(0).getDelta());
+    }
+
+    @Test
+    void testEntryBound() {
+        LlmProperties.CacheConfig config = new LlmProperties.CacheConfig();
+        config.setMaxEntries(5);
+
+        LlmResponseCache cache = new LlmResponseCache(config, null);
+        for (int i = 0; i < 100; i++) {
+            cache.putResponse("k" + i, LlmResponse.builder().content("v" + i).build());
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.size() <= 5, "size: " + cache.size());
+    }
+
+    @Test
+    void testByteBound() {
+        LlmProperties.CacheConfig config = new LlmProperties.CacheConfig();
+        config.setMaxEntries(1000);
+        config.setMaxBytes(10_000L);
+
+        LlmResponseCache cache = new LlmResponseCache(config, null);
+        String large = "x".repeat(2_000);
+        for (int i = 0; i < 20; i++) {
+            cache.putResponse("k" + i, LlmResponse.builder().content(large).build());
+        }
+        cache.cleanUp();
+
+        // 每条约 4KB，10KB 上限最多容纳 2 条
+        assertTrue(cache.size() <= 2, "size: " + cache.size());
+    }
+
+    @Test
+    void testPerEntryTtl() throws InterruptedException {
+        LlmResponseCache cache = new LlmResponseCache(new LlmProperties.CacheConfig(), null);
+
+        cache.putResponse("short", LlmResponse.builder().content("a").build(), Duration.ofMillis(10));
+        cache.putResponse("long", LlmResponse.builder().content("b").build());
+
+        Thread.sleep(50);
+
+        assertNull(cache.getResponse("short"));
+        assertNotNull(cache.getResponse("long"));
+    }
+
+    @Test
+    void testMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmResponseCache cache = new LlmResponseCache(new LlmProperties.CacheConfig(), registry);
+
+        cache.putResponse("k", LlmResponse.builder().content("v").build());
+        cache.getResponse("k");
+        cache.getResponse("missing");
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+}
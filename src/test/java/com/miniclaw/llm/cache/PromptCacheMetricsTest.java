@@ -0,0 +1,44 @@
+package com.miniclaw.llm.cache;
+
+import com.miniclaw.llm.model.LlmResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptCacheMetrics 测试类
+ */
+class PromptCacheMetricsTest {
+
+    @Test
+    void testHitRatioPerProvider() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PromptCacheMetrics metrics = new PromptCacheMetrics(registry);
+
+        metrics.record("openai", usage(1000, 0));
+        metrics.record("openai", usage(1000, 800));
+        metrics.record("deepseek", usage(500, 500));
+
+        assertEquals(0.4, metrics.hitRatio("openai"), 1e-9);
+        assertEquals(1.0, metrics.hitRatio("deepseek"), 1e-9);
+        assertEquals(0.0, metrics.hitRatio("unknown"));
+        assertEquals(2000.0, registry.get("llm.prompt.tokens").tag("provider", "openai").counter().count());
+        assertEquals(800.0, registry.get("llm.prompt.tokens.cached").tag("provider", "openai").counter().count());
+        assertEquals(0.4, registry.get("llm.prompt.cache.hit.ratio").tag("provider", "openai").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void testUsageWithoutCachedTokensIgnored() {
+        PromptCacheMetrics metrics = new PromptCacheMetrics(new SimpleMeterRegistry());
+
+        metrics.record("openai", null);
+        metrics.record("openai", LlmResponse.Usage.builder().promptTokens(100).build());
+
+        assertEquals(0.0, metrics.hitRatio("openai"));
+    }
+
+    private static LlmResponse.Usage usage(int prompt, int cached) {
+        return LlmResponse.Usage.builder().promptTokens(prompt).cachedTokens(cached).build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.miniclaw.llm.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RequestCoalescer 测试类
+ */
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(registry);
+
+    @Test
+    void testConcurrentCallsShareUpstream() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            coalescer.coalesce("key", () -> {
+                upstreamCalls.incrementAndGet();
+                return upstream.asMono();
+            }).subscribe(results::add);
+        }
+
+        upstream.tryEmitValue("answer");
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(List.of("answer", "answer", "answer", "answer", "answer"), results);
+        assertEquals(4.0, registry.get("llm.requests.coalesced").tag("mode", "chat").counter().count());
+        assertEquals(0, coalescer.inFlightCount());
+
+        // 上游结束后，新的请求重新发起调用
+        coalescer.coalesce("key", () -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.just("again");
+        }).block();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void testLateStreamSubscriberReplays() {
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        coalescer.coalesceStream("key", upstream::asFlux).subscribe(first::add);
+
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+
+        coalescer.coalesceStream("key", () -> Flux.just("unexpected")).subscribe(second::add);
+
+        upstream.tryEmitNext("c");
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of("a", "b", "c"), first);
+        assertEquals(List.of("a", "b", "c"), second);
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    void testUpstreamCancelledOnlyWhenLastSubscriberLeaves() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<String> upstream = Flux.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = coalescer.coalesceStream("key", () -> upstream).subscribe();
+        Disposable second = coalescer.coalesceStream("key", () -> upstream).subscribe();
+
+        first.dispose();
+        assertFalse(cancelled.get());
+        assertEquals(1, coalescer.inFlightCount());
+
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    void testDifferentKeysNotCoalesced() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        Mono.zip(
+            coalescer.coalesce("a", () -> Mono.fromCallable(upstreamCalls::incrementAndGet)),
+            coalescer.coalesce("b", () -> Mono.fromCallable(upstreamCalls::incrementAndGet))
+        ).block();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+}
@@ -0,0 +1,65 @@
+package com.miniclaw.llm.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.model.LlmRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RequestKeyGenerator 测试类
+ */
+class RequestKeyGeneratorTest {
+
+    private final RequestKeyGenerator generator = new RequestKeyGenerator(new ObjectMapper());
+
+    @Test
+    void testSameRequestSameKey() {
+        String key1 = generator.generate(request("你好"), "openai", "gpt-4", 0.0, 100, false);
+        String key2 = generator.generate(request("你好"), "openai", "gpt-4", 0.0, 100, false);
+
+        assertEquals(key1, key2);
+        assertEquals(64, key1.length());
+    }
+
+    @Test
+    void testDifferentInputsDifferentKeys() {
+        String base = generator.generate(request("你好"), "openai", "gpt-4", 0.0, 100, false);
+
+        assertNotEquals(base, generator.generate(request("您好"), "openai", "gpt-4", 0.0, 100, false));
+        assertNotEquals(base, generator.generate(request("你好"), "deepseek", "gpt-4", 0.0, 100, false));
+        assertNotEquals(base, generator.generate(request("你好"), "openai", "gpt-3.5", 0.0, 100, false));
+        assertNotEquals(base, generator.generate(request("你好"), "openai", "gpt-4", 0.0, 200, false));
+        assertNotEquals(base, generator.generate(request("你好"), "openai", "gpt-4", 0.0, 100, true));
+    }
+
+    @Test
+    void testToolMapOrderIgnored() {
+        Map<String, Object> tool1 = new LinkedHashMap<>();
+        tool1.put("type", "function");
+        tool1.put("function", Map.of("name", "search"));
+
+        Map<String, Object> tool2 = new LinkedHashMap<>();
+        tool2.put("function", Map.of("name", "search"));
+        tool2.put("type", "function");
+
+        LlmRequest request1 = request("hi");
+        request1.setTools(List.of(tool1));
+        LlmRequest request2 = request("hi");
+        request2.setTools(List.of(tool2));
+
+        assertEquals(
+            generator.generate(request1, "openai", "gpt-4", 0.0, 100, false),
+            generator.generate(request2, "openai", "gpt-4", 0.0, 100, false));
+    }
+
+    private LlmRequest request(String content) {
+        return LlmRequest.builder()
+            .messages(List.of(LlmRequest.Message.system("sys"), LlmRequest.Message.user(content)))
+            .build();
+    }
+}
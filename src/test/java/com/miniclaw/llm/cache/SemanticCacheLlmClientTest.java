@@ -0,0 +1,214 @@
+package com.miniclaw.llm.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.EmbeddingClient;
+import com.miniclaw.llm.LlmClient;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SemanticCacheLlmClient 测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class SemanticCacheLlmClientTest {
+
+    private static final float[] EMBEDDING = {0.1f, 0.2f, 0.3f};
+
+    @Mock
+    private LlmClient delegate;
+
+    @Mock
+    private EmbeddingClient embeddingClient;
+
+    @Mock
+    private SemanticCacheStore store;
+
+    private SemanticCacheLlmClient client;
+
+    @BeforeEach
+    void setUp() {
+        LlmProperties properties = new LlmProperties();
+        LlmProperties.ProviderConfig openai = new LlmProperties.ProviderConfig();
+        openai.setModels(List.of("gpt-4"));
+        properties.getProviders().put("openai", openai);
+        properties.getSemanticCache().setEnabled(true);
+        properties.getSemanticCache().setMaxDistance(0.1);
+        properties.getSemanticCache().setDimensions(EMBEDDING.length);
+
+        client = new SemanticCacheLlmClient(delegate, embeddingClient, store, properties);
+    }
+
+    @Test
+    void testHitReturnsCachedResponse() {
+        LlmResponse cached = LlmResponse.builder().content("缓存的回答").finishReason("stop").build();
+        when(embeddingClient.embed(eq("怎么重置密码？"), any(), any())).thenReturn(Mono.just(EMBEDDING));
+        when(store.findNearest(any(), eq(EMBEDDING)))
+            .thenReturn(new SemanticCacheStore.Match(UUID.randomUUID(), cached, 0.02));
+
+        LlmResponse response = client.chatAsync(question("怎么重置密码？"), null).block();
+
+        assertNotNull(response);
+        assertEquals("缓存的回答", response.getContent());
+        verify(delegate, never()).chatAsync(any(), any());
+        verify(store, timeout(1000)).recordHit(any());
+    }
+
+    @Test
+    void testMissCallsDelegateAndSaves() {
+        LlmResponse fresh = LlmResponse.builder().content("新的回答").finishReason("stop").build();
+        when(embeddingClient.embed(any(), any(), any())).thenReturn(Mono.just(EMBEDDING));
+        when(store.findNearest(any(), any())).thenReturn(new SemanticCacheStore.Match(
+            UUID.randomUUID(), LlmResponse.builder().content("不相关").build(), 0.5));
+        when(delegate.chatAsync(any(), any())).thenReturn(Mono.just(fresh));
+
+        LlmResponse response = client.chatAsync(question("怎么重置密码？"), null).block();
+
+        assertNotNull(response);
+        assertEquals("新的回答", response.getContent());
+        verify(store, timeout(1000)).save(eq("gpt-4"), any(), eq("怎么重置密码？"), eq(EMBEDDING), eq(fresh), any());
+    }
+
+    @Test
+    void testLookupFailureBypassesCache() {
+        LlmResponse fresh = LlmResponse.builder().content("回答").finishReason("stop").build();
+        when(embeddingClient.embed(any(), any(), any())).thenReturn(Mono.error(new RuntimeException("down")));
+        when(delegate.chatAsync(any(), any())).thenReturn(Mono.just(fresh));
+
+        LlmResponse response = client.chatAsync(question("问题"), null).block();
+
+        assertNotNull(response);
+        assertEquals("回答", response.getContent());
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void testDimensionMismatchBypassesCache() {
+        LlmResponse fresh = LlmResponse.builder().content("回答").finishReason("stop").build();
+        when(embeddingClient.embed(any(), any(), any())).thenReturn(Mono.just(new float[]{0.1f, 0.2f}));
+        when(delegate.chatAsync(any(), any())).thenReturn(Mono.just(fresh));
+
+        LlmResponse response = client.chatAsync(question("问题"), null).block();
+
+        assertNotNull(response);
+        assertEquals("回答", response.getContent());
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void testScheduledCleanupDeletesExpired() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SemanticCacheStore realStore = new SemanticCacheStore(jdbcTemplate, new ObjectMapper());
+
+        Disposable cleanup = realStore.scheduleCleanup(Duration.ofMillis(10));
+        try {
+            verify(jdbcTemplate, timeout(1000).atLeast(2)).update(startsWith("DELETE"), any(Object[].class));
+        } finally {
+            cleanup.dispose();
+        }
+    }
+
+    @Test
+    void testMultiTurnAndToolRequestsNotCached() {
+        LlmRequest multiTurn = LlmRequest.builder()
+            .messages(List.of(
+                LlmRequest.Message.user("第一问"),
+                LlmRequest.Message.assistant("第一答"),
+                LlmRequest.Message.user("第二问")))
+            .build();
+        assertNull(client.toQuestion(multiTurn, null));
+
+        LlmRequest withTools = question("问题");
+        withTools.setTools(List.of(Map.of("type", "function")));
+        assertNull(client.toQuestion(withTools, null));
+    }
+
+    @Test
+    void testScopeDependsOnSystemPrompt() {
+        LlmRequest a = LlmRequest.builder()
+            .messages(List.of(LlmRequest.Message.system("客服"), LlmRequest.Message.user("问题")))
+            .build();
+        LlmRequest b = LlmRequest.builder()
+            .messages(List.of(LlmRequest.Message.system("律师"), LlmRequest.Message.user("问题")))
+            .build();
+
+        assertNotEquals(client.toQuestion(a, null).scopeHash(), client.toQuestion(b, null).scopeHash());
+        assertEquals("问题", client.toQuestion(a, null).prompt());
+    }
+
+    @Test
+    void testScopeUsesModelOfRequestedProvider() {
+        LlmProperties properties = new LlmProperties();
+        LlmProperties.ProviderConfig openai = new LlmProperties.ProviderConfig();
+        openai.setModels(List.of("gpt-4"));
+        LlmProperties.ProviderConfig deepseek = new LlmProperties.ProviderConfig();
+        deepseek.setModels(List.of("deepseek-chat"));
+        properties.getProviders().put("openai", openai);
+        properties.getProviders().put("deepseek", deepseek);
+        properties.setDefaultProvider("openai");
+        properties.getSemanticCache().setEnabled(true);
+        properties.getSemanticCache().setMaxDistance(0.1);
+        properties.getSemanticCache().setDimensions(EMBEDDING.length);
+        SemanticCacheLlmClient twoProviders = new SemanticCacheLlmClient(delegate, embeddingClient, store, properties);
+
+        SemanticCacheLlmClient.Question viaDefault = twoProviders.toQuestion(question("问题"), null);
+        SemanticCacheLlmClient.Question viaDeepseek = twoProviders.toQuestion(question("问题"), "deepseek");
+        assertEquals("gpt-4", viaDefault.model());
+        assertEquals("deepseek-chat", viaDeepseek.model());
+        assertNotEquals(viaDefault.scopeHash(), viaDeepseek.scopeHash());
+
+        LlmResponse fresh = LlmResponse.builder().content("回答").finishReason("stop").build();
+        when(embeddingClient.embed(any(), any(), any())).thenReturn(Mono.just(EMBEDDING));
+        when(delegate.chatAsync(any(), eq("deepseek"))).thenReturn(Mono.just(fresh));
+
+        twoProviders.chatAsync(question("问题"), "deepseek").block();
+
+        verify(store).findNearest(eq(viaDeepseek.scopeHash()), eq(EMBEDDING));
+        verify(store, timeout(1000)).save(eq("deepseek-chat"), eq(viaDeepseek.scopeHash()), eq("问题"),
+            eq(EMBEDDING), eq(fresh), any());
+    }
+
+    @Test
+    void testPgvectorVersionCheck() {
+        int[] minimum = {0, 8, 0};
+        assertTrue(SemanticCacheStore.atLeast("0.8.0", minimum));
+        assertTrue(SemanticCacheStore.atLeast("0.10.1", minimum));
+        assertTrue(SemanticCacheStore.atLeast("1.0", minimum));
+        assertFalse(SemanticCacheStore.atLeast("0.7.4", minimum));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(startsWith("SELECT extversion"), eq(String.class))).thenReturn(List.of("0.7.4"));
+        LlmException error = assertThrows(LlmException.class,
+            () -> new SemanticCacheStore(jdbcTemplate, new ObjectMapper()).verifySchema(EMBEDDING.length));
+        assertEquals("SEMANTIC_CACHE_PGVECTOR", error.getErrorCode());
+    }
+
+    @Test
+    void testVectorLiteral() {
+        assertEquals("[0.1,0.2,0.3]", SemanticCacheStore.toVectorLiteral(EMBEDDING));
+    }
+
+    private LlmRequest question(String content) {
+        return LlmRequest.builder()
+            .messages(List.of(LlmRequest.Message.system("你是客服"), LlmRequest.Message.user(content)))
+            .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.miniclaw.llm.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.ToolCall;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatRequestEncoder 测试类
+ */
+class ChatRequestEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testEncodeRequest() throws Exception {
+        ChatRequestEncoder encoder = new ChatRequestEncoder(objectMapper, new LlmProperties.EncodingConfig(), null);
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("gpt-4");
+        request.setMessages(List.of(
+            LlmRequest.Message.system("你是助手"),
+            LlmRequest.Message.user("北京天气？\"引号\""),
+            LlmRequest.Message.assistantWithToolCalls(List.of(ToolCall.builder()
+                .id("call_1")
+                .type("function")
+                .function(ToolCall.FunctionCall.builder().name("get_weather").arguments("{\"city\":\"北京\"}").build())
+                .build())),
+            LlmRequest.Message.toolResult("call_1", "晴")));
+        request.setTemperature(0.7);
+        request.setMaxTokens(100);
+        request.setStream(true);
+        request.setTools(List.of(Map.of("type", "function")));
+        request.setToolChoice("auto");
+
+        JsonNode body = objectMapper.readTree(encoder.encode(request));
+
+        assertEquals("gpt-4", body.path("model").asText());
+        assertEquals(4, body.path("messages").size());
+        assertEquals("system", body.path("messages").get(0).path("role").asText());
+        assertEquals("北京天气？\"引号\"", body.path("messages").get(1).path("content").asText());
+        assertFalse(body.path("messages").get(2).has("content"));
+        assertEquals("get_weather",
+            body.path("messages").get(2).path("tool_calls").get(0).path("function").path("name").asText());
+        assertEquals("call_1", body.path("messages").get(3).path("tool_call_id").asText());
+        assertEquals(0.7, body.path("temperature").asDouble());
+        assertEquals(100, body.path("max_tokens").asInt());
+        assertTrue(body.path("stream").asBoolean());
+        assertEquals("function", body.path("tools").get(0).path("type").asText());
+        assertEquals("auto", body.path("tool_choice").asText());
+    }
+
+    @Test
+    void testRegisteredToolsAppendedAfterInlineTools() throws Exception {
+        ChatRequestEncoder encoder = new ChatRequestEncoder(objectMapper, new LlmProperties.EncodingConfig(), null);
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setMessages(List.of(LlmRequest.Message.user("你好")));
+        request.setTools(List.of(Map.of("type", "function", "function", Map.of("name", "inline"))));
+        request.setEncodedTools(List.of(
+            "{\"type\":\"function\",\"function\":{\"name\":\"registered\"}}".getBytes(StandardCharsets.UTF_8)));
+
+        JsonNode tools = objectMapper.readTree(encoder.encode(request)).path("tools");
+
+        assertEquals(2, tools.size());
+        assertEquals("inline", tools.get(0).path("function").path("name").asText());
+        assertEquals("registered", tools.get(1).path("function").path("name").asText());
+    }
+
+    @Test
+    void testNullFieldsOmitted() throws Exception {
+        ChatRequestEncoder encoder = new ChatRequestEncoder(objectMapper, new LlmProperties.EncodingConfig(), null);
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setModel("gpt-4");
+        request.setMessages(List.of(LlmRequest.Message.user("你好")));
+
+        JsonNode body = objectMapper.readTree(encoder.encode(request));
+
+        assertEquals(2, body.size());
+        assertFalse(body.has("tools"));
+        assertFalse(body.has("max_tokens"));
+    }
+
+    @Test
+    void testStreamOptionsIncludeUsage() throws Exception {
+        ChatRequestEncoder encoder = new ChatRequestEncoder(objectMapper, new LlmProperties.EncodingConfig(), null);
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setMessages(List.of(LlmRequest.Message.user("你好")));
+        request.setStream(true);
+        request.setIncludeUsage(true);
+
+        JsonNode body = objectMapper.readTree(encoder.encode(request));
+        assertTrue(body.path("stream_options").path("include_usage").asBoolean());
+
+        // 非流式请求不输出 stream_options
+        request.setStream(false);
+        assertFalse(objectMapper.readTree(encoder.encode(request)).has("stream_options"));
+    }
+
+    @Test
+    void testRepeatedMessagesReuseCachedBytes() throws Exception {
+        ChatRequestEncoder encoder = new ChatRequestEncoder(objectMapper, new LlmProperties.EncodingConfig(), null);
+
+        List<LlmRequest.Message> history = new ArrayList<>();
+        history.add(LlmRequest.Message.system("你是助手"));
+        history.add(LlmRequest.Message.user("第一问"));
+        byte[] first = encoder.encode(history.get(1));
+
+        // 下一轮：内容相同的新对象也命中缓存
+        history.add(LlmRequest.Message.assistant("第一答"));
+        assertSame(first, encoder.encode(LlmRequest.Message.user("第一问")));
+
+        ChatCompletionRequest request = new ChatCompletionRequest();
+        request.setMessages(history);
+        encoder.encode(request);
+        assertEquals(3, encoder.cachedMessages());
+    }
+
+    @Test
+    void testCacheDisabled() throws Exception {
+        LlmProperties.EncodingConfig config = new LlmProperties.EncodingConfig();
+        config.setCacheMessages(false);
+        ChatRequestEncoder encoder = new ChatRequestEncoder(objectMapper, config, null);
+
+        LlmRequest.Message message = LlmRequest.Message.user("你好");
+        assertNotSame(encoder.encode(message), encoder.encode(message));
+        assertEquals(0, encoder.cachedMessages());
+    }
+}
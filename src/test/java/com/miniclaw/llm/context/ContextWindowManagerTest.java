@@ -0,0 +1,270 @@
+package com.miniclaw.llm.context;
+
+import com.miniclaw.llm.LlmClient;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import com.miniclaw.llm.model.ToolCall;
+import com.miniclaw.llm.token.TokenCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ContextWindowManager 和压缩策略测试类
+ *
+ * <p>使用估算分词器（每 4 个字符 1 个 token）；test-model 的窗口为 1000，
+ * 请求预留 100 个输出 token，消息预算为 1000 × 0.8 - 100 = 700
+ */
+@ExtendWith(MockitoExtension.class)
+class ContextWindowManagerTest {
+
+    private static final String MODEL = "test-model";
+
+    /**
+     * 约 100 个 token
+     */
+    private static final String LONG = "x".repeat(400);
+
+    @Mock
+    private LlmClient delegate;
+
+    @Mock
+    private LlmClient summarizer;
+
+    @Mock
+    private ContextStatsStore statsStore;
+
+    private LlmProperties properties;
+    private TokenCounter tokenCounter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProperties();
+        properties.getContext().setEnabled(true);
+        properties.getContext().setContextWindows(Map.of(MODEL, 1000));
+        properties.getContext().setKeepRecentMessages(2);
+
+        LlmProperties.TokenizerConfig tokenizer = new LlmProperties.TokenizerConfig();
+        tokenizer.setEncodings(Map.of());
+        tokenCounter = new TokenCounter(tokenizer, null);
+    }
+
+    @Test
+    void testRequestWithinBudgetIsUnchanged() {
+        ContextWindowManager manager = manager(new PinnedRecentStrategy(2));
+        LlmRequest request = request(List.of(LlmRequest.Message.system("sys"), LlmRequest.Message.user("hi")), null);
+
+        assertSame(request, manager.fit(request, null));
+    }
+
+    @Test
+    void testDisabledIsUnchanged() {
+        properties.getContext().setEnabled(false);
+        ContextWindowManager manager = manager(new PinnedRecentStrategy(2));
+        LlmRequest request = request(conversation(10), null);
+
+        assertSame(request, manager.fit(request, null));
+    }
+
+    @Test
+    void testBudgetUsesLongestPrefixAndReserve() {
+        ContextWindowManager manager = manager(new PinnedRecentStrategy(2));
+
+        assertEquals(1000, manager.contextWindow("test-model-v2"));
+        assertEquals(32768, manager.contextWindow("unknown"));
+        assertEquals(700, manager.budget(MODEL, 100).maxTokens());
+        // 预留过多时至少保留一半
+        assertEquals(400, manager.budget(MODEL, 10000).maxTokens());
+    }
+
+    @Test
+    void testToolOutputPruning() {
+        ContextWindowManager manager = manager(new ToolOutputPruningStrategy(2));
+        List<LlmRequest.Message> messages = new ArrayList<>(List.of(
+            LlmRequest.Message.system("sys"),
+            LlmRequest.Message.user("read the file"),
+            LlmRequest.Message.assistantWithToolCalls(List.of(toolCall("call_1"))),
+            LlmRequest.Message.toolResult("call_1", LONG.repeat(8)),
+            LlmRequest.Message.assistant("done"),
+            LlmRequest.Message.user("thanks")));
+
+        LlmRequest fitted = manager.fit(request(messages, null), null);
+
+        assertEquals(messages.size(), fitted.getMessages().size());
+        assertEquals(ToolOutputPruningStrategy.PLACEHOLDER, fitted.getMessages().get(3).getContent());
+        assertEquals("call_1", fitted.getMessages().get(3).getToolCallId());
+        // 原请求不被修改
+        assertEquals(LONG.repeat(8), messages.get(3).getContent());
+    }
+
+    @Test
+    void testPinnedRecentKeepsSystemTaskAndRecent() {
+        ContextWindowManager manager = manager(new PinnedRecentStrategy(2));
+        List<LlmRequest.Message> messages = conversation(10);
+
+        List<LlmRequest.Message> fitted = manager.fit(request(messages, null), null).getMessages();
+
+        assertTrue(tokenCounter.count(MODEL, fitted) <= 700);
+        assertEquals("system", fitted.get(0).getRole());
+        assertEquals("task", fitted.get(1).getContent());
+        assertEquals(messages.get(messages.size() - 2), fitted.get(fitted.size() - 2));
+        assertEquals(messages.get(messages.size() - 1), fitted.get(fitted.size() - 1));
+    }
+
+    @Test
+    void testSlidingWindowDropsOldestFirst() {
+        ContextWindowManager manager = manager(new SlidingWindowStrategy(2));
+        List<LlmRequest.Message> messages = conversation(10);
+
+        List<LlmRequest.Message> fitted = manager.fit(request(messages, null), null).getMessages();
+
+        assertTrue(tokenCounter.count(MODEL, fitted) <= 700);
+        assertEquals("system", fitted.get(0).getRole());
+        assertNotEquals("task", fitted.get(1).getContent());
+        assertEquals(messages.get(messages.size() - 1), fitted.get(fitted.size() - 1));
+    }
+
+    @Test
+    void testDroppingKeepsToolCallWithItsResults() {
+        ContextWindowManager manager = manager(new SlidingWindowStrategy(2));
+        List<LlmRequest.Message> messages = new ArrayList<>(List.of(
+            LlmRequest.Message.system("sys"),
+            LlmRequest.Message.user(LONG),
+            LlmRequest.Message.assistantWithToolCalls(List.of(toolCall("call_1"))),
+            LlmRequest.Message.toolResult("call_1", LONG.repeat(5)),
+            LlmRequest.Message.assistant(LONG),
+            LlmRequest.Message.user(LONG)));
+
+        List<LlmRequest.Message> fitted = manager.fit(request(messages, null), null).getMessages();
+
+        assertTrue(fitted.stream().noneMatch(m -> "tool".equals(m.getRole())));
+        assertTrue(fitted.stream().noneMatch(m -> m.getToolCalls() != null));
+    }
+
+    @Test
+    void testSummaryAppliedOnLaterTurn() {
+        when(summarizer.chatAsync(any())).thenReturn(Mono.just(LlmResponse.builder().content("earlier stuff").build()));
+        ContextWindowManager manager = manager(
+            new SummarizingStrategy(summarizer, properties.getContext()), new PinnedRecentStrategy(2));
+        List<LlmRequest.Message> messages = conversation(10);
+
+        // 第一轮：摘要尚未生成，由后续策略处理
+        List<LlmRequest.Message> first = manager.fit(request(messages, null), null).getMessages();
+        assertTrue(first.stream().noneMatch(m -> m.getContent().startsWith("Summary")));
+
+        ArgumentCaptor<LlmRequest> summaryRequest = ArgumentCaptor.forClass(LlmRequest.class);
+        verify(summarizer).chatAsync(summaryRequest.capture());
+        assertEquals(MODEL, summaryRequest.getValue().getModel());
+        assertEquals(512, summaryRequest.getValue().getMaxTokens());
+        // 摘要输入不超过 max(700 - 512, 350) 个 token
+        String firstInput = summaryRequest.getValue().getMessages().get(1).getContent();
+        assertTrue(firstInput.startsWith("user: task"));
+        assertTrue(tokenCounter.count(MODEL, summaryRequest.getValue().getMessages().get(1)) <= 350);
+
+        // 第二轮：历史继续增长，前缀命中摘要
+        List<LlmRequest.Message> next = new ArrayList<>(messages);
+        next.add(LlmRequest.Message.assistant("ok"));
+        next.add(LlmRequest.Message.user("next"));
+        List<LlmRequest.Message> second = manager.fit(request(next, null), null).getMessages();
+
+        assertEquals("sys", second.get(0).getContent());
+        assertEquals("Summary of the earlier conversation:\nearlier stuff", second.get(1).getContent());
+        assertEquals("next", second.get(second.size() - 1).getContent());
+        assertTrue(tokenCounter.count(MODEL, second) <= 700);
+
+        // 仍超出预算：在已有摘要的基础上摘要下一段，而不是从头开始
+        verify(summarizer, times(2)).chatAsync(summaryRequest.capture());
+        String secondInput = summaryRequest.getValue().getMessages().get(1).getContent();
+        assertTrue(secondInput.startsWith("Summary so far:\nearlier stuff\n\nConversation continues:\n"));
+        assertFalse(secondInput.contains("user: task"));
+        assertTrue(tokenCounter.count(MODEL, summaryRequest.getValue().getMessages().get(1)) <= 350);
+    }
+
+    @Test
+    void testOversizedMessageTruncatedForSummary() {
+        when(summarizer.chatAsync(any())).thenReturn(Mono.empty());
+        ContextWindowManager manager = manager(
+            new SummarizingStrategy(summarizer, properties.getContext()), new PinnedRecentStrategy(2));
+        List<LlmRequest.Message> messages = new ArrayList<>(List.of(
+            LlmRequest.Message.system("sys"),
+            LlmRequest.Message.user("x".repeat(4000))));
+        messages.addAll(conversation(2).subList(2, 6));
+
+        manager.fit(request(messages, null), null);
+
+        ArgumentCaptor<LlmRequest> summaryRequest = ArgumentCaptor.forClass(LlmRequest.class);
+        verify(summarizer).chatAsync(summaryRequest.capture());
+        String input = summaryRequest.getValue().getMessages().get(1).getContent();
+        assertTrue(input.endsWith("[truncated]"));
+        assertTrue(tokenCounter.count(MODEL, summaryRequest.getValue().getMessages().get(1)) <= 350);
+    }
+
+    @Test
+    void testSavingsRecordedForRun() {
+        when(delegate.chatAsync(any(), any())).thenReturn(Mono.just(LlmResponse.builder().content("ok").build()));
+        ContextWindowManager manager = manager(new PinnedRecentStrategy(2));
+        UUID runId = UUID.randomUUID();
+
+        manager.chat(request(conversation(10), runId));
+
+        ArgumentCaptor<LlmRequest> sent = ArgumentCaptor.forClass(LlmRequest.class);
+        verify(delegate).chatAsync(sent.capture(), isNull());
+        assertEquals(runId, sent.getValue().getRunId());
+        assertTrue(tokenCounter.count(MODEL, sent.getValue().getMessages()) <= 700);
+        verify(statsStore, timeout(1000)).recordSavings(eq(runId), intThat(saved -> saved > 0));
+    }
+
+    @Test
+    void testNoSavingsRecordedWithoutRun() {
+        when(delegate.chatAsync(any(), any())).thenReturn(Mono.just(LlmResponse.builder().content("ok").build()));
+        ContextWindowManager manager = manager(new PinnedRecentStrategy(2));
+
+        manager.chat(request(conversation(10), null));
+
+        verifyNoInteractions(statsStore);
+    }
+
+    private ContextWindowManager manager(ContextStrategy... strategies) {
+        return new ContextWindowManager(delegate, tokenCounter, properties, statsStore, List.of(strategies));
+    }
+
+    private static LlmRequest request(List<LlmRequest.Message> messages, UUID runId) {
+        return LlmRequest.builder().model(MODEL).maxTokens(100).messages(messages).runId(runId).build();
+    }
+
+    /**
+     * 系统消息 + 任务 + turns 轮长问答（约 turns × 210 个 token）
+     */
+    private static List<LlmRequest.Message> conversation(int turns) {
+        List<LlmRequest.Message> messages = new ArrayList<>();
+        messages.add(LlmRequest.Message.system("sys"));
+        messages.add(LlmRequest.Message.user("task"));
+        for (int i = 0; i < turns; i++) {
+            messages.add(LlmRequest.Message.assistant(i + LONG));
+            messages.add(LlmRequest.Message.user(i + LONG));
+        }
+        return messages;
+    }
+
+    private static ToolCall toolCall(String id) {
+        return ToolCall.builder()
+            .id(id)
+            .type("function")
+            .function(ToolCall.FunctionCall.builder().name("read_file").arguments("{\"path\":\"a.txt\"}").build())
+            .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.miniclaw.llm.http;
+
+import com.miniclaw.llm.config.LlmProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.netty.resources.ConnectionProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProviderHttpClientFactory 测试类
+ */
+class ProviderHttpClientFactoryTest {
+
+    private final ProviderHttpClientFactory factory = new ProviderHttpClientFactory();
+
+    @AfterEach
+    void tearDown() {
+        factory.dispose();
+    }
+
+    @Test
+    void testDefaultHttpConfig() {
+        LlmProperties.HttpClientConfig http = new LlmProperties.ProviderConfig().getHttp();
+
+        assertNotNull(http);
+        assertEquals(100, http.getMaxConnections());
+        assertEquals(500, http.getPendingAcquireMaxCount());
+        assertEquals(10, http.getPendingAcquireTimeout());
+        assertFalse(http.getHttp2());
+        assertNull(http.getResponseTimeout());
+    }
+
+    @Test
+    void testConnectionProviderPerProvider() {
+        LlmProperties.ProviderConfig openai = provider("https://api.openai.com/v1");
+        openai.getHttp().setMaxConnections(16);
+
+        LlmProperties.ProviderConfig deepseek = provider("https://api.deepseek.com/v1");
+        deepseek.getHttp().setMaxConnections(8);
+
+        assertNotNull(factory.createConnector("openai", openai, 60));
+        assertNotNull(factory.createConnector("deepseek", deepseek, 60));
+
+        ConnectionProvider openaiPool = factory.getConnectionProvider("openai");
+        ConnectionProvider deepseekPool = factory.getConnectionProvider("deepseek");
+
+        assertNotSame(openaiPool, deepseekPool);
+        assertEquals("llm-openai", openaiPool.name());
+        assertEquals(16, openaiPool.maxConnections());
+        assertEquals(8, deepseekPool.maxConnections());
+    }
+
+    @Test
+    void testHttp2Connector() {
+        LlmProperties.ProviderConfig config = provider("https://api.openai.com/v1");
+        config.getHttp().setHttp2(true);
+        config.getHttp().setHttp2MaxConcurrentStreams(50);
+
+        assertNotNull(factory.createConnector("openai", config, 60));
+        assertNotNull(factory.getConnectionProvider("openai"));
+    }
+
+    @Test
+    void testDispose() {
+        factory.createConnector("openai", provider("https://api.openai.com/v1"), 60);
+        ConnectionProvider pool = factory.getConnectionProvider("openai");
+
+        factory.dispose();
+
+        assertTrue(pool.isDisposed());
+        assertNull(factory.getConnectionProvider("openai"));
+    }
+
+    private LlmProperties.ProviderConfig provider(String endpoint) {
+        LlmProperties.ProviderConfig config = new LlmProperties.ProviderConfig();
+        config.setEndpoint(endpoint);
+        config.setApiKey("test-key");
+        return config;
+    }
+}
@@ -0,0 +1,124 @@
+package com.miniclaw.llm.metrics;
+
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.SignalType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LlmClientMetrics 测试类
+ */
+class LlmClientMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private LlmClientMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new LlmClientMetrics(registry);
+    }
+
+    @Test
+    void testChatRecordsLatencyTokensAndPayload() {
+        LlmClientMetrics.Recording recording = metrics.start("default", "gpt-4o", false);
+        recording.attempt("primary", 120);
+        recording.attempt("primary", 120);
+        recording.decoded(900, 1_000);
+        recording.usage(LlmResponse.Usage.builder().promptTokens(50).completionTokens(20).totalTokens(70).build());
+        recording.finish(SignalType.ON_COMPLETE);
+
+        Timer duration = registry.find("llm.request.duration")
+            .tags("provider", "primary", "model", "gpt-4o", "stream", "false", "outcome", "success")
+            .timer();
+        assertNotNull(duration);
+        assertEquals(1, duration.count());
+
+        assertEquals(50.0, summary("llm.tokens", "type", "prompt").totalAmount());
+        assertEquals(20.0, summary("llm.tokens", "type", "completion").totalAmount());
+        assertEquals(240.0, summary("llm.request.payload").totalAmount());
+        assertEquals(900.0, summary("llm.response.payload").totalAmount());
+        assertEquals(1.0, summary("llm.request.retries", "outcome", "success").totalAmount());
+        assertEquals(1, summary("llm.output.tokens.per.second").count());
+        assertNull(registry.find("llm.request.ttft").timer());
+    }
+
+    @Test
+    void testStreamRecordsTtftAndChunkGaps() {
+        LlmClientMetrics.Recording recording = metrics.start("default", "gpt-4o", true);
+        recording.attempt("default", 100);
+        recording.chunk(LlmChunk.builder().delta("a").build());
+        recording.chunk(LlmChunk.builder().delta("b").build());
+        recording.chunk(LlmChunk.builder().delta("c").build());
+        recording.chunk(LlmChunk.builder().finishReason("stop").done(true).build());
+        recording.finish(SignalType.ON_COMPLETE);
+
+        Timer ttft = registry.find("llm.request.ttft").tags("provider", "default").timer();
+        assertNotNull(ttft);
+        assertEquals(1, ttft.count());
+        assertEquals(3, registry.find("llm.stream.chunk.gap").timer().count());
+        assertEquals(0.0, summary("llm.request.retries", "outcome", "success").totalAmount());
+        // 没有用量时不记录 token，按内容 chunk 数估算吞吐
+        assertNull(registry.find("llm.tokens").summary());
+        assertEquals(1, summary("llm.output.tokens.per.second").count());
+    }
+
+    @Test
+    void testChunkGapFollowsRoutedProvider() {
+        LlmClientMetrics.Recording recording = metrics.start("default", "gpt-4o", true);
+        recording.attempt("primary", 100);
+        recording.chunk(LlmChunk.builder().delta("a").build());
+        recording.chunk(LlmChunk.builder().delta("b").build());
+        recording.attempt("backup", 100);
+        recording.chunk(LlmChunk.builder().delta("c").build());
+
+        assertEquals(1, registry.find("llm.stream.chunk.gap").tags("provider", "primary").timer().count());
+        assertEquals(1, registry.find("llm.stream.chunk.gap").tags("provider", "backup").timer().count());
+    }
+
+    @Test
+    void testErrorAndCancelOutcomes() {
+        LlmClientMetrics.Recording failed = metrics.start("default", null, false);
+        failed.attempt("default", 10);
+        failed.finish(SignalType.ON_ERROR);
+
+        LlmClientMetrics.Recording cancelled = metrics.start("default", "m", true);
+        cancelled.finish(SignalType.CANCEL);
+
+        assertEquals(1, registry.find("llm.request.duration")
+            .tags("model", "unknown", "outcome", "error").timer().count());
+        assertEquals(1, registry.find("llm.request.duration")
+            .tags("model", "m", "outcome", "cancelled").timer().count());
+        assertNull(registry.find("llm.output.tokens.per.second").summary());
+    }
+
+    @Test
+    void testFinishOnlyRecordsOnce() {
+        LlmClientMetrics.Recording recording = metrics.start("default", "m", false);
+        recording.finish(SignalType.ON_COMPLETE);
+        recording.finish(SignalType.ON_ERROR);
+
+        assertEquals(1, registry.find("llm.request.duration").timers().size());
+        assertEquals(1, registry.find("llm.request.duration").timer().count());
+    }
+
+    @Test
+    void testNullRegistryIsNoOp() {
+        LlmClientMetrics.Recording recording = new LlmClientMetrics(null).start("default", "m", true);
+        recording.chunk(LlmChunk.builder().delta("a").build());
+        recording.chunk(LlmChunk.builder().delta("b").build());
+        assertDoesNotThrow(() -> recording.finish(SignalType.ON_COMPLETE));
+    }
+
+    private DistributionSummary summary(String name, String... tags) {
+        DistributionSummary summary = registry.find(name).tags(tags).summary();
+        assertNotNull(summary, name);
+        return summary;
+    }
+}
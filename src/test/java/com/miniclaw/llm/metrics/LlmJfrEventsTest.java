@@ -0,0 +1,109 @@
+package com.miniclaw.llm.metrics;
+
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmResponse;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.SignalType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LlmJfrEvents 测试类
+ */
+class LlmJfrEventsTest {
+
+    private static final String[] ALL_EVENTS = {"com.miniclaw.llm.Call", "com.miniclaw.llm.FirstChunk",
+        "com.miniclaw.llm.Retry", "com.miniclaw.llm.ParseFailure", "com.miniclaw.llm.ProviderFallback"};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRecordingEmitsCallLifecycleEvents() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            LlmClientMetrics.Recording recording = new LlmClientMetrics(null).start("default", "gpt-4o", true);
+            recording.attempt("primary", 100);
+            recording.attemptFailed(new TimeoutException("read timed out"));
+            recording.attempt("backup", 100);
+            recording.decoded(64, 1_000);
+            recording.parseFailed(64, "Malformed SSE chunk");
+            recording.chunk(LlmChunk.builder().delta("hi").build());
+            recording.chunk(LlmChunk.builder().done(true).finishReason("stop")
+                .usage(LlmResponse.Usage.builder().promptTokens(12).completionTokens(3).cachedTokens(8).build())
+                .build());
+            recording.finish(SignalType.ON_COMPLETE);
+            LlmJfrEvents.providerFallback("gpt-4o", "primary", "backup", "circuit_open");
+        });
+
+        RecordedEvent call = single(events, "com.miniclaw.llm.Call");
+        assertEquals("backup", call.getString("provider"));
+        assertEquals("gpt-4o", call.getString("model"));
+        assertTrue(call.getBoolean("stream"));
+        assertEquals("success", call.getString("outcome"));
+        assertEquals(2, call.getInt("attempts"));
+        assertEquals(12, call.getInt("promptTokens"));
+        assertEquals(3, call.getInt("completionTokens"));
+        assertEquals(8, call.getInt("cachedTokens"));
+        assertEquals(200, call.getLong("requestBytes"));
+        assertEquals(64, call.getLong("responseBytes"));
+
+        RecordedEvent retry = single(events, "com.miniclaw.llm.Retry");
+        assertEquals(2, retry.getInt("attempt"));
+        assertEquals("primary", retry.getString("previousProvider"));
+        assertEquals(TimeoutException.class.getName(), retry.getString("errorType"));
+
+        assertEquals("Malformed SSE chunk", single(events, "com.miniclaw.llm.ParseFailure").getString("message"));
+        assertEquals("backup", single(events, "com.miniclaw.llm.FirstChunk").getString("provider"));
+        assertEquals("circuit_open", single(events, "com.miniclaw.llm.ProviderFallback").getString("reason"));
+    }
+
+    @Test
+    void testNoEventsWhenDisabled() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            LlmClientMetrics.Recording recording = new LlmClientMetrics(null).start("default", "m", false);
+            recording.attempt("default", 10);
+            recording.finish(SignalType.ON_COMPLETE);
+        }, "com.miniclaw.llm.Retry");
+
+        assertTrue(events.stream().noneMatch(event -> event.getEventType().getName().startsWith("com.miniclaw")));
+    }
+
+    private List<RecordedEvent> record(Runnable action) throws IOException {
+        return record(action, ALL_EVENTS);
+    }
+
+    private List<RecordedEvent> record(Runnable action, String... enabled) throws IOException {
+        Path file = tempDir.resolve("llm.jfr");
+        try (Recording recording = new Recording()) {
+            // 只开启指定的事件（其余 MiniClaw 事件保持关闭）
+            for (String name : ALL_EVENTS) {
+                recording.disable(name);
+            }
+            for (String name : enabled) {
+                recording.enable(name);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+            .filter(event -> event.getEventType().getName().equals(name))
+            .toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
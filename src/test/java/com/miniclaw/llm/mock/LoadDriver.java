@@ -0,0 +1,209 @@
+package com.miniclaw.llm.mock;
+
+import com.miniclaw.llm.OpenAiCompatibleLlmClient;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmRequest;
+import lombok.Builder;
+import lombok.Data;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测驱动
+ *
+ * <p>以固定并发执行 N 个会话（同步调用和流式调用按 stream-ratio 混合），统计吞吐、延迟分位数、
+ * 首 token 延迟、堆内存峰值和线程数。通常配合 {@link MockLlmServer} 离线运行
+ *
+ * <p>使用示例：
+ * <pre>
+ * LoadReport report = new LoadDriver(client).run(LoadDriver.Options.builder()
+ *     .sessions(2000)
+ *     .concurrency(64)
+ *     .build());
+ * System.out.println(report.format());
+ * </pre>
+ */
+public class LoadDriver {
+
+    private final OpenAiCompatibleLlmClient client;
+
+    public LoadDriver(OpenAiCompatibleLlmClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 执行压测（阻塞直到所有会话结束或超时）
+     */
+    public LoadReport run(Options options) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        AtomicLong peakHeap = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+        Disposable sampler = Flux.interval(Duration.ofMillis(20))
+            .subscribe(tick -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max));
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Long> ttfts = new ConcurrentLinkedQueue<>();
+        AtomicInteger failed = new AtomicInteger();
+
+        long started = System.nanoTime();
+        try {
+            Flux.range(0, options.getSessions())
+                .flatMap(index -> session(index, options, latencies, ttfts)
+                    .onErrorResume(error -> {
+                        failed.incrementAndGet();
+                        return Mono.empty();
+                    }), options.getConcurrency())
+                .then()
+                .block(options.getTimeout());
+        } finally {
+            sampler.dispose();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        long[] latencyMillis = sortedMillis(latencies);
+        long[] ttftMillis = sortedMillis(ttfts);
+        return new LoadReport(
+            options.getSessions(),
+            latencyMillis.length,
+            failed.get(),
+            elapsed,
+            latencyMillis.length * 1000.0 / Math.max(elapsed.toMillis(), 1),
+            percentile(latencyMillis, 50),
+            percentile(latencyMillis, 95),
+            percentile(latencyMillis, 99),
+            percentile(ttftMillis, 50),
+            percentile(ttftMillis, 95),
+            peakHeap.get(),
+            threads.getPeakThreadCount(),
+            threads.getThreadCount());
+    }
+
+    /**
+     * 单个会话：成功时记录延迟，失败时以错误结束
+     */
+    private Mono<Void> session(int index, Options options, ConcurrentLinkedQueue<Long> latencies,
+                               ConcurrentLinkedQueue<Long> ttfts) {
+        LlmRequest request = LlmRequest.builder()
+            .messages(List.of(
+                LlmRequest.Message.system("You are a load test assistant."),
+                LlmRequest.Message.user("Session " + index + ": " + options.getPrompt())))
+            .build();
+        boolean stream = index % 100 < Math.round(options.getStreamRatio() * 100);
+
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            if (!stream) {
+                return client.chatAsync(request, null)
+                    .doOnNext(response -> latencies.add(System.nanoTime() - started))
+                    .then();
+            }
+
+            long[] firstChunk = new long[1];
+            return client.stream(request)
+                .doOnNext(chunk -> {
+                    if (firstChunk[0] == 0 && chunk.getDelta() != null && !chunk.getDelta().isEmpty()) {
+                        firstChunk[0] = System.nanoTime();
+                        ttfts.add(firstChunk[0] - started);
+                    }
+                })
+                .last()
+                .flatMap(last -> isFailed(last)
+                    ? Mono.error(new IllegalStateException("Stream ended with " + last.getFinishReason()))
+                    : Mono.fromRunnable(() -> latencies.add(System.nanoTime() - started)));
+        });
+    }
+
+    private static boolean isFailed(LlmChunk last) {
+        return last.getFinishReason() == null || "error".equals(last.getFinishReason());
+    }
+
+    private static long[] sortedMillis(ConcurrentLinkedQueue<Long> nanos) {
+        long[] millis = nanos.stream().mapToLong(value -> value / 1_000_000).toArray();
+        Arrays.sort(millis);
+        return millis;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * 压测配置
+     */
+    @Data
+    @Builder
+    public static class Options {
+        /**
+         * 会话总数
+         */
+        @Builder.Default
+        private int sessions = 1000;
+
+        /**
+         * 并发会话数
+         */
+        @Builder.Default
+        private int concurrency = 32;
+
+        /**
+         * 流式会话的比例（0 ~ 1）
+         */
+        @Builder.Default
+        private double streamRatio = 0.5;
+
+        /**
+         * 用户消息
+         */
+        @Builder.Default
+        private String prompt = "Summarize the benefits of reactive streams in one paragraph.";
+
+        /**
+         * 整体超时
+         */
+        @Builder.Default
+        private Duration timeout = Duration.ofMinutes(5);
+    }
+
+    /**
+     * 压测结果（延迟单位：毫秒）
+     *
+     * @param sessions 会话总数
+     * @param succeeded 成功的会话数
+     * @param failed 失败的会话数
+     * @param elapsed 总耗时
+     * @param throughput 每秒成功的会话数
+     * @param peakHeapBytes 压测期间堆内存使用峰值（20ms 采样）
+     * @param peakThreads 压测期间的线程数峰值
+     * @param liveThreads 压测结束时的线程数
+     */
+    public record LoadReport(int sessions, int succeeded, int failed, Duration elapsed, double throughput,
+                             long latencyP50, long latencyP95, long latencyP99, long ttftP50, long ttftP95,
+                             long peakHeapBytes, int peakThreads, int liveThreads) {
+
+        public String format() {
+            return String.format(
+                "sessions=%d succeeded=%d failed=%d elapsed=%dms throughput=%.1f/s "
+                    + "latency(p50/p95/p99)=%d/%d/%dms ttft(p50/p95)=%d/%dms peakHeap=%dMB threads(peak/live)=%d/%d",
+                sessions, succeeded, failed, elapsed.toMillis(), throughput,
+                latencyP50, latencyP95, latencyP99, ttftP50, ttftP95,
+                peakHeapBytes / (1024 * 1024), peakThreads, liveThreads);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.miniclaw.llm.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.OpenAiCompatibleLlmClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 离线压测（客户端 + MockLlmServer）
+ *
+ * <p>默认规模很小，作为冒烟测试随单元测试运行；发布前放大规模并设置门槛：
+ * <pre>
+ * mvn test -Dtest=LoadDriverTest -Dload.sessions=20000 -Dload.concurrency=256 \
+ *     -Dload.minThroughput=500 -Dload.maxP99Millis=400
+ * </pre>
+ */
+@Slf4j
+class LoadDriverTest {
+
+    @Test
+    void testMixedChatAndStreamLoad() {
+        int sessions = Integer.getInteger("load.sessions", 200);
+        int concurrency = Integer.getInteger("load.concurrency", 32);
+        double minThroughput = Double.parseDouble(System.getProperty("load.minThroughput", "0"));
+        long maxP99Millis = Long.getLong("load.maxP99Millis", Long.MAX_VALUE);
+
+        try (MockLlmServer server = MockLlmServer.start(MockLlmServer.Options.builder()
+                .ttft(Duration.ofMillis(5))
+                .tokensPerSecond(2000)
+                .completionTokens(20)
+                .rateLimitRate(0.02)
+                .serverErrorRate(0.01)
+                .build())) {
+            OpenAiCompatibleLlmClient client = new OpenAiCompatibleLlmClient(
+                MockLlmServerTest.properties(server), new ObjectMapper(), new SimpleMeterRegistry());
+
+            LoadDriver.LoadReport report;
+            try {
+                report = new LoadDriver(client).run(LoadDriver.Options.builder()
+                    .sessions(sessions)
+                    .concurrency(concurrency)
+                    .timeout(Duration.ofMinutes(2))
+                    .build());
+            } finally {
+                client.dispose();
+            }
+            log.info("Load test: {}", report.format());
+
+            assertEquals(sessions, report.succeeded() + report.failed());
+            assertEquals(0, report.failed(), report.format());
+            assertTrue(report.latencyP50() <= report.latencyP99());
+            assertTrue(report.ttftP50() > 0);
+            assertTrue(report.peakHeapBytes() > 0);
+            assertTrue(report.peakThreads() >= report.liveThreads());
+            assertTrue(report.throughput() >= minThroughput, report.format());
+            assertTrue(report.latencyP99() <= maxP99Millis, report.format());
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.miniclaw.llm.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.miniclaw.llm.model.ToolCall;
+import io.netty.buffer.Unpooled;
+import lombok.Builder;
+import lombok.Data;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地 OpenAI 兼容 Mock 服务（{@code POST /v1/chat/completions}）
+ *
+ * <p>按请求的 {@code stream} 字段返回 JSON 或 SSE，可配置首 token 延迟、输出速度、工具调用和故障注入
+ * （429、5xx、连接重置），完全离线，用于客户端的功能测试和压测（见 {@link LoadDriver}）
+ *
+ * <p>使用示例：
+ * <pre>
+ * try (MockLlmServer server = MockLlmServer.start(MockLlmServer.Options.builder()
+ *         .ttft(Duration.ofMillis(50))
+ *         .tokensPerSecond(200)
+ *         .rateLimitRate(0.05)
+ *         .build())) {
+ *     provider.setEndpoint(server.getEndpoint());
+ *     ...
+ * }
+ * </pre>
+ */
+public class MockLlmServer implements AutoCloseable {
+
+    private static final String[] WORDS = {"The", "quick", "brown", "fox", "jumps", "over", "the", "lazy", "dog."};
+
+    private final Options options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong faults = new AtomicLong();
+    private final DisposableServer server;
+
+    private MockLlmServer(Options options) {
+        this.options = options;
+        this.random = new Random(options.getSeed());
+        this.server = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes
+                .post("/v1/chat/completions", this::handle)
+                .post("/chat/completions", this::handle))
+            .bindNow();
+    }
+
+    /**
+     * 启动服务（随机端口）
+     */
+    public static MockLlmServer start(Options options) {
+        return new MockLlmServer(options != null ? options : Options.builder().build());
+    }
+
+    /**
+     * Provider endpoint（{@code http://127.0.0.1:<port>/v1}）
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.port() + "/v1";
+    }
+
+    /**
+     * 收到的请求数（包括注入故障的请求）
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * 注入的故障数
+     */
+    public long getFaultCount() {
+        return faults.get();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asByteArray()
+            .flatMap(body -> {
+                requests.incrementAndGet();
+                JsonNode json;
+                try {
+                    json = objectMapper.readTree(body);
+                } catch (IOException e) {
+                    return error(response, 400, "invalid_request_error", "Malformed JSON body");
+                }
+
+                Call call = new Call(
+                    json.path("model").asText("mock-model"),
+                    Math.max(1, body.length / 4),
+                    json.path("stream").asBoolean(false),
+                    json.path("stream_options").path("include_usage").asBoolean(false));
+
+                Fault fault = nextFault();
+                return switch (fault) {
+                    case RATE_LIMIT -> error(response, 429, "rate_limit_exceeded", "Rate limit reached");
+                    case SERVER_ERROR -> error(response, 503, "server_error", "The server is overloaded");
+                    case RESET -> call.stream() ? sendStream(response, call, true) : reset(response);
+                    case NONE -> call.stream() ? sendStream(response, call, false) : sendJson(response, call);
+                };
+            });
+    }
+
+    private Fault nextFault() {
+        double roll;
+        synchronized (random) {
+            roll = random.nextDouble();
+        }
+        Fault fault;
+        if (roll < options.getRateLimitRate()) {
+            fault = Fault.RATE_LIMIT;
+        } else if (roll < options.getRateLimitRate() + options.getServerErrorRate()) {
+            fault = Fault.SERVER_ERROR;
+        } else if (roll < options.getRateLimitRate() + options.getServerErrorRate() + options.getResetRate()) {
+            fault = Fault.RESET;
+        } else {
+            return Fault.NONE;
+        }
+        faults.incrementAndGet();
+        return fault;
+    }
+
+    /**
+     * 非流式：等待首 token 延迟加上生成时间后一次性返回
+     */
+    private Mono<Void> sendJson(HttpServerResponse response, Call call) {
+        ObjectNode message = objectMapper.createObjectNode().put("role", "assistant");
+        String finishReason;
+        if (hasToolCalls()) {
+            message.putNull("content");
+            ArrayNode toolCalls = message.putArray("tool_calls");
+            for (ToolCall toolCall : options.getToolCalls()) {
+                toolCalls.addObject()
+                    .put("id", toolCall.getId())
+                    .put("type", "function")
+                    .putObject("function")
+                    .put("name", toolCall.getFunction().getName())
+                    .put("arguments", toolCall.getFunction().getArguments());
+            }
+            finishReason = "tool_calls";
+        } else {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < options.getCompletionTokens(); i++) {
+                content.append(token(i));
+            }
+            message.put("content", content.toString());
+            finishReason = "stop";
+        }
+
+        ObjectNode body = envelope("chat.completion", call);
+        ObjectNode choice = body.putArray("choices").addObject().put("index", 0);
+        choice.set("message", message);
+        choice.put("finish_reason", finishReason);
+        body.set("usage", usage(call));
+
+        Duration delay = options.getTtft().plus(generationTime(options.getCompletionTokens()));
+        return Mono.delay(delay)
+            .then(response.status(200)
+                .header("Content-Type", "application/json")
+                .sendByteArray(Mono.just(write(body)))
+                .then());
+    }
+
+    /**
+     * 流式：首 token 延迟后按输出速度逐个发送 SSE 事件，每个事件单独 flush
+     *
+     * @param reset 发送到一半时断开连接
+     */
+    private Mono<Void> sendStream(HttpServerResponse response, Call call, boolean reset) {
+        List<ObjectNode> deltas = new ArrayList<>();
+        if (hasToolCalls()) {
+            for (int index = 0; index < options.getToolCalls().size(); index++) {
+                ToolCall toolCall = options.getToolCalls().get(index);
+                ObjectNode first = objectMapper.createObjectNode();
+                first.putArray("tool_calls").addObject()
+                    .put("index", index)
+                    .put("id", toolCall.getId())
+                    .put("type", "function")
+                    .putObject("function")
+                    .put("name", toolCall.getFunction().getName())
+                    .put("arguments", "");
+                deltas.add(first);
+                String arguments = toolCall.getFunction().getArguments();
+                for (int offset = 0; offset < arguments.length(); offset += 4) {
+                    ObjectNode fragment = objectMapper.createObjectNode();
+                    fragment.putArray("tool_calls").addObject()
+                        .put("index", index)
+                        .putObject("function")
+                        .put("arguments", arguments.substring(offset, Math.min(offset + 4, arguments.length())));
+                    deltas.add(fragment);
+                }
+            }
+        } else {
+            for (int i = 0; i < options.getCompletionTokens(); i++) {
+                deltas.add(objectMapper.createObjectNode().put("content", token(i)));
+            }
+        }
+
+        Flux<byte[]> role = Mono.fromSupplier(() ->
+            event(chunk(call, objectMapper.createObjectNode().put("role", "assistant"), null))).flux();
+        Flux<byte[]> tokens = Flux.fromIterable(deltas).map(delta -> event(chunk(call, delta, null)));
+        if (options.getTokensPerSecond() > 0) {
+            tokens = tokens.delayElements(generationTime(1));
+        }
+
+        Flux<byte[]> events;
+        if (reset) {
+            events = Flux.concat(role, tokens.take(deltas.size() / 2),
+                Mono.<byte[]>fromRunnable(() -> response.withConnection(Connection::dispose)), Flux.<byte[]>never());
+        } else {
+            String finishReason = hasToolCalls() ? "tool_calls" : "stop";
+            Flux<byte[]> tail = Flux.defer(() -> {
+                List<byte[]> last = new ArrayList<>(3);
+                last.add(event(chunk(call, objectMapper.createObjectNode(), finishReason)));
+                if (call.includeUsage()) {
+                    ObjectNode usageChunk = envelope("chat.completion.chunk", call);
+                    usageChunk.putArray("choices");
+                    usageChunk.set("usage", usage(call));
+                    last.add(event(usageChunk));
+                }
+                last.add("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+                return Flux.fromIterable(last);
+            });
+            events = Flux.concat(role, tokens, tail);
+        }
+
+        return response.status(200)
+            .header("Content-Type", "text/event-stream")
+            .header("Cache-Control", "no-cache")
+            .send(events.delaySubscription(options.getTtft()).map(Unpooled::wrappedBuffer), buffer -> true)
+            .then();
+    }
+
+    private Mono<Void> error(HttpServerResponse response, int status, String type, String message) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("error").put("message", message).put("type", type);
+        if (status == 429) {
+            response.header("Retry-After", "0");
+        }
+        return response.status(status)
+            .header("Content-Type", "application/json")
+            .sendByteArray(Mono.just(write(body)))
+            .then();
+    }
+
+    /**
+     * 不返回响应直接断开连接
+     */
+    private Mono<Void> reset(HttpServerResponse response) {
+        response.withConnection(Connection::dispose);
+        return Mono.never();
+    }
+
+    private ObjectNode chunk(Call call, ObjectNode delta, String finishReason) {
+        ObjectNode chunk = envelope("chat.completion.chunk", call);
+        ObjectNode choice = chunk.putArray("choices").addObject().put("index", 0);
+        choice.set("delta", delta);
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        } else {
+            choice.putNull("finish_reason");
+        }
+        return chunk;
+    }
+
+    private ObjectNode envelope(String object, Call call) {
+        return objectMapper.createObjectNode()
+            .put("id", "chatcmpl-mock-" + requests.get())
+            .put("object", object)
+            .put("created", System.currentTimeMillis() / 1000)
+            .put("model", call.model());
+    }
+
+    private ObjectNode usage(Call call) {
+        int completionTokens = hasToolCalls() ? options.getToolCalls().size() * 16 : options.getCompletionTokens();
+        return objectMapper.createObjectNode()
+            .put("prompt_tokens", call.promptTokens())
+            .put("completion_tokens", completionTokens)
+            .put("total_tokens", call.promptTokens() + completionTokens);
+    }
+
+    private byte[] event(ObjectNode payload) {
+        byte[] json = write(payload);
+        byte[] event = new byte[json.length + 8];
+        System.arraycopy("data: ".getBytes(StandardCharsets.US_ASCII), 0, event, 0, 6);
+        System.arraycopy(json, 0, event, 6, json.length);
+        event[event.length - 2] = '\n';
+        event[event.length - 1] = '\n';
+        return event;
+    }
+
+    private byte[] write(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode mock response", e);
+        }
+    }
+
+    private boolean hasToolCalls() {
+        return options.getToolCalls() != null && !options.getToolCalls().isEmpty();
+    }
+
+    private Duration generationTime(int tokens) {
+        return options.getTokensPerSecond() > 0
+            ? Duration.ofNanos(tokens * 1_000_000_000L / options.getTokensPerSecond())
+            : Duration.ZERO;
+    }
+
+    private static String token(int index) {
+        return (index == 0 ? "" : " ") + WORDS[index % WORDS.length];
+    }
+
+    private enum Fault {
+        NONE, RATE_LIMIT, SERVER_ERROR, RESET
+    }
+
+    private record Call(String model, int promptTokens, boolean stream, boolean includeUsage) {
+    }
+
+    /**
+     * Mock 服务配置
+     */
+    @Data
+    @Builder
+    public static class Options {
+        /**
+         * 首 token 延迟（非流式为开始生成前的等待时间）
+         */
+        @Builder.Default
+        private Duration ttft = Duration.ZERO;
+
+        /**
+         * 输出速度（0 表示不限速）
+         */
+        @Builder.Default
+        private int tokensPerSecond = 0;
+
+        /**
+         * 每个响应的内容 token 数（有工具调用时不输出内容）
+         */
+        @Builder.Default
+        private int completionTokens = 20;
+
+        /**
+         * 返回的工具调用（为空时返回文本内容）
+         */
+        private List<ToolCall> toolCalls;
+
+        /**
+         * 返回 429 的比例
+         */
+        @Builder.Default
+        private double rateLimitRate = 0.0;
+
+        /**
+         * 返回 503 的比例
+         */
+        @Builder.Default
+        private double serverErrorRate = 0.0;
+
+        /**
+         * 连接重置的比例（非流式不返回响应，流式发送一半后断开）
+         */
+        @Builder.Default
+        private double resetRate = 0.0;
+
+        /**
+         * 故障注入的随机种子（相同种子、相同请求顺序时结果可复现）
+         */
+        @Builder.Default
+        private long seed = 42L;
+    }
+}
@@ -0,0 +1,197 @@
+package com.miniclaw.llm.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.OpenAiCompatibleLlmClient;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmRequest;
+import com.miniclaw.llm.model.LlmResponse;
+import com.miniclaw.llm.model.ToolCall;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockLlmServer 测试类（客户端经真实 HTTP 连接访问本地 Mock 服务）
+ */
+class MockLlmServerTest {
+
+    private static final List<ToolCall> TOOL_CALLS = List.of(
+        ToolCall.builder().id("call_1").type("function")
+            .function(ToolCall.FunctionCall.builder().name("get_weather").arguments("{\"city\":\"Shanghai\"}").build())
+            .build(),
+        ToolCall.builder().id("call_2").type("function")
+            .function(ToolCall.FunctionCall.builder().name("query_orders").arguments("{\"userId\":\"u-1\",\"limit\":5}").build())
+            .build());
+
+    private MockLlmServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void testChatReturnsJsonCompletion() {
+        OpenAiCompatibleLlmClient client = client(MockLlmServer.Options.builder().completionTokens(5).build());
+
+        LlmResponse response = client.chat(request());
+
+        assertEquals("The quick brown fox jumps", response.getContent());
+        assertEquals("stop", response.getFinishReason());
+        assertEquals(5, response.getUsage().getCompletionTokens());
+        assertTrue(response.getUsage().getPromptTokens() > 0);
+    }
+
+    @Test
+    void testStreamHonoursTtftAndRate() {
+        OpenAiCompatibleLlmClient client = client(MockLlmServer.Options.builder()
+            .ttft(Duration.ofMillis(100))
+            .tokensPerSecond(200)
+            .completionTokens(10)
+            .build());
+
+        long started = System.nanoTime();
+        List<LlmChunk> chunks = client.stream(request()).collectList().block(Duration.ofSeconds(10));
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        String content = chunks.stream()
+            .map(LlmChunk::getDelta)
+            .filter(delta -> delta != null)
+            .collect(Collectors.joining());
+        assertEquals("The quick brown fox jumps over the lazy dog. The", content);
+        assertEquals("stop", chunks.get(chunks.size() - 1).getFinishReason());
+        // 100ms 首 token 延迟 + 10 个 token × 5ms
+        assertTrue(elapsedMillis >= 150, "elapsed " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void testToolCallsInJsonAndStream() {
+        OpenAiCompatibleLlmClient client = client(MockLlmServer.Options.builder().toolCalls(TOOL_CALLS).build());
+
+        LlmResponse response = client.chat(request());
+        assertEquals("tool_calls", response.getFinishReason());
+        assertEquals(List.of("get_weather", "query_orders"),
+            response.getToolCalls().stream().map(call -> call.getFunction().getName()).toList());
+
+        List<ToolCall> streamed = client.stream(request())
+            .filter(LlmChunk::hasToolCalls)
+            .flatMapIterable(LlmChunk::getToolCalls)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+        assertEquals(2, streamed.size());
+        assertEquals("{\"userId\":\"u-1\",\"limit\":5}", streamed.get(1).getFunction().getArguments());
+    }
+
+    @Test
+    void testRateLimitIsRetried() {
+        OpenAiCompatibleLlmClient client = client(MockLlmServer.Options.builder()
+            .rateLimitRate(0.5)
+            .seed(7)
+            .build());
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(client.chat(request()).getContent());
+        }
+        assertTrue(server.getFaultCount() > 0);
+        assertEquals(10 + server.getFaultCount(), server.getRequestCount());
+    }
+
+    @Test
+    void testPersistentServerErrorFails() {
+        OpenAiCompatibleLlmClient client = client(MockLlmServer.Options.builder().serverErrorRate(1.0).build());
+
+        assertThrows(LlmException.class, () -> client.chat(request()));
+    }
+
+    @Test
+    void testStreamResetEndsWithErrorChunk() {
+        OpenAiCompatibleLlmClient client = client(MockLlmServer.Options.builder().resetRate(1.0).build());
+
+        List<LlmChunk> chunks = client.stream(request()).collectList().block(Duration.ofSeconds(10));
+
+        assertEquals("error", chunks.get(chunks.size() - 1).getFinishReason());
+    }
+
+    @Test
+    void testStreamReconcilesTokenReservation() {
+        for (boolean streamUsage : new boolean[] {true, false}) {
+            server = MockLlmServer.start(MockLlmServer.Options.builder().completionTokens(10).build());
+            LlmProperties properties = properties(server);
+            properties.getPromptCache().setStreamUsage(streamUsage);
+            properties.getProviders().get("mock").getRateLimit().setEnabled(true);
+            properties.getProviders().get("mock").getRateLimit().setTokensPerMinute(6_000);
+            OpenAiCompatibleLlmClient client = new OpenAiCompatibleLlmClient(
+                properties, new ObjectMapper(), new SimpleMeterRegistry());
+
+            List<LlmChunk> chunks = client.stream(request()).collectList().block(Duration.ofSeconds(10));
+            assertEquals("stop", chunks.get(chunks.size() - 1).getFinishReason());
+            assertEquals(streamUsage, chunks.get(chunks.size() - 1).getUsage() != null);
+
+            // 预留的 max_tokens（默认 4096）按实际用量退还，只扣 prompt + 10 个输出 token 左右（每毫秒只回补 0.1 个）
+            double used = 6_000 - client.getRateLimiters().get("mock", "mock-model").availableTokens();
+            assertTrue(used > 0 && used < 100, "streamUsage=" + streamUsage + ", used " + used);
+            server.close();
+        }
+    }
+
+    @Test
+    void testStreamRefundsTokenReservationOnError() {
+        server = MockLlmServer.start(MockLlmServer.Options.builder().serverErrorRate(1.0).build());
+        LlmProperties properties = properties(server);
+        properties.getProviders().get("mock").getRateLimit().setEnabled(true);
+        properties.getProviders().get("mock").getRateLimit().setTokensPerMinute(6_000);
+        OpenAiCompatibleLlmClient client = new OpenAiCompatibleLlmClient(
+            properties, new ObjectMapper(), new SimpleMeterRegistry());
+
+        // 每次重试都重新预留，失败后全部退还
+        client.stream(request()).onErrorResume(error -> Flux.empty()).collectList().block(Duration.ofSeconds(10));
+        assertTrue(server.getFaultCount() > 1);
+
+        // 允许测试期间按速率回补的少量额度
+        assertEquals(6_000, client.getRateLimiters().get("mock", "mock-model").availableTokens(), 1);
+    }
+
+    private OpenAiCompatibleLlmClient client(MockLlmServer.Options options) {
+        server = MockLlmServer.start(options);
+        return new OpenAiCompatibleLlmClient(properties(server), new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * 指向 Mock 服务的配置（重试退避缩短到毫秒级）
+     */
+    static LlmProperties properties(MockLlmServer server) {
+        LlmProperties.RetryConfig retry = new LlmProperties.RetryConfig();
+        retry.setInitialBackoffMillis(5);
+        retry.setMaxBackoffMillis(20);
+        retry.setBudgetBurst(1000);
+
+        LlmProperties.ProviderConfig provider = new LlmProperties.ProviderConfig();
+        provider.setEndpoint(server.getEndpoint());
+        provider.setApiKey("mock-key");
+        provider.setDefaultModel("mock-model");
+        provider.setRetry(retry);
+
+        LlmProperties properties = new LlmProperties();
+        properties.getProviders().put("mock", provider);
+        properties.setDefaultProvider("mock");
+        properties.setTimeout(10);
+        return properties;
+    }
+
+    private static LlmRequest request() {
+        return LlmRequest.builder()
+            .messages(List.of(LlmRequest.Message.user("hello")))
+            .build();
+    }
+}
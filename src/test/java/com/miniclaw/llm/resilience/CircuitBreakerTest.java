@@ -0,0 +1,185 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CircuitBreaker 测试类
+ */
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private LlmProperties.CircuitBreakerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new LlmProperties.CircuitBreakerConfig();
+        config.setEnabled(true);
+        config.setSlidingWindowSize(10);
+        config.setMinimumNumberOfCalls(4);
+        config.setFailureRateThreshold(50);
+        config.setSlowCallRateThreshold(100);
+        config.setSlowCallDuration(5);
+        config.setWaitDurationInOpenState(30);
+        config.setPermittedCallsInHalfOpenState(2);
+    }
+
+    @Test
+    void testOpensWhenFailureRateExceeded() {
+        CircuitBreaker breaker = breaker();
+
+        breaker.onResult(0, false);
+        breaker.onResult(0, true);
+        breaker.onResult(0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // 4 次调用中 2 次失败，达到 50%
+        breaker.onResult(0, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(1, breaker.snapshot().notPermittedCalls());
+    }
+
+    @Test
+    void testOpensWhenAllCallsSlow() {
+        CircuitBreaker breaker = breaker();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(Duration.ofSeconds(6).toNanos(), false);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testSlidingWindowEvictsOldCalls() {
+        CircuitBreaker breaker = breaker();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(0, i == 0);
+        }
+        // 窗口已满后，最早的失败被挤出
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult(0, false);
+        }
+
+        assertEquals(0.0, breaker.snapshot().failureRate());
+        assertEquals(10, breaker.snapshot().bufferedCalls());
+    }
+
+    @Test
+    void testHalfOpenClosesAfterSuccessfulProbes() {
+        CircuitBreaker breaker = openBreaker();
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        // 探测许可用完
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onResult(0, false);
+        breaker.onResult(0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.snapshot().bufferedCalls());
+    }
+
+    @Test
+    void testHalfOpenReopensAfterFailedProbes() {
+        CircuitBreaker breaker = openBreaker();
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onResult(0, true);
+        breaker.onResult(0, false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testDecorateIgnoresNonFailureErrors() {
+        CircuitBreaker breaker = breaker();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.decorate(Mono.error(new IllegalArgumentException("bad request")), error -> false)
+                .onErrorResume(error -> Mono.empty())
+                .block();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        for (int i = 0; i < 4; i++) {
+            breaker.decorate(Mono.error(new RuntimeException("503")), error -> true)
+                .onErrorResume(error -> Mono.empty())
+                .block();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testRegistryOnlyCoversEnabledProviders() {
+        LlmProperties properties = new LlmProperties();
+        LlmProperties.ProviderConfig openai = new LlmProperties.ProviderConfig();
+        openai.setModels(List.of("gpt-4"));
+        openai.setCircuitBreaker(config);
+        properties.getProviders().put("openai", openai);
+        properties.getProviders().put("deepseek", new LlmProperties.ProviderConfig());
+
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(properties, (providerId, error) -> true, null);
+
+        assertNotNull(registry.get("openai"));
+        assertNull(registry.get("deepseek"));
+        assertTrue(registry.tryAcquirePermission("deepseek"));
+        assertEquals(List.of("openai"), List.copyOf(registry.snapshots().keySet()));
+    }
+
+    @Test
+    void testRegistryPassesProviderToFailurePredicate() {
+        LlmProperties properties = new LlmProperties();
+        for (String providerId : List.of("openai", "deepseek")) {
+            LlmProperties.ProviderConfig provider = new LlmProperties.ProviderConfig();
+            provider.setCircuitBreaker(config);
+            properties.getProviders().put(providerId, provider);
+        }
+        List<String> seen = new ArrayList<>();
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(properties, (providerId, error) -> {
+            seen.add(providerId);
+            return "openai".equals(providerId);
+        }, null);
+
+        for (String providerId : List.of("openai", "deepseek")) {
+            for (int i = 0; i < 4; i++) {
+                registry.decorate(providerId, Mono.error(new RuntimeException("boom")))
+                    .onErrorResume(e -> Mono.empty())
+                    .block();
+            }
+        }
+
+        assertTrue(seen.contains("openai") && seen.contains("deepseek"));
+        assertEquals(CircuitBreaker.State.OPEN, registry.get("openai").getState());
+        assertEquals(CircuitBreaker.State.CLOSED, registry.get("deepseek").getState());
+    }
+
+    private CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(0, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("openai", config, clock::get);
+    }
+}
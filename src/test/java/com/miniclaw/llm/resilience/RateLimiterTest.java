@@ -0,0 +1,137 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 客户端限流测试
+ */
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testRequestsPerMinuteQueuesThenRejects() {
+        ProviderRateLimiter limiter = limiter(60, null, Duration.ofSeconds(2));
+
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.reserve(1));
+        }
+        // 每秒补充 1 个，排队等待
+        assertEquals(Duration.ofSeconds(1).toNanos(), limiter.reserve(1), 1000);
+        assertEquals(Duration.ofSeconds(2).toNanos(), limiter.reserve(1), 1000);
+        // 超过最大等待时间
+        assertEquals(-1, limiter.reserve(1));
+
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        assertTrue(limiter.reserve(1) >= 0);
+    }
+
+    @Test
+    void testTokensPerMinuteWithReconcile() {
+        ProviderRateLimiter limiter = limiter(null, 1000, Duration.ZERO);
+
+        assertEquals(0, limiter.reserve(900));
+        assertEquals(-1, limiter.reserve(200));
+
+        // 实际只用了 300，退还 600
+        limiter.reconcile(900, 300);
+        assertEquals(0, limiter.reserve(200));
+        assertEquals(500.0, limiter.availableTokens(), 0.01);
+    }
+
+    @Test
+    void testRemainingHeadersTightenBuckets() {
+        ProviderRateLimiter limiter = limiter(100, 10000, Duration.ofSeconds(5));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-ratelimit-remaining-requests", "50");
+        headers.add("x-ratelimit-remaining-tokens", "0");
+        headers.add("x-ratelimit-reset-tokens", "6m0s");
+
+        RateLimitExchangeFilter.update(limiter, 200, headers);
+
+        assertEquals(50.0, limiter.availableRequests(), 0.01);
+        // token 额度为 0 且 6 分钟后才重置，超过最大等待时间
+        assertEquals(-1, limiter.reserve(10));
+    }
+
+    @Test
+    void testRetryAfterBlocksAllBuckets() {
+        ProviderRateLimiter limiter = limiter(100, null, Duration.ofSeconds(5));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "3");
+
+        RateLimitExchangeFilter.update(limiter, 429, headers);
+
+        assertEquals(Duration.ofSeconds(3).toNanos(), limiter.reserve(1));
+    }
+
+    @Test
+    void testRetryAfterBlocksLimiterWithoutBuckets() {
+        ProviderRateLimiter limiter = limiter(null, null, Duration.ofSeconds(5));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "3");
+
+        RateLimitExchangeFilter.update(limiter, 429, headers);
+
+        assertEquals(Duration.ofSeconds(3).toNanos(), limiter.reserve(1));
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        assertEquals(0, limiter.reserve(1));
+
+        limiter.blockFor(Duration.ofSeconds(10));
+        assertEquals(-1, limiter.reserve(1));
+    }
+
+    @Test
+    void testParseDurations() {
+        assertEquals(Duration.ofMillis(90500), RateLimitExchangeFilter.parseDuration("1m30.5s"));
+        assertEquals(Duration.ofMillis(20), RateLimitExchangeFilter.parseDuration("20ms"));
+        assertEquals(Duration.ofHours(1).plusSeconds(2), RateLimitExchangeFilter.parseDuration("1h2s"));
+        assertNull(RateLimitExchangeFilter.parseDuration("soon"));
+
+        assertEquals(Duration.ofSeconds(7), RateLimitExchangeFilter.parseRetryAfter("7"));
+        assertEquals(Duration.ZERO, RateLimitExchangeFilter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(RateLimitExchangeFilter.parseRetryAfter("later"));
+    }
+
+    @Test
+    void testRegistryUsesModelOverrideAndRejects() {
+        LlmProperties properties = new LlmProperties();
+        LlmProperties.ProviderConfig openai = new LlmProperties.ProviderConfig();
+        openai.getRateLimit().setEnabled(true);
+        openai.getRateLimit().setRequestsPerMinute(100);
+        openai.getRateLimit().setMaxWait(0);
+        LlmProperties.ModelRateLimit gpt4 = new LlmProperties.ModelRateLimit();
+        gpt4.setRequestsPerMinute(1);
+        openai.getRateLimit().getModels().put("gpt-4", gpt4);
+        properties.getProviders().put("openai", openai);
+        properties.getProviders().put("deepseek", new LlmProperties.ProviderConfig());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimiterRegistry registry = new RateLimiterRegistry(properties, meterRegistry);
+
+        assertNull(registry.get("deepseek", "deepseek-chat"));
+        registry.acquire("openai", "gpt-4", 10).block();
+        LlmException error = assertThrows(LlmException.class,
+            () -> registry.acquire("openai", "gpt-4", 10).block());
+        assertEquals("RATE_LIMITED", error.getErrorCode());
+        assertEquals(1.0, meterRegistry.counter("llm.ratelimit.rejected",
+            "provider", "openai", "model", "gpt-4").count());
+
+        // 其他模型使用 Provider 级别的额度
+        registry.acquire("openai", "gpt-3.5-turbo", 10).block();
+        registry.acquire("openai", "gpt-3.5-turbo", 10).block();
+    }
+
+    private ProviderRateLimiter limiter(Integer rpm, Integer tpm, Duration maxWait) {
+        return new ProviderRateLimiter("openai", "gpt-4", rpm, tpm, maxWait, clock::get);
+    }
+}
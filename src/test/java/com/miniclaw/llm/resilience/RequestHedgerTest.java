@@ -0,0 +1,145 @@
+package com.miniclaw.llm.resilience;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.routing.ProviderRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RequestHedger 测试类
+ */
+class RequestHedgerTest {
+
+    private LlmProperties properties;
+    private ProviderRouter router;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProperties();
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinSamples(5);
+        properties.getHedging().setMinDelayMillis(10);
+        properties.getHedging().setBudgetPercent(100);
+        properties.getHedging().setBudgetBurst(5);
+
+        meterRegistry = new SimpleMeterRegistry();
+        router = new ProviderRouter(properties, id -> true, meterRegistry);
+    }
+
+    @Test
+    void testBackupWinsWhenPrimaryIsSlow() {
+        recordSamples("openai", Duration.ofMillis(20));
+        RequestHedger hedger = hedger();
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        AtomicReference<String> backupFor = new AtomicReference<>();
+
+        String result = hedger.hedge(
+                Mono.delay(Duration.ofSeconds(2)).map(tick -> "primary")
+                    .doOnCancel(() -> primaryCancelled.set(true)),
+                () -> "openai",
+                primaryId -> {
+                    backupFor.set(primaryId);
+                    return Mono.just("backup");
+                })
+            .block(Duration.ofSeconds(1));
+
+        assertEquals("backup", result);
+        assertEquals("openai", backupFor.get());
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, meterRegistry.counter("llm.requests.hedged", "provider", "openai").count());
+        assertEquals(1.0, meterRegistry.counter("llm.requests.hedge.wins", "provider", "openai").count());
+    }
+
+    @Test
+    void testNoHedgeWithoutEnoughSamples() {
+        RequestHedger hedger = hedger();
+        AtomicBoolean backupCalled = new AtomicBoolean();
+
+        String result = hedger.hedge(
+                Mono.delay(Duration.ofMillis(100)).map(tick -> "primary"),
+                () -> "openai",
+                primaryId -> {
+                    backupCalled.set(true);
+                    return Mono.just("backup");
+                })
+            .block(Duration.ofSeconds(1));
+
+        assertEquals("primary", result);
+        assertFalse(backupCalled.get());
+    }
+
+    @Test
+    void testNoHedgeWhenBudgetExhausted() {
+        properties.getHedging().setBudgetPercent(0);
+        properties.getHedging().setBudgetBurst(0);
+        recordSamples("openai", Duration.ofMillis(20));
+        RequestHedger hedger = hedger();
+        AtomicBoolean backupCalled = new AtomicBoolean();
+
+        String result = hedger.hedge(
+                Mono.delay(Duration.ofMillis(200)).map(tick -> "primary"),
+                () -> "openai",
+                primaryId -> {
+                    backupCalled.set(true);
+                    return Mono.just("backup");
+                })
+            .block(Duration.ofSeconds(1));
+
+        assertEquals("primary", result);
+        assertFalse(backupCalled.get());
+    }
+
+    @Test
+    void testBackupFailureWaitsForPrimary() {
+        recordSamples("openai", Duration.ofMillis(20));
+        RequestHedger hedger = hedger();
+
+        String result = hedger.hedge(
+                Mono.delay(Duration.ofMillis(200)).map(tick -> "primary"),
+                () -> "openai",
+                primaryId -> Mono.error(new RuntimeException("backup failed")))
+            .block(Duration.ofSeconds(1));
+
+        assertEquals("primary", result);
+    }
+
+    @Test
+    void testBudgetRatio() {
+        RequestBudget budget = new RequestBudget(10, 2);
+
+        // 初始余额为 maxBurst
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+
+        // 余额不超过 maxBurst
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertEquals(2.0, budget.available());
+    }
+
+    private RequestHedger hedger() {
+        return new RequestHedger(properties.getHedging(), router, meterRegistry);
+    }
+
+    private void recordSamples(String providerId, Duration latency) {
+        for (int i = 0; i < 10; i++) {
+            router.stats(providerId).recordLatency(latency.toNanos());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.miniclaw.llm.resilience;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重试策略测试
+ */
+class RetryPolicyTest {
+
+    private LlmProperties properties;
+    private LlmProperties.RetryConfig config;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProperties();
+        LlmProperties.ProviderConfig openai = new LlmProperties.ProviderConfig();
+        openai.setModels(List.of("gpt-4"));
+        properties.getProviders().put("openai", openai);
+
+        config = openai.getRetry();
+        config.setInitialBackoffMillis(1);
+        config.setMaxBackoffMillis(4);
+    }
+
+    @Test
+    void testClassification() {
+        DefaultRetryPolicy policy = new DefaultRetryPolicy(config);
+
+        assertTrue(policy.isRetryable(WebClientResponseException.create(503, "Unavailable", null, null, null)));
+        assertTrue(policy.isRetryable(WebClientResponseException.create(429, "Too Many", null, null, null)));
+        assertFalse(policy.isRetryable(WebClientResponseException.create(400, "Bad Request", null, null, null)));
+        assertTrue(policy.isRetryable(new TimeoutException()));
+        assertTrue(policy.isRetryable(new RuntimeException(new IOException("Connection reset"))));
+        assertFalse(policy.isRetryable(new LlmException("Circuit breaker open", "CIRCUIT_OPEN")));
+        assertFalse(policy.isRetryable(new RuntimeException(new JsonParseException(null, "bad json"))));
+        // 不再根据错误信息猜测
+        assertFalse(policy.isRetryable(new RuntimeException("upstream returned 503")));
+    }
+
+    @Test
+    void testConfiguredStatusCodes() {
+        config.setRetryableStatusCodes(List.of(503));
+        DefaultRetryPolicy policy = new DefaultRetryPolicy(config);
+
+        assertTrue(policy.isRetryable(WebClientResponseException.create(503, "Unavailable", null, null, null)));
+        assertFalse(policy.isRetryable(WebClientResponseException.create(500, "Error", null, null, null)));
+    }
+
+    @Test
+    void testJitteredExponentialBackoff() {
+        config.setInitialBackoffMillis(100);
+        config.setMaxBackoffMillis(1000);
+        config.setJitter(0.5);
+        DefaultRetryPolicy policy = new DefaultRetryPolicy(config);
+
+        for (int i = 0; i < 50; i++) {
+            long first = policy.backoff(1, null).toMillis();
+            long third = policy.backoff(3, null).toMillis();
+            long capped = policy.backoff(10, null).toMillis();
+            assertTrue(first >= 50 && first <= 100, "first: " + first);
+            assertTrue(third >= 200 && third <= 400, "third: " + third);
+            assertTrue(capped >= 500 && capped <= 1000, "capped: " + capped);
+        }
+    }
+
+    @Test
+    void testRetryAfterRespected() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "2");
+        WebClientResponseException error = WebClientResponseException.create(
+            429, "Too Many", headers, null, null);
+
+        config.setMaxBackoffMillis(5000);
+        assertEquals(Duration.ofSeconds(2), new DefaultRetryPolicy(config).backoff(1, error));
+    }
+
+    @Test
+    void testRetryAfterCappedAtMaxBackoff() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "3600");
+        WebClientResponseException error = WebClientResponseException.create(
+            429, "Too Many", headers, null, null);
+
+        config.setMaxBackoffMillis(5000);
+        assertEquals(Duration.ofSeconds(5), new DefaultRetryPolicy(config).backoff(1, error));
+    }
+
+    @Test
+    void testRetriesUntilExhausted() {
+        config.setMaxRetries(2);
+        config.setBudgetPercent(100);
+        RetryPolicyRegistry registry = registry();
+        AtomicInteger attempts = new AtomicInteger();
+
+        Mono<String> call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new TimeoutException());
+        });
+
+        LlmException error = assertThrows(LlmException.class,
+            () -> registry.withRetry("openai", call, "Max retries exceeded").block());
+        assertEquals("Max retries exceeded", error.getMessage());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void testBudgetLimitsRetries() {
+        config.setMaxRetries(3);
+        config.setBudgetPercent(0);
+        config.setBudgetBurst(0);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryPolicyRegistry registry = new RetryPolicyRegistry(properties, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Mono<String> call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new TimeoutException());
+        });
+
+        assertThrows(Exception.class, () -> registry.withRetry("openai", call, "Max retries exceeded").block());
+        assertEquals(1, attempts.get());
+        assertEquals(1.0, meterRegistry.counter("llm.retries",
+            "provider", "openai", "outcome", "budget_exhausted").count());
+    }
+
+    @Test
+    void testNonRetryableErrorNotRetried() {
+        RetryPolicyRegistry registry = registry();
+        AtomicInteger attempts = new AtomicInteger();
+
+        Mono<String> call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(WebClientResponseException.create(401, "Unauthorized", null, null, null));
+        });
+
+        assertThrows(WebClientResponseException.class,
+            () -> registry.withRetry("openai", call, "Max retries exceeded").block());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void testCustomPolicyClass() {
+        config.setPolicyClass(NeverRetryPolicy.class.getName());
+
+        assertInstanceOf(NeverRetryPolicy.class, registry().get("openai"));
+        assertInstanceOf(DefaultRetryPolicy.class, registry().get("unknown"));
+    }
+
+    @Test
+    void testDefaultPolicyReused() {
+        RetryPolicyRegistry registry = registry();
+
+        assertSame(registry.get(null), registry.get(null));
+    }
+
+    private RetryPolicyRegistry registry() {
+        return new RetryPolicyRegistry(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * 测试用自定义策略
+     */
+    public static class NeverRetryPolicy implements RetryPolicy {
+
+        @Override
+        public boolean isRetryable(Throwable error) {
+            return false;
+        }
+
+        @Override
+        public int maxRetries(boolean stream) {
+            return 0;
+        }
+
+        @Override
+        public Duration backoff(int attempt, Throwable error) {
+            return Duration.ZERO;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.miniclaw.llm.routing;
+
+import com.miniclaw.llm.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProviderRouter 测试类
+ */
+class ProviderRouterTest {
+
+    private LlmProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProperties();
+        properties.getProviders().put("openai", provider("gpt-4", "gpt-3.5-turbo"));
+        properties.getProviders().put("azure", provider("gpt-4"));
+        properties.getProviders().put("deepseek", provider("deepseek-chat"));
+        properties.getRouting().setEnabled(true);
+        properties.getRouting().getGroups().put("gpt", List.of("openai", "azure", "deepseek"));
+    }
+
+    @Test
+    void testCandidatesFilteredByModel() {
+        ProviderRouter router = router();
+
+        assertEquals(List.of("openai", "azure"), router.candidates("openai", "gpt-4"));
+        assertEquals(List.of("openai"), router.candidates("openai", "gpt-3.5-turbo"));
+        assertEquals(List.of("azure", "openai"), router.candidates("azure", "gpt-4"));
+    }
+
+    @Test
+    void testUnavailableProviderExcluded() {
+        ProviderRouter router = new ProviderRouter(properties, "openai"::equals, null);
+
+        assertEquals(List.of("openai"), router.candidates("openai", "gpt-4"));
+    }
+
+    @Test
+    void testDisabledRoutingKeepsRequestedProvider() {
+        properties.getRouting().setEnabled(false);
+        ProviderRouter router = router();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("openai", router.route("openai", "gpt-4"));
+        }
+    }
+
+    @Test
+    void testPowerOfTwoChoicesAvoidsSlowProvider() {
+        ProviderRouter router = router();
+        router.stats("openai").recordLatency(Duration.ofSeconds(5).toNanos());
+        router.stats("azure").recordLatency(Duration.ofMillis(200).toNanos());
+
+        // 只有两个候选时，P2C 总是比较这两个
+        for (int i = 0; i < 20; i++) {
+            assertEquals("azure", router.route("openai", "gpt-4"));
+        }
+    }
+
+    @Test
+    void testLeastOutstanding() {
+        properties.getRouting().setStrategy(LlmProperties.RoutingConfig.Strategy.LEAST_OUTSTANDING);
+        ProviderRouter router = router();
+        router.stats("openai").onStart();
+        router.stats("openai").onStart();
+        router.stats("azure").onStart();
+
+        assertEquals("azure", router.route("openai", "gpt-4"));
+    }
+
+    @Test
+    void testWeightedSkipsZeroWeight() {
+        properties.getRouting().setStrategy(LlmProperties.RoutingConfig.Strategy.WEIGHTED);
+        properties.getProvider("openai").setWeight(0);
+        ProviderRouter router = router();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("azure", router.route("openai", "gpt-4"));
+        }
+    }
+
+    @Test
+    void testTrackRecordsInFlightAndLatency() {
+        ProviderRouter router = new ProviderRouter(properties, id -> true, new SimpleMeterRegistry());
+        Sinks.One<String> sink = Sinks.one();
+
+        Mono<String> tracked = router.track("openai", sink.asMono());
+        tracked.subscribe();
+        assertEquals(1, router.stats("openai").getInFlight());
+
+        sink.tryEmitValue("ok");
+        assertEquals(0, router.stats("openai").getInFlight());
+        assertTrue(router.stats("openai").getEwmaLatencyNanos() > 0);
+    }
+
+    @Test
+    void testFailedCallRecordsPenalty() {
+        ProviderRouter router = router();
+
+        router.track("openai", Mono.error(new RuntimeException("boom"))).onErrorResume(e -> Mono.empty()).block();
+
+        assertEquals(0, router.stats("openai").getInFlight());
+        // 快速失败按 max(耗时, 冷启动延迟 1s) × 5 惩罚
+        assertEquals(Duration.ofSeconds(5).toNanos(), router.stats("openai").getEwmaLatencyNanos(), 1_000_000);
+        assertEquals(-1, router.stats("openai").latencyPercentile(50, 1));
+    }
+
+    @Test
+    void testFastFailingProviderAvoided() {
+        ProviderRouter router = router();
+        router.stats("azure").recordLatency(Duration.ofMillis(800).toNanos());
+        router.track("openai", Mono.error(new RuntimeException("connection refused")))
+            .onErrorResume(e -> Mono.empty())
+            .block();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("azure", router.route("openai", "gpt-4"));
+        }
+
+        properties.getRouting().setStrategy(LlmProperties.RoutingConfig.Strategy.LEAST_OUTSTANDING);
+        ProviderRouter leastOutstanding = router();
+        leastOutstanding.stats("azure").recordLatency(Duration.ofMillis(800).toNanos());
+        leastOutstanding.trackStream("openai", Flux.error(new RuntimeException("503")))
+            .onErrorResume(e -> Flux.empty())
+            .blockLast();
+        assertEquals("azure", leastOutstanding.route("openai", "gpt-4"));
+    }
+
+    @Test
+    void testColdStartScoreIsNeutral() {
+        ProviderRouter router = router();
+        router.stats("openai").recordLatency(Duration.ofMillis(200).toNanos());
+
+        // 没有样本的 Provider 按冷启动延迟（1s）评分，不会比已知更快的 Provider 更优先
+        assertEquals(Duration.ofSeconds(1).toNanos(), router.stats("azure").score());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("openai", router.route("openai", "gpt-4"));
+        }
+    }
+
+    @Test
+    void testTrackStreamRecordsFirstChunkLatency() {
+        ProviderRouter router = router();
+
+        List<Integer> items = router.trackStream("azure", Flux.just(1, 2, 3)).collectList().block();
+
+        assertEquals(List.of(1, 2, 3), items);
+        assertEquals(0, router.stats("azure").getInFlight());
+        assertTrue(router.stats("azure").getEwmaLatencyNanos() > 0);
+    }
+
+    @Test
+    void testEwmaSmoothing() {
+        ProviderStats stats = new ProviderStats("openai", 0.5);
+        stats.recordLatency(100);
+        stats.recordLatency(200);
+
+        assertEquals(150.0, stats.getEwmaLatencyNanos());
+    }
+
+    @Test
+    void testLatencyPercentile() {
+        ProviderStats stats = new ProviderStats("openai", 0.3);
+        assertEquals(-1, stats.latencyPercentile(95, 1));
+
+        for (int i = 1; i <= 100; i++) {
+            stats.recordLatency(i);
+        }
+
+        assertEquals(95, stats.latencyPercentile(95, 20));
+        assertEquals(50, stats.latencyPercentile(50, 20));
+        assertEquals(-1, stats.latencyPercentile(95, 200));
+    }
+
+    private ProviderRouter router() {
+        return new ProviderRouter(properties, id -> true, null);
+    }
+
+    private static LlmProperties.ProviderConfig provider(String... models) {
+        LlmProperties.ProviderConfig config = new LlmProperties.ProviderConfig();
+        config.setEndpoint("https://example.com/v1");
+        config.setApiKey("test-key");
+        config.setModels(List.of(models));
+        return config;
+    }
+}
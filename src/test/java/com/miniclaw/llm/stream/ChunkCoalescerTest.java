@@ -0,0 +1,155 @@
+package com.miniclaw.llm.stream;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.LlmResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChunkCoalescer 测试类
+ */
+class ChunkCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChunkCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        LlmProperties.StreamCoalescingConfig config = new LlmProperties.StreamCoalescingConfig();
+        config.setEnabled(true);
+        config.setMaxChars(8);
+        config.setWindowMillis(30);
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ChunkCoalescer(config, meterRegistry);
+    }
+
+    @Test
+    void testFirstTokenIsNotDelayed() {
+        StepVerifier.withVirtualTime(() -> Flux.concat(
+                    Flux.just(delta("H"), delta("e"), delta("l")),
+                    Flux.never())
+                .transform(coalescer))
+            .expectSubscription()
+            .expectNextMatches(chunk -> "H".equals(chunk.getDelta()))
+            .expectNoEvent(Duration.ofMillis(29))
+            .thenAwait(Duration.ofMillis(1))
+            .expectNextMatches(chunk -> "el".equals(chunk.getDelta()))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void testContentAfterIdleGapIsEmittedImmediately() {
+        StepVerifier.withVirtualTime(() -> Flux.concat(
+                    Flux.just(delta("a")),
+                    Flux.just(delta("b")).delaySubscription(Duration.ofMillis(100)),
+                    Flux.never())
+                .transform(coalescer))
+            .expectSubscription()
+            .expectNextMatches(chunk -> "a".equals(chunk.getDelta()))
+            .expectNoEvent(Duration.ofMillis(100))
+            .expectNextMatches(chunk -> "b".equals(chunk.getDelta()))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void testFlushesWhenSizeThresholdReached() {
+        Sinks.Many<LlmChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(upstream.asFlux().transform(coalescer).map(LlmChunk::getDelta))
+            .then(() -> {
+                upstream.tryEmitNext(delta("x"));
+                upstream.tryEmitNext(delta("1234"));
+                upstream.tryEmitNext(delta("5678"));
+            })
+            .expectNext("x", "12345678")
+            .then(upstream::tryEmitComplete)
+            .verifyComplete();
+    }
+
+    @Test
+    void testNonContentChunkFlushesPendingContent() {
+        LlmChunk done = LlmChunk.builder().finishReason("stop").done(true)
+            .usage(LlmResponse.Usage.builder().promptTokens(3).build())
+            .build();
+
+        StepVerifier.create(Flux.just(delta("a"), delta("b"), delta("c"), done).transform(coalescer))
+            .expectNextMatches(chunk -> "a".equals(chunk.getDelta()))
+            .expectNextMatches(chunk -> "bc".equals(chunk.getDelta()))
+            .expectNext(done)
+            .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.counter("llm.stream.chunks.coalesced").count());
+    }
+
+    @Test
+    void testToolCallDeltasAreNotMerged() {
+        LlmChunk toolDelta = LlmChunk.builder().delta("").toolCallIndex(0).toolCallArgumentsDelta("{\"a\"").build();
+
+        StepVerifier.create(Flux.just(delta("a"), delta("b"), toolDelta, toolDelta).transform(coalescer))
+            .expectNextMatches(chunk -> "a".equals(chunk.getDelta()))
+            .expectNextMatches(chunk -> "b".equals(chunk.getDelta()))
+            .expectNext(toolDelta, toolDelta)
+            .verifyComplete();
+    }
+
+    @Test
+    void testErrorFlushesPendingContentFirst() {
+        StepVerifier.create(Flux.concat(Flux.just(delta("a"), delta("b"), delta("c")),
+                    Flux.<LlmChunk>error(new IllegalStateException("boom")))
+                .transform(coalescer)
+                .map(LlmChunk::getDelta))
+            .expectNext("a", "bc")
+            .verifyErrorMessage("boom");
+    }
+
+    @Test
+    void testUpstreamDemandFollowsDownstream() {
+        AtomicLong requested = new AtomicLong();
+        Flux<LlmChunk> upstream = Flux.range(0, 1000)
+            .map(i -> delta("x"))
+            .doOnRequest(n -> requested.addAndGet(n));
+
+        StepVerifier.create(upstream.transform(coalescer), 1)
+            .expectNextMatches(chunk -> "x".equals(chunk.getDelta()))
+            .expectNoEvent(Duration.ofMillis(100))
+            .thenCancel()
+            .verify();
+
+        // 第一个立即输出，第二个开始累积并在窗口到期时输出，但下游没有请求，不再拉取上游
+        assertTrue(requested.get() <= 2, "requested " + requested.get());
+    }
+
+    @Test
+    void testSubscriberContextReachesUpstream() {
+        Flux<LlmChunk> upstream = Flux.deferContextual(context -> Flux.just(delta(context.get("traceId"))));
+
+        StepVerifier.create(upstream.transform(coalescer).contextWrite(Context.of("traceId", "t-1")))
+            .expectNextMatches(chunk -> "t-1".equals(chunk.getDelta()))
+            .verifyComplete();
+    }
+
+    @Test
+    void testContentOnlyDetection() {
+        assertTrue(ChunkCoalescer.isContentOnly(delta("a")));
+        assertFalse(ChunkCoalescer.isContentOnly(LlmChunk.builder().build()));
+        assertFalse(ChunkCoalescer.isContentOnly(LlmChunk.builder().delta("a").finishReason("stop").build()));
+        assertFalse(ChunkCoalescer.isContentOnly(LlmChunk.builder().delta("a").toolCallId("call_1").build()));
+    }
+
+    private static LlmChunk delta(String text) {
+        return LlmChunk.builder().delta(text).build();
+    }
+}
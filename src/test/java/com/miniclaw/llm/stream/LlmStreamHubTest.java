@@ -0,0 +1,222 @@
+package com.miniclaw.llm.stream;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmChunk;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LlmStreamHub 测试类
+ */
+class LlmStreamHubTest {
+
+    private LlmProperties.StreamHubConfig config;
+    private LlmStreamHub hub;
+    private UUID runId;
+
+    @BeforeEach
+    void setUp() {
+        config = new LlmProperties.StreamHubConfig();
+        config.setReplayLimit(3);
+        hub = new LlmStreamHub(config, new SimpleMeterRegistry());
+        runId = UUID.randomUUID();
+    }
+
+    @Test
+    void testSubscribersShareOneUpstream() {
+        Sinks.Many<LlmChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flux<LlmChunk> source = upstream.asFlux().doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+        Flux<LlmChunk> first = hub.open(runId, () -> source);
+        Flux<LlmChunk> second = hub.open(runId, () -> source);
+        Flux<LlmChunk> third = hub.subscribe(runId);
+
+        StepVerifier.create(Flux.merge(first, second, third).map(LlmChunk::getDelta).collectList())
+            .then(() -> {
+                upstream.tryEmitNext(delta("a"));
+                upstream.tryEmitNext(delta("b"));
+                upstream.tryEmitComplete();
+            })
+            .assertNext(deltas -> assertEquals(6, deltas.size()))
+            .verifyComplete();
+
+        assertEquals(1, subscriptions.get());
+        assertFalse(hub.isActive(runId));
+        assertEquals(0, hub.activeRuns());
+    }
+
+    @Test
+    void testLateJoinerReceivesBoundedReplay() {
+        Sinks.Many<LlmChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        hub.open(runId, upstream::asFlux);
+        for (String delta : List.of("1", "2", "3", "4", "5")) {
+            upstream.tryEmitNext(delta(delta));
+        }
+
+        // 回放缓冲只保留最近 3 个 chunk
+        StepVerifier.create(hub.subscribe(runId).map(LlmChunk::getDelta))
+            .expectNext("3", "4", "5")
+            .then(() -> {
+                upstream.tryEmitNext(delta("6"));
+                upstream.tryEmitComplete();
+            })
+            .expectNext("6")
+            .verifyComplete();
+    }
+
+    @Test
+    void testOpenWithFastSourceStillReplays() {
+        // 上游在 open 返回前就结束：run 已移除，但 open 返回的流仍能读到缓冲
+        Flux<LlmChunk> shared = hub.open(runId, () -> Flux.just(delta("x"), done()));
+
+        assertFalse(hub.isActive(runId));
+        StepVerifier.create(shared.map(LlmChunk::isDone))
+            .expectNext(false, true)
+            .verifyComplete();
+    }
+
+    @Test
+    void testSubscribeUnknownRunFails() {
+        StepVerifier.create(hub.subscribe(UUID.randomUUID()))
+            .expectErrorSatisfies(error -> assertEquals("STREAM_NOT_FOUND", ((LlmException) error).getErrorCode()))
+            .verify();
+    }
+
+    @Test
+    void testSlowDropSubscriberDoesNotBlockOthers() {
+        Sinks.Many<LlmChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        hub.open(runId, upstream::asFlux);
+
+        Flux<LlmChunk> slow = hub.subscribe(runId, LlmProperties.StreamHubConfig.Overflow.DROP, 0);
+        Flux<LlmChunk> fast = hub.subscribe(runId);
+
+        StepVerifier.create(slow.map(LlmChunk::getDelta), 1)
+            .then(() -> {
+                upstream.tryEmitNext(delta("a"));
+                upstream.tryEmitNext(delta("b"));
+                upstream.tryEmitNext(delta("c"));
+            })
+            .expectNext("a")
+            .then(() -> StepVerifier.create(fast.map(LlmChunk::getDelta))
+                .expectNext("a", "b", "c")
+                .then(upstream::tryEmitComplete)
+                .verifyComplete())
+            .thenRequest(10)
+            .verifyComplete();
+    }
+
+    @Test
+    void testLatestSubscriberKeepsNewestChunk() {
+        Sinks.Many<LlmChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        hub.open(runId, upstream::asFlux);
+
+        StepVerifier.create(hub.subscribe(runId, LlmProperties.StreamHubConfig.Overflow.LATEST, 0)
+                .map(LlmChunk::getDelta), 0)
+            .then(() -> {
+                upstream.tryEmitNext(delta("a"));
+                upstream.tryEmitNext(delta("b"));
+                upstream.tryEmitNext(delta("c"));
+                upstream.tryEmitComplete();
+            })
+            .thenRequest(10)
+            .expectNext("c")
+            .verifyComplete();
+    }
+
+    @Test
+    void testBufferOverflowFailsOnlyThatSubscriber() {
+        Sinks.Many<LlmChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        hub.open(runId, upstream::asFlux);
+
+        StepVerifier.create(hub.subscribe(runId, LlmProperties.StreamHubConfig.Overflow.BUFFER, 2), 0)
+            .then(() -> {
+                upstream.tryEmitNext(delta("a"));
+                upstream.tryEmitNext(delta("b"));
+                upstream.tryEmitNext(delta("c"));
+            })
+            .thenRequest(10)
+            .expectNextCount(2)
+            .expectErrorSatisfies(error -> assertEquals("STREAM_OVERFLOW", ((LlmException) error).getErrorCode()))
+            .verify(Duration.ofSeconds(5));
+
+        assertTrue(hub.isActive(runId));
+    }
+
+    @Test
+    void testCancelStopsUpstream() {
+        Sinks.Many<LlmChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger cancelled = new AtomicInteger();
+        Flux<LlmChunk> shared = hub.open(runId, () -> upstream.asFlux().doOnCancel(cancelled::incrementAndGet));
+
+        StepVerifier.create(shared)
+            .then(() -> upstream.tryEmitNext(delta("a")))
+            .expectNextCount(1)
+            .then(() -> assertTrue(hub.cancel(runId)))
+            .assertNext(chunk -> assertEquals("cancelled", chunk.getFinishReason()))
+            .verifyComplete();
+
+        assertEquals(1, cancelled.get());
+        assertFalse(hub.cancel(runId));
+    }
+
+    @Test
+    void testFailedSourceDoesNotLeaveChannel() {
+        List<Throwable> joinedErrors = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> hub.open(runId, () -> {
+            // 通道已注册、上游尚未创建时加入的订阅者
+            hub.subscribe(runId).subscribe(chunk -> { }, joinedErrors::add);
+            throw new IllegalStateException("no provider");
+        }));
+        assertFalse(hub.isActive(runId));
+        assertEquals(1, joinedErrors.size());
+        assertEquals("no provider", joinedErrors.get(0).getMessage());
+
+        StepVerifier.create(hub.open(runId, () -> Flux.just(delta("a"))).map(LlmChunk::getDelta))
+            .expectNext("a")
+            .verifyComplete();
+    }
+
+    @Test
+    void testCancelConcurrentWithUpstreamEmits() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            UUID id = UUID.randomUUID();
+            Flux<LlmChunk> source = Flux.range(0, 10_000)
+                .map(i -> delta(String.valueOf(i)))
+                .subscribeOn(Schedulers.parallel());
+
+            Flux<LlmChunk> chunks = hub.open(id, () -> source);
+            Thread canceller = new Thread(() -> hub.cancel(id));
+            canceller.start();
+
+            List<LlmChunk> received = chunks.collectList().block(Duration.ofSeconds(5));
+            canceller.join();
+
+            assertNotNull(received);
+            LlmChunk last = received.get(received.size() - 1);
+            assertTrue(last.getDelta() != null || "cancelled".equals(last.getFinishReason()));
+        }
+    }
+
+    private static LlmChunk delta(String text) {
+        return LlmChunk.builder().delta(text).build();
+    }
+
+    private static LlmChunk done() {
+        return LlmChunk.builder().finishReason("stop").done(true).build();
+    }
+}
@@ -0,0 +1,208 @@
+package com.miniclaw.llm.stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.miniclaw.llm.model.LlmChunk;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SseChunkDecoder 测试类
+ */
+class SseChunkDecoderTest {
+
+    private static final String CONTENT_STREAM =
+        "data: {\"id\":\"1\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"你好\"},\"finish_reason\":null}]}\n\n"
+            + "data: {\"id\":\"1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"，世界\"},\"finish_reason\":null}]}\n\n"
+            + "data: {\"id\":\"1\",\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n"
+            + "data: [DONE]\n\n";
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    @Test
+    void testDecodeContentStream() {
+        List<LlmChunk> chunks = decode(CONTENT_STREAM, Integer.MAX_VALUE);
+
+        assertEquals(3, chunks.size());
+        assertEquals("你好", chunks.get(0).getDelta());
+        assertFalse(chunks.get(0).isDone());
+        assertEquals("，世界", chunks.get(1).getDelta());
+        assertNull(chunks.get(2).getDelta());
+        assertEquals("stop", chunks.get(2).getFinishReason());
+        assertTrue(chunks.get(2).isDone());
+    }
+
+    @Test
+    void testDecodeAcrossArbitraryBufferBoundaries() {
+        // 逐字节切分（包括多字节 UTF-8 字符中间）结果应与整块解码一致
+        for (int size = 1; size <= 7; size++) {
+            List<LlmChunk> chunks = decode(CONTENT_STREAM, size);
+            assertEquals(3, chunks.size(), "buffer size " + size);
+            assertEquals("你好", chunks.get(0).getDelta());
+            assertEquals("，世界", chunks.get(1).getDelta());
+            assertTrue(chunks.get(2).isDone());
+        }
+    }
+
+    @Test
+    void testDecodeToolCalls() {
+        String stream =
+            "data: {\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"id\":\"call_1\",\"type\":\"function\",\"function\":{\"name\":\"get_weather\",\"arguments\":\"\"}}]}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"function\":{\"arguments\":\"{\\\"city\\\":\"}}]}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"function\":{\"arguments\":\"\\\"北京\\\"}\"}}]},\"finish_reason\":\"tool_calls\"}]}\n\n"
+                + "data: [DONE]\n\n";
+
+        List<LlmChunk> chunks = decode(stream, 5);
+
+        assertEquals(3, chunks.size());
+        assertEquals(0, chunks.get(0).getToolCallIndex());
+        assertEquals("call_1", chunks.get(0).getToolCallId());
+        assertEquals("get_weather", chunks.get(0).getToolCallFunctionName());
+        assertNull(chunks.get(0).getToolCallArgumentsDelta());
+        assertFalse(chunks.get(0).hasToolCalls());
+        assertEquals("{\"city\":", chunks.get(1).getToolCallArgumentsDelta());
+        assertFalse(chunks.get(1).hasToolCalls());
+
+        LlmChunk last = chunks.get(2);
+        assertTrue(last.isDone());
+        assertEquals("tool_calls", last.getFinishReason());
+        assertEquals(1, last.getToolCalls().size());
+        assertEquals("call_1", last.getToolCalls().get(0).getId());
+        assertEquals("get_weather", last.getToolCalls().get(0).getFunction().getName());
+        assertEquals("{\"city\":\"北京\"}", last.getToolCalls().get(0).getFunction().getArguments());
+    }
+
+    @Test
+    void testToolCallEmittedOnceArgumentsComplete() {
+        String stream =
+            "data: {\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"id\":\"call_1\",\"type\":\"function\",\"function\":{\"name\":\"get_weather\",\"arguments\":\"{\\\"city\\\":\\\"}\\\"\"}}]}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"function\":{\"arguments\":\"}\"}},{\"index\":1,\"id\":\"call_2\",\"type\":\"function\",\"function\":{\"name\":\"get_time\",\"arguments\":\"\"}}]}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"tool_calls\"}]}\n\n"
+                + "data: [DONE]\n\n";
+
+        List<LlmChunk> chunks = decode(stream, 7);
+
+        assertEquals(4, chunks.size());
+        // 引号内的 "}" 不会被当作对象结束
+        assertFalse(chunks.get(0).hasToolCalls());
+
+        // 第一个调用在结束事件之前就完整输出
+        LlmChunk completed = chunks.get(1);
+        assertFalse(completed.isDone());
+        assertEquals(1, completed.getToolCalls().size());
+        assertEquals("call_1", completed.getToolCalls().get(0).getId());
+        assertEquals("{\"city\":\"}\"}", completed.getToolCalls().get(0).getFunction().getArguments());
+
+        LlmChunk started = chunks.get(2);
+        assertEquals(1, started.getToolCallIndex());
+        assertEquals("get_time", started.getToolCallFunctionName());
+        assertFalse(started.hasToolCalls());
+
+        // 没有参数的调用在流结束时输出，已输出的调用不重复
+        LlmChunk last = chunks.get(3);
+        assertTrue(last.isDone());
+        assertEquals(1, last.getToolCalls().size());
+        assertEquals("call_2", last.getToolCalls().get(0).getId());
+        assertEquals("get_time", last.getToolCalls().get(0).getFunction().getName());
+    }
+
+    @Test
+    void testIgnoreCommentsAndOtherFields() {
+        String stream = ": keep-alive\r\n"
+            + "event: message\r\n"
+            + "id: 42\r\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"hi\"}}]}\r\n\r\n"
+            + "data: {\"choices\":[],\"usage\":{\"prompt_tokens\":1}}\r\n\r\n";
+
+        List<LlmChunk> chunks = decode(stream, 3);
+
+        assertEquals(1, chunks.size());
+        assertEquals("hi", chunks.get(0).getDelta());
+    }
+
+    @Test
+    void testRecoverFromMalformedEvent() {
+        String stream = "data: {\"choices\":[{\"delta\":{\"content\":oops}}]}\n\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"ok\"}}]}\n\n";
+
+        List<LlmChunk> chunks = decode(stream, Integer.MAX_VALUE);
+
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).isDone());
+        assertEquals("ok", chunks.get(1).getDelta());
+    }
+
+    @Test
+    void testUsageAttachedToFinalChunk() {
+        // include_usage：用量在完成原因之后单独的事件中返回，最后一个 chunk 等到用量后再输出
+        String stream =
+            "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"hi\"},\"finish_reason\":null}],\"usage\":null}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],\"usage\":null}\n\n"
+                + "data: {\"choices\":[],\"usage\":{\"prompt_tokens\":1200,\"completion_tokens\":5,\"total_tokens\":1205,"
+                + "\"prompt_tokens_details\":{\"cached_tokens\":1024}}}\n\n"
+                + "data: [DONE]\n\n";
+
+        for (int size : new int[]{Integer.MAX_VALUE, 3}) {
+            List<LlmChunk> chunks = decode(stream, size, true);
+
+            assertEquals(2, chunks.size());
+            assertNull(chunks.get(0).getUsage());
+            LlmChunk last = chunks.get(1);
+            assertTrue(last.isDone());
+            assertEquals("stop", last.getFinishReason());
+            assertEquals(1200, last.getUsage().getPromptTokens());
+            assertEquals(5, last.getUsage().getCompletionTokens());
+            assertEquals(1205, last.getUsage().getTotalTokens());
+            assertEquals(1024, last.getUsage().getCachedTokens());
+        }
+    }
+
+    @Test
+    void testUsageInsideFinalChoiceEvent() {
+        // DeepSeek 风格：用量和完成原因在同一个事件中
+        String stream = "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":100,\"completion_tokens\":2,\"total_tokens\":102,\"prompt_cache_hit_tokens\":64}}\n\n";
+
+        List<LlmChunk> chunks = decode(stream, Integer.MAX_VALUE, true);
+
+        assertEquals(1, chunks.size());
+        assertEquals(64, chunks.get(0).getUsage().getCachedTokens());
+    }
+
+    @Test
+    void testFinalChunkReleasedWithoutUsage() {
+        // 等待用量时 Provider 没有返回用量：[DONE] 或上游结束时输出最后一个 chunk
+        List<LlmChunk> chunks = decode(CONTENT_STREAM, Integer.MAX_VALUE, true);
+        assertEquals(3, chunks.size());
+        assertTrue(chunks.get(2).isDone());
+        assertNull(chunks.get(2).getUsage());
+
+        String withoutDone = CONTENT_STREAM.substring(0, CONTENT_STREAM.indexOf("data: [DONE]"));
+        assertEquals(3, decode(withoutDone, Integer.MAX_VALUE, true).size());
+    }
+
+    private List<LlmChunk> decode(String payload, int bufferSize) {
+        return decode(payload, bufferSize, false);
+    }
+
+    private List<LlmChunk> decode(String payload, int bufferSize, boolean awaitUsage) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        List<LlmChunk> chunks = new ArrayList<>();
+        try (SseChunkDecoder decoder = new SseChunkDecoder(new JsonFactory(), awaitUsage)) {
+            for (int offset = 0; offset < bytes.length; offset += bufferSize) {
+                int end = (int) Math.min((long) offset + bufferSize, bytes.length);
+                DataBuffer buffer = bufferFactory.wrap(Arrays.copyOfRange(bytes, offset, end));
+                chunks.addAll(decoder.decode(buffer));
+            }
+            chunks.addAll(decoder.finish());
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,141 @@
+package com.miniclaw.llm.stream;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.config.LlmProperties.RetryConfig.StreamResumeMode;
+import com.miniclaw.llm.exception.LlmException;
+import com.miniclaw.llm.model.LlmChunk;
+import com.miniclaw.llm.model.ToolCall;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamResume 测试类
+ */
+class StreamResumeTest {
+
+    @Test
+    void testSuppressPrefixSkipsDeliveredContent() {
+        StreamResume resume = new StreamResume(StreamResumeMode.SUPPRESS_PREFIX);
+
+        StreamResume.Attempt first = resume.newAttempt();
+        assertFalse(first.isContinuation());
+        assertEquals("你好", first.apply(delta("你好")).getDelta());
+        assertEquals("，世", first.apply(delta("，世")).getDelta());
+        // 连接断开
+
+        StreamResume.Attempt retry = resume.newAttempt();
+        List<String> output = new ArrayList<>();
+        for (LlmChunk chunk : List.of(delta("你好，"), delta("世界"), finish())) {
+            LlmChunk resumed = retry.apply(chunk);
+            if (resumed != null && resumed.getDelta() != null) {
+                output.add(resumed.getDelta());
+            }
+        }
+
+        assertEquals(List.of("界"), output);
+        assertEquals("你好，世界", resume.getDeliveredContent());
+    }
+
+    @Test
+    void testSuppressPrefixFailsWhenRetryDiverges() {
+        StreamResume resume = new StreamResume(StreamResumeMode.SUPPRESS_PREFIX);
+        resume.newAttempt().apply(delta("今天晴"));
+
+        StreamResume.Attempt retry = resume.newAttempt();
+        LlmException error = assertThrows(LlmException.class, () -> retry.apply(delta("今天下雨")));
+        assertEquals("STREAM_DIVERGED", error.getErrorCode());
+    }
+
+    @Test
+    void testContinueAppendsNewContentOnly() {
+        StreamResume resume = new StreamResume(StreamResumeMode.CONTINUE);
+        resume.newAttempt().apply(delta("从前有座山，"));
+
+        StreamResume.Attempt retry = resume.newAttempt();
+        assertTrue(retry.isContinuation());
+        assertEquals("从前有座山，", retry.getPartialContent());
+        assertEquals("山里有座庙", retry.apply(delta("山里有座庙")).getDelta());
+        assertEquals("从前有座山，山里有座庙", resume.getDeliveredContent());
+    }
+
+    @Test
+    void testDefaultModeSuppressesPrefixAndFailsOnDivergence() {
+        assertEquals(StreamResumeMode.SUPPRESS_PREFIX, new LlmProperties.RetryConfig().getStreamResumeMode());
+
+        for (StreamResume resume : List.of(
+                new StreamResume(new LlmProperties.RetryConfig().getStreamResumeMode()),
+                new StreamResume(null))) {
+            resume.newAttempt().apply(delta("从前有座山，"));
+
+            StreamResume.Attempt retry = resume.newAttempt();
+            assertFalse(retry.isContinuation());
+            LlmException error = assertThrows(LlmException.class, () -> retry.apply(delta("很久很久以前")));
+            assertEquals("STREAM_DIVERGED", error.getErrorCode());
+        }
+    }
+
+    @Test
+    void testContinueFallsBackToSuppressAfterToolCallDelta() {
+        StreamResume resume = new StreamResume(StreamResumeMode.CONTINUE);
+        resume.newAttempt().apply(toolDelta("call_1", "get_weather", "{\"city\":"));
+
+        assertFalse(resume.newAttempt().isContinuation());
+    }
+
+    @Test
+    void testToolCallsResumeWithOriginalId() {
+        StreamResume resume = new StreamResume(StreamResumeMode.SUPPRESS_PREFIX);
+        StreamResume.Attempt first = resume.newAttempt();
+        first.apply(toolDelta("call_1", "get_weather", null));
+        first.apply(toolDelta("call_1", null, "{\"city\":"));
+
+        StreamResume.Attempt retry = resume.newAttempt();
+        // 已输出的函数名和参数前缀被跳过
+        assertNull(retry.apply(toolDelta("call_9", "get_weather", "{\"city\":")));
+
+        LlmChunk rest = retry.apply(LlmChunk.builder()
+            .toolCallIndex(0)
+            .toolCallId("call_9")
+            .toolCallArgumentsDelta("\"北京\"}")
+            .toolCalls(List.of(ToolCall.builder()
+                .id("call_9")
+                .type("function")
+                .function(ToolCall.FunctionCall.builder().name("get_weather").arguments("{\"city\":\"北京\"}").build())
+                .build()))
+            .build());
+
+        assertEquals("call_1", rest.getToolCallId());
+        assertEquals("\"北京\"}", rest.getToolCallArgumentsDelta());
+        assertEquals("call_1", rest.getToolCalls().get(0).getId());
+
+        // 完整调用只输出一次
+        LlmChunk last = retry.apply(LlmChunk.builder()
+            .toolCalls(List.of(ToolCall.builder().id("call_9").build()))
+            .finishReason("tool_calls")
+            .done(true)
+            .build());
+        assertNull(last.getToolCalls());
+        assertTrue(last.isDone());
+    }
+
+    private static LlmChunk delta(String delta) {
+        return LlmChunk.builder().delta(delta).build();
+    }
+
+    private static LlmChunk finish() {
+        return LlmChunk.builder().finishReason("stop").done(true).build();
+    }
+
+    private static LlmChunk toolDelta(String id, String name, String arguments) {
+        return LlmChunk.builder()
+            .toolCallIndex(0)
+            .toolCallId(id)
+            .toolCallFunctionName(name)
+            .toolCallArgumentsDelta(arguments)
+            .build();
+    }
+}
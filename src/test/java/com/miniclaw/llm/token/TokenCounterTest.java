@@ -0,0 +1,124 @@
+package com.miniclaw.llm.token;
+
+import com.miniclaw.llm.config.LlmProperties;
+import com.miniclaw.llm.model.LlmRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BpeTokenizer 和 TokenCounter 测试类
+ */
+class TokenCounterTest {
+
+    /**
+     * 测试词表：256 个单字节 + 少量合并
+     */
+    private static final String[] MERGES = {"he", "ll", "llo", "hello", " w", "or", "ld"};
+
+    @TempDir
+    Path tempDir;
+
+    private String vocabulary;
+
+    @BeforeEach
+    void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int b = 0; b < 256; b++) {
+            builder.append(Base64.getEncoder().encodeToString(new byte[]{(byte) b})).append(' ').append(b).append('\n');
+        }
+        for (int i = 0; i < MERGES.length; i++) {
+            builder.append(Base64.getEncoder().encodeToString(MERGES[i].getBytes(StandardCharsets.UTF_8)))
+                .append(' ').append(256 + i).append('\n');
+        }
+        vocabulary = builder.toString();
+    }
+
+    @Test
+    void testBpeMerges() throws Exception {
+        BpeTokenizer tokenizer = load();
+
+        // "hello" 整体在词表中；" world" 合并为 " w" + "or" + "ld"
+        assertArrayEquals(new int[]{259, 260, 261, 262}, tokenizer.encode("hello world"));
+        assertEquals(4, tokenizer.countTokens("hello world"));
+
+        // "hell" 不在词表中：he + ll
+        assertArrayEquals(new int[]{256, 257}, tokenizer.encode("hell"));
+
+        // 没有合并的多字节字符按 UTF-8 字节输出
+        assertEquals(6, tokenizer.countTokens("你好"));
+        assertEquals(0, tokenizer.countTokens(""));
+        assertEquals(263, tokenizer.vocabularySize());
+    }
+
+    @Test
+    void testPreTokenizerSplitsDigitsAndContractions() throws Exception {
+        BpeTokenizer tokenizer = load();
+
+        // "12345" 按最多 3 位切分，"'ll" 单独成段
+        assertEquals(5, tokenizer.countTokens("12345"));
+        assertArrayEquals(new int[]{'w', '\'', 257}, tokenizer.encode("w'll"));
+    }
+
+    @Test
+    void testCounterLoadsVocabularyFromLocation() throws Exception {
+        Path file = tempDir.resolve("test.tiktoken");
+        Files.writeString(file, vocabulary);
+
+        LlmProperties.TokenizerConfig config = new LlmProperties.TokenizerConfig();
+        config.getEncodings().put("cl100k_base", file.toUri().toString());
+        TokenCounter counter = new TokenCounter(config, null);
+
+        assertTrue(counter.tokenizer("gpt-4").isExact());
+        assertEquals(4, counter.count("hello world"));
+
+        // 每条消息 3 + 角色 + 内容，整体再加 3
+        List<LlmRequest.Message> messages = List.of(LlmRequest.Message.user("hello"));
+        int role = counter.count("user");
+        assertEquals(3 + 3 + role + 1, counter.count("gpt-4", messages));
+    }
+
+    @Test
+    void testFallsBackToEstimationWithoutVocabulary() {
+        LlmProperties.TokenizerConfig config = new LlmProperties.TokenizerConfig();
+        config.getEncodings().put("cl100k_base", "classpath:tokenizer/missing.tiktoken");
+        TokenCounter counter = new TokenCounter(config, null);
+
+        assertFalse(counter.tokenizer(null).isExact());
+        assertEquals(2, counter.count("你好"));
+        assertEquals(3, counter.count("hello world"));
+    }
+
+    @Test
+    void testDefaultConfigEstimatesWithoutVocabulary() {
+        LlmProperties.TokenizerConfig config = new LlmProperties.TokenizerConfig();
+        TokenCounter counter = new TokenCounter(config, null);
+
+        assertTrue(config.getEncodings().isEmpty());
+        assertFalse(counter.tokenizer("gpt-4o").isExact());
+        assertEquals(3, counter.count("hello world"));
+    }
+
+    @Test
+    void testModelEncodingLongestPrefix() {
+        TokenCounter counter = new TokenCounter(new LlmProperties.TokenizerConfig(), null);
+
+        assertEquals("o200k_base", counter.encoding("gpt-4o-mini"));
+        assertEquals("cl100k_base", counter.encoding("gpt-4"));
+        assertEquals("cl100k_base", counter.encoding("deepseek-chat"));
+    }
+
+    private BpeTokenizer load() throws Exception {
+        return BpeTokenizer.load("cl100k_base",
+            new ByteArrayInputStream(vocabulary.getBytes(StandardCharsets.US_ASCII)), BpeTokenizer.CL100K_PATTERN);
+    }
+}
@@ -0,0 +1,107 @@
+package com.miniclaw.llm.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniclaw.llm.exception.LlmException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolRegistry 测试类
+ */
+class ToolRegistryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ToolRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ToolRegistry(objectMapper);
+    }
+
+    @Test
+    void testRegisterEncodesOnce() throws Exception {
+        ToolRegistry.RegisteredTool tool = registry.register("get_weather", "查询城市天气", Map.of(
+            "type", "object",
+            "properties", Map.of("city", Map.of("type", "string")),
+            "required", List.of("city")));
+
+        JsonNode encoded = objectMapper.readTree(tool.encoded());
+        assertEquals("function", encoded.path("type").asText());
+        assertEquals("get_weather", encoded.path("function").path("name").asText());
+        assertEquals("string",
+            encoded.path("function").path("parameters").path("properties").path("city").path("type").asText());
+
+        // 解析结果直接引用缓存的字节
+        assertSame(tool.encoded(), registry.resolve(List.of("get_weather")).get(0));
+    }
+
+    @Test
+    void testRegisterJson() {
+        registry.register("{\"type\":\"function\",\"function\":{\"name\":\"now\",\"parameters\":{\"type\":\"object\"}}}");
+        registry.register("add", null, null);
+
+        assertEquals(List.of("add", "now"), List.copyOf(registry.names()));
+        assertEquals(2, registry.resolve(List.of("now", "add")).size());
+    }
+
+    @Test
+    void testEncodingIsKeyOrderIndependent() {
+        byte[] a = registry.register("f", "d", Map.of("type", "object", "properties", Map.of())).encoded();
+        byte[] b = registry.register(
+            "{\"function\":{\"parameters\":{\"properties\":{},\"type\":\"object\"},\"description\":\"d\",\"name\":\"f\"},"
+                + "\"type\":\"function\"}").encoded();
+
+        assertArrayEquals(a, b);
+    }
+
+    @Test
+    void testInvalidDefinitionsRejected() {
+        assertInvalid(() -> registry.register("bad name", null, null));
+        assertInvalid(() -> registry.register("f", null, Map.of("type", "string")));
+        assertInvalid(() -> registry.register("f", null, Map.of(
+            "type", "object", "properties", Map.of(), "required", List.of("city"))));
+        assertInvalid(() -> registry.register(Map.of("type", "retrieval")));
+        assertInvalid(() -> registry.register("{not json"));
+        assertTrue(registry.names().isEmpty());
+    }
+
+    @Test
+    void testResolveSortedIsOrderIndependent() throws Exception {
+        registry.register("search", null, null);
+        registry.register("add", null, null);
+        Map<String, Object> inline = new LinkedHashMap<>();
+        inline.put("function", Map.of("name", "lookup", "description", "d"));
+        inline.put("type", "function");
+
+        List<byte[]> first = registry.resolveSorted(List.of(inline), List.of("search", "add"));
+        List<byte[]> second = registry.resolveSorted(
+            List.of(Map.of("type", "function", "function", Map.of("description", "d", "name", "lookup"))),
+            List.of("add", "search"));
+
+        assertEquals(3, first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertArrayEquals(first.get(i), second.get(i));
+        }
+        assertEquals("add", objectMapper.readTree(first.get(0)).path("function").path("name").asText());
+        assertEquals("lookup", objectMapper.readTree(first.get(1)).path("function").path("name").asText());
+        assertEquals("search", objectMapper.readTree(first.get(2)).path("function").path("name").asText());
+    }
+
+    @Test
+    void testUnknownToolRejected() {
+        LlmException error = assertThrows(LlmException.class, () -> registry.resolve(List.of("missing")));
+        assertEquals("UNKNOWN_TOOL", error.getErrorCode());
+    }
+
+    private static void assertInvalid(org.junit.jupiter.api.function.Executable executable) {
+        LlmException error = assertThrows(LlmException.class, executable);
+        assertEquals("INVALID_TOOL", error.getErrorCode());
+    }
+}